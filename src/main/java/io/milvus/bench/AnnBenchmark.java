@@ -0,0 +1,413 @@
+package io.milvus.bench;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import io.milvus.common.VectorFiles;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.BinaryDistances;
+import io.milvus.index.BinaryVectorIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndex;
+import io.milvus.index.VectorIndexFactory;
+
+/**
+ * An ann-benchmarks-style harness. It builds every requested index type with a sweep of build parameters and
+ * measures, for each sweep of search parameters, the build time, index memory, recall@k, and single- and
+ * multi-threaded QPS. Results are written as CSV, followed by the Pareto frontier of recall against
+ * multi-threaded QPS for every metric: the configurations that no other configuration beats on both.
+ * <p>
+ * Arguments are <code>key=value</code> pairs:
+ * <ul>
+ *     <li><code>base</code>: an <code>.fvecs</code>, <code>.bvecs</code> or <code>.npy</code> file, or
+ *     <code>synthetic</code> (default) for clustered Gaussian data;</li>
+ *     <li><code>queries</code>: a query file, or the number of synthetic queries (default 1000);</li>
+ *     <li><code>count</code>: the number of base vectors, a limit for files (default 100000);</li>
+ *     <li><code>dim</code>: the dimension of synthetic data (default 128);</li>
+ *     <li><code>k</code>: the number of neighbors (default 10);</li>
+ *     <li><code>threads</code>: the number of search threads (default: all cores);</li>
+ *     <li><code>types</code>: comma-separated index types (default: every supported type);</li>
+ *     <li><code>metrics</code>: comma-separated metric types (default <code>L2,HAMMING</code>). Binary metrics
+ *     run on the base vectors binarized at the mean of each dimension;</li>
+ *     <li><code>out</code>: the CSV file, the Pareto frontier goes to <code>out</code> with a
+ *     <code>.pareto.csv</code> suffix (default: standard output).</li>
+ * </ul>
+ */
+public final class AnnBenchmark {
+    private static final int[] NPROBES = {1, 2, 4, 8, 16, 32, 64, 128};
+    private static final int[] EFS = {16, 32, 64, 128, 256};
+    private static final int[] SEARCH_KS = {500, 2000, 10000, 50000};
+    private static final int[] SEARCH_LISTS = {16, 32, 64, 128, 256};
+    private static final String HEADER = "dataset,metric,index,build_params,search_params,build_ms,memory_bytes,"
+            + "recall,qps_1,qps_n";
+
+    private final String dataset;
+    private final float[] base;
+    private final float[] queries;
+    private final int count;
+    private final int queryCount;
+    private final int dim;
+    private final int k;
+    private final int threads;
+
+    private AnnBenchmark(String dataset, float[] base, int count, float[] queries, int queryCount, int dim, int k,
+                         int threads) {
+        this.dataset = dataset;
+        this.base = base;
+        this.count = count;
+        this.queries = queries;
+        this.queryCount = queryCount;
+        this.dim = dim;
+        this.k = k;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            options.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        int count = Integer.parseInt(options.getOrDefault("count", "100000"));
+        int k = Integer.parseInt(options.getOrDefault("k", "10"));
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        String baseName = options.getOrDefault("base", "synthetic");
+        String queryName = options.getOrDefault("queries", "1000");
+
+        float[] base;
+        float[] queries;
+        int dim;
+        int queryCount;
+        String dataset;
+        if ("synthetic".equals(baseName)) {
+            dim = Integer.parseInt(options.getOrDefault("dim", "128"));
+            queryCount = Integer.parseInt(queryName);
+            base = Datasets.clustered(count, dim, 256, 1L);
+            queries = Datasets.clustered(queryCount, dim, 256, 1L + count);
+            dataset = "synthetic-" + count + "x" + dim;
+        } else {
+            VectorFiles.Matrix b = VectorFiles.read(Paths.get(baseName), count);
+            VectorFiles.Matrix q = VectorFiles.read(Paths.get(queryName), Integer.MAX_VALUE);
+            if (b.getCols() != q.getCols()) {
+                throw new IllegalArgumentException("Base dimension " + b.getCols()
+                        + " does not match query dimension " + q.getCols());
+            }
+            base = b.getData();
+            count = b.getRows();
+            queries = q.getData();
+            queryCount = q.getRows();
+            dim = b.getCols();
+            dataset = Paths.get(baseName).getFileName().toString();
+        }
+
+        List<IndexType> types = new ArrayList<>();
+        if (options.containsKey("types")) {
+            for (String t : options.get("types").split(",")) {
+                types.add(IndexType.valueOf(t.trim()));
+            }
+        } else {
+            types.addAll(Arrays.asList(IndexType.values()));
+        }
+        List<MetricType> metrics = new ArrayList<>();
+        for (String m : options.getOrDefault("metrics", "L2,HAMMING").split(",")) {
+            metrics.add(MetricType.valueOf(m.trim()));
+        }
+
+        AnnBenchmark bench = new AnnBenchmark(dataset, base, count, queries, queryCount, dim, k, threads);
+        String out = options.get("out");
+        try (PrintStream csv = out == null ? null : new PrintStream(Files.newOutputStream(Paths.get(out)));
+             PrintStream pareto = out == null ? null
+                     : new PrintStream(Files.newOutputStream(Paths.get(out + ".pareto.csv")))) {
+            PrintStream rows = csv == null ? System.out : csv;
+            rows.println(HEADER);
+            List<String[]> frontier = new ArrayList<>();
+            for (MetricType metric : metrics) {
+                List<String[]> results = bench.run(metric, types, rows);
+                frontier.addAll(pareto(results));
+            }
+            PrintStream front = pareto == null ? System.out : pareto;
+            if (pareto == null) {
+                front.println();
+            }
+            front.println(HEADER);
+            for (String[] row : frontier) {
+                front.println(String.join(",", row));
+            }
+        }
+    }
+
+    private List<String[]> run(MetricType metric, List<IndexType> types, PrintStream out) throws Exception {
+        boolean binary = metric != MetricType.L2 && metric != MetricType.IP;
+        if (binary) {
+            try {
+                BinaryDistances.checkBinaryMetric(metric);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Skipping " + metric + ": it filters rather than ranks vectors");
+                return Collections.emptyList();
+            }
+        }
+        float[] thresholds = Datasets.means(base, count, dim);
+        long[] binaryBase = binary ? Datasets.binarize(base, count, dim, thresholds) : null;
+        long[] binaryQueries = binary ? Datasets.binarize(queries, queryCount, dim, thresholds) : null;
+        int words = BinaryDistances.words(dim);
+        Subject exact = binary
+                ? new BinarySubject(VectorIndexFactory.createBinary(IndexType.BIN_FLAT, metric, dim,
+                        IndexParams.empty()), binaryBase, binaryQueries, words)
+                : new FloatSubject(VectorIndexFactory.create(IndexType.FLAT, metric, dim, IndexParams.empty()),
+                        base, queries, dim);
+        exact.build(count);
+        SearchResult[] truth = new SearchResult[queryCount];
+        IntStream.range(0, queryCount).parallel()
+                .forEach(q -> truth[q] = exact.search(q, k, IndexParams.empty()));
+
+        List<String[]> results = new ArrayList<>();
+        for (IndexType type : types) {
+            for (IndexParams build : buildSweep(type, binary)) {
+                Subject subject;
+                try {
+                    subject = binary
+                            ? new BinarySubject(VectorIndexFactory.createBinary(type, metric, dim, build),
+                                    binaryBase, binaryQueries, words)
+                            : new FloatSubject(VectorIndexFactory.create(type, metric, dim, build),
+                                    base, queries, dim);
+                } catch (IllegalArgumentException e) {
+                    // the type does not apply to this kind of vector or metric
+                    break;
+                }
+                long start = System.nanoTime();
+                subject.build(count);
+                long buildMillis = (System.nanoTime() - start) / 1_000_000;
+                long memory = subject.index.memoryBytes();
+                for (IndexParams search : searchSweep(type)) {
+                    double recall = 0d;
+                    for (int q = 0; q < queryCount; q++) {
+                        recall += Recall.at(k, truth[q], subject.search(q, k, search));
+                    }
+                    double qps1 = qps(subject, search, 1);
+                    double qpsN = qps(subject, search, threads);
+                    String[] row = {dataset, metric.name(), type.name(), quote(build), quote(search),
+                            String.valueOf(buildMillis), String.valueOf(memory),
+                            String.format("%.4f", recall / queryCount), String.format("%.1f", qps1),
+                            String.format("%.1f", qpsN)};
+                    out.println(String.join(",", row));
+                    out.flush();
+                    results.add(row);
+                }
+            }
+        }
+        return results;
+    }
+
+    private double qps(Subject subject, IndexParams search, int threadCount) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        try {
+            AtomicInteger next = new AtomicInteger();
+            List<Future<?>> futures = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int t = 0; t < threadCount; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int q = next.getAndIncrement(); q < queryCount; q = next.getAndIncrement()) {
+                        subject.search(q, k, search);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return queryCount / ((System.nanoTime() - start) / 1e9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private List<IndexParams> buildSweep(IndexType type, boolean binary) {
+        List<IndexParams> sweep = new ArrayList<>();
+        IndexParams ivf = IndexParams.empty().with(IndexParams.NLIST,
+                Math.max(1, (int) Math.round(4d * Math.sqrt(count))));
+        switch (type) {
+            case FLAT:
+            case BIN_FLAT:
+            case AUTOINDEX:
+                sweep.add(IndexParams.empty());
+                break;
+            case IVF_FLAT:
+            case IVF_SQ8:
+            case BIN_IVF_FLAT:
+                sweep.add(ivf);
+                break;
+            case IVF_PQ:
+                for (int m : new int[] {dim / 4, dim / 8}) {
+                    if (m > 0 && dim % m == 0) {
+                        sweep.add(ivf.with(IndexParams.PQ_M, m).with(IndexParams.PQ_NBITS, 8));
+                    }
+                }
+                if (dim % 2 == 0) {
+                    sweep.add(ivf.with(IndexParams.PQ_M, dim / 2).with(IndexParams.PQ_NBITS, 4));
+                }
+                break;
+            case HNSW:
+                sweep.add(IndexParams.empty().with(IndexParams.HNSW_M, 16));
+                sweep.add(IndexParams.empty().with(IndexParams.HNSW_M, 32));
+                break;
+            case RHNSW_FLAT:
+            case RHNSW_SQ:
+            case RHNSW_PQ:
+                sweep.add(IndexParams.empty().with(IndexParams.HNSW_M, 16));
+                break;
+            case ANNOY:
+                sweep.add(IndexParams.empty().with(IndexParams.N_TREES, 8));
+                sweep.add(IndexParams.empty().with(IndexParams.N_TREES, 32));
+                break;
+            case DISKANN:
+                sweep.add(IndexParams.empty().with(IndexParams.MAX_DEGREE, 32));
+                break;
+            default:
+                System.err.println("Skipping " + type + ": not a vector index");
+                break;
+        }
+        return sweep;
+    }
+
+    private List<IndexParams> searchSweep(IndexType type) {
+        List<IndexParams> sweep = new ArrayList<>();
+        switch (type) {
+            case IVF_FLAT:
+            case IVF_SQ8:
+            case IVF_PQ:
+            case BIN_IVF_FLAT:
+                for (int nprobe : NPROBES) {
+                    sweep.add(IndexParams.empty().with(IndexParams.NPROBE, nprobe));
+                }
+                break;
+            case HNSW:
+            case RHNSW_FLAT:
+            case RHNSW_SQ:
+            case RHNSW_PQ:
+                for (int ef : EFS) {
+                    sweep.add(IndexParams.empty().with(IndexParams.EF, Math.max(k, ef)));
+                }
+                break;
+            case ANNOY:
+                for (int searchK : SEARCH_KS) {
+                    sweep.add(IndexParams.empty().with(IndexParams.SEARCH_K, searchK));
+                }
+                break;
+            case DISKANN:
+                for (int list : SEARCH_LISTS) {
+                    sweep.add(IndexParams.empty().with(IndexParams.SEARCH_LIST, Math.max(k, list)));
+                }
+                break;
+            default:
+                sweep.add(IndexParams.empty());
+                break;
+        }
+        return sweep;
+    }
+
+    private static String quote(IndexParams params) {
+        return "\"" + params.asMap().toString().replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Returns the rows that no other row beats on both recall and multi-threaded QPS, by descending recall.
+     */
+    static List<String[]> pareto(List<String[]> rows) {
+        List<String[]> sorted = new ArrayList<>(rows);
+        Comparator<String[]> byRecall = Comparator.comparingDouble(r -> Double.parseDouble(r[7]));
+        Comparator<String[]> byQps = Comparator.comparingDouble(r -> Double.parseDouble(r[9]));
+        sorted.sort(byRecall.reversed().thenComparing(byQps.reversed()));
+        List<String[]> frontier = new ArrayList<>();
+        double bestQps = Double.NEGATIVE_INFINITY;
+        for (String[] row : sorted) {
+            double qps = Double.parseDouble(row[9]);
+            if (qps > bestQps) {
+                frontier.add(row);
+                bestQps = qps;
+            }
+        }
+        return frontier;
+    }
+
+    /**
+     * An index together with the base and query vectors of its kind.
+     */
+    private abstract static class Subject {
+        final VectorIndex index;
+
+        Subject(VectorIndex index) {
+            this.index = index;
+        }
+
+        abstract void build(int count);
+
+        abstract SearchResult search(int query, int topK, IndexParams params);
+    }
+
+    private static final class FloatSubject extends Subject {
+        private final float[] base;
+        private final float[] queries;
+        private final int dim;
+
+        FloatSubject(FloatVectorIndex index, float[] base, float[] queries, int dim) {
+            super(index);
+            this.base = base;
+            this.queries = queries;
+            this.dim = dim;
+        }
+
+        @Override
+        void build(int count) {
+            ((FloatVectorIndex) index).build(base, count);
+        }
+
+        @Override
+        SearchResult search(int query, int topK, IndexParams params) {
+            return ((FloatVectorIndex) index).search(Arrays.copyOfRange(queries, query * dim, (query + 1) * dim),
+                    topK, params);
+        }
+    }
+
+    private static final class BinarySubject extends Subject {
+        private final long[] base;
+        private final long[] queries;
+        private final int words;
+
+        BinarySubject(BinaryVectorIndex index, long[] base, long[] queries, int words) {
+            super(index);
+            this.base = base;
+            this.queries = queries;
+            this.words = words;
+        }
+
+        @Override
+        void build(int count) {
+            ((BinaryVectorIndex) index).build(base, count);
+        }
+
+        @Override
+        SearchResult search(int query, int topK, IndexParams params) {
+            return ((BinaryVectorIndex) index).search(Arrays.copyOfRange(queries, query * words,
+                    (query + 1) * words), topK, params);
+        }
+    }
+}
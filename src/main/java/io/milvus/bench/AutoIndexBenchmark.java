@@ -0,0 +1,177 @@
+package io.milvus.bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.AutoIndex;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndexFactory;
+
+/**
+ * Checks the <code>AUTOINDEX</code> choice against a sweep of every float index type on synthetic clustered
+ * datasets. For each dataset size and memory budget, it prints the measured recall@10 and QPS of every
+ * configuration that fits the budget, then a summary line comparing the automatic choice with the fastest
+ * configuration that reaches the target recall.
+ * <p>
+ * Usage: <code>AutoIndexBenchmark [dim] [queries] [targetRecall] [count...]</code>, defaults to 64 dimensions,
+ * 500 queries, a target of 0.9 and datasets of 2000 and 20000 vectors. Budgets are unlimited and 110%, 40% and
+ * 15% of the raw vector size.
+ */
+public final class AutoIndexBenchmark {
+    private static final int TOP_K = 10;
+    private static final double[] BUDGETS = {0d, 1.1d, 0.4d, 0.15d};
+    private static final int[] NPROBES = {1, 2, 4, 8, 16, 32, 64};
+    private static final int[] EFS = {16, 32, 64, 128};
+
+    private final int dim;
+    private final int count;
+    private final float[] data;
+    private final float[] queryData;
+    private final int queries;
+    private final SearchResult[] truth;
+    private final Map<String, FloatVectorIndex> built = new HashMap<>();
+    private final Map<String, double[]> measured = new HashMap<>();
+
+    private AutoIndexBenchmark(int count, int dim, int queries) {
+        this.dim = dim;
+        this.count = count;
+        this.queries = queries;
+        this.data = Datasets.clustered(count, dim, 256, 1L);
+        this.queryData = Datasets.clustered(queries, dim, 256, 1L + count);
+        FlatIndex flat = new FlatIndex(dim, MetricType.L2);
+        flat.build(data, count);
+        this.truth = new SearchResult[queries];
+        for (int q = 0; q < queries; q++) {
+            truth[q] = flat.search(Datasets.row(queryData, dim, q), TOP_K, IndexParams.empty());
+        }
+    }
+
+    public static void main(String[] args) {
+        int dim = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        double target = args.length > 2 ? Double.parseDouble(args[2]) : 0.9d;
+        List<Integer> counts = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            counts.add(Integer.parseInt(args[i]));
+        }
+        if (counts.isEmpty()) {
+            counts.add(2000);
+            counts.add(20000);
+        }
+        System.out.println("count,budget_bytes,index,build_params,search_params,bytes,recall@10,qps");
+        List<String> summary = new ArrayList<>();
+        summary.add("count,budget_bytes,auto_index,auto_recall@10,auto_qps,best_index,best_recall@10,best_qps,"
+                + "meets_target,qps_ratio");
+        for (int count : counts) {
+            AutoIndexBenchmark bench = new AutoIndexBenchmark(count, dim, queries);
+            for (double fraction : BUDGETS) {
+                long budget = fraction == 0d ? Long.MAX_VALUE : (long) (fraction * 4L * dim * count);
+                summary.add(bench.run(budget, target));
+            }
+        }
+        System.out.println();
+        summary.forEach(System.out::println);
+    }
+
+    private String run(long budget, double target) {
+        String budgetText = budget == Long.MAX_VALUE ? "unlimited" : String.valueOf(budget);
+        AutoIndex.Choice auto;
+        try {
+            auto = AutoIndex.select(count, dim, DataType.FLOAT_VECTOR, MetricType.L2, budget);
+        } catch (IllegalArgumentException e) {
+            return String.format("%d,%s,none,,,,,,false,", count, budgetText);
+        }
+        List<Object[]> configs = new ArrayList<>();
+        configs.add(new Object[] {IndexType.FLAT, IndexParams.empty(), IndexParams.empty()});
+        int nlist = auto.getBuildParams().getInt(IndexParams.NLIST, (int) Math.round(4d * Math.sqrt(count)));
+        IndexParams ivf = IndexParams.empty().with(IndexParams.NLIST, nlist);
+        for (IndexType type : new IndexType[] {IndexType.IVF_FLAT, IndexType.IVF_SQ8}) {
+            for (int nprobe : NPROBES) {
+                configs.add(new Object[] {type, ivf, IndexParams.empty().with(IndexParams.NPROBE, nprobe)});
+            }
+        }
+        for (int m : new int[] {dim / 2, dim / 4, dim / 8}) {
+            for (int nprobe : NPROBES) {
+                configs.add(new Object[] {IndexType.IVF_PQ, ivf.with(IndexParams.PQ_M, m),
+                        IndexParams.empty().with(IndexParams.NPROBE, nprobe)});
+            }
+        }
+        for (int ef : EFS) {
+            configs.add(new Object[] {IndexType.HNSW, auto.getIndexType() == IndexType.HNSW
+                    ? auto.getBuildParams() : IndexParams.empty(), IndexParams.empty().with(IndexParams.EF, ef)});
+        }
+        configs.add(new Object[] {auto.getIndexType(), auto.getBuildParams(), auto.getSearchParams()});
+
+        double[] autoResult = null;
+        double[] best = null;
+        String bestName = "none";
+        for (Object[] config : configs) {
+            IndexType type = (IndexType) config[0];
+            IndexParams build = (IndexParams) config[1];
+            IndexParams search = (IndexParams) config[2];
+            double[] r = measure(type, build, search, budget);
+            boolean isAuto = type == auto.getIndexType() && build.asMap().equals(auto.getBuildParams().asMap())
+                    && search.asMap().equals(auto.getSearchParams().asMap());
+            if (isAuto) {
+                autoResult = r;
+            }
+            if (r == null) {
+                continue;
+            }
+            System.out.printf("%d,%s,%s,\"%s\",\"%s\",%d,%.4f,%.1f%n", count, budgetText, type, build.asMap(),
+                    search.asMap(), (long) r[0], r[1], r[2]);
+            if (r[1] >= target && (best == null || r[2] > best[2])) {
+                best = r;
+                bestName = type + " " + build.asMap() + " " + search.asMap();
+            }
+        }
+        if (autoResult == null) {
+            return String.format("%d,%s,%s,,,\"%s\",,,false,", count, budgetText, auto.getIndexType(), bestName);
+        }
+        return String.format("%d,%s,\"%s %s %s\",%.4f,%.1f,\"%s\",%.4f,%.1f,%b,%.2f", count, budgetText,
+                auto.getIndexType(), auto.getBuildParams().asMap(), auto.getSearchParams().asMap(),
+                autoResult[1], autoResult[2], bestName, best == null ? 0d : best[1], best == null ? 0d : best[2],
+                autoResult[1] >= target, best == null ? 0d : autoResult[2] / best[2]);
+    }
+
+    /**
+     * Returns the memory, recall and QPS of a configuration, or <code>null</code> when it exceeds the budget.
+     */
+    private double[] measure(IndexType type, IndexParams build, IndexParams search, long budget) {
+        String key = type + " " + build.asMap();
+        FloatVectorIndex index = built.get(key);
+        if (index == null) {
+            index = VectorIndexFactory.create(type, MetricType.L2, dim, build);
+            index.build(data, count);
+            built.put(key, index);
+        }
+        if (index.memoryBytes() > budget) {
+            return null;
+        }
+        String runKey = key + " " + search.asMap();
+        double[] cached = measured.get(runKey);
+        if (cached != null) {
+            return cached;
+        }
+        for (int q = 0; q < queries; q++) {
+            index.search(Datasets.row(queryData, dim, q), TOP_K, search);
+        }
+        double recall = 0d;
+        long t0 = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            recall += Recall.at(TOP_K, truth[q], index.search(Datasets.row(queryData, dim, q), TOP_K, search));
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        double[] r = {index.memoryBytes(), recall / queries, queries / seconds};
+        measured.put(runKey, r);
+        return r;
+    }
+}
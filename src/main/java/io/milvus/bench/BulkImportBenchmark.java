@@ -0,0 +1,218 @@
+package io.milvus.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.engine.LocalMilvusClient;
+import io.milvus.param.R;
+import io.milvus.param.Task;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.dml.BulkInsertParam;
+import io.milvus.param.dml.ExportParam;
+import io.milvus.param.dml.GetBulkInsertStateParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.response.GetImportStateResponse;
+
+/**
+ * Compares importing rows through <code>bulkInsert</code>, from a row-based JSON file, from one NumPy
+ * <code>.npy</code> file per field and from an Arrow IPC file exported from the imported rows, with inserting the
+ * same rows in batches through <code>insert</code> from lists built in memory. Copying the vector file gives the disk bandwidth the column-based import is bound by.
+ * <p>
+ * Usage: <code>BulkImportBenchmark [rows] [dim]</code>, defaults to 200,000 rows of 128 dimensions.
+ */
+public final class BulkImportBenchmark {
+    private static final int BATCH_ROWS = 10_000;
+    private static final int TAG_CHARS = 16;
+
+    private BulkImportBenchmark() {}
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int dim = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+
+        Path directory = Files.createTempDirectory("bulk-import-bench");
+        float[] data = Datasets.clustered(rows, dim, 64, 1L);
+        Path file = directory.resolve("rows.json");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\"rows\": [\n");
+            for (int row = 0; row < rows; row++) {
+                writer.write(row == 0 ? "" : ",\n");
+                writer.write("{\"id\": " + row + ", \"tag\": \"row-" + row + "\", \"vector\": "
+                        + Arrays.toString(Datasets.row(data, dim, row)) + "}");
+            }
+            writer.write("\n]}\n");
+        }
+        System.out.printf("%d rows of %d dimensions, %.1f MB of JSON%n", rows, dim, Files.size(file) / 1e6);
+
+        try (LocalMilvusClient client = LocalMilvusClient.newBuilder()
+                .withDataDirectory(directory.resolve("data"))
+                .withCompactionInterval(0)
+                .build()) {
+            createCollection(client, "imported", dim);
+            Task task = check(client.bulkInsert(BulkInsertParam.newBuilder().withCollectionName("imported")
+                    .withFiles(Collections.singletonList(file.toString())).build()));
+            task.await(1, TimeUnit.HOURS);
+            GetImportStateResponse state = check(client.getBulkInsertState(GetBulkInsertStateParam.newBuilder()
+                    .withTaskId((int) task.getTaskId()).build()));
+            if (state.getState() != Task.State.COMPLETED) {
+                throw new IllegalStateException("Import failed: " + state.getFailedReason());
+            }
+            print("bulkInsert json", state);
+
+            List<String> columns = writeColumns(directory, data, rows, dim);
+            createCollection(client, "columns", dim);
+            task = check(client.bulkInsert(BulkInsertParam.newBuilder().withCollectionName("columns")
+                    .withFiles(columns).build()));
+            task.await(1, TimeUnit.HOURS);
+            state = check(client.getBulkInsertState(GetBulkInsertStateParam.newBuilder()
+                    .withTaskId((int) task.getTaskId()).build()));
+            if (state.getState() != Task.State.COMPLETED) {
+                throw new IllegalStateException("Import failed: " + state.getFailedReason());
+            }
+            print("bulkInsert npy", state);
+
+            Path arrowFile = directory.resolve("export.arrow");
+            long start = System.nanoTime();
+            check(client.export(ExportParam.newBuilder().withCollectionName("columns")
+                    .withFile(arrowFile.toString()).build()));
+            long exportMillis = Math.max(1L, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("export arrow: %d ms, %.1f MB/s%n", exportMillis,
+                    Files.size(arrowFile) / 1e3 / exportMillis);
+            createCollection(client, "arrow", dim);
+            task = check(client.bulkInsert(BulkInsertParam.newBuilder().withCollectionName("arrow")
+                    .withFiles(Collections.singletonList(arrowFile.toString())).build()));
+            task.await(1, TimeUnit.HOURS);
+            state = check(client.getBulkInsertState(GetBulkInsertStateParam.newBuilder()
+                    .withTaskId((int) task.getTaskId()).build()));
+            if (state.getState() != Task.State.COMPLETED) {
+                throw new IllegalStateException("Import failed: " + state.getFailedReason());
+            }
+            print("bulkInsert arrow", state);
+
+            Path vectorFile = directory.resolve("vector.npy");
+            start = System.nanoTime();
+            try (FileChannel source = FileChannel.open(vectorFile, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(directory.resolve("copy.npy"), StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE)) {
+                for (long done = 0L; done < source.size(); ) {
+                    done += source.transferTo(done, source.size() - done, target);
+                }
+                target.force(true);
+            }
+            long copyMillis = Math.max(1L, (System.nanoTime() - start) / 1_000_000);
+            System.out.printf("file copy: %d ms, %.1f MB/s%n", copyMillis, Files.size(vectorFile) / 1e3 / copyMillis);
+
+            createCollection(client, "inserted", dim);
+            start = System.nanoTime();
+            for (int from = 0; from < rows; from += BATCH_ROWS) {
+                int to = Math.min(rows, from + BATCH_ROWS);
+                List<Long> ids = new ArrayList<>(to - from);
+                List<String> tags = new ArrayList<>(to - from);
+                List<List<Float>> vectors = new ArrayList<>(to - from);
+                for (int row = from; row < to; row++) {
+                    ids.add((long) row);
+                    tags.add("row-" + row);
+                    vectors.add(toList(Datasets.row(data, dim, row)));
+                }
+                check(client.insert(InsertParam.newBuilder().withCollectionName("inserted").withFields(Arrays.asList(
+                        new InsertParam.Field("id", ids), new InsertParam.Field("tag", tags),
+                        new InsertParam.Field("vector", vectors))).build()));
+            }
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("insert: %d ms, %.0f rows/s%n", millis, rows * 1000.0 / Math.max(1L, millis));
+        }
+    }
+
+    /**
+     * Writes the rows as <code>id.npy</code>, <code>tag.npy</code> and <code>vector.npy</code>.
+     */
+    private static List<String> writeColumns(Path directory, float[] data, int rows, int dim) throws IOException {
+        ByteBuffer ids = ByteBuffer.allocate(8 * rows).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer tags = ByteBuffer.allocate(4 * TAG_CHARS * rows).order(ByteOrder.LITTLE_ENDIAN);
+        for (int row = 0; row < rows; row++) {
+            ids.putLong(row);
+            String tag = "row-" + row;
+            for (int i = 0; i < TAG_CHARS; i++) {
+                tags.putInt(i < tag.length() ? tag.charAt(i) : 0);
+            }
+        }
+        ByteBuffer vectors = ByteBuffer.allocate(4 * dim * rows).order(ByteOrder.LITTLE_ENDIAN);
+        vectors.asFloatBuffer().put(data, 0, rows * dim);
+        vectors.position(vectors.capacity());
+        List<String> files = new ArrayList<>();
+        files.add(writeNpy(directory.resolve("id.npy"), "<i8", "(" + rows + ",)", ids));
+        files.add(writeNpy(directory.resolve("tag.npy"), "<U" + TAG_CHARS, "(" + rows + ",)", tags));
+        files.add(writeNpy(directory.resolve("vector.npy"), "<f4", "(" + rows + ", " + dim + ")", vectors));
+        return files;
+    }
+
+    private static String writeNpy(Path file, String dtype, String shape, ByteBuffer payload) throws IOException {
+        StringBuilder header = new StringBuilder("{'descr': '" + dtype + "', 'fortran_order': False, 'shape': "
+                + shape + ", }");
+        // the payload starts on a 64-byte boundary
+        while ((10 + header.length() + 1) % 64 != 0) {
+            header.append(' ');
+        }
+        header.append('\n');
+        ByteBuffer prefix = ByteBuffer.allocate(10 + header.length()).order(ByteOrder.LITTLE_ENDIAN);
+        prefix.put((byte) 0x93).put("NUMPY".getBytes(StandardCharsets.US_ASCII)).put((byte) 1).put((byte) 0)
+                .putShort((short) header.length()).put(header.toString().getBytes(StandardCharsets.US_ASCII));
+        prefix.flip();
+        payload.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (prefix.hasRemaining() || payload.hasRemaining()) {
+                channel.write(new ByteBuffer[] {prefix, payload});
+            }
+        }
+        return file.toString();
+    }
+
+    private static void print(String name, GetImportStateResponse state) {
+        System.out.printf("%s: %d ms, %.0f rows/s, %.1f MB/s%n", name, state.getElapsedMillis(),
+                state.getRowsPerSecond(), state.getTotalBytes() / 1e3 / Math.max(1L, state.getElapsedMillis()));
+    }
+
+    private static void createCollection(LocalMilvusClient client, String name, int dim) {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("tag").withDataType(DataType.VARCHAR)
+                        .withMaxLength(32).build())
+                .addFieldType(FieldType.newBuilder().withName("vector").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(dim).build())
+                .build();
+        check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName(name)
+                .withSchema(schema).build()));
+    }
+
+    private static List<Float> toList(float[] vector) {
+        List<Float> list = new ArrayList<>(vector.length);
+        for (float x : vector) {
+            list.add(x);
+        }
+        return list;
+    }
+
+    private static <T> T check(R<T> response) {
+        if (response.getException() != null) {
+            throw new IllegalStateException(response.getException());
+        }
+        return response.getData();
+    }
+}
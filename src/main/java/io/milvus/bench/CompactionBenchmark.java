@@ -0,0 +1,127 @@
+package io.milvus.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.engine.CompactionMetrics;
+import io.milvus.engine.LocalMilvusClient;
+import io.milvus.param.R;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.FlushParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.index.CreateIndexParam;
+
+/**
+ * Measures what compaction buys on a collection fragmented by frequent small flushes and deletes: the number of
+ * segments, the search latency before and after a compaction pass, and the write amplification it costs.
+ * <p>
+ * Usage: <code>CompactionBenchmark [batches] [batchRows] [dim] [deletePercent]</code>, defaults to 200 flushed
+ * batches of 500 rows of 64 dimensions with 30% of the rows deleted.
+ */
+public final class CompactionBenchmark {
+    private static final String COLLECTION = "compaction_bench";
+    private static final int QUERIES = 500;
+    private static final int TOP_K = 10;
+
+    private CompactionBenchmark() {}
+
+    public static void main(String[] args) throws IOException {
+        int batches = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int batchRows = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int dim = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int deletePercent = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+
+        Path directory = Files.createTempDirectory("compaction-bench");
+        try (LocalMilvusClient client = LocalMilvusClient.newBuilder()
+                .withDataDirectory(directory)
+                .withSegmentMaxRows(32_768)
+                .withCompactionInterval(0)
+                .build()) {
+            CollectionSchema schema = CollectionSchema.newBuilder()
+                    .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                            .withPrimaryKey(true).build())
+                    .addFieldType(FieldType.newBuilder().withName("vector").withDataType(DataType.FLOAT_VECTOR)
+                            .withDimension(dim).build())
+                    .build();
+            check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName(COLLECTION)
+                    .withSchema(schema).build()));
+            check(client.createIndex(CreateIndexParam.newBuilder().withCollectionName(COLLECTION)
+                    .withFieldName("vector").withIndexType(IndexType.HNSW).withMetricType(MetricType.L2)
+                    .withSyncMode(true).build()));
+
+            float[] data = Datasets.clustered(batches * batchRows, dim, 64, 1L);
+            for (int b = 0; b < batches; b++) {
+                List<Long> ids = new ArrayList<>(batchRows);
+                List<List<Float>> vectors = new ArrayList<>(batchRows);
+                for (int i = 0; i < batchRows; i++) {
+                    int row = b * batchRows + i;
+                    ids.add((long) row);
+                    vectors.add(toList(Datasets.row(data, dim, row)));
+                }
+                check(client.insert(InsertParam.newBuilder().withCollectionName(COLLECTION).withFields(Arrays.asList(
+                        new InsertParam.Field("id", ids), new InsertParam.Field("vector", vectors))).build()));
+                check(client.flush(FlushParam.newBuilder().withCollectionName(COLLECTION).build()));
+            }
+            List<Integer> deleted = new ArrayList<>();
+            for (int row = 0; row < batches * batchRows; row++) {
+                if (row % 100 < deletePercent) {
+                    deleted.add(row);
+                }
+            }
+            if (!deleted.isEmpty()) {
+                check(client.delete(DeleteParam.newBuilder().withCollectionName(COLLECTION)
+                        .withPrimaryKeys(deleted).build()));
+            }
+            check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName(COLLECTION).build()));
+
+            float[] queries = Datasets.clustered(QUERIES, dim, 64, 2L);
+            System.out.println("before: " + check(client.getCompactionMetrics(COLLECTION)));
+            search(client, queries, dim).print(System.out, "search before compaction");
+
+            long start = System.nanoTime();
+            CompactionMetrics metrics = check(client.compact(COLLECTION));
+            System.out.printf("compaction took %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            System.out.println("after: " + metrics);
+            search(client, queries, dim).print(System.out, "search after compaction");
+        }
+    }
+
+    private static LatencyHistogram search(LocalMilvusClient client, float[] queries, int dim) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int q = 0; q < QUERIES; q++) {
+            SearchParam param = SearchParam.newBuilder().withCollectionName(COLLECTION).withVectorFieldName("vector")
+                    .withTopK(TOP_K).withVectors(Arrays.asList(Datasets.row(queries, dim, q))).build();
+            long start = System.nanoTime();
+            check(client.search(param));
+            histogram.record((System.nanoTime() - start) / 1000);
+        }
+        return histogram;
+    }
+
+    private static List<Float> toList(float[] vector) {
+        List<Float> list = new ArrayList<>(vector.length);
+        for (float x : vector) {
+            list.add(x);
+        }
+        return list;
+    }
+
+    private static <T> T check(R<T> response) {
+        if (response.getException() != null) {
+            throw new IllegalStateException(response.getException());
+        }
+        return response.getData();
+    }
+}
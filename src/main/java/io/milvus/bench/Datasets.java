@@ -0,0 +1,81 @@
+package io.milvus.bench;
+
+import java.util.Random;
+
+/**
+ * Generates synthetic vector datasets for benchmarks.
+ */
+public final class Datasets {
+
+    private Datasets() {}
+
+    /**
+     * Generates row-major vectors drawn from a mixture of Gaussian clusters, which resembles real embeddings more
+     * closely than uniform noise.
+     *
+     * @param count The number of vectors.
+     * @param dim The number of dimensions.
+     * @param clusters The number of mixture components.
+     * @param seed The random seed.
+     * @return <code>count * dim</code> floats.
+     */
+    public static float[] clustered(int count, int dim, int clusters, long seed) {
+        Random random = new Random(seed);
+        float[] centers = new float[clusters * dim];
+        for (int i = 0; i < centers.length; i++) {
+            centers[i] = (float) random.nextGaussian();
+        }
+        float[] data = new float[count * dim];
+        for (int i = 0; i < count; i++) {
+            int c = random.nextInt(clusters);
+            for (int d = 0; d < dim; d++) {
+                data[i * dim + d] = centers[c * dim + d] + 0.3f * (float) random.nextGaussian();
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns the row at a given offset as a new array.
+     */
+    public static float[] row(float[] data, int dim, int row) {
+        float[] out = new float[dim];
+        System.arraycopy(data, row * dim, out, 0, dim);
+        return out;
+    }
+
+    /**
+     * Returns the mean of every dimension, used as binarization thresholds.
+     */
+    public static float[] means(float[] data, int count, int dim) {
+        double[] sums = new double[dim];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dim; d++) {
+                sums[d] += data[i * dim + d];
+            }
+        }
+        float[] means = new float[dim];
+        for (int d = 0; d < dim; d++) {
+            means[d] = count == 0 ? 0f : (float) (sums[d] / count);
+        }
+        return means;
+    }
+
+    /**
+     * Packs float vectors into binary vectors, one bit per dimension that is above its threshold.
+     *
+     * @return <code>count * ceil(dim / 64)</code> longs.
+     */
+    public static long[] binarize(float[] data, int count, int dim, float[] thresholds) {
+        int words = (dim + 63) >>> 6;
+        long[] packed = new long[count * words];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dim; d++) {
+                if (data[i * dim + d] > thresholds[d]) {
+                    packed[i * words + (d >>> 6)] |= 1L << (d & 63);
+                }
+            }
+        }
+        return packed;
+    }
+}
@@ -0,0 +1,82 @@
+package io.milvus.bench;
+
+import java.util.Random;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndexFactory;
+
+/**
+ * Measures search throughput and recall when a share of the vectors is deleted and masked out through a
+ * {@link RowBitmap}, at 0%, 10% and 50% deletion. <code>FLAT</code>, <code>IVF_FLAT</code> and <code>HNSW</code>
+ * skip deleted IDs while they search; <code>ANNOY</code> shows the fallback that searches for more results and
+ * drops the deleted ones.
+ * <p>
+ * Usage: <code>DeleteBenchmark [count] [dim] [queries]</code>, defaults to 100000 vectors of 128 dimensions and
+ * 1000 queries.
+ */
+public final class DeleteBenchmark {
+    private static final int TOP_K = 10;
+    private static final double[] RATIOS = {0d, 0.1d, 0.5d};
+    private static final IndexType[] TYPES = {IndexType.FLAT, IndexType.IVF_FLAT, IndexType.HNSW, IndexType.ANNOY};
+
+    private DeleteBenchmark() {}
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dim = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        float[] data = Datasets.clustered(count, dim, 256, 1L);
+        float[] queryData = Datasets.clustered(queries, dim, 256, 1L + count);
+        FlatIndex flat = new FlatIndex(dim, MetricType.L2);
+        flat.build(data, count);
+        FloatVectorIndex[] indexes = new FloatVectorIndex[TYPES.length];
+        for (int t = 0; t < TYPES.length; t++) {
+            indexes[t] = TYPES[t] == IndexType.FLAT ? flat
+                    : VectorIndexFactory.create(TYPES[t], MetricType.L2, dim, IndexParams.empty());
+            if (indexes[t] != flat) {
+                indexes[t].build(data, count);
+            }
+        }
+
+        IndexParams search = IndexParams.empty().with(IndexParams.NPROBE, 16).with(IndexParams.EF, 128)
+                .with(IndexParams.SEARCH_K, 5000);
+        System.out.println("index,deleted_ratio,bitmap_bytes,recall@10,qps");
+        for (double ratio : RATIOS) {
+            RowBitmap deleted = randomRows(count, ratio, 7L);
+            SearchResult[] truth = new SearchResult[queries];
+            for (int q = 0; q < queries; q++) {
+                truth[q] = flat.search(Datasets.row(queryData, dim, q), TOP_K, IndexParams.empty(), deleted);
+            }
+            for (FloatVectorIndex index : indexes) {
+                double recall = 0d;
+                long start = System.nanoTime();
+                for (int q = 0; q < queries; q++) {
+                    SearchResult r = index.search(Datasets.row(queryData, dim, q), TOP_K, search, deleted);
+                    recall += Recall.at(TOP_K, truth[q], r);
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("%s,%.2f,%d,%.4f,%.1f%n", index.getIndexType(), ratio, deleted.memoryBytes(),
+                        recall / queries, queries / seconds);
+            }
+        }
+    }
+
+    private static RowBitmap randomRows(int count, double ratio, long seed) {
+        Random random = new Random(seed);
+        RowBitmap rows = new RowBitmap();
+        for (int row = 0; row < count; row++) {
+            if (random.nextDouble() < ratio) {
+                rows.add(row);
+            }
+        }
+        rows.runOptimize();
+        return rows;
+    }
+}
@@ -0,0 +1,163 @@
+package io.milvus.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.filter.ColumnBlocks;
+import io.milvus.filter.FilterCache;
+import io.milvus.filter.FilterExpr;
+import io.milvus.filter.FilterPlan;
+import io.milvus.filter.Utf8Block;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * Compares evaluating filter expressions row by row, with {@link FilterExpr#test(FilterExpr.Row)} over boxed
+ * values, with a compiled {@link FilterPlan} that evaluates blocks of primitive columns into a row bitmap, and
+ * checks that both select the same rows. Also times a {@link FilterCache} hit against compiling the expression.
+ * <p>
+ * Usage: <code>FilterBenchmark [rows] [rounds]</code>, defaults to 1,000,000 rows and 5 rounds.
+ */
+public final class FilterBenchmark {
+    private static final String[] CITIES = {"Amsterdam", "Berlin", "Bern", "Lisbon", "London", "Madrid", "Oslo",
+            "Paris", "Prague", "Rome", "Vienna", "Warsaw"};
+    private static final String[] EXPRESSIONS = {
+            "age > 30",
+            "age >= 18 and age < 65",
+            "score < 0.25 or score > 0.75",
+            "id in [3, 17, 4242, 99999, 123456, 765432]",
+            "city == \"Paris\"",
+            "city in [\"Berlin\", \"Rome\", \"Oslo\"] and active",
+            "city like \"Ber%\" and not (age < 21 or score >= 0.9)",
+            "(age < 10 or age > 90) and city != \"London\" and score > 0.5"};
+
+    private FilterBenchmark() {}
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Columns columns = new Columns(rows, 1L);
+        List<FieldType> fields = Arrays.asList(
+                FieldType.newBuilder().withName("id").withDataType(DataType.INT64).withPrimaryKey(true).build(),
+                FieldType.newBuilder().withName("age").withDataType(DataType.INT32).build(),
+                FieldType.newBuilder().withName("score").withDataType(DataType.DOUBLE).build(),
+                FieldType.newBuilder().withName("city").withDataType(DataType.VARCHAR).withMaxLength(16).build(),
+                FieldType.newBuilder().withName("active").withDataType(DataType.BOOL).build());
+        System.out.printf("%d rows, best of %d rounds%n", rows, rounds);
+        System.out.println("expression,matches,naive_ms,plan_ms,speedup,plan");
+        for (String text : EXPRESSIONS) {
+            FilterExpr expr = FilterExpr.parse(text);
+            FilterPlan plan = FilterPlan.compile(text, fields);
+            long naive = Long.MAX_VALUE;
+            long compiled = Long.MAX_VALUE;
+            int expected = 0;
+            RowBitmap selected = null;
+            for (int round = 0; round < rounds; round++) {
+                long start = System.nanoTime();
+                expected = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (expr.test(columns.row(row))) {
+                        expected++;
+                    }
+                }
+                naive = Math.min(naive, System.nanoTime() - start);
+                start = System.nanoTime();
+                selected = plan.select(columns, rows, null);
+                compiled = Math.min(compiled, System.nanoTime() - start);
+            }
+            if (selected.cardinality() != expected) {
+                throw new IllegalStateException(text + ": the plan selects " + selected.cardinality()
+                        + " rows, the interpreter " + expected);
+            }
+            System.out.printf("\"%s\",%d,%.1f,%.1f,%.1f,\"%s\"%n", text.replace("\"", "'"), expected, naive / 1e6,
+                    compiled / 1e6, (double) naive / compiled, plan);
+        }
+
+        FilterCache cache = new FilterCache(fields);
+        int lookups = 100_000;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            FilterPlan.compile(EXPRESSIONS[i % EXPRESSIONS.length], fields);
+        }
+        double compileNanos = (double) (System.nanoTime() - start) / lookups;
+        start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            cache.get(EXPRESSIONS[i % EXPRESSIONS.length]);
+        }
+        double cachedNanos = (double) (System.nanoTime() - start) / lookups;
+        System.out.printf("compile %.0f ns, cached %.0f ns (%d hits, %d misses)%n", compileNanos, cachedNanos,
+                cache.getHits(), cache.getMisses());
+    }
+
+    /**
+     * Columns held in plain arrays, read either a block at a time or as boxed rows.
+     */
+    private static final class Columns implements ColumnBlocks {
+        private final long[] ids;
+        private final int[] ages;
+        private final double[] scores;
+        private final int[] cities;
+        private final boolean[] active;
+        private final byte[][] cityBytes = new byte[CITIES.length][];
+
+        Columns(int rows, long seed) {
+            Random random = new Random(seed);
+            ids = new long[rows];
+            ages = new int[rows];
+            scores = new double[rows];
+            cities = new int[rows];
+            active = new boolean[rows];
+            for (int row = 0; row < rows; row++) {
+                ids[row] = row;
+                ages[row] = random.nextInt(100);
+                scores[row] = random.nextDouble();
+                cities[row] = random.nextInt(CITIES.length);
+                active[row] = random.nextBoolean();
+            }
+            for (int c = 0; c < CITIES.length; c++) {
+                cityBytes[c] = CITIES[c].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        FilterExpr.Row row(int row) {
+            return field -> {
+                switch (field) {
+                    case "id":
+                        return ids[row];
+                    case "age":
+                        return (long) ages[row];
+                    case "score":
+                        return scores[row];
+                    case "city":
+                        return CITIES[cities[row]];
+                    default:
+                        return active[row];
+                }
+            };
+        }
+
+        @Override
+        public void readLongs(int field, int from, int count, long[] into) {
+            for (int i = 0; i < count; i++) {
+                int row = from + i;
+                into[i] = field == 0 ? ids[row] : field == 1 ? ages[row] : active[row] ? 1L : 0L;
+            }
+        }
+
+        @Override
+        public void readDoubles(int field, int from, int count, double[] into) {
+            System.arraycopy(scores, from, into, 0, count);
+        }
+
+        @Override
+        public void readStrings(int field, int from, int count, Utf8Block into) {
+            for (int i = 0; i < count; i++) {
+                into.add(cityBytes[cities[from + i]]);
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.milvus.bench;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndexFactory;
+
+/**
+ * Compares recall@10, single-threaded QPS and memory per vector of <code>IVF_FLAT</code> and <code>IVF_PQ</code>
+ * (8-bit and 4-bit fast-scan) on a synthetic clustered dataset.
+ * <p>
+ * Usage: <code>IvfPqBenchmark [count] [dim] [queries]</code>, defaults to 100000 vectors of 128 dimensions and
+ * 1000 queries.
+ */
+public final class IvfPqBenchmark {
+    private static final int TOP_K = 10;
+    private static final int[] NPROBES = {1, 4, 16, 64};
+
+    private IvfPqBenchmark() {}
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dim = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int nlist = Math.max(1, (int) Math.sqrt(count));
+
+        float[] data = Datasets.clustered(count, dim, 256, 1L);
+        float[] queryData = Datasets.clustered(queries, dim, 256, 1L + count);
+        FlatIndex flat = new FlatIndex(dim, MetricType.L2);
+        flat.build(data, count);
+        SearchResult[] truth = new SearchResult[queries];
+        for (int q = 0; q < queries; q++) {
+            truth[q] = flat.search(Datasets.row(queryData, dim, q), TOP_K, IndexParams.empty());
+        }
+
+        IndexParams ivf = IndexParams.empty().with(IndexParams.NLIST, nlist);
+        System.out.println("index,params,build_ms,bytes_per_vector,nprobe,recall@10,qps");
+        run("IVF_FLAT", ivf, data, count, dim, queryData, queries, truth);
+        run("IVF_PQ", ivf.with(IndexParams.PQ_M, dim / 8).with(IndexParams.PQ_NBITS, 8),
+                data, count, dim, queryData, queries, truth);
+        run("IVF_PQ", ivf.with(IndexParams.PQ_M, dim / 4).with(IndexParams.PQ_NBITS, 4),
+                data, count, dim, queryData, queries, truth);
+    }
+
+    private static void run(String type, IndexParams params, float[] data, int count, int dim,
+                            float[] queryData, int queries, SearchResult[] truth) {
+        FloatVectorIndex index = VectorIndexFactory.create(IndexType.valueOf(type), MetricType.L2, dim, params);
+        long start = System.nanoTime();
+        index.build(data, count);
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        double bytesPerVector = (double) index.memoryBytes() / count;
+        for (int nprobe : NPROBES) {
+            IndexParams search = IndexParams.empty().with(IndexParams.NPROBE, nprobe);
+            double recall = 0d;
+            long t0 = System.nanoTime();
+            for (int q = 0; q < queries; q++) {
+                SearchResult r = index.search(Datasets.row(queryData, dim, q), TOP_K, search);
+                recall += Recall.at(TOP_K, truth[q], r);
+            }
+            double seconds = (System.nanoTime() - t0) / 1e9;
+            System.out.printf("%s,\"%s\",%d,%.1f,%d,%.4f,%.1f%n", type, params.asMap(), buildMillis,
+                    bytesPerVector, nprobe, recall / queries, queries / seconds);
+        }
+    }
+}
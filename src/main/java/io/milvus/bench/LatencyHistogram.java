@@ -0,0 +1,130 @@
+package io.milvus.bench;
+
+import java.io.PrintStream;
+
+/**
+ * A log-linear latency histogram in microseconds with a relative error below 1.6%, in the style of HdrHistogram.
+ * Values below 128 are counted exactly; above, every power of two is split into 64 linear sub-buckets.
+ * <p>
+ * Not thread-safe: record into one histogram per thread and {@link #add(LatencyHistogram) merge} them.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int BUCKETS = 64 - 7;
+
+    private final long[] counts = new long[SUB_BUCKETS + BUCKETS * HALF];
+    private long count;
+    private long max;
+    private double sum;
+
+    /**
+     * Records one value.
+     *
+     * @param micros A latency in microseconds, negative values count as zero.
+     */
+    public void record(long micros) {
+        long value = Math.max(0L, micros);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Records one value and back-fills the samples that a stalled closed-loop client failed to send. When a value
+     * exceeds the expected interval between requests, the requests that would have been issued during the stall
+     * would have seen latencies of <code>value - interval</code>, <code>value - 2 * interval</code> and so on;
+     * they are recorded too.
+     *
+     * @param micros A latency in microseconds.
+     * @param expectedIntervalMicros The expected time between two requests of the same client, 0 to disable.
+     */
+    public void recordCorrected(long micros, long expectedIntervalMicros) {
+        record(micros);
+        if (expectedIntervalMicros <= 0) {
+            return;
+        }
+        for (long missing = micros - expectedIntervalMicros; missing >= expectedIntervalMicros;
+             missing -= expectedIntervalMicros) {
+            record(missing);
+        }
+    }
+
+    /**
+     * Adds all values of another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0d : sum / count;
+    }
+
+    /**
+     * Returns the value at a percentile, as the upper bound of its bucket.
+     *
+     * @param percentile A percentile between 0 and 100.
+     * @return <code>long</code>
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100d * count));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, highestValue(i));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Prints the percentile distribution, one line per percentile.
+     */
+    public void print(PrintStream out, String label) {
+        out.printf("%s: count=%d mean=%.1fus max=%dus%n", label, count, getMean(), max);
+        double[] percentiles = {50d, 75d, 90d, 95d, 99d, 99.9d, 99.99d, 100d};
+        for (double p : percentiles) {
+            out.printf("  p%-6s %10d us%n", trim(p), getValueAtPercentile(p));
+        }
+    }
+
+    private static String trim(double p) {
+        return p == Math.rint(p) ? String.valueOf((long) p) : String.valueOf(p);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - 7;
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
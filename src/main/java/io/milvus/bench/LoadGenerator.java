@@ -0,0 +1,542 @@
+package io.milvus.bench;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import io.milvus.client.MilvusClient;
+import io.milvus.common.enums.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.FlushParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+
+/**
+ * Drives a {@link MilvusClient} with a weighted mix of operations and reports per-operation latency histograms
+ * and throughput over time.
+ * <p>
+ * Two modes are supported:
+ * <ul>
+ *     <li>open loop: requests are scheduled at a fixed arrival rate, or with Poisson arrivals, whatever the
+ *     server does. Latency is measured from the scheduled start rather than the actual one, so time spent
+ *     waiting behind a slow request is counted, and a stall cannot hide its own effect on later requests;</li>
+ *     <li>closed loop: a fixed number of clients send requests back to back. Closed-loop clients slow down with
+ *     the server, which is known as coordinated omission. When an expected interval is configured, every slow
+ *     sample is complemented with the samples the client would have sent during the stall, see
+ *     {@link LatencyHistogram#recordCorrected(long, long)}.</li>
+ * </ul>
+ * A call fails when it throws or returns an {@link R} with a status other than {@link R#SUCCESS}.
+ * <p>
+ * Ready-made actions cover inserts, deletes, flushes and searches, with or without a filter expression; any other
+ * request can be given as an {@link Action}.
+ */
+public final class LoadGenerator {
+    private final MilvusClient client;
+    private final List<Operation> operations;
+    private final double totalWeight;
+    private final double ratePerSecond;
+    private final boolean poisson;
+    private final int concurrency;
+    private final long expectedIntervalMicros;
+    private final long durationNanos;
+    private final long seed;
+
+    private LoadGenerator(Builder builder) {
+        this.client = builder.client;
+        this.operations = new ArrayList<>(builder.operations);
+        double total = 0d;
+        for (Operation op : operations) {
+            total += op.weight;
+        }
+        this.totalWeight = total;
+        this.ratePerSecond = builder.ratePerSecond;
+        this.poisson = builder.poisson;
+        this.concurrency = builder.concurrency;
+        this.expectedIntervalMicros = builder.expectedIntervalMicros;
+        this.durationNanos = builder.durationNanos;
+        this.seed = builder.seed;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * One operation against a client.
+     */
+    public interface Action {
+        /**
+         * Executes one request.
+         *
+         * @param client The client under test.
+         * @param sequence The sequence number of this request, unique across all operations.
+         * @return The response. An {@link R} with a failure status counts as an error.
+         * @throws Exception if the request fails.
+         */
+        Object execute(MilvusClient client, long sequence) throws Exception;
+    }
+
+    /**
+     * Returns an action that inserts <code>batchSize</code> random vectors into one vector field.
+     */
+    public static Action insertAction(String collectionName, String vectorField, int dim, int batchSize) {
+        return (client, sequence) -> {
+            Random random = ThreadLocalRandom.current();
+            List<List<Float>> rows = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                List<Float> vector = new ArrayList<>(dim);
+                for (int d = 0; d < dim; d++) {
+                    vector.add(random.nextFloat());
+                }
+                rows.add(vector);
+            }
+            return client.insert(InsertParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withFields(Collections.singletonList(new InsertParam.Field(vectorField, rows)))
+                    .build());
+        };
+    }
+
+    /**
+     * Returns an action that deletes <code>batchSize</code> random primary keys in <code>[0, maxKey)</code>.
+     */
+    public static Action deleteAction(String collectionName, int maxKey, int batchSize) {
+        return (client, sequence) -> {
+            List<Integer> keys = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++) {
+                keys.add(ThreadLocalRandom.current().nextInt(maxKey));
+            }
+            return client.delete(DeleteParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withPrimaryKeys(keys)
+                    .build());
+        };
+    }
+
+    /**
+     * Returns an action that searches one vector field for the neighbors of a random vector.
+     *
+     * @param expr A filter expression for filtered searches, or <code>null</code>.
+     */
+    public static Action searchAction(String collectionName, String vectorField, MetricType metricType, int dim,
+                                      int topK, String expr) {
+        return (client, sequence) -> {
+            Random random = ThreadLocalRandom.current();
+            float[] vector = new float[dim];
+            for (int d = 0; d < dim; d++) {
+                vector[d] = random.nextFloat();
+            }
+            return client.search(SearchParam.newBuilder()
+                    .withCollectionName(collectionName)
+                    .withVectorFieldName(vectorField)
+                    .withMetricType(metricType)
+                    .withTopK(topK)
+                    .withVectors(Collections.singletonList(vector))
+                    .withExpr(expr)
+                    .build());
+        };
+    }
+
+    /**
+     * Returns an action that flushes a collection.
+     */
+    public static Action flushAction(String collectionName) {
+        return (client, sequence) -> client.flush(FlushParam.newBuilder()
+                .withCollectionName(collectionName)
+                .build());
+    }
+
+    /**
+     * Runs the load for the configured duration.
+     *
+     * @return {@link Report}
+     * @throws InterruptedException if interrupted while waiting for the workers.
+     */
+    public Report run() throws InterruptedException {
+        int seconds = (int) Math.max(1L, (durationNanos + 999_999_999L) / 1_000_000_000L);
+        Recorder[] recorders = new Recorder[concurrency];
+        AtomicLongArray[] timeline = new AtomicLongArray[operations.size()];
+        for (int i = 0; i < timeline.length; i++) {
+            timeline[i] = new AtomicLongArray(seconds);
+        }
+        Schedule schedule = ratePerSecond > 0 ? new Schedule(ratePerSecond, poisson, seed) : null;
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        long end = start + durationNanos;
+        if (schedule != null) {
+            schedule.start(start);
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < concurrency; w++) {
+            Recorder recorder = new Recorder(w, operations.size());
+            recorders[w] = recorder;
+            futures.add(pool.submit(() -> work(recorder, schedule, start, end, timeline)));
+        }
+        pool.shutdown();
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+
+        List<OperationReport> reports = new ArrayList<>();
+        for (int i = 0; i < operations.size(); i++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long errors = 0L;
+            for (Recorder recorder : recorders) {
+                histogram.add(recorder.histograms[i]);
+                errors += recorder.errors[i];
+            }
+            long[] perSecond = new long[seconds];
+            for (int s = 0; s < seconds; s++) {
+                perSecond[s] = timeline[i].get(s);
+            }
+            reports.add(new OperationReport(operations.get(i).name, histogram, errors, perSecond));
+        }
+        return new Report(schedule != null, elapsed, reports);
+    }
+
+    private void work(Recorder recorder, Schedule schedule, long start, long end, AtomicLongArray[] timeline) {
+        Random random = new Random(seed ^ Thread.currentThread().getId());
+        while (!Thread.currentThread().isInterrupted()) {
+            long intended;
+            long sequence;
+            if (schedule != null) {
+                long[] slot = schedule.next();
+                sequence = slot[0];
+                intended = slot[1];
+                if (intended >= end) {
+                    return;
+                }
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                intended = System.nanoTime();
+                if (intended >= end) {
+                    return;
+                }
+                sequence = recorder.sequence++ * concurrency + recorder.id;
+            }
+            int op = pick(random);
+            boolean failed;
+            try {
+                Object response = operations.get(op).action.execute(client, sequence);
+                failed = response instanceof R && !Integer.valueOf(R.SUCCESS).equals(((R<?>) response).getStatus());
+            } catch (Exception e) {
+                failed = true;
+            }
+            long done = System.nanoTime();
+            long micros = (done - intended) / 1000L;
+            if (schedule != null) {
+                recorder.histograms[op].record(micros);
+            } else {
+                recorder.histograms[op].recordCorrected(micros, expectedIntervalMicros);
+            }
+            if (failed) {
+                recorder.errors[op]++;
+            }
+            int second = (int) ((done - start) / 1_000_000_000L);
+            timeline[op].incrementAndGet(Math.min(second, timeline[op].length() - 1));
+        }
+    }
+
+    private int pick(Random random) {
+        double r = random.nextDouble() * totalWeight;
+        for (int i = 0; i < operations.size(); i++) {
+            r -= operations.get(i).weight;
+            if (r < 0) {
+                return i;
+            }
+        }
+        return operations.size() - 1;
+    }
+
+    private static final class Operation {
+        final String name;
+        final double weight;
+        final Action action;
+
+        Operation(String name, double weight, Action action) {
+            this.name = name;
+            this.weight = weight;
+            this.action = action;
+        }
+    }
+
+    /**
+     * Hands out request slots and their intended start times in arrival order.
+     */
+    private static final class Schedule {
+        private final double intervalNanos;
+        private final boolean poisson;
+        private final Random random;
+        private long sequence;
+        private double next;
+
+        Schedule(double ratePerSecond, boolean poisson, long seed) {
+            this.intervalNanos = 1e9 / ratePerSecond;
+            this.poisson = poisson;
+            this.random = new Random(seed);
+        }
+
+        synchronized void start(long startNanos) {
+            next = startNanos;
+        }
+
+        synchronized long[] next() {
+            long[] slot = {sequence++, (long) next};
+            next += poisson ? -Math.log(1d - random.nextDouble()) * intervalNanos : intervalNanos;
+            return slot;
+        }
+    }
+
+    /**
+     * The per-worker histograms and error counts.
+     */
+    private static final class Recorder {
+        final int id;
+        final LatencyHistogram[] histograms;
+        final long[] errors;
+        long sequence;
+
+        Recorder(int id, int operations) {
+            this.id = id;
+            this.histograms = new LatencyHistogram[operations];
+            for (int i = 0; i < operations; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            this.errors = new long[operations];
+        }
+    }
+
+    /**
+     * The results of one operation.
+     */
+    public static final class OperationReport {
+        private final String name;
+        private final LatencyHistogram histogram;
+        private final long errors;
+        private final long[] perSecond;
+
+        private OperationReport(String name, LatencyHistogram histogram, long errors, long[] perSecond) {
+            this.name = name;
+            this.histogram = histogram;
+            this.errors = errors;
+            this.perSecond = perSecond;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Returns the latency histogram, including back-filled samples in corrected closed-loop runs.
+         *
+         * @return {@link LatencyHistogram}
+         */
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        public long getErrors() {
+            return errors;
+        }
+
+        /**
+         * Returns the number of completed requests in every second of the run.
+         *
+         * @return <code>long[]</code>
+         */
+        public long[] getPerSecond() {
+            return perSecond;
+        }
+
+        /**
+         * Returns the number of requests actually completed, excluding back-filled samples.
+         *
+         * @return <code>long</code>
+         */
+        public long getCompleted() {
+            long total = 0L;
+            for (long n : perSecond) {
+                total += n;
+            }
+            return total;
+        }
+    }
+
+    /**
+     * The results of a run.
+     */
+    public static final class Report {
+        private final boolean openLoop;
+        private final long elapsedNanos;
+        private final List<OperationReport> operations;
+
+        private Report(boolean openLoop, long elapsedNanos, List<OperationReport> operations) {
+            this.openLoop = openLoop;
+            this.elapsedNanos = elapsedNanos;
+            this.operations = Collections.unmodifiableList(operations);
+        }
+
+        public List<OperationReport> getOperations() {
+            return operations;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Prints a summary line, the latency distribution of every operation and the throughput over time.
+         */
+        public void print(PrintStream out) {
+            double seconds = elapsedNanos / 1e9;
+            out.printf("%s loop, %.1f s%n", openLoop ? "Open" : "Closed", seconds);
+            out.println("operation,completed,errors,throughput,mean_us,p50_us,p90_us,p99_us,p999_us,max_us");
+            for (OperationReport op : operations) {
+                LatencyHistogram h = op.histogram;
+                out.printf("%s,%d,%d,%.1f,%.1f,%d,%d,%d,%d,%d%n", op.name, op.getCompleted(), op.errors,
+                        op.getCompleted() / seconds, h.getMean(), h.getValueAtPercentile(50),
+                        h.getValueAtPercentile(90), h.getValueAtPercentile(99), h.getValueAtPercentile(99.9),
+                        h.getMax());
+            }
+            out.println();
+            for (OperationReport op : operations) {
+                op.histogram.print(out, op.name);
+            }
+            out.println();
+            StringBuilder header = new StringBuilder("second");
+            for (OperationReport op : operations) {
+                header.append(',').append(op.name);
+            }
+            out.println(header);
+            int length = operations.isEmpty() ? 0 : operations.get(0).perSecond.length;
+            for (int s = 0; s < length; s++) {
+                StringBuilder line = new StringBuilder(String.valueOf(s));
+                for (OperationReport op : operations) {
+                    line.append(',').append(op.perSecond[s]);
+                }
+                out.println(line);
+            }
+        }
+    }
+
+    public static final class Builder {
+        private MilvusClient client;
+        private final List<Operation> operations = new ArrayList<>();
+        private double ratePerSecond;
+        private boolean poisson;
+        private int concurrency = 1;
+        private long expectedIntervalMicros;
+        private long durationNanos = TimeUnit.SECONDS.toNanos(10);
+        private long seed = 1L;
+
+        private Builder() {}
+
+        public Builder withClient(MilvusClient client) {
+            this.client = client;
+            return this;
+        }
+
+        /**
+         * Adds an operation to the mix.
+         *
+         * @param name The name used in the report, such as <code>search</code>.
+         * @param weight The relative share of requests, must be positive.
+         * @param action The request to send.
+         * @return The builder object itself.
+         */
+        public Builder withOperation(String name, double weight, Action action) {
+            if (weight <= 0d) {
+                throw new IllegalArgumentException("Weight of " + name + " must be positive, got: " + weight);
+            }
+            operations.add(new Operation(name, weight, action));
+            return this;
+        }
+
+        /**
+         * Runs in open loop at a fixed arrival rate.
+         *
+         * @param ratePerSecond The number of requests started per second.
+         * @param poisson <code>true</code> for exponentially distributed gaps with the same mean.
+         * @param maxOutstanding The maximum number of requests in flight.
+         * @return The builder object itself.
+         */
+        public Builder withOpenLoop(double ratePerSecond, boolean poisson, int maxOutstanding) {
+            this.ratePerSecond = ratePerSecond;
+            this.poisson = poisson;
+            this.concurrency = maxOutstanding;
+            return this;
+        }
+
+        /**
+         * Runs in closed loop with a fixed number of clients.
+         *
+         * @param concurrency The number of concurrent clients.
+         * @param expectedIntervalMicros The expected time between two requests of one client, used to correct
+         * coordinated omission, 0 to record raw latencies.
+         * @return The builder object itself.
+         */
+        public Builder withClosedLoop(int concurrency, long expectedIntervalMicros) {
+            this.ratePerSecond = 0d;
+            this.concurrency = concurrency;
+            this.expectedIntervalMicros = expectedIntervalMicros;
+            return this;
+        }
+
+        public Builder withDuration(long duration, TimeUnit unit) {
+            this.durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        public Builder withSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Verifies the settings and creates a {@link LoadGenerator}.
+         *
+         * @return {@link LoadGenerator}
+         * @throws IllegalArgumentException if a setting is missing or invalid.
+         */
+        public LoadGenerator build() {
+            if (client == null) {
+                throw new IllegalArgumentException("A client is required");
+            }
+            if (operations.isEmpty()) {
+                throw new IllegalArgumentException("At least one operation is required");
+            }
+            if (concurrency <= 0) {
+                throw new IllegalArgumentException("Concurrency must be positive, got: " + concurrency);
+            }
+            if (ratePerSecond < 0d) {
+                throw new IllegalArgumentException("Rate must not be negative, got: " + ratePerSecond);
+            }
+            if (durationNanos <= 0L) {
+                throw new IllegalArgumentException("Duration must be positive");
+            }
+            return new LoadGenerator(this);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package io.milvus.bench;
+
+import io.milvus.index.SearchResult;
+
+/**
+ * Computes recall of approximate results against exact ground truth.
+ */
+public final class Recall {
+
+    private Recall() {}
+
+    /**
+     * Returns the fraction of the ground-truth top-k IDs found in the approximate top-k.
+     */
+    public static double at(int k, SearchResult truth, SearchResult approx) {
+        int[] expected = truth.getIds();
+        int[] actual = approx.getIds();
+        int n = Math.min(k, expected.length);
+        if (n == 0) {
+            return 1d;
+        }
+        int hits = 0;
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < Math.min(k, actual.length); j++) {
+                if (expected[i] == actual[j]) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return (double) hits / n;
+    }
+}
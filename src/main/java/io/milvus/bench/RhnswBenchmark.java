@@ -0,0 +1,72 @@
+package io.milvus.bench;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.RhnswIndex;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndexFactory;
+
+/**
+ * Measures the recall loss and heap savings of <code>RHNSW_SQ</code> and <code>RHNSW_PQ</code> against
+ * <code>HNSW</code> on a synthetic clustered dataset, with and without the refine stage.
+ * <p>
+ * Usage: <code>RhnswBenchmark [count] [dim] [queries]</code>, defaults to 100000 vectors of 128 dimensions and
+ * 1000 queries.
+ */
+public final class RhnswBenchmark {
+    private static final int TOP_K = 10;
+    private static final int EF = 128;
+    private static final int[] REFINE_FACTORS = {1, 2, 4, 12};
+
+    private RhnswBenchmark() {}
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int dim = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+
+        float[] data = Datasets.clustered(count, dim, 256, 1L);
+        float[] queryData = Datasets.clustered(queries, dim, 256, 1L + count);
+        FlatIndex flat = new FlatIndex(dim, MetricType.L2);
+        flat.build(data, count);
+        SearchResult[] truth = new SearchResult[queries];
+        for (int q = 0; q < queries; q++) {
+            truth[q] = flat.search(Datasets.row(queryData, dim, q), TOP_K, IndexParams.empty());
+        }
+
+        IndexParams search = IndexParams.empty().with(IndexParams.EF, EF);
+        System.out.println("index,build_ms,heap_bytes_per_vector,mapped_bytes_per_vector,refine_factor,recall@10,qps");
+        for (IndexType type : new IndexType[] {IndexType.HNSW, IndexType.RHNSW_SQ, IndexType.RHNSW_PQ}) {
+            FloatVectorIndex index = VectorIndexFactory.create(type, MetricType.L2, dim, IndexParams.empty());
+            long start = System.nanoTime();
+            index.build(data, count);
+            long buildMillis = (System.nanoTime() - start) / 1_000_000;
+            if (type == IndexType.HNSW) {
+                measure(index, buildMillis, "", queryData, queries, dim, truth, search);
+                continue;
+            }
+            for (int factor : REFINE_FACTORS) {
+                measure(index, buildMillis, String.valueOf(factor), queryData, queries, dim, truth,
+                        search.with(IndexParams.REFINE_FACTOR, factor));
+            }
+        }
+    }
+
+    private static void measure(FloatVectorIndex index, long buildMillis, String factor, float[] queryData,
+                                int queries, int dim, SearchResult[] truth, IndexParams search) {
+        double recall = 0d;
+        long t0 = System.nanoTime();
+        for (int q = 0; q < queries; q++) {
+            SearchResult r = index.search(Datasets.row(queryData, dim, q), TOP_K, search);
+            recall += Recall.at(TOP_K, truth[q], r);
+        }
+        double seconds = (System.nanoTime() - t0) / 1e9;
+        long mapped = index instanceof RhnswIndex ? ((RhnswIndex) index).mappedBytes() : 0L;
+        int n = index.size();
+        System.out.printf("%s,%d,%.1f,%.1f,%s,%.4f,%.1f%n", index.getIndexType(), buildMillis,
+                (double) index.memoryBytes() / n, (double) mapped / n, factor, recall / queries, queries / seconds);
+    }
+}
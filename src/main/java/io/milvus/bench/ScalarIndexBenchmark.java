@@ -0,0 +1,220 @@
+package io.milvus.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.filter.ColumnBlocks;
+import io.milvus.filter.FilterPlan;
+import io.milvus.filter.Utf8Block;
+import io.milvus.index.scalar.ScalarIndex;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * Compares evaluating filter expressions by scanning the columns with evaluating them with a {@link ScalarIndex}
+ * of each field, of every index type, and checks that all select the same rows. Reports the build time and memory
+ * of each index and the evaluation time of each expression, from a handful of rows to most of the segment.
+ * <code>TRIE</code> only indexes the <code>VARCHAR</code> fields; its expressions on other fields scan them.
+ * <p>
+ * Usage: <code>ScalarIndexBenchmark [rows] [rounds]</code>, defaults to 1,000,000 rows and 5 rounds.
+ */
+public final class ScalarIndexBenchmark {
+    private static final String[] CITIES = {"Amsterdam", "Berlin", "Bern", "Lisbon", "London", "Madrid", "Oslo",
+            "Paris", "Prague", "Rome", "Vienna", "Warsaw"};
+    private static final String[] EXPRESSIONS = {
+            "id in [3, 17, 4242, 99999, 123456, 765432]",
+            "id >= 500000 and id < 501000",
+            "price < 1.5",
+            "price > 990 and age < 30",
+            "sku like \"SKU-0042%\"",
+            "sku >= \"SKU-9\"",
+            "age == 42",
+            "age < 5 and city == \"Oslo\"",
+            "city in [\"Berlin\", \"Rome\"]",
+            "age > 30",
+            "city != \"London\"",
+            "path like \"/warehouse/eu-west/aisle-07/%\"",
+            "path in [\"/warehouse/us-east/aisle-01/shelf-0001\", \"/warehouse/ap-south/aisle-19/shelf-4999\"]"};
+    private static final String[] REGIONS = {"eu-west", "eu-north", "us-east", "us-west", "ap-south"};
+    private static final IndexType[] INDEX_TYPES = {IndexType.STL_SORT, IndexType.INVERTED, IndexType.TRIE,
+            IndexType.AUTOINDEX};
+
+    private ScalarIndexBenchmark() {}
+
+    public static void main(String[] args) {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Columns columns = new Columns(rows, 1L);
+        List<FieldType> fields = Arrays.asList(
+                FieldType.newBuilder().withName("id").withDataType(DataType.INT64).withPrimaryKey(true).build(),
+                FieldType.newBuilder().withName("age").withDataType(DataType.INT32).build(),
+                FieldType.newBuilder().withName("price").withDataType(DataType.DOUBLE).build(),
+                FieldType.newBuilder().withName("city").withDataType(DataType.VARCHAR).withMaxLength(16).build(),
+                FieldType.newBuilder().withName("sku").withDataType(DataType.VARCHAR).withMaxLength(16).build(),
+                FieldType.newBuilder().withName("path").withDataType(DataType.VARCHAR).withMaxLength(64).build());
+        System.out.printf("%d rows, best of %d rounds%n", rows, rounds);
+
+        System.out.println("field,index,built_as,values,build_ms,memory_mb");
+        ScalarIndex[][] indexes = new ScalarIndex[INDEX_TYPES.length][];
+        for (int t = 0; t < INDEX_TYPES.length; t++) {
+            indexes[t] = new ScalarIndex[fields.size()];
+            for (int f = 0; f < fields.size(); f++) {
+                if (INDEX_TYPES[t] == IndexType.TRIE && fields.get(f).getDataType() != DataType.VARCHAR) {
+                    continue;
+                }
+                long start = System.nanoTime();
+                ScalarIndex index = columns.build(f, INDEX_TYPES[t]);
+                long elapsed = System.nanoTime() - start;
+                indexes[t][f] = index;
+                System.out.printf("%s,%s,%s,%d,%.1f,%.1f%n", fields.get(f).getName(), INDEX_TYPES[t],
+                        index.getIndexType(), index.getValueCount(), elapsed / 1e6, index.memoryBytes() / 1e6);
+            }
+        }
+
+        StringBuilder header = new StringBuilder("expression,matches,scan_ms");
+        for (IndexType indexType : INDEX_TYPES) {
+            header.append(',').append(indexType.name().toLowerCase()).append("_ms");
+        }
+        System.out.println(header);
+        for (String text : EXPRESSIONS) {
+            FilterPlan plan = FilterPlan.compile(text, fields);
+            int expected = -1;
+            StringBuilder line = new StringBuilder();
+            for (int t = -1; t < INDEX_TYPES.length; t++) {
+                ColumnBlocks source = t < 0 ? columns : columns.indexedBy(indexes[t]);
+                long best = Long.MAX_VALUE;
+                RowBitmap selected = null;
+                for (int round = 0; round < rounds; round++) {
+                    long start = System.nanoTime();
+                    selected = plan.select(source, rows, null);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                if (expected < 0) {
+                    expected = selected.cardinality();
+                } else if (selected.cardinality() != expected) {
+                    throw new IllegalStateException(text + ": " + INDEX_TYPES[t] + " selects "
+                            + selected.cardinality() + " rows, the scan " + expected);
+                }
+                line.append(',').append(String.format("%.2f", best / 1e6));
+            }
+            System.out.printf("\"%s\",%d%s%n", text.replace("\"", "'"), expected, line);
+        }
+    }
+
+    /**
+     * Columns held in plain arrays, read a block at a time, without indexes unless {@link #indexedBy} adds them.
+     */
+    private static class Columns implements ColumnBlocks {
+        final long[] ids;
+        final int[] ages;
+        final double[] prices;
+        final int[] cities;
+        final String[] skus;
+        final String[] paths;
+        final byte[][] cityBytes = new byte[CITIES.length][];
+        final byte[][] skuBytes;
+        final byte[][] pathBytes;
+
+        Columns(int rows, long seed) {
+            Random random = new Random(seed);
+            ids = new long[rows];
+            ages = new int[rows];
+            prices = new double[rows];
+            cities = new int[rows];
+            skus = new String[rows];
+            skuBytes = new byte[rows][];
+            paths = new String[rows];
+            pathBytes = new byte[rows][];
+            for (int row = 0; row < rows; row++) {
+                ids[row] = row;
+                ages[row] = random.nextInt(100);
+                prices[row] = random.nextDouble() * 1000;
+                cities[row] = random.nextInt(CITIES.length);
+                skus[row] = String.format("SKU-%07d", random.nextInt(10_000_000));
+                skuBytes[row] = skus[row].getBytes(StandardCharsets.UTF_8);
+                paths[row] = String.format("/warehouse/%s/aisle-%02d/shelf-%04d", REGIONS[random.nextInt(
+                        REGIONS.length)], random.nextInt(20), random.nextInt(5000));
+                pathBytes[row] = paths[row].getBytes(StandardCharsets.UTF_8);
+            }
+            for (int c = 0; c < CITIES.length; c++) {
+                cityBytes[c] = CITIES[c].getBytes(StandardCharsets.UTF_8);
+            }
+        }
+
+        Columns(Columns columns) {
+            ids = columns.ids;
+            ages = columns.ages;
+            prices = columns.prices;
+            cities = columns.cities;
+            skus = columns.skus;
+            skuBytes = columns.skuBytes;
+            paths = columns.paths;
+            pathBytes = columns.pathBytes;
+            System.arraycopy(columns.cityBytes, 0, cityBytes, 0, cityBytes.length);
+        }
+
+        ScalarIndex build(int field, IndexType indexType) {
+            switch (field) {
+                case 0:
+                    return ScalarIndex.build(indexType, ids);
+                case 1:
+                    long[] values = new long[ages.length];
+                    for (int row = 0; row < values.length; row++) {
+                        values[row] = ages[row];
+                    }
+                    return ScalarIndex.build(indexType, values);
+                case 2:
+                    return ScalarIndex.build(indexType, prices);
+                case 3:
+                    List<String> names = new ArrayList<>(cities.length);
+                    for (int city : cities) {
+                        names.add(CITIES[city]);
+                    }
+                    return ScalarIndex.build(indexType, names);
+                case 4:
+                    return ScalarIndex.build(indexType, Arrays.asList(skus));
+                default:
+                    return ScalarIndex.build(indexType, Arrays.asList(paths));
+            }
+        }
+
+        ColumnBlocks indexedBy(ScalarIndex[] indexes) {
+            return new Columns(this) {
+                @Override
+                public ScalarIndex index(int field) {
+                    return indexes[field];
+                }
+            };
+        }
+
+        @Override
+        public void readLongs(int field, int from, int count, long[] into) {
+            if (field == 0) {
+                System.arraycopy(ids, from, into, 0, count);
+            } else {
+                for (int i = 0; i < count; i++) {
+                    into[i] = ages[from + i];
+                }
+            }
+        }
+
+        @Override
+        public void readDoubles(int field, int from, int count, double[] into) {
+            System.arraycopy(prices, from, into, 0, count);
+        }
+
+        @Override
+        public void readStrings(int field, int from, int count, Utf8Block into) {
+            for (int i = 0; i < count; i++) {
+                into.add(field == 3 ? cityBytes[cities[from + i]] : field == 4 ? skuBytes[from + i]
+                        : pathBytes[from + i]);
+            }
+        }
+    }
+}
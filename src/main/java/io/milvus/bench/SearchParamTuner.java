@@ -0,0 +1,394 @@
+package io.milvus.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.AutoIndex;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.VectorIndexFactory;
+import io.milvus.param.index.CreateIndexParam;
+
+/**
+ * Finds the cheapest search parameter that reaches a target recall@k on a sample of queries.
+ * <p>
+ * The tuned parameter depends on the index type: <code>nprobe</code> for IVF indexes, <code>ef</code> for HNSW
+ * indexes, <code>search_k</code> for <code>ANNOY</code> and <code>search_list</code> for <code>DISKANN</code>.
+ * Ground truth comes from an exact <code>FLAT</code> search. The parameter is doubled until the target is met,
+ * then binary-searched between the last two values, so that about <code>2 * log2(value)</code> settings are
+ * measured. Recall is assumed to grow with the parameter and so is latency, which makes the smallest value that
+ * meets the target the cheapest one.
+ * <p>
+ * Usage: <code>SearchParamTuner [indexType] [count] [dim] [targetRecall]</code> tunes an index over a synthetic
+ * clustered dataset, defaults to <code>HNSW</code>, 20000 vectors of 64 dimensions and 0.95.
+ */
+public final class SearchParamTuner {
+    private final FloatVectorIndex index;
+    private final IndexParams buildParams;
+    private final float[] vectors;
+    private final int count;
+    private final float[] queries;
+    private final int queryCount;
+    private final int topK;
+    private final double targetRecall;
+
+    private SearchParamTuner(Builder builder) {
+        this.index = builder.index;
+        this.buildParams = builder.buildParams;
+        this.vectors = builder.vectors;
+        this.count = builder.count;
+        this.queries = builder.queries;
+        this.queryCount = builder.queryCount;
+        this.topK = builder.topK;
+        this.targetRecall = builder.targetRecall;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Runs the tuning.
+     *
+     * @return {@link Result}
+     */
+    public Result tune() {
+        int dim = index.getDimension();
+        FlatIndex flat = new FlatIndex(dim, index.getMetricType());
+        flat.build(vectors, count);
+        SearchResult[] truth = new SearchResult[queryCount];
+        for (int q = 0; q < queryCount; q++) {
+            truth[q] = flat.search(Datasets.row(queries, dim, q), topK, IndexParams.empty());
+        }
+
+        IndexType type = index.getIndexType();
+        IndexParams build = buildParams;
+        if (index instanceof AutoIndex.FloatIndex && ((AutoIndex.FloatIndex) index).getChoice() != null) {
+            build = ((AutoIndex.FloatIndex) index).getChoice().getBuildParams();
+        }
+        String name;
+        int max;
+        switch (type) {
+            case IVF_FLAT:
+            case IVF_SQ8:
+            case IVF_PQ:
+                name = IndexParams.NPROBE;
+                max = build.getInt(IndexParams.NLIST, 65536);
+                break;
+            case HNSW:
+            case RHNSW_FLAT:
+            case RHNSW_SQ:
+            case RHNSW_PQ:
+                name = IndexParams.EF;
+                max = Math.max(topK, count);
+                break;
+            case ANNOY:
+                name = IndexParams.SEARCH_K;
+                max = (int) Math.min(Integer.MAX_VALUE, (long) count * build.getInt(IndexParams.N_TREES, 8));
+                break;
+            case DISKANN:
+                name = IndexParams.SEARCH_LIST;
+                max = Math.max(topK, count);
+                break;
+            default:
+                Trial exact = measure(null, 0, truth);
+                return new Result(null, 0, exact, Collections.singletonList(exact), exact.recall >= targetRecall);
+        }
+        int min = IndexParams.NPROBE.equals(name) ? 1 : topK;
+        // warm up so that the first measured value is not charged for compilation
+        measure(name, min, truth);
+
+        TreeMap<Integer, Trial> trials = new TreeMap<>();
+        int low = min;
+        int high = min;
+        while (true) {
+            Trial trial = measure(name, high, truth);
+            trials.put(high, trial);
+            if (trial.recall >= targetRecall) {
+                break;
+            }
+            if (high >= max) {
+                return new Result(name, high, trial, new ArrayList<>(trials.values()), false);
+            }
+            low = high;
+            high = (int) Math.min(max, 2L * high);
+        }
+        // unless the first value passed, the smallest passing value lies in (low, high]
+        while (high - low > 1) {
+            int mid = low + (high - low) / 2;
+            Trial trial = measure(name, mid, truth);
+            trials.put(mid, trial);
+            if (trial.recall >= targetRecall) {
+                high = mid;
+            } else {
+                low = mid;
+            }
+        }
+        return new Result(name, high, trials.get(high), new ArrayList<>(trials.values()), true);
+    }
+
+    private Trial measure(String name, int value, SearchResult[] truth) {
+        int dim = index.getDimension();
+        IndexParams params = name == null ? IndexParams.empty() : IndexParams.empty().with(name, value);
+        long[] latencies = new long[queryCount];
+        double recall = 0d;
+        for (int q = 0; q < queryCount; q++) {
+            float[] query = Datasets.row(queries, dim, q);
+            long start = System.nanoTime();
+            SearchResult result = index.search(query, topK, params);
+            latencies[q] = System.nanoTime() - start;
+            recall += Recall.at(topK, truth[q], result);
+        }
+        Arrays.sort(latencies);
+        long total = 0L;
+        for (long latency : latencies) {
+            total += latency;
+        }
+        return new Trial(value, recall / queryCount, total / 1000d / queryCount,
+                latencies[Math.min(queryCount - 1, (int) (queryCount * 0.99))] / 1000d);
+    }
+
+    public static void main(String[] args) {
+        IndexType type = IndexType.valueOf(args.length > 0 ? args[0] : "HNSW");
+        int count = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int dim = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        double target = args.length > 3 ? Double.parseDouble(args[3]) : 0.95d;
+        int queries = 200;
+
+        float[] data = Datasets.clustered(count, dim, 256, 1L);
+        float[] queryData = Datasets.clustered(queries, dim, 256, 1L + count);
+        CreateIndexParam param = CreateIndexParam.newBuilder()
+                .withIndexType(type)
+                .withMetricType(MetricType.L2)
+                .build();
+        Result result = newBuilder()
+                .withCreateIndexParam(param)
+                .withVectors(data, count, dim)
+                .withQueries(queryData, queries)
+                .withTopK(10)
+                .withTargetRecall(target)
+                .build()
+                .tune();
+        System.out.println("value,recall@10,mean_latency_us,p99_latency_us");
+        for (Trial trial : result.getTrials()) {
+            System.out.printf("%d,%.4f,%.1f,%.1f%n", trial.getValue(), trial.getRecall(),
+                    trial.getMeanLatencyMicros(), trial.getP99LatencyMicros());
+        }
+        System.out.println(result);
+    }
+
+    /**
+     * The recall and latency measured at one parameter value.
+     */
+    public static final class Trial {
+        private final int value;
+        private final double recall;
+        private final double meanLatencyMicros;
+        private final double p99LatencyMicros;
+
+        private Trial(int value, double recall, double meanLatencyMicros, double p99LatencyMicros) {
+            this.value = value;
+            this.recall = recall;
+            this.meanLatencyMicros = meanLatencyMicros;
+            this.p99LatencyMicros = p99LatencyMicros;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public double getRecall() {
+            return recall;
+        }
+
+        public double getMeanLatencyMicros() {
+            return meanLatencyMicros;
+        }
+
+        public double getP99LatencyMicros() {
+            return p99LatencyMicros;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Trial{value=%d, recall=%.4f, meanLatencyMicros=%.1f, p99LatencyMicros=%.1f}",
+                    value, recall, meanLatencyMicros, p99LatencyMicros);
+        }
+    }
+
+    /**
+     * The outcome of {@link #tune()}.
+     */
+    public static final class Result {
+        private final String paramName;
+        private final int value;
+        private final Trial best;
+        private final List<Trial> trials;
+        private final boolean targetMet;
+
+        private Result(String paramName, int value, Trial best, List<Trial> trials, boolean targetMet) {
+            this.paramName = paramName;
+            this.value = value;
+            this.best = best;
+            this.trials = Collections.unmodifiableList(trials);
+            this.targetMet = targetMet;
+        }
+
+        /**
+         * Returns the name of the tuned parameter, or <code>null</code> for exact indexes.
+         *
+         * @return <code>String</code>
+         */
+        public String getParamName() {
+            return paramName;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        /**
+         * Returns the search parameters to use, empty for exact indexes.
+         *
+         * @return {@link IndexParams}
+         */
+        public IndexParams getSearchParams() {
+            return paramName == null ? IndexParams.empty() : IndexParams.empty().with(paramName, value);
+        }
+
+        /**
+         * Returns the measurements at the chosen value.
+         *
+         * @return {@link Trial}
+         */
+        public Trial getBest() {
+            return best;
+        }
+
+        /**
+         * Returns every measured value in ascending order.
+         *
+         * @return <code>List</code>
+         */
+        public List<Trial> getTrials() {
+            return trials;
+        }
+
+        /**
+         * Returns <code>false</code> if even the largest value missed the target, in which case that value is
+         * returned.
+         *
+         * @return <code>boolean</code>
+         */
+        public boolean isTargetMet() {
+            return targetMet;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{paramName=" + paramName + ", value=" + value + ", targetMet=" + targetMet
+                    + ", best=" + best + '}';
+        }
+    }
+
+    public static class Builder {
+        private FloatVectorIndex index;
+        private IndexParams buildParams = IndexParams.empty();
+        private CreateIndexParam createIndexParam;
+        private float[] vectors;
+        private int count;
+        private int dim;
+        private float[] queries;
+        private int queryCount;
+        private int topK = 10;
+        private double targetRecall = 0.95d;
+
+        private Builder() {}
+
+        /**
+         * Tunes an index created and built from a {@link CreateIndexParam} over the vectors.
+         */
+        public Builder withCreateIndexParam(CreateIndexParam createIndexParam) {
+            this.createIndexParam = createIndexParam;
+            return this;
+        }
+
+        /**
+         * Tunes an index that is already built over the vectors.
+         *
+         * @param index The built index.
+         * @param buildParams The parameters the index was built with.
+         */
+        public Builder withIndex(FloatVectorIndex index, IndexParams buildParams) {
+            this.index = index;
+            this.buildParams = buildParams;
+            return this;
+        }
+
+        /**
+         * Sets the indexed vectors, used for the exact ground truth.
+         */
+        public Builder withVectors(float[] vectors, int count, int dim) {
+            this.vectors = vectors;
+            this.count = count;
+            this.dim = dim;
+            return this;
+        }
+
+        public Builder withQueries(float[] queries, int queryCount) {
+            this.queries = queries;
+            this.queryCount = queryCount;
+            return this;
+        }
+
+        public Builder withTopK(int topK) {
+            this.topK = topK;
+            return this;
+        }
+
+        public Builder withTargetRecall(double targetRecall) {
+            this.targetRecall = targetRecall;
+            return this;
+        }
+
+        /**
+         * Validates the inputs and builds the index from the {@link CreateIndexParam} if one was given.
+         *
+         * @return {@link SearchParamTuner}
+         * @throws IllegalArgumentException if an input is missing or invalid.
+         */
+        public SearchParamTuner build() {
+            if (vectors == null || count <= 0 || dim <= 0 || vectors.length < count * dim) {
+                throw new IllegalArgumentException("Vectors are required");
+            }
+            if (queries == null || queryCount <= 0 || queries.length < queryCount * dim) {
+                throw new IllegalArgumentException("Queries are required");
+            }
+            if (topK <= 0) {
+                throw new IllegalArgumentException("topK must be positive, got: " + topK);
+            }
+            if (targetRecall <= 0d || targetRecall > 1d) {
+                throw new IllegalArgumentException("Target recall must be in (0, 1], got: " + targetRecall);
+            }
+            if (index == null) {
+                if (createIndexParam == null) {
+                    throw new IllegalArgumentException("Either an index or a CreateIndexParam is required");
+                }
+                index = VectorIndexFactory.create(createIndexParam, dim);
+                buildParams = IndexParams.of(createIndexParam.getExtraParam());
+                index.build(vectors, count);
+            } else if (index.getDimension() != dim) {
+                throw new IllegalArgumentException("Index dimension " + index.getDimension()
+                        + " does not match vector dimension " + dim);
+            }
+            return new SearchParamTuner(this);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+/**
+ * Provides self-contained benchmarks for the in-process indexes. Each benchmark is a <code>main</code> class that
+ * runs on a single machine without external services.
+ * 
+ * @since 2.3.0
+ */
+package io.milvus.bench;
@@ -156,6 +156,14 @@ public interface MilvusClient {
      */
     R<Task> delete(DeleteParam requestParam);
 
+    /**
+     * Searches a vector field of a loaded collection for the nearest neighbors of query vectors.
+     * 
+     * @param requestParam A {@link SearchParam} object as the request parameter.
+     * @return A {@link SearchResponse} object holding the results of every query vector.
+     */
+    R<SearchResponse> search(SearchParam requestParam);
+
     /**
      * Shows the state of a bulk-insert task.
      * 
@@ -0,0 +1,228 @@
+package io.milvus.common;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A sequence of fixed-size records spread over several {@link ByteBuffer} chunks, so that regions larger than
+ * 2 GB can be addressed. Records never straddle two chunks. The chunks are heap buffers, direct buffers or
+ * mappings of a file region, which lets several processes share one copy of the data through the OS page cache.
+ * <p>
+ * All accessors use absolute positions, so concurrent readers are safe.
+ */
+public final class PagedBuffer {
+    // keep chunks well below Integer.MAX_VALUE
+    private static final long MAX_CHUNK_BYTES = 1L << 30;
+    private static final Unmapper UNMAPPER = unmapper();
+
+    private final ByteBuffer[] chunks;
+    private final long records;
+    private final int recordSize;
+    private final int recordsPerChunk;
+
+    private PagedBuffer(ByteBuffer[] chunks, long records, int recordSize, int recordsPerChunk) {
+        this.chunks = chunks;
+        this.records = records;
+        this.recordSize = recordSize;
+        this.recordsPerChunk = recordsPerChunk;
+    }
+
+    /**
+     * Allocates a zero-filled heap region.
+     *
+     * @param records The number of records.
+     * @param recordSize The size of a record in bytes.
+     * @return {@link PagedBuffer}
+     */
+    public static PagedBuffer allocate(long records, int recordSize) {
+        int perChunk = recordsPerChunk(recordSize);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(records, perChunk)];
+        for (int c = 0; c < chunks.length; c++) {
+            long n = Math.min(perChunk, records - (long) c * perChunk);
+            chunks[c] = ByteBuffer.allocate((int) (n * recordSize)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new PagedBuffer(chunks, records, recordSize, perChunk);
+    }
+
+    /**
+     * Allocates a zero-filled region outside the Java heap.
+     *
+     * @param records The number of records.
+     * @param recordSize The size of a record in bytes.
+     * @return {@link PagedBuffer}
+     */
+    public static PagedBuffer allocateDirect(long records, int recordSize) {
+        int perChunk = recordsPerChunk(recordSize);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(records, perChunk)];
+        for (int c = 0; c < chunks.length; c++) {
+            long n = Math.min(perChunk, records - (long) c * perChunk);
+            chunks[c] = ByteBuffer.allocateDirect((int) (n * recordSize)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new PagedBuffer(chunks, records, recordSize, perChunk);
+    }
+
+    /**
+     * Maps a region of a file. The mapping stays valid after the channel is closed.
+     *
+     * @param channel An open file channel.
+     * @param mode The mapping mode.
+     * @param position The file offset at which the region starts.
+     * @param records The number of records.
+     * @param recordSize The size of a record in bytes.
+     * @return {@link PagedBuffer}
+     * @throws IOException if the file cannot be mapped.
+     */
+    public static PagedBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long records,
+                                  int recordSize) throws IOException {
+        int perChunk = recordsPerChunk(recordSize);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(records, perChunk)];
+        for (int c = 0; c < chunks.length; c++) {
+            long n = Math.min(perChunk, records - (long) c * perChunk);
+            chunks[c] = channel.map(mode, position + (long) c * perChunk * recordSize, n * recordSize)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return new PagedBuffer(chunks, records, recordSize, perChunk);
+    }
+
+    private static int recordsPerChunk(int recordSize) {
+        if (recordSize <= 0 || recordSize > MAX_CHUNK_BYTES) {
+            throw new IllegalArgumentException("Invalid record size: " + recordSize);
+        }
+        return (int) (MAX_CHUNK_BYTES / recordSize);
+    }
+
+    private static int chunkCount(long records, int perChunk) {
+        return (int) Math.max(1, (records + perChunk - 1) / perChunk);
+    }
+
+    public long records() {
+        return records;
+    }
+
+    public int recordSize() {
+        return recordSize;
+    }
+
+    /**
+     * Returns the total size of the region in bytes.
+     *
+     * @return <code>long</code>
+     */
+    public long byteSize() {
+        return records * recordSize;
+    }
+
+    /**
+     * Returns the chunk holding a record. Use it together with {@link #offset(long)} for absolute access.
+     */
+    public ByteBuffer chunk(long record) {
+        return chunks[(int) (record / recordsPerChunk)];
+    }
+
+    /**
+     * Returns the byte offset of a record within its chunk.
+     */
+    public int offset(long record) {
+        return (int) (record % recordsPerChunk) * recordSize;
+    }
+
+    public int getInt(long record, int byteOffset) {
+        return chunk(record).getInt(offset(record) + byteOffset);
+    }
+
+    public float getFloat(long record, int byteOffset) {
+        return chunk(record).getFloat(offset(record) + byteOffset);
+    }
+
+    public void putInt(long record, int byteOffset, int value) {
+        chunk(record).putInt(offset(record) + byteOffset, value);
+    }
+
+    public void putFloat(long record, int byteOffset, float value) {
+        chunk(record).putFloat(offset(record) + byteOffset, value);
+    }
+
+    /**
+     * Writes the whole region to a channel.
+     *
+     * @param channel The target channel.
+     * @param position The file offset to write at.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(FileChannel channel, long position) throws IOException {
+        long p = position;
+        for (ByteBuffer chunk : chunks) {
+            ByteBuffer view = chunk.duplicate();
+            view.clear();
+            while (view.hasRemaining()) {
+                p += channel.write(view, p);
+            }
+        }
+    }
+
+    /**
+     * Reads the mapped chunks into physical memory, so that the first accesses do not fault. Has no effect on
+     * heap and direct chunks.
+     */
+    public void load() {
+        for (ByteBuffer chunk : chunks) {
+            if (chunk instanceof MappedByteBuffer) {
+                ((MappedByteBuffer) chunk).load();
+            }
+        }
+    }
+
+    /**
+     * Unmaps the mapped chunks now instead of when they are garbage collected. Any access to the region afterwards
+     * may crash the JVM, so the caller must make sure no reader is left. Falls back to garbage collection where the
+     * JVM offers no way to unmap.
+     *
+     * @return <code>true</code> if the chunks were unmapped.
+     */
+    public boolean unmap() {
+        if (UNMAPPER == null) {
+            return false;
+        }
+        try {
+            for (ByteBuffer chunk : chunks) {
+                if (chunk instanceof MappedByteBuffer) {
+                    UNMAPPER.unmap(chunk);
+                }
+            }
+            return true;
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private interface Unmapper {
+        void unmap(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+
+    private static Unmapper unmapper() {
+        try {
+            // Java 9 and later
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // fall through
+        }
+        try {
+            // Java 8
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> clean.invoke(cleaner.invoke(buffer));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
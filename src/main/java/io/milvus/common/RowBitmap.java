@@ -0,0 +1,630 @@
+package io.milvus.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A compressed set of non-negative row offsets in the style of a Roaring bitmap. Rows are split on their high 16
+ * bits into chunks of 65536, and every non-empty chunk keeps its low 16 bits in the smallest of three containers:
+ * a sorted array while it holds at most 4096 rows, a 8 KB bitmap above that, or a list of runs once
+ * {@link #runOptimize()} finds ranges. Memory therefore grows with the number of rows in the set, not with the
+ * largest one.
+ * <p>
+ * Lookups cost a binary search over the chunks, of which a segment-sized set has one or two, and a bit test or a
+ * binary search in the container. {@link #next(int)} walks the set in order, so scans can skip its rows with a
+ * cursor instead of a lookup per row.
+ * <p>
+ * Instances are not thread-safe; share them by publishing a {@link #copy()} that is no longer modified.
+ */
+public final class RowBitmap {
+    private static final int ARRAY_MAX = 4096;
+    private static final int BITMAP_WORDS = 1024;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUNS = 2;
+
+    private char[] keys = new char[0];
+    private Container[] containers = new Container[0];
+    private int size;
+
+    /**
+     * Adds a row.
+     *
+     * @param row A non-negative row offset.
+     * @return <code>true</code> if the row was not in the set yet.
+     */
+    public boolean add(int row) {
+        if (row < 0) {
+            throw new IllegalArgumentException("Row offsets are non-negative, got: " + row);
+        }
+        char key = (char) (row >>> 16);
+        int i = Arrays.binarySearch(keys, 0, size, key);
+        if (i < 0) {
+            i = -i - 1;
+            if (size == keys.length) {
+                int capacity = Math.max(4, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                containers = Arrays.copyOf(containers, capacity);
+            }
+            System.arraycopy(keys, i, keys, i + 1, size - i);
+            System.arraycopy(containers, i, containers, i + 1, size - i);
+            keys[i] = key;
+            containers[i] = new ArrayContainer(new char[4], 0);
+            size++;
+        }
+        Container container = containers[i];
+        int before = container.cardinality();
+        containers[i] = container.add((char) row);
+        return containers[i].cardinality() != before;
+    }
+
+    /**
+     * Returns whether a row is in the set.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean contains(int row) {
+        if (row < 0) {
+            return false;
+        }
+        if (size == 1) {
+            return keys[0] == row >>> 16 && containers[0].contains((char) row);
+        }
+        int i = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+        return i >= 0 && containers[i].contains((char) row);
+    }
+
+    /**
+     * Returns the smallest row of the set not below <code>from</code>.
+     *
+     * @return the row, or -1 if there is none.
+     */
+    public int next(int from) {
+        int start = Math.max(from, 0);
+        int i = Arrays.binarySearch(keys, 0, size, (char) (start >>> 16));
+        if (i >= 0) {
+            int low = containers[i].next(start & 0xFFFF);
+            if (low >= 0) {
+                return keys[i] << 16 | low;
+            }
+            i++;
+        } else {
+            i = -i - 1;
+        }
+        return i < size ? keys[i] << 16 | containers[i].next(0) : -1;
+    }
+
+    /**
+     * Returns the number of rows in the set.
+     *
+     * @return <code>int</code>
+     */
+    public int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += containers[i].cardinality();
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns whether the set is empty.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Converts every container to whichever of the array, bitmap or run encodings is the smallest for its rows.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) {
+            containers[i] = containers[i].optimize();
+        }
+    }
+
+    /**
+     * Returns a deep copy of this set.
+     *
+     * @return {@link RowBitmap}
+     */
+    public RowBitmap copy() {
+        RowBitmap copy = new RowBitmap();
+        copy.keys = Arrays.copyOf(keys, size);
+        copy.containers = new Container[size];
+        for (int i = 0; i < size; i++) {
+            copy.containers[i] = containers[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Creates a set from a plain bitmap, in which row <code>r</code> is bit <code>r % 64</code> of
+     * <code>words[r / 64]</code>. Every chunk of 65536 rows becomes an array or a bitmap container directly, without
+     * adding rows one by one.
+     *
+     * @return {@link RowBitmap}
+     */
+    public static RowBitmap fromWords(long[] words) {
+        RowBitmap bitmap = new RowBitmap();
+        int chunks = (words.length + BITMAP_WORDS - 1) / BITMAP_WORDS;
+        bitmap.keys = new char[chunks];
+        bitmap.containers = new Container[chunks];
+        for (int c = 0; c < chunks; c++) {
+            int from = c * BITMAP_WORDS;
+            int to = Math.min(words.length, from + BITMAP_WORDS);
+            int cardinality = 0;
+            for (int w = from; w < to; w++) {
+                cardinality += Long.bitCount(words[w]);
+            }
+            if (cardinality == 0) {
+                continue;
+            }
+            Container container;
+            if (cardinality <= ARRAY_MAX) {
+                char[] values = new char[cardinality];
+                int n = 0;
+                for (int w = from; w < to; w++) {
+                    for (long word = words[w]; word != 0; word &= word - 1) {
+                        values[n++] = (char) ((w - from) << 6 | Long.numberOfTrailingZeros(word));
+                    }
+                }
+                container = new ArrayContainer(values, cardinality);
+            } else {
+                long[] bits = new long[BITMAP_WORDS];
+                System.arraycopy(words, from, bits, 0, to - from);
+                container = new BitmapContainer(bits, cardinality);
+            }
+            bitmap.keys[bitmap.size] = (char) c;
+            bitmap.containers[bitmap.size++] = container;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Sets the bit of every row of the set in a plain bitmap laid out as in {@link #fromWords(long[])}, a container
+     * at a time rather than a row at a time.
+     *
+     * @param words A bitmap long enough for the largest row of the set.
+     */
+    public void orInto(long[] words) {
+        for (int i = 0; i < size; i++) {
+            containers[i].orInto(words, keys[i] << 10);
+        }
+    }
+
+    /**
+     * Returns the approximate number of bytes the containers take.
+     *
+     * @return <code>long</code>
+     */
+    public long memoryBytes() {
+        long bytes = 6L * keys.length;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].memoryBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the set in its current encoding.
+     *
+     * @throws IOException if the output fails.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeChar(keys[i]);
+            containers[i].write(out);
+        }
+    }
+
+    /**
+     * Reads a set written by {@link #writeTo(DataOutput)}.
+     *
+     * @return {@link RowBitmap}
+     * @throws IOException if the input fails or is not a row bitmap.
+     */
+    public static RowBitmap readFrom(DataInput in) throws IOException {
+        RowBitmap bitmap = new RowBitmap();
+        int size = in.readInt();
+        if (size < 0 || size > 1 << 16) {
+            throw new IOException("Invalid row bitmap with " + size + " containers");
+        }
+        bitmap.keys = new char[size];
+        bitmap.containers = new Container[size];
+        for (int i = 0; i < size; i++) {
+            bitmap.keys[i] = in.readChar();
+            bitmap.containers[i] = readContainer(in);
+        }
+        bitmap.size = size;
+        return bitmap;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("RowBitmap{");
+        int shown = 0;
+        for (int row = next(0); row >= 0 && shown < 16; row = next(row + 1), shown++) {
+            builder.append(shown == 0 ? "" : ", ").append(row);
+        }
+        int cardinality = cardinality();
+        return builder.append(cardinality > shown ? ", ... (" + cardinality + " rows)" : "").append('}').toString();
+    }
+
+    private static Container readContainer(DataInput in) throws IOException {
+        byte type = in.readByte();
+        if (type == ARRAY) {
+            int n = in.readUnsignedShort() + 1;
+            char[] values = new char[n];
+            for (int j = 0; j < n; j++) {
+                values[j] = in.readChar();
+            }
+            return new ArrayContainer(values, n);
+        }
+        if (type == BITMAP) {
+            long[] words = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] = in.readLong();
+                cardinality += Long.bitCount(words[w]);
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+        if (type == RUNS) {
+            int n = in.readUnsignedShort() + 1;
+            char[] runs = new char[2 * n];
+            for (int j = 0; j < runs.length; j++) {
+                runs[j] = in.readChar();
+            }
+            return new RunContainer(runs, n);
+        }
+        throw new IOException("Unknown row bitmap container type " + type);
+    }
+
+    /**
+     * The low 16 bits of the rows of one chunk; never empty.
+     */
+    private abstract static class Container {
+        abstract boolean contains(char low);
+
+        /**
+         * Adds a value, returning the container that holds the result: this one or a converted one.
+         */
+        abstract Container add(char low);
+
+        abstract int next(int from);
+
+        abstract int cardinality();
+
+        abstract Container copy();
+
+        abstract long memoryBytes();
+
+        abstract void write(DataOutput out) throws IOException;
+
+        /**
+         * Sets the bits of the values in a plain bitmap, starting at word <code>offset</code>.
+         */
+        abstract void orInto(long[] words, int offset);
+
+        /**
+         * Re-encodes the values in the smallest container, found by counting their runs in one ordered pass.
+         */
+        final Container optimize() {
+            int cardinality = cardinality();
+            int runs = 0;
+            int last = -2;
+            for (int v = next(0); v >= 0; v = next(v + 1)) {
+                if (v != last + 1) {
+                    runs++;
+                }
+                last = v;
+            }
+            long runBytes = 4L * runs;
+            long arrayBytes = cardinality <= ARRAY_MAX ? 2L * cardinality : Long.MAX_VALUE;
+            long bitmapBytes = 8L * BITMAP_WORDS;
+            if (runBytes < arrayBytes && runBytes < bitmapBytes) {
+                return this instanceof RunContainer ? this : toRuns(runs);
+            }
+            if (arrayBytes <= bitmapBytes) {
+                return this instanceof ArrayContainer ? this : toArray(cardinality);
+            }
+            return this instanceof BitmapContainer ? this : toBitmap();
+        }
+
+        final ArrayContainer toArray(int cardinality) {
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int v = next(0); v >= 0; v = next(v + 1)) {
+                values[n++] = (char) v;
+            }
+            return new ArrayContainer(values, n);
+        }
+
+        final BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            int n = 0;
+            for (int v = next(0); v >= 0; v = next(v + 1)) {
+                words[v >>> 6] |= 1L << v;
+                n++;
+            }
+            return new BitmapContainer(words, n);
+        }
+
+        final RunContainer toRuns(int count) {
+            char[] runs = new char[2 * count];
+            int r = -1;
+            int last = -2;
+            for (int v = next(0); v >= 0; v = next(v + 1)) {
+                if (v != last + 1) {
+                    r++;
+                    runs[2 * r] = (char) v;
+                }
+                // run lengths are stored minus one so a full chunk fits in 16 bits
+                runs[2 * r + 1] = (char) (v - runs[2 * r]);
+                last = v;
+            }
+            return new RunContainer(runs, count);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int n;
+
+        ArrayContainer(char[] values, int n) {
+            this.values = values;
+            this.n = n;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, n, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int i = Arrays.binarySearch(values, 0, n, low);
+            if (i >= 0) {
+                return this;
+            }
+            if (n == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            i = -i - 1;
+            if (n == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, n * 2));
+            }
+            System.arraycopy(values, i, values, i + 1, n - i);
+            values[i] = low;
+            n++;
+            return this;
+        }
+
+        @Override
+        int next(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int i = Arrays.binarySearch(values, 0, n, (char) from);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return i < n ? values[i] : -1;
+        }
+
+        @Override
+        void orInto(long[] words, int offset) {
+            for (int j = 0; j < n; j++) {
+                words[offset + (values[j] >>> 6)] |= 1L << values[j];
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return n;
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(n, 1)), n);
+        }
+
+        @Override
+        long memoryBytes() {
+            return 16L + 2L * values.length;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeByte(ARRAY);
+            out.writeShort(n - 1);
+            for (int j = 0; j < n; j++) {
+                out.writeChar(values[j]);
+            }
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int n;
+
+        BitmapContainer(long[] words, int n) {
+            this.words = words;
+            this.n = n;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                n++;
+            }
+            return this;
+        }
+
+        @Override
+        int next(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int w = from >>> 6;
+            long word = words[w] & -1L << from;
+            while (word == 0) {
+                if (++w == BITMAP_WORDS) {
+                    return -1;
+                }
+                word = words[w];
+            }
+            return w << 6 | Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        void orInto(long[] into, int offset) {
+            int length = Math.min(BITMAP_WORDS, into.length - offset);
+            for (int w = 0; w < length; w++) {
+                into[offset + w] |= words[w];
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return n;
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), n);
+        }
+
+        @Override
+        long memoryBytes() {
+            return 16L + 8L * BITMAP_WORDS;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeByte(BITMAP);
+            for (long word : words) {
+                out.writeLong(word);
+            }
+        }
+    }
+
+    private static final class RunContainer extends Container {
+        // (start, length - 1) pairs sorted by start
+        private final char[] runs;
+        private final int count;
+        private final int cardinality;
+
+        RunContainer(char[] runs, int count) {
+            this.runs = runs;
+            this.count = count;
+            int total = 0;
+            for (int r = 0; r < count; r++) {
+                total += runs[2 * r + 1] + 1;
+            }
+            this.cardinality = total;
+        }
+
+        /**
+         * Returns the index of the last run starting at or before <code>value</code>, or -1.
+         */
+        private int floor(int value) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (runs[2 * mid] <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return hi;
+        }
+
+        @Override
+        boolean contains(char low) {
+            int r = floor(low);
+            return r >= 0 && low - runs[2 * r] <= runs[2 * r + 1];
+        }
+
+        @Override
+        Container add(char low) {
+            if (contains(low)) {
+                return this;
+            }
+            // runs are built by optimize(); an insert falls back to a plain container until the next one
+            Container plain = cardinality < ARRAY_MAX ? toArray(cardinality) : toBitmap();
+            return plain.add(low);
+        }
+
+        @Override
+        int next(int from) {
+            if (from > 0xFFFF) {
+                return -1;
+            }
+            int r = floor(from);
+            if (r >= 0 && from - runs[2 * r] <= runs[2 * r + 1]) {
+                return from;
+            }
+            return r + 1 < count ? runs[2 * (r + 1)] : -1;
+        }
+
+        @Override
+        void orInto(long[] words, int offset) {
+            for (int r = 0; r < count; r++) {
+                int first = (offset << 6) + runs[2 * r];
+                int last = first + runs[2 * r + 1];
+                int w = first >>> 6;
+                int lastWord = last >>> 6;
+                if (w == lastWord) {
+                    words[w] |= -1L << first & -1L >>> ~last;
+                    continue;
+                }
+                words[w] |= -1L << first;
+                while (++w < lastWord) {
+                    words[w] = -1L;
+                }
+                words[lastWord] |= -1L >>> ~last;
+            }
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container copy() {
+            return this;
+        }
+
+        @Override
+        long memoryBytes() {
+            return 24L + 2L * runs.length;
+        }
+
+        @Override
+        void write(DataOutput out) throws IOException {
+            out.writeByte(RUNS);
+            out.writeShort(count - 1);
+            for (int j = 0; j < 2 * count; j++) {
+                out.writeChar(runs[j]);
+            }
+        }
+    }
+}
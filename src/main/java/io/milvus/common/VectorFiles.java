@@ -0,0 +1,274 @@
+package io.milvus.common;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads vector datasets in the formats used by ANN benchmarks.
+ * <ul>
+ *     <li><code>.fvecs</code>, <code>.bvecs</code> and <code>.ivecs</code>: every row is a little-endian
+ *     <code>int32</code> dimension followed by that many <code>float32</code>, <code>uint8</code> or
+ *     <code>int32</code> values;</li>
+ *     <li><code>.npy</code>: a NumPy array of one or two dimensions in C order, with <code>float32</code>,
+ *     <code>float64</code>, <code>int8</code>, <code>uint8</code>, <code>int32</code> or <code>int64</code>
+ *     elements.</li>
+ * </ul>
+ * Every reader converts the values to floats.
+ */
+public final class VectorFiles {
+    private static final byte[] NPY_MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y'};
+    private static final Pattern NPY_DESCR = Pattern.compile("'descr'\\s*:\\s*'([<>|=])([a-z])(\\d+)'");
+    private static final Pattern NPY_FORTRAN = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern NPY_SHAPE = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    private VectorFiles() {}
+
+    /**
+     * Reads a file, choosing the format from its extension.
+     *
+     * @param path The file.
+     * @param limit The maximum number of rows to read.
+     * @return {@link Matrix}
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the extension or content is not a supported format.
+     */
+    public static Matrix read(Path path, int limit) throws IOException {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".fvecs")) {
+            return readVecs(path, 4, 'f', limit);
+        }
+        if (name.endsWith(".bvecs")) {
+            return readVecs(path, 1, 'u', limit);
+        }
+        if (name.endsWith(".ivecs")) {
+            return readVecs(path, 4, 'i', limit);
+        }
+        if (name.endsWith(".npy")) {
+            return readNpy(path, limit);
+        }
+        throw new IllegalArgumentException("Unsupported vector file: " + path);
+    }
+
+    private static Matrix readVecs(Path path, int elementSize, char kind, int limit) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            long fileSize = Files.size(path);
+            byte[] head = new byte[4];
+            if (fileSize == 0) {
+                return new Matrix(new float[0], 0, 0);
+            }
+            in.readFully(head);
+            int cols = ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN).getInt();
+            if (cols <= 0) {
+                throw new IllegalArgumentException("Invalid dimension " + cols + " in " + path);
+            }
+            long rowBytes = 4L + (long) cols * elementSize;
+            if (fileSize % rowBytes != 0) {
+                throw new IllegalArgumentException("Size of " + path + " is not a multiple of the row size");
+            }
+            int rows = (int) Math.min(limit, fileSize / rowBytes);
+            checkSize(rows, cols);
+            float[] data = new float[rows * cols];
+            ByteBuffer row = ByteBuffer.allocate(cols * elementSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int r = 0; r < rows; r++) {
+                if (r > 0) {
+                    in.readFully(head);
+                    int d = ByteBuffer.wrap(head).order(ByteOrder.LITTLE_ENDIAN).getInt();
+                    if (d != cols) {
+                        throw new IllegalArgumentException("Row " + r + " of " + path + " has dimension " + d
+                                + ", expected " + cols);
+                    }
+                }
+                in.readFully(row.array());
+                row.rewind();
+                int offset = r * cols;
+                for (int c = 0; c < cols; c++) {
+                    data[offset + c] = kind == 'f' ? row.getFloat() : kind == 'i' ? row.getInt() : row.get() & 0xff;
+                }
+            }
+            return new Matrix(data, rows, cols);
+        }
+    }
+
+    /**
+     * Reads a NumPy <code>.npy</code> file.
+     *
+     * @param path The file.
+     * @param limit The maximum number of rows to read.
+     * @return {@link Matrix}
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the array is not a supported numeric array.
+     */
+    public static Matrix readNpy(Path path, int limit) throws IOException {
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path), 1 << 16)) {
+            return readNpy(stream, limit);
+        }
+    }
+
+    /**
+     * Reads a NumPy array from a stream positioned at its magic string.
+     *
+     * @see #readNpy(Path, int)
+     */
+    public static Matrix readNpy(InputStream stream, int limit) throws IOException {
+        DataInputStream in = new DataInputStream(stream);
+        NpyHeader header = readNpyHeader(in);
+        int rows = (int) Math.min(limit, header.rows);
+        checkSize(rows, header.cols);
+        float[] data = new float[rows * header.cols];
+        int size = header.elementSize;
+        byte[] block = new byte[Math.max(size, (1 << 16) / size * size)];
+        ByteBuffer buffer = ByteBuffer.wrap(block).order(header.order);
+        int done = 0;
+        while (done < data.length) {
+            int n = Math.min(block.length / size, data.length - done);
+            in.readFully(block, 0, n * size);
+            buffer.rewind();
+            for (int i = 0; i < n; i++) {
+                data[done + i] = header.next(buffer);
+            }
+            done += n;
+        }
+        return new Matrix(data, rows, header.cols);
+    }
+
+    private static NpyHeader readNpyHeader(DataInputStream in) throws IOException {
+        byte[] magic = new byte[NPY_MAGIC.length];
+        try {
+            in.readFully(magic);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Not an npy file: too short");
+        }
+        if (!Arrays.equals(magic, NPY_MAGIC)) {
+            throw new IllegalArgumentException("Not an npy file: bad magic string");
+        }
+        int major = in.readUnsignedByte();
+        in.readUnsignedByte();
+        int headerLength;
+        if (major == 1) {
+            headerLength = in.readUnsignedByte() | in.readUnsignedByte() << 8;
+        } else {
+            headerLength = Integer.reverseBytes(in.readInt());
+        }
+        byte[] text = new byte[headerLength];
+        in.readFully(text);
+        String dict = new String(text, major >= 3 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+
+        Matcher descr = NPY_DESCR.matcher(dict);
+        Matcher fortran = NPY_FORTRAN.matcher(dict);
+        Matcher shape = NPY_SHAPE.matcher(dict);
+        if (!descr.find() || !fortran.find() || !shape.find()) {
+            throw new IllegalArgumentException("Malformed npy header: " + dict.trim());
+        }
+        if ("True".equals(fortran.group(1))) {
+            throw new IllegalArgumentException("Fortran-ordered npy arrays are not supported");
+        }
+        String[] dims = shape.group(1).split(",");
+        long rows = 1L;
+        int cols = 1;
+        int given = 0;
+        for (String d : dims) {
+            if (d.trim().isEmpty()) {
+                continue;
+            }
+            long value = Long.parseLong(d.trim());
+            if (given == 0) {
+                rows = value;
+            } else if (given == 1) {
+                cols = (int) value;
+            }
+            given++;
+        }
+        if (given > 2) {
+            throw new IllegalArgumentException("Only 1-D and 2-D npy arrays are supported, got shape ("
+                    + shape.group(1) + ")");
+        }
+        ByteOrder order = ">".equals(descr.group(1)) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        return new NpyHeader(descr.group(2).charAt(0), Integer.parseInt(descr.group(3)), order, rows, cols);
+    }
+
+    private static void checkSize(long rows, long cols) {
+        if (rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many values to hold in one array: " + rows + " x " + cols);
+        }
+    }
+
+    /**
+     * The element type, byte order and shape of an npy array.
+     */
+    private static final class NpyHeader {
+        final char kind;
+        final int elementSize;
+        final ByteOrder order;
+        final long rows;
+        final int cols;
+
+        NpyHeader(char kind, int elementSize, ByteOrder order, long rows, int cols) {
+            boolean supported = kind == 'f' && (elementSize == 4 || elementSize == 8)
+                    || kind == 'i' && (elementSize == 1 || elementSize == 4 || elementSize == 8)
+                    || kind == 'u' && elementSize == 1;
+            if (!supported) {
+                throw new IllegalArgumentException("Unsupported npy element type: " + kind + elementSize);
+            }
+            this.kind = kind;
+            this.elementSize = elementSize;
+            this.order = order;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        float next(ByteBuffer buffer) {
+            switch (elementSize) {
+                case 1:
+                    byte b = buffer.get();
+                    return kind == 'u' ? b & 0xff : b;
+                case 4:
+                    return kind == 'f' ? buffer.getFloat() : buffer.getInt();
+                default:
+                    return kind == 'f' ? (float) buffer.getDouble() : buffer.getLong();
+            }
+        }
+    }
+
+    /**
+     * A row-major matrix of floats.
+     */
+    public static final class Matrix {
+        private final float[] data;
+        private final int rows;
+        private final int cols;
+
+        public Matrix(float[] data, int rows, int cols) {
+            this.data = data;
+            this.rows = rows;
+            this.cols = cols;
+        }
+
+        /**
+         * Returns the values, one row after another.
+         *
+         * @return <code>float[]</code>
+         */
+        public float[] getData() {
+            return data;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public int getCols() {
+            return cols;
+        }
+    }
+}
@@ -18,5 +18,9 @@ public enum IndexType {
     BIN_IVF_FLAT,
 
     //Only for varchar type field
-    TRIE   
+    TRIE,
+
+    //Only for scalar fields: INT8 to INT64, FLOAT, DOUBLE and VARCHAR
+    STL_SORT,
+    INVERTED
 }
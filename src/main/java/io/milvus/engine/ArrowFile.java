@@ -0,0 +1,893 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * An Arrow IPC file for a bulk insert, in the random-access file format or the streaming format. Opening it reads
+ * the schema and the metadata of every record batch, but no buffers. The record batches of the file format are
+ * found through its footer, those of a stream by skipping from message to message.
+ * <p>
+ * Each column of a record batch is read in place through {@link #values(FieldType)}, a range of rows at a time,
+ * across batch boundaries. Columns that store their rows exactly as the field does, that is signed integers, floats
+ * and <code>float32</code> fixed-size lists of the width of the field, or fixed-size binaries that fill whole words,
+ * are transferred to segment files as is, and strings are copied as bytes with their offsets rebased. Nulls,
+ * dictionary encoding, compressed batches and big-endian files are rejected.
+ */
+final class ArrowFile {
+    static final byte[] MAGIC = {'A', 'R', 'R', 'O', 'W', '1'};
+    static final int CONTINUATION = 0xFFFFFFFF;
+    static final int METADATA_V4 = 3;
+    static final int METADATA_V5 = 4;
+
+    static final int HEADER_SCHEMA = 1;
+    static final int HEADER_DICTIONARY_BATCH = 2;
+    static final int HEADER_RECORD_BATCH = 3;
+
+    static final int TYPE_NULL = 1;
+    static final int TYPE_INT = 2;
+    static final int TYPE_FLOATING_POINT = 3;
+    static final int TYPE_BINARY = 4;
+    static final int TYPE_UTF8 = 5;
+    static final int TYPE_BOOL = 6;
+    static final int TYPE_LIST = 12;
+    static final int TYPE_STRUCT = 13;
+    static final int TYPE_FIXED_SIZE_BINARY = 15;
+    static final int TYPE_FIXED_SIZE_LIST = 16;
+    static final int TYPE_LARGE_BINARY = 19;
+    static final int TYPE_LARGE_UTF8 = 20;
+    static final int TYPE_LARGE_LIST = 21;
+
+    static final int PRECISION_SINGLE = 1;
+    static final int PRECISION_DOUBLE = 2;
+
+    private static final int MAX_METADATA_BYTES = 64 << 20;
+
+    private final Path file;
+    private final List<Column> columns = new ArrayList<>();
+    private final List<Batch> batches = new ArrayList<>();
+    private final long rows;
+    private int nodeCount;
+    private int bufferCount;
+
+    private ArrowFile(Path file, FileChannel channel) throws IOException {
+        this.file = file;
+        long size = channel.size();
+        FlatBuffers.Table schema;
+        long total = 0L;
+        if (size >= MAGIC.length && hasMagic(read(channel, 0L, MAGIC.length), 0)) {
+            if (size < 8 + 10) {
+                throw error("Truncated Arrow file");
+            }
+            ByteBuffer trailer = read(channel, size - 10, 10);
+            int footerBytes = trailer.getInt(0);
+            if (!hasMagic(trailer, 4) || footerBytes <= 0 || footerBytes > size - 18) {
+                throw error("Truncated Arrow file");
+            }
+            FlatBuffers.Table footer = FlatBuffers.Table.root(read(channel, size - 10 - footerBytes, footerBytes), 0);
+            schema = footer.getTable(1);
+            if (schema == null) {
+                throw error("The Arrow file has no schema");
+            }
+            readSchema(schema);
+            if (footer.vectorLength(2) > 0) {
+                throw error("Dictionary-encoded columns cannot be imported");
+            }
+            for (int i = 0; i < footer.vectorLength(3); i++) {
+                Message message = readMessage(channel, footer.structLong(3, i, 24, 0), size);
+                if (message == null || message.type != HEADER_RECORD_BATCH) {
+                    throw error("A block of the footer is not a record batch");
+                }
+                total += addBatch(message, total);
+            }
+        } else {
+            Message message = readMessage(channel, 0L, size);
+            if (message == null || message.type != HEADER_SCHEMA) {
+                throw error("Not an Arrow IPC file");
+            }
+            readSchema(message.header);
+            long position = message.body + message.bodyLength;
+            while ((message = readMessage(channel, position, size)) != null) {
+                if (message.type == HEADER_DICTIONARY_BATCH) {
+                    throw error("Dictionary-encoded columns cannot be imported");
+                }
+                if (message.type != HEADER_RECORD_BATCH) {
+                    throw error("Unexpected Arrow message of type " + message.type);
+                }
+                total += addBatch(message, total);
+                position = message.body + message.bodyLength;
+            }
+        }
+        this.rows = total;
+    }
+
+    /**
+     * Reads the schema and the record batch metadata of a file.
+     *
+     * @return {@link ArrowFile}
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not an Arrow IPC file that can be imported.
+     */
+    static ArrowFile open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new ArrowFile(file, channel);
+        } catch (IndexOutOfBoundsException e) {
+            // an offset of the metadata points outside of it
+            throw new IllegalArgumentException(file.getFileName() + ": Malformed Arrow metadata", e);
+        }
+    }
+
+    private static boolean hasMagic(ByteBuffer buffer, int offset) {
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(offset + i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Reads the encapsulated message at a position: an optional continuation marker, the length of the metadata,
+     * the metadata and the body.
+     *
+     * @return the message, or <code>null</code> at the end of the stream.
+     */
+    private Message readMessage(FileChannel channel, long position, long size) throws IOException {
+        if (position < 0 || position + 4 > size) {
+            return null;
+        }
+        long start = position + 4;
+        int length = read(channel, position, 4).getInt(0);
+        if (length == CONTINUATION) {
+            if (position + 8 > size) {
+                return null;
+            }
+            length = read(channel, position + 4, 4).getInt(0);
+            start = position + 8;
+        }
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length > MAX_METADATA_BYTES || start + length > size) {
+            throw error("Truncated Arrow message at byte " + position);
+        }
+        FlatBuffers.Table message = FlatBuffers.Table.root(read(channel, start, length), 0);
+        int version = message.getShort(0);
+        if (version < METADATA_V4) {
+            throw error("Arrow metadata version " + (version + 1) + " is not supported");
+        }
+        Message result = new Message(message.getByte(1), message.getTable(2), start + length, message.getLong(3));
+        if (result.header == null || result.bodyLength < 0 || result.body + result.bodyLength > size) {
+            throw error("Truncated Arrow message at byte " + position);
+        }
+        return result;
+    }
+
+    private void readSchema(FlatBuffers.Table schema) {
+        if (schema.getShort(0) != 0) {
+            throw error("Big-endian Arrow files cannot be imported");
+        }
+        for (int i = 0; i < schema.vectorLength(1); i++) {
+            columns.add(readColumn(schema.vectorTable(1, i)));
+        }
+    }
+
+    private Column readColumn(FlatBuffers.Table field) {
+        String name = field.getString(0);
+        if (field.getTable(4) != null) {
+            throw error("Column " + name + " is dictionary-encoded");
+        }
+        Column column = new Column(name, field.getByte(2), field.getTable(3), nodeCount++, bufferCount);
+        switch (column.type) {
+            case TYPE_NULL:
+                break;
+            case TYPE_STRUCT:
+            case TYPE_FIXED_SIZE_LIST:
+                bufferCount += 1;
+                break;
+            case TYPE_BINARY:
+            case TYPE_UTF8:
+            case TYPE_LARGE_BINARY:
+            case TYPE_LARGE_UTF8:
+                bufferCount += 3;
+                break;
+            case TYPE_INT:
+            case TYPE_FLOATING_POINT:
+            case TYPE_BOOL:
+            case TYPE_FIXED_SIZE_BINARY:
+            case TYPE_LIST:
+            case TYPE_LARGE_LIST:
+                bufferCount += 2;
+                break;
+            default:
+                throw error("Column " + name + " has an unsupported Arrow type " + column.type);
+        }
+        for (int i = 0; i < field.vectorLength(5); i++) {
+            column.children.add(readColumn(field.vectorTable(5, i)));
+        }
+        return column;
+    }
+
+    /**
+     * Adds a record batch, resolving its buffers to file positions.
+     *
+     * @return the number of rows of the batch.
+     */
+    private long addBatch(Message message, long firstRow) {
+        FlatBuffers.Table batch = message.header;
+        if (batch.getTable(3) != null) {
+            throw error("Compressed Arrow record batches cannot be imported");
+        }
+        if (batch.vectorLength(1) != nodeCount || batch.vectorLength(2) != bufferCount) {
+            throw error("A record batch does not match the schema");
+        }
+        long length = batch.getLong(0);
+        long[] nodes = new long[2 * nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            nodes[2 * i] = batch.structLong(1, i, 16, 0);
+            nodes[2 * i + 1] = batch.structLong(1, i, 16, 8);
+        }
+        long[] buffers = new long[2 * bufferCount];
+        for (int i = 0; i < bufferCount; i++) {
+            long offset = batch.structLong(2, i, 16, 0);
+            long bytes = batch.structLong(2, i, 16, 8);
+            if (offset < 0 || bytes < 0 || offset + bytes > message.bodyLength) {
+                throw error("A buffer of a record batch lies outside of its body");
+            }
+            buffers[2 * i] = message.body + offset;
+            buffers[2 * i + 1] = bytes;
+        }
+        if (length < 0) {
+            throw error("A record batch has a negative length");
+        }
+        batches.add(new Batch(firstRow, length, nodes, buffers));
+        return length;
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the names of the top-level columns.
+     *
+     * @return <code>List&lt;String&gt;</code>
+     */
+    List<String> getColumnNames() {
+        List<String> names = new ArrayList<>(columns.size());
+        for (Column column : columns) {
+            names.add(column.name);
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * Returns the values of the column named after a field, checking its type and every record batch against it.
+     *
+     * @return {@link BulkImport.Source}
+     * @throws IllegalArgumentException if the file has no such column or it cannot hold values of the field.
+     */
+    BulkImport.Source values(FieldType field) {
+        for (Column column : columns) {
+            if (column.name.equals(field.getName())) {
+                return new Values(field, column);
+            }
+        }
+        throw error("No column for field " + field.getName());
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(file.getFileName() + ": " + message);
+    }
+
+    /**
+     * A message of a file: its header type, the header table and where its body lies.
+     */
+    private static final class Message {
+        final int type;
+        final FlatBuffers.Table header;
+        final long body;
+        final long bodyLength;
+
+        Message(int type, FlatBuffers.Table header, long body, long bodyLength) {
+            this.type = type;
+            this.header = header;
+            this.body = body;
+            this.bodyLength = bodyLength;
+        }
+    }
+
+    /**
+     * A field of the schema with the indexes of its first node and first buffer in every record batch, which lists
+     * them depth first.
+     */
+    private static final class Column {
+        final String name;
+        final int type;
+        final int node;
+        final int buffer;
+        // Int bitWidth, FloatingPoint precision, FixedSizeBinary byteWidth or FixedSizeList listSize
+        final int parameter;
+        final boolean signed;
+        final List<Column> children = new ArrayList<>();
+
+        Column(String name, int type, FlatBuffers.Table parameters, int node, int buffer) {
+            this.name = name == null ? "" : name;
+            this.type = type;
+            this.node = node;
+            this.buffer = buffer;
+            boolean hasParameters = parameters != null;
+            this.parameter = !hasParameters ? 0
+                    : type == TYPE_FLOATING_POINT ? parameters.getShort(0) : parameters.getInt(0);
+            this.signed = hasParameters && type == TYPE_INT && parameters.getBool(1);
+        }
+    }
+
+    /**
+     * A record batch: its first row in the file, its length, and the <code>(length, null count)</code> of its nodes
+     * and <code>(file position, length)</code> of its buffers.
+     */
+    private static final class Batch {
+        final long firstRow;
+        final long rows;
+        final long[] nodes;
+        final long[] buffers;
+
+        Batch(long firstRow, long rows, long[] nodes, long[] buffers) {
+            this.firstRow = firstRow;
+            this.rows = rows;
+            this.nodes = nodes;
+            this.buffers = buffers;
+        }
+
+        long position(int buffer) {
+            return buffers[2 * buffer];
+        }
+
+        long length(int buffer) {
+            return buffers[2 * buffer + 1];
+        }
+    }
+
+    /**
+     * Receives a range of rows of one record batch.
+     */
+    private interface Piece {
+        void accept(Batch batch, long row, int count) throws IOException;
+    }
+
+    private void forEachPiece(long from, int count, Piece piece) throws IOException {
+        int lo = 0;
+        int hi = batches.size() - 1;
+        // the last batch starting at or before the first row
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (batches.get(mid).firstRow <= from) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        long end = from + count;
+        for (int b = lo; from < end; b++) {
+            Batch batch = batches.get(b);
+            int n = (int) (Math.min(end, batch.firstRow + batch.rows) - from);
+            if (n > 0) {
+                piece.accept(batch, from - batch.firstRow, n);
+                from += n;
+            }
+        }
+    }
+
+    /**
+     * The values of one field, read from the column of the same name.
+     */
+    private final class Values implements BulkImport.Source {
+        private final FieldType field;
+        private final DataType dataType;
+        // the column layout of a row
+        private final int width;
+        // whether rows are strings, lists of variable length or bits, rather than fixed-width rows
+        private final boolean strings;
+        private final boolean lists;
+        private final boolean bits;
+        private final int valuesBuffer;
+        private final int offsetsBuffer;
+        private final int offsetWidth;
+        // the elements of a row and their kind and size: 'b' for bits, 'i' or 'u' for integers, 'f' for floats
+        private final int elements;
+        private final char kind;
+        private final int itemSize;
+        private final int rowBytes;
+        private final boolean adoptable;
+        private final long payload;
+
+        Values(FieldType field, Column column) {
+            this.field = field;
+            this.dataType = field.getDataType();
+            this.width = dataType == DataType.VARCHAR ? 0 : FixedColumn.width(dataType, field.getDimension());
+            Column values = column;
+            int count = 1;
+            boolean variable = false;
+            if (dataType == DataType.FLOAT_VECTOR || dataType == DataType.BINARY_VECTOR) {
+                count = dataType == DataType.FLOAT_VECTOR ? field.getDimension() : field.getDimension() / 8;
+                boolean fixedList = column.type == TYPE_FIXED_SIZE_LIST && column.parameter == count;
+                variable = column.type == TYPE_LIST || column.type == TYPE_LARGE_LIST;
+                if ((fixedList || variable) && column.children.size() == 1) {
+                    values = column.children.get(0);
+                } else if (!(dataType == DataType.BINARY_VECTOR && column.type == TYPE_FIXED_SIZE_BINARY
+                        && column.parameter == count)) {
+                    throw mismatch(column);
+                }
+            }
+            this.elements = count;
+            this.lists = variable;
+            this.strings = dataType == DataType.VARCHAR;
+            this.bits = values.type == TYPE_BOOL;
+            switch (values.type) {
+                case TYPE_BOOL:
+                    kind = 'b';
+                    itemSize = 1;
+                    break;
+                case TYPE_INT:
+                    kind = values.signed ? 'i' : 'u';
+                    itemSize = values.parameter / 8;
+                    break;
+                case TYPE_FLOATING_POINT:
+                    kind = 'f';
+                    itemSize = values.parameter == PRECISION_SINGLE ? 4 : values.parameter == PRECISION_DOUBLE ? 8 : 0;
+                    break;
+                case TYPE_FIXED_SIZE_BINARY:
+                    kind = 'u';
+                    itemSize = 1;
+                    break;
+                default:
+                    kind = 's';
+                    itemSize = values.type == TYPE_UTF8 ? 4 : values.type == TYPE_LARGE_UTF8 ? 8 : 0;
+            }
+            if (!accepts(values)) {
+                throw mismatch(column);
+            }
+            this.offsetWidth = strings ? itemSize : column.type == TYPE_LARGE_LIST ? 8 : 4;
+            this.offsetsBuffer = column.buffer + 1;
+            this.valuesBuffer = strings ? column.buffer + 2 : values.buffer + 1;
+            this.rowBytes = strings ? 0 : itemSize * elements;
+            this.adoptable = !strings && !bits && rowBytes == width
+                    && (kind == 'i' || kind == 'f' || (kind == 'u' && dataType == DataType.BINARY_VECTOR));
+
+            long bytes = 0L;
+            for (Batch batch : batches) {
+                check(batch, column, values);
+                bytes += batch.length(valuesBuffer) + (strings || lists ? batch.length(offsetsBuffer) : 0L);
+            }
+            this.payload = bytes;
+        }
+
+        private boolean accepts(Column values) {
+            switch (dataType) {
+                case BOOL:
+                    return kind == 'b';
+                case INT8:
+                case INT16:
+                case INT32:
+                case INT64:
+                    return (kind == 'i' && (itemSize == 1 || itemSize == 2 || itemSize == 4 || itemSize == 8))
+                            || (kind == 'u' && (itemSize == 1 || itemSize == 2 || itemSize == 4));
+                case FLOAT:
+                case DOUBLE:
+                case FLOAT_VECTOR:
+                    return kind == 'f' && itemSize > 0;
+                case BINARY_VECTOR:
+                    return (values.type == TYPE_FIXED_SIZE_BINARY || values.type == TYPE_INT) && itemSize == 1;
+                case VARCHAR:
+                    return kind == 's' && itemSize > 0;
+                default:
+                    return false;
+            }
+        }
+
+        private IllegalArgumentException mismatch(Column column) {
+            return error("Field " + field.getName() + " of type " + dataType
+                    + " cannot be imported from a column of Arrow type " + column.type);
+        }
+
+        /**
+         * Checks that a batch has no nulls and that its buffers hold all of its rows.
+         */
+        private void check(Batch batch, Column column, Column values) {
+            if (batch.nodes[2 * column.node] != batch.rows) {
+                throw error("Column " + column.name + " has " + batch.nodes[2 * column.node]
+                        + " rows in a record batch of " + batch.rows);
+            }
+            if (batch.nodes[2 * column.node + 1] != 0 || batch.nodes[2 * values.node + 1] != 0) {
+                throw error("Column " + column.name + " has null values");
+            }
+            long needed;
+            if (strings || lists) {
+                if (batch.rows > 0 && batch.length(offsetsBuffer) < (batch.rows + 1) * offsetWidth) {
+                    throw error("The offsets of column " + column.name + " are truncated");
+                }
+                needed = 0L;
+            } else if (bits) {
+                needed = (batch.rows + 7) / 8;
+            } else {
+                needed = batch.rows * rowBytes;
+            }
+            if (batch.length(valuesBuffer) < needed) {
+                throw error("The values of column " + column.name + " are truncated");
+            }
+        }
+
+        @Override
+        public long payloadBytes(long from, long count) {
+            // spread over the rows so that the ranges add up to the whole
+            return rows == 0 ? 0L : payload * (from + count) / rows - payload * from / rows;
+        }
+
+        @Override
+        public long writeRegion(long from, int count, FileChannel target, long position) throws IOException {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (strings) {
+                    return writeStrings(source, from, count, target, position);
+                }
+                long[] at = {position};
+                if (adoptable) {
+                    forEachPiece(from, count, (batch, row, n) -> {
+                        long start = rowsStart(source, batch, row, n);
+                        long length = (long) n * rowBytes;
+                        target.position(at[0]);
+                        for (long done = 0L; done < length; ) {
+                            done += source.transferTo(start + done, length - done, target);
+                        }
+                        at[0] += length;
+                    });
+                    return at[0];
+                }
+                ByteBuffer out = ByteBuffer.allocateDirect(Math.max(width, 1 << 20)).order(ByteOrder.LITTLE_ENDIAN);
+                convert(source, from, count, out, full -> at[0] = drain(target, full, at[0]));
+                return drain(target, out, at[0]);
+            }
+        }
+
+        @Override
+        public void read(long from, int count, ColumnBuffer into) throws IOException {
+            try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+                if (strings) {
+                    forEachPiece(from, count, (batch, row, n) -> readStrings(source, batch, row, n,
+                            (ColumnBuffer.Strings) into));
+                    return;
+                }
+                ByteBuffer out = ByteBuffer.allocate(Math.max(width, 1 << 16)).order(ByteOrder.LITTLE_ENDIAN);
+                convert(source, from, count, out, full -> add(full, into));
+                add(out, into);
+            }
+        }
+
+        /**
+         * Returns the file position of the first of <code>n</code> rows of a batch, checking that each of them
+         * has <code>elements</code> elements when their lengths vary.
+         */
+        private long rowsStart(FileChannel source, Batch batch, long row, int n) throws IOException {
+            long start = row * rowBytes;
+            if (lists) {
+                PagedBuffer offsets = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY,
+                        batch.position(offsetsBuffer) + row * offsetWidth, n + 1, offsetWidth);
+                try {
+                    long first = offset(offsets, 0);
+                    for (int i = 0; i < n; i++) {
+                        if (offset(offsets, i + 1) - offset(offsets, i) != elements) {
+                            throw error("Vector field " + field.getName() + " has " + elements
+                                    + " elements per row, row " + (batch.firstRow + row + i) + " has "
+                                    + (offset(offsets, i + 1) - offset(offsets, i)));
+                        }
+                    }
+                    start = first * itemSize;
+                } finally {
+                    offsets.unmap();
+                }
+            }
+            if (start < 0 || start + (long) n * rowBytes > batch.length(valuesBuffer)) {
+                throw error("The values of column " + field.getName() + " are truncated");
+            }
+            return batch.position(valuesBuffer) + start;
+        }
+
+        private long offset(PagedBuffer offsets, long index) {
+            ByteBuffer chunk = offsets.chunk(index);
+            return offsetWidth == 4 ? chunk.getInt(offsets.offset(index)) : chunk.getLong(offsets.offset(index));
+        }
+
+        /**
+         * Converts rows to the column layout into <code>out</code>, handing it to <code>flush</code> whenever the
+         * next row does not fit.
+         */
+        private void convert(FileChannel source, long from, int count, ByteBuffer out, Flush flush)
+                throws IOException {
+            forEachPiece(from, count, (batch, row, n) -> {
+                PagedBuffer region;
+                long first;
+                if (bits) {
+                    first = row / 8;
+                    region = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY,
+                            batch.position(valuesBuffer) + first, (row + n + 7) / 8 - first, 1);
+                } else {
+                    region = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY, rowsStart(source, batch, row, n),
+                            n, rowBytes);
+                    first = 0L;
+                }
+                try {
+                    for (int i = 0; i < n; i++) {
+                        if (out.remaining() < width) {
+                            flush.accept(out);
+                        }
+                        if (bits) {
+                            long bit = row + i;
+                            long index = bit / 8 - first;
+                            out.put((byte) (region.chunk(index).get(region.offset(index)) >>> (bit % 8) & 1));
+                        } else {
+                            convertRow(region.chunk(i), region.offset(i), batch.firstRow + row + i, out);
+                        }
+                    }
+                } finally {
+                    region.unmap();
+                }
+            });
+        }
+
+        private void convertRow(ByteBuffer buffer, int offset, long row, ByteBuffer out) {
+            switch (dataType) {
+                case INT8:
+                    out.put((byte) integer(buffer, offset, row));
+                    break;
+                case INT16:
+                    out.putShort((short) integer(buffer, offset, row));
+                    break;
+                case INT32:
+                    out.putInt((int) integer(buffer, offset, row));
+                    break;
+                case INT64:
+                    out.putLong(integer(buffer, offset, row));
+                    break;
+                case FLOAT:
+                    out.putFloat((float) real(buffer, offset));
+                    break;
+                case DOUBLE:
+                    out.putDouble(real(buffer, offset));
+                    break;
+                case FLOAT_VECTOR:
+                    for (int i = 0; i < elements; i++) {
+                        out.putFloat((float) real(buffer, offset + i * itemSize));
+                    }
+                    break;
+                case BINARY_VECTOR:
+                    for (int i = 0; i < width; i++) {
+                        out.put(i < rowBytes ? buffer.get(offset + i) : 0);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Data type " + dataType + " has no fixed width");
+            }
+        }
+
+        private long integer(ByteBuffer buffer, int offset, long row) {
+            long value;
+            switch (itemSize) {
+                case 1:
+                    value = kind == 'i' ? buffer.get(offset) : buffer.get(offset) & 0xFFL;
+                    break;
+                case 2:
+                    value = kind == 'i' ? buffer.getShort(offset) : buffer.getShort(offset) & 0xFFFFL;
+                    break;
+                case 4:
+                    value = kind == 'i' ? buffer.getInt(offset) : buffer.getInt(offset) & 0xFFFFFFFFL;
+                    break;
+                default:
+                    value = buffer.getLong(offset);
+            }
+            long limit;
+            switch (dataType) {
+                case INT8:
+                    limit = Byte.MAX_VALUE;
+                    break;
+                case INT16:
+                    limit = Short.MAX_VALUE;
+                    break;
+                case INT32:
+                    limit = Integer.MAX_VALUE;
+                    break;
+                default:
+                    return value;
+            }
+            if (value > limit || value < -limit - 1) {
+                throw error("Value " + value + " of field " + field.getName() + " at row " + row + " is out of range");
+            }
+            return value;
+        }
+
+        private double real(ByteBuffer buffer, int offset) {
+            return itemSize == 4 ? buffer.getFloat(offset) : buffer.getDouble(offset);
+        }
+
+        /**
+         * Adds the rows of a buffer in the column layout to a column buffer, then clears it.
+         */
+        private void add(ByteBuffer buffer, ColumnBuffer into) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                switch (dataType) {
+                    case BOOL:
+                        ((ColumnBuffer.Bools) into).add(buffer.get() != 0);
+                        break;
+                    case INT8:
+                        ((ColumnBuffer.Longs) into).add(buffer.get());
+                        break;
+                    case INT16:
+                        ((ColumnBuffer.Longs) into).add(buffer.getShort());
+                        break;
+                    case INT32:
+                        ((ColumnBuffer.Longs) into).add(buffer.getInt());
+                        break;
+                    case INT64:
+                        ((ColumnBuffer.Longs) into).add(buffer.getLong());
+                        break;
+                    case FLOAT:
+                        ((ColumnBuffer.Doubles) into).add(buffer.getFloat());
+                        break;
+                    case DOUBLE:
+                        ((ColumnBuffer.Doubles) into).add(buffer.getDouble());
+                        break;
+                    case FLOAT_VECTOR:
+                        ColumnBuffer.FloatVectors floats = (ColumnBuffer.FloatVectors) into;
+                        for (int i = 0; i < elements; i++) {
+                            floats.add(buffer.getFloat());
+                        }
+                        floats.endRow();
+                        break;
+                    default:
+                        ColumnBuffer.BinaryVectors bytes = (ColumnBuffer.BinaryVectors) into;
+                        for (int i = 0; i < width; i++) {
+                            byte value = buffer.get();
+                            if (i < rowBytes) {
+                                bytes.add(value);
+                            }
+                        }
+                        bytes.endRow();
+                }
+            }
+            buffer.clear();
+        }
+
+        /**
+         * Writes the end offsets of the rows, rebased on the first, then moves their bytes from file to file.
+         */
+        private long writeStrings(FileChannel source, long from, int count, FileChannel target, long position)
+                throws IOException {
+            ByteBuffer ends = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            long[] at = {position, position + 8L * count, 0L};
+            forEachPiece(from, count, (batch, row, n) -> {
+                PagedBuffer offsets = mapOffsets(source, batch, row, n);
+                try {
+                    long first = offset(offsets, 0);
+                    for (int i = 0; i < n; i++) {
+                        long length = checkString(source, batch, offsets, i, batch.firstRow + row + i);
+                        if (!ends.hasRemaining()) {
+                            at[0] = drain(target, ends, at[0]);
+                        }
+                        at[2] += length;
+                        ends.putLong(at[2]);
+                    }
+                    long length = offset(offsets, n) - first;
+                    target.position(at[1]);
+                    for (long done = 0L; done < length; ) {
+                        done += source.transferTo(batch.position(valuesBuffer) + first + done, length - done, target);
+                    }
+                    at[1] += length;
+                } finally {
+                    offsets.unmap();
+                }
+            });
+            drain(target, ends, at[0]);
+            return at[1];
+        }
+
+        private void readStrings(FileChannel source, Batch batch, long row, int n, ColumnBuffer.Strings into)
+                throws IOException {
+            PagedBuffer offsets = mapOffsets(source, batch, row, n);
+            try {
+                long first = offset(offsets, 0);
+                long length = offset(offsets, n) - first;
+                for (int i = 0; i < n; i++) {
+                    checkString(source, batch, offsets, i, batch.firstRow + row + i);
+                }
+                PagedBuffer values = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY,
+                        batch.position(valuesBuffer) + first, length, 1);
+                try {
+                    for (int i = 0; i < n; i++) {
+                        long start = offset(offsets, i) - first;
+                        byte[] utf8 = new byte[(int) (offset(offsets, i + 1) - first - start)];
+                        for (int j = 0; j < utf8.length; j++) {
+                            utf8[j] = values.chunk(start + j).get(values.offset(start + j));
+                        }
+                        into.add(new String(utf8, StandardCharsets.UTF_8));
+                    }
+                } finally {
+                    values.unmap();
+                }
+            } finally {
+                offsets.unmap();
+            }
+        }
+
+        private PagedBuffer mapOffsets(FileChannel source, Batch batch, long row, int n) throws IOException {
+            return PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY,
+                    batch.position(offsetsBuffer) + row * offsetWidth, n + 1, offsetWidth);
+        }
+
+        /**
+         * Checks that the bytes of a string lie within the values buffer and that it is not longer than the field
+         * allows, decoding it only when its bytes alone do not settle the length.
+         *
+         * @return the bytes of the string.
+         */
+        private long checkString(FileChannel source, Batch batch, PagedBuffer offsets, int i, long row)
+                throws IOException {
+            long start = offset(offsets, i);
+            long end = offset(offsets, i + 1);
+            if (start < 0 || end < start || end > batch.length(valuesBuffer)) {
+                throw error("Invalid offsets of field " + field.getName() + " at row " + row);
+            }
+            int maxChars = VarcharColumn.maxChars(field);
+            long length = end - start;
+            // a UTF-16 character takes at most 3 UTF-8 bytes
+            if (length > maxChars && (length > 3L * maxChars
+                    || StandardCharsets.UTF_8.decode(ArrowFile.read(source, batch.position(valuesBuffer) + start,
+                            (int) length)).length() > maxChars)) {
+                throw error("Value of field " + field.getName() + " at row " + row + " is longer than " + maxChars);
+            }
+            return length;
+        }
+    }
+
+    /**
+     * Takes a full buffer of converted rows and leaves it cleared.
+     */
+    private interface Flush {
+        void accept(ByteBuffer full) throws IOException;
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+}
@@ -0,0 +1,409 @@
+package io.milvus.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * Writes sealed segments as the record batches of an Arrow IPC file in the random-access file format, which
+ * {@link ArrowFile} reads back. Fields map to non-nullable columns: <code>BOOL</code> to <code>Bool</code>,
+ * integers to signed <code>Int</code>s of their width, <code>FLOAT</code> and <code>DOUBLE</code> to
+ * <code>FloatingPoint</code>, <code>VARCHAR</code> to <code>Utf8</code>, or <code>LargeUtf8</code> when a segment
+ * holds more bytes than 32-bit offsets reach, float vectors to a <code>FixedSizeList</code> of <code>float32</code>
+ * and binary vectors to a <code>FixedSizeBinary</code>.
+ * <p>
+ * Values are copied from the sealed column regions a run of rows between deleted ones at a time, never building an
+ * object per row: fixed-width columns and string bytes as they are, booleans packed into bits, end offsets turned
+ * into start offsets, and binary vectors without the padding of their last word.
+ */
+final class ArrowWriter implements Closeable {
+    private static final int STAGING_BYTES = 1 << 20;
+
+    private final FileChannel channel;
+    private final List<FieldType> fields;
+    private final boolean[] largeStrings;
+    private final FlatBuffers.TableWriter schema;
+    private final List<long[]> blocks = new ArrayList<>();
+    private final ByteBuffer staging = ByteBuffer.allocateDirect(STAGING_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    private long position;
+
+    /**
+     * Creates or truncates a file and writes the schema.
+     *
+     * @param largeStrings For every field, whether it is a <code>VARCHAR</code> field written with 64-bit offsets.
+     * @throws IOException if the file cannot be written.
+     */
+    ArrowWriter(Path file, List<FieldType> fields, boolean[] largeStrings) throws IOException {
+        this.fields = fields;
+        this.largeStrings = largeStrings.clone();
+        List<FlatBuffers.TableWriter> columns = new ArrayList<>(fields.size());
+        for (int f = 0; f < fields.size(); f++) {
+            columns.add(field(fields.get(f), largeStrings[f]));
+        }
+        this.schema = new FlatBuffers.TableWriter().addShort(0, 0).addTables(1, columns);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            staging.put(ArrowFile.MAGIC);
+            pad();
+            writeMessage(ArrowFile.HEADER_SCHEMA, schema, 0L);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static FlatBuffers.TableWriter field(FieldType field, boolean largeStrings) {
+        FlatBuffers.TableWriter type = new FlatBuffers.TableWriter();
+        List<FlatBuffers.TableWriter> children = Collections.emptyList();
+        int typeId;
+        switch (field.getDataType()) {
+            case BOOL:
+                typeId = ArrowFile.TYPE_BOOL;
+                break;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                typeId = ArrowFile.TYPE_INT;
+                type.addInt(0, 8 * FixedColumn.width(field.getDataType(), 0)).addBool(1, true);
+                break;
+            case FLOAT:
+                typeId = ArrowFile.TYPE_FLOATING_POINT;
+                type.addShort(0, ArrowFile.PRECISION_SINGLE);
+                break;
+            case DOUBLE:
+                typeId = ArrowFile.TYPE_FLOATING_POINT;
+                type.addShort(0, ArrowFile.PRECISION_DOUBLE);
+                break;
+            case VARCHAR:
+                typeId = largeStrings ? ArrowFile.TYPE_LARGE_UTF8 : ArrowFile.TYPE_UTF8;
+                break;
+            case FLOAT_VECTOR:
+                typeId = ArrowFile.TYPE_FIXED_SIZE_LIST;
+                type.addInt(0, field.getDimension());
+                children = Collections.singletonList(new FlatBuffers.TableWriter().addString(0, "item")
+                        .addBool(1, false).addByte(2, ArrowFile.TYPE_FLOATING_POINT)
+                        .addTable(3, new FlatBuffers.TableWriter().addShort(0, ArrowFile.PRECISION_SINGLE))
+                        .addTables(5, Collections.emptyList()));
+                break;
+            case BINARY_VECTOR:
+                typeId = ArrowFile.TYPE_FIXED_SIZE_BINARY;
+                type.addInt(0, field.getDimension() / 8);
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " of type " + field.getDataType()
+                        + " cannot be exported");
+        }
+        return new FlatBuffers.TableWriter().addString(0, field.getName()).addBool(1, false).addByte(2, typeId)
+                .addTable(3, type).addTables(5, children);
+    }
+
+    /**
+     * Writes an encapsulated message: the continuation marker, the length of the metadata and the metadata, padded
+     * to 8 bytes.
+     *
+     * @return the bytes written.
+     */
+    private int writeMessage(int type, FlatBuffers.TableWriter header, long bodyLength) throws IOException {
+        ByteBuffer metadata = new FlatBuffers.TableWriter().addShort(0, ArrowFile.METADATA_V5).addByte(1, type)
+                .addTable(2, header).addLong(3, bodyLength).finish();
+        int length = metadata.remaining();
+        ensure(8);
+        staging.putInt(ArrowFile.CONTINUATION).putInt(length);
+        flush();
+        write(metadata);
+        return 8 + length;
+    }
+
+    /**
+     * Writes the rows of a sealed segment that are not deleted as one record batch, unless there are none.
+     *
+     * @param columns The sealed columns of the segment.
+     * @param deleted The deleted rows, or <code>null</code>.
+     * @return the number of rows written.
+     * @throws IOException if the file cannot be written.
+     */
+    long writeBatch(Column[] columns, int rows, RowBitmap deleted) throws IOException {
+        int[] runs = runs(rows, deleted);
+        long live = 0L;
+        for (int r = 0; r < runs.length; r += 2) {
+            live += runs[r + 1] - runs[r];
+        }
+        if (live == 0) {
+            return 0L;
+        }
+        List<Long> nodes = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        for (int f = 0; f < fields.size(); f++) {
+            FieldType field = fields.get(f);
+            nodes.add(live);
+            lengths.add(0L);
+            switch (field.getDataType()) {
+                case BOOL:
+                    lengths.add((live + 7) / 8);
+                    break;
+                case VARCHAR:
+                    lengths.add((live + 1) * (largeStrings[f] ? 8 : 4));
+                    lengths.add(stringBytes((VarcharColumn) columns[f], runs));
+                    break;
+                case FLOAT_VECTOR:
+                    nodes.add(live * field.getDimension());
+                    lengths.add(0L);
+                    lengths.add(live * 4 * field.getDimension());
+                    break;
+                case BINARY_VECTOR:
+                    lengths.add(live * (field.getDimension() / 8));
+                    break;
+                default:
+                    lengths.add(live * FixedColumn.width(field.getDataType(), field.getDimension()));
+            }
+        }
+        ByteBuffer nodeStructs = ByteBuffer.allocate(16 * nodes.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (long length : nodes) {
+            nodeStructs.putLong(length).putLong(0L);
+        }
+        nodeStructs.flip();
+        ByteBuffer bufferStructs = ByteBuffer.allocate(16 * lengths.size()).order(ByteOrder.LITTLE_ENDIAN);
+        long bodyLength = 0L;
+        for (long length : lengths) {
+            bufferStructs.putLong(bodyLength).putLong(length);
+            bodyLength += padded(length);
+        }
+        bufferStructs.flip();
+
+        long start = position + staging.position();
+        int metadataLength = writeMessage(ArrowFile.HEADER_RECORD_BATCH, new FlatBuffers.TableWriter()
+                .addLong(0, live).addStructs(1, nodes.size(), nodeStructs)
+                .addStructs(2, lengths.size(), bufferStructs), bodyLength);
+        for (int f = 0; f < fields.size(); f++) {
+            FieldType field = fields.get(f);
+            switch (field.getDataType()) {
+                case BOOL:
+                    writeBits(((FixedColumn) columns[f]).region(), runs);
+                    break;
+                case VARCHAR:
+                    VarcharColumn strings = (VarcharColumn) columns[f];
+                    writeOffsets(strings.endRegion(), runs, largeStrings[f]);
+                    pad();
+                    for (int r = 0; r < runs.length; r += 2) {
+                        copy(strings.byteRegion(), end(strings, runs[r] - 1), end(strings, runs[r + 1] - 1));
+                    }
+                    break;
+                case BINARY_VECTOR:
+                    PagedBuffer vectors = ((FixedColumn) columns[f]).region();
+                    int bytes = field.getDimension() / 8;
+                    if (bytes == vectors.recordSize()) {
+                        copyRuns(vectors, runs);
+                    } else {
+                        writePrefixes(vectors, runs, bytes);
+                    }
+                    break;
+                default:
+                    copyRuns(((FixedColumn) columns[f]).region(), runs);
+            }
+            pad();
+        }
+        flush();
+        if (position != start + metadataLength + bodyLength) {
+            throw new IllegalStateException("Record batch body of " + (position - start - metadataLength)
+                    + " bytes, expected " + bodyLength);
+        }
+        blocks.add(new long[] {start, metadataLength, bodyLength});
+        return live;
+    }
+
+    /**
+     * Returns the runs of rows that are not deleted, as <code>[start, end)</code> pairs.
+     */
+    private static int[] runs(int rows, RowBitmap deleted) {
+        if (deleted == null) {
+            return rows == 0 ? new int[0] : new int[] {0, rows};
+        }
+        List<Integer> bounds = new ArrayList<>();
+        int row = 0;
+        for (int next = deleted.next(0); next >= 0 && next < rows; next = deleted.next(row)) {
+            if (next > row) {
+                bounds.add(row);
+                bounds.add(next);
+            }
+            row = next + 1;
+        }
+        if (row < rows) {
+            bounds.add(row);
+            bounds.add(rows);
+        }
+        int[] runs = new int[bounds.size()];
+        for (int i = 0; i < runs.length; i++) {
+            runs[i] = bounds.get(i);
+        }
+        return runs;
+    }
+
+    private static long end(VarcharColumn column, int row) {
+        if (row < 0) {
+            return 0L;
+        }
+        PagedBuffer ends = column.endRegion();
+        return ends.chunk(row).getLong(ends.offset(row));
+    }
+
+    private static long stringBytes(VarcharColumn column, int[] runs) {
+        long bytes = 0L;
+        for (int r = 0; r < runs.length; r += 2) {
+            bytes += end(column, runs[r + 1] - 1) - end(column, runs[r] - 1);
+        }
+        return bytes;
+    }
+
+    private static long padded(long length) {
+        return (length + 7) & ~7L;
+    }
+
+    private void copyRuns(PagedBuffer region, int[] runs) throws IOException {
+        for (int r = 0; r < runs.length; r += 2) {
+            copy(region, runs[r], runs[r + 1]);
+        }
+    }
+
+    /**
+     * Writes records <code>[from, to)</code> of a region straight from its chunks.
+     */
+    private void copy(PagedBuffer region, long from, long to) throws IOException {
+        flush();
+        while (from < to) {
+            ByteBuffer chunk = region.chunk(from);
+            int offset = region.offset(from);
+            long n = Math.min(to - from, (chunk.capacity() - offset) / region.recordSize());
+            ByteBuffer view = chunk.duplicate();
+            view.clear().position(offset).limit(offset + (int) n * region.recordSize());
+            write(view);
+            from += n;
+        }
+    }
+
+    private void writeBits(PagedBuffer region, int[] runs) throws IOException {
+        int bits = 0;
+        int count = 0;
+        for (int r = 0; r < runs.length; r += 2) {
+            for (int row = runs[r]; row < runs[r + 1]; row++) {
+                if (region.chunk(row).get(region.offset(row)) != 0) {
+                    bits |= 1 << count;
+                }
+                if (++count == 8) {
+                    ensure(1);
+                    staging.put((byte) bits);
+                    bits = 0;
+                    count = 0;
+                }
+            }
+        }
+        if (count > 0) {
+            ensure(1);
+            staging.put((byte) bits);
+        }
+    }
+
+    private void writeOffsets(PagedBuffer ends, int[] runs, boolean large) throws IOException {
+        long offset = 0L;
+        ensure(8);
+        putOffset(offset, large);
+        for (int r = 0; r < runs.length; r += 2) {
+            long previous = runs[r] == 0 ? 0L : ends.chunk(runs[r] - 1).getLong(ends.offset(runs[r] - 1));
+            for (int row = runs[r]; row < runs[r + 1]; row++) {
+                long end = ends.chunk(row).getLong(ends.offset(row));
+                offset += end - previous;
+                previous = end;
+                ensure(8);
+                putOffset(offset, large);
+            }
+        }
+    }
+
+    private void putOffset(long offset, boolean large) {
+        if (large) {
+            staging.putLong(offset);
+        } else {
+            staging.putInt((int) offset);
+        }
+    }
+
+    private void writePrefixes(PagedBuffer region, int[] runs, int bytes) throws IOException {
+        for (int r = 0; r < runs.length; r += 2) {
+            for (int row = runs[r]; row < runs[r + 1]; row++) {
+                ByteBuffer view = region.chunk(row).duplicate();
+                view.clear().position(region.offset(row)).limit(region.offset(row) + bytes);
+                ensure(bytes);
+                staging.put(view);
+            }
+        }
+    }
+
+    /**
+     * Pads what is written so far to a multiple of 8 bytes.
+     */
+    private void pad() throws IOException {
+        int padding = (int) (padded(position + staging.position()) - position - staging.position());
+        ensure(padding);
+        for (int i = 0; i < padding; i++) {
+            staging.put((byte) 0);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (staging.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        staging.flip();
+        write(staging);
+        staging.clear();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    /**
+     * Ends the stream, then writes the footer and forces the file to disk.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    void finish() throws IOException {
+        staging.putInt(ArrowFile.CONTINUATION).putInt(0);
+        ByteBuffer structs = ByteBuffer.allocate(24 * blocks.size()).order(ByteOrder.LITTLE_ENDIAN);
+        for (long[] block : blocks) {
+            structs.putLong(block[0]).putInt((int) block[1]).putInt(0).putLong(block[2]);
+        }
+        structs.flip();
+        ByteBuffer footer = new FlatBuffers.TableWriter().addShort(0, ArrowFile.METADATA_V5).addTable(1, schema)
+                .addStructs(2, 0, ByteBuffer.allocate(0)).addStructs(3, blocks.size(), structs).finish();
+        int length = footer.remaining();
+        flush();
+        write(footer);
+        staging.putInt(length).put(ArrowFile.MAGIC);
+        flush();
+        channel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,474 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.milvus.param.Task;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.response.GetImportStateResponse;
+
+/**
+ * A bulk-insert task reading local files into a collection.
+ * <p>
+ * Row-based JSON files are imported one after the other. A file is split into chunks of whole rows that are parsed
+ * on the common fork-join pool into {@link ColumnBuffer}s, each as soon as the split reaches its end. Nothing is
+ * inserted until every chunk of the file has parsed, so a schema mismatch fails the task without importing any row
+ * of that file; the first failure cancels the chunks still parsing. The parsed chunks are then appended, several at
+ * a time, through the same path as inserts, write-ahead log included. Rows of the files imported before a failing
+ * one stay imported.
+ * <p>
+ * Column-based imports read every field through a {@link Source}: either a set of {@link NpyArray} files, one per
+ * field and named after it, with the same number of rows, or {@link ArrowFile}s holding a column per field. Every
+ * range of <code>segmentMaxRows</code> rows of a file is written on the common fork-join pool straight into the file
+ * of a new sealed segment, and the segments are only added to a persisted collection once all of them are written,
+ * so the import is all or nothing. A collection kept in memory appends the ranges as inserts instead.
+ */
+final class BulkImport {
+    static final long CHUNK_BYTES = 8L << 20;
+
+    /**
+     * Appends prepared columns to a collection the way an insert does.
+     */
+    interface Appender {
+        long append(LocalCollection collection, List<List<?>> columns) throws IOException;
+    }
+
+    /**
+     * Adds the segments written by a column-based import to a persisted collection.
+     */
+    interface Installer {
+        void install(LocalCollection collection, List<Segment> segments) throws IOException;
+    }
+
+    /**
+     * The values of one field in a column-based import, read a range of rows at a time.
+     */
+    interface Source {
+
+        /**
+         * Returns the bytes of the file that hold rows <code>[from, from + count)</code>, for progress.
+         *
+         * @return <code>long</code>
+         */
+        long payloadBytes(long from, long count);
+
+        /**
+         * Writes rows <code>[from, from + count)</code> as the region of a sealed column in a segment file.
+         *
+         * @return the file position after the region.
+         */
+        long writeRegion(long from, int count, FileChannel target, long position) throws IOException;
+
+        /**
+         * Reads rows <code>[from, from + count)</code> into a buffer made by
+         * {@link ColumnBuffer#create(FieldType, int)} for the field.
+         */
+        void read(long from, int count, ColumnBuffer into) throws IOException;
+    }
+
+    private enum Format {
+        JSON, NPY, ARROW
+    }
+
+    private final Task task;
+    private final String collectionName;
+    private final String partitionName;
+    private final List<String> files;
+    private final List<Path> paths;
+    private final Format format;
+    private final long totalBytes;
+    private final long createTimestamp = System.currentTimeMillis();
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private final AtomicLong processedBytes = new AtomicLong();
+
+    BulkImport(long taskId, String collectionName, String partitionName, List<String> files) throws IOException {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("No files to import");
+        }
+        this.collectionName = collectionName;
+        this.partitionName = partitionName;
+        this.files = new ArrayList<>(files);
+        this.paths = new ArrayList<>(files.size());
+        long total = 0L;
+        for (String file : files) {
+            Path path = resolve(file);
+            total += Files.size(path);
+            paths.add(path);
+        }
+        this.format = format(paths.get(0));
+        for (Path path : paths) {
+            if (format(path) != format) {
+                throw new IllegalArgumentException("Cannot import " + format + " and " + format(path)
+                        + " files in one task");
+            }
+        }
+        this.totalBytes = total;
+        this.task = new Task(taskId, 0L);
+    }
+
+    /**
+     * Resolves a local path or <code>file:</code> URL to a readable JSON, NumPy or Arrow IPC file.
+     */
+    private static Path resolve(String file) {
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Empty file name");
+        }
+        Path path;
+        if (file.startsWith("file:")) {
+            path = Paths.get(URI.create(file));
+        } else if (file.contains("://")) {
+            throw new IllegalArgumentException("Only local files can be imported, got: " + file);
+        } else {
+            path = Paths.get(file);
+        }
+        if (!Files.isRegularFile(path) || !Files.isReadable(path)) {
+            throw new IllegalArgumentException("Cannot read file " + file);
+        }
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".parquet")) {
+            throw new IllegalArgumentException("Parquet files cannot be imported, convert " + file
+                    + " to an Arrow IPC file first");
+        }
+        if (format(path) == null) {
+            throw new IllegalArgumentException("Unsupported file type: " + file
+                    + ", expected a .json, .npy, .arrow, .arrows or .feather file");
+        }
+        return path;
+    }
+
+    private static Format format(Path path) {
+        String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".json")) {
+            return Format.JSON;
+        }
+        if (name.endsWith(".npy")) {
+            return Format.NPY;
+        }
+        if (name.endsWith(".arrow") || name.endsWith(".arrows") || name.endsWith(".feather")) {
+            return Format.ARROW;
+        }
+        return null;
+    }
+
+    Task getTask() {
+        return task;
+    }
+
+    String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Imports the files and completes or fails the task.
+     */
+    void run(LocalCollection collection, Appender appender, Installer installer) {
+        try {
+            switch (format) {
+                case NPY:
+                    importNpy(collection, appender, installer);
+                    break;
+                case ARROW:
+                    importArrow(collection, appender, installer);
+                    break;
+                default:
+                    for (Path path : paths) {
+                        importJson(collection, appender, path);
+                    }
+            }
+            endNanos = System.nanoTime();
+            task.complete();
+        } catch (ExecutionException e) {
+            fail(e.getCause());
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new IllegalStateException("The client was closed"));
+        }
+    }
+
+    private void fail(Throwable e) {
+        // the fork-join pool rethrows a copy of the exception of a task, caused by the original
+        while (e.getCause() != null && e.getCause().getClass() == e.getClass()) {
+            e = e.getCause();
+        }
+        endNanos = System.nanoTime();
+        task.fail(e instanceof IllegalArgumentException || e instanceof IllegalStateException ? e.getMessage()
+                : e.toString());
+    }
+
+    private void importJson(LocalCollection collection, Appender appender, Path path)
+            throws IOException, ExecutionException, InterruptedException {
+        JsonRowReader reader = new JsonRowReader(path, collection.getFields());
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Future<ColumnBuffer[]>> parses = new ArrayList<>();
+        long[] rowBytes = new long[1];
+        try {
+            reader.split(CHUNK_BYTES, chunk -> {
+                rowBytes[0] += chunk.length();
+                if (failed.get()) {
+                    return;
+                }
+                parses.add(ForkJoinPool.commonPool().submit(() -> {
+                    try {
+                        ColumnBuffer[] columns = reader.parse(chunk, failed::get);
+                        processedBytes.addAndGet(chunk.length());
+                        return columns;
+                    } catch (IOException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            });
+        } catch (IOException | RuntimeException e) {
+            failed.set(true);
+            try {
+                awaitAll(parses, failed);
+            } catch (ExecutionException ignored) {
+                // the malformed file is the failure to report
+            }
+            throw e;
+        }
+        processedBytes.addAndGet(Files.size(path) - rowBytes[0]);
+        List<ColumnBuffer[]> parsed = awaitAll(parses, failed);
+
+        List<Future<Long>> appends = new ArrayList<>(parsed.size());
+        for (ColumnBuffer[] columns : parsed) {
+            appends.add(ForkJoinPool.commonPool().submit(() -> {
+                if (failed.get()) {
+                    return 0L;
+                }
+                long rows = appender.append(collection, collection.importColumns(columns));
+                task.advance(rows);
+                return rows;
+            }));
+        }
+        awaitAll(appends, failed);
+    }
+
+    private void importNpy(LocalCollection collection, Appender appender, Installer installer)
+            throws IOException, ExecutionException, InterruptedException {
+        List<FieldType> fields = collection.getFields();
+        NpyArray[] arrays = new NpyArray[fields.size()];
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            name = name.substring(0, name.length() - ".npy".length());
+            int f = 0;
+            while (f < fields.size() && !fields.get(f).getName().equals(name)) {
+                f++;
+            }
+            if (f == fields.size()) {
+                throw new IllegalArgumentException(path.getFileName() + ": Collection " + collectionName
+                        + " has no field " + name);
+            }
+            if (fields.get(f).isAutoID()) {
+                throw new IllegalArgumentException(path.getFileName() + ": Field " + name + " is generated");
+            }
+            if (arrays[f] != null) {
+                throw new IllegalArgumentException("Two files for field " + name);
+            }
+            arrays[f] = NpyArray.open(path, fields.get(f));
+            processedBytes.addAndGet(arrays[f].getDataOffset());
+        }
+        NpyArray first = null;
+        for (int f = 0; f < fields.size(); f++) {
+            if (arrays[f] == null) {
+                if (!fields.get(f).isAutoID()) {
+                    throw new IllegalArgumentException("No file for field " + fields.get(f).getName());
+                }
+            } else if (first == null) {
+                first = arrays[f];
+            } else if (arrays[f].getRows() != first.getRows()) {
+                throw new IllegalArgumentException(arrays[f].getFile().getFileName() + " has " + arrays[f].getRows()
+                        + " rows, " + first.getFile().getFileName() + " has " + first.getRows());
+            }
+        }
+        importColumns(collection, appender, installer, Collections.singletonList(arrays),
+                new long[] {first.getRows()});
+    }
+
+    private void importArrow(LocalCollection collection, Appender appender, Installer installer)
+            throws IOException, ExecutionException, InterruptedException {
+        List<FieldType> fields = collection.getFields();
+        List<Source[]> parts = new ArrayList<>(paths.size());
+        long[] rows = new long[paths.size()];
+        for (int p = 0; p < paths.size(); p++) {
+            Path path = paths.get(p);
+            ArrowFile file = ArrowFile.open(path);
+            Source[] sources = new Source[fields.size()];
+            for (String name : file.getColumnNames()) {
+                int f = 0;
+                while (f < fields.size() && !fields.get(f).getName().equals(name)) {
+                    f++;
+                }
+                if (f == fields.size()) {
+                    throw new IllegalArgumentException(path.getFileName() + ": Collection " + collectionName
+                            + " has no field " + name);
+                }
+                if (fields.get(f).isAutoID()) {
+                    throw new IllegalArgumentException(path.getFileName() + ": Field " + name + " is generated");
+                }
+                if (sources[f] != null) {
+                    throw new IllegalArgumentException(path.getFileName() + ": Two columns for field " + name);
+                }
+                sources[f] = file.values(fields.get(f));
+            }
+            long payload = 0L;
+            for (int f = 0; f < fields.size(); f++) {
+                if (sources[f] != null) {
+                    payload += sources[f].payloadBytes(0L, file.getRows());
+                } else if (!fields.get(f).isAutoID()) {
+                    throw new IllegalArgumentException(path.getFileName() + ": No column for field "
+                            + fields.get(f).getName());
+                }
+            }
+            processedBytes.addAndGet(Files.size(path) - payload);
+            parts.add(sources);
+            rows[p] = file.getRows();
+        }
+        importColumns(collection, appender, installer, parts, rows);
+    }
+
+    /**
+     * Imports the rows of each part, a set of sources with one per field that is not generated, in ranges of
+     * <code>segmentMaxRows</code> rows.
+     */
+    private void importColumns(LocalCollection collection, Appender appender, Installer installer,
+                               List<? extends Source[]> parts, long[] rows)
+            throws IOException, ExecutionException, InterruptedException {
+        List<FieldType> fields = collection.getFields();
+        int segmentRows = collection.getSegmentMaxRows();
+        if (!collection.isPersisted()) {
+            for (int p = 0; p < parts.size(); p++) {
+                Source[] sources = parts.get(p);
+                for (long from = 0L; from < rows[p]; from += segmentRows) {
+                    int count = (int) Math.min(segmentRows, rows[p] - from);
+                    ColumnBuffer[] buffers = new ColumnBuffer[fields.size()];
+                    for (int f = 0; f < fields.size(); f++) {
+                        if (sources[f] != null) {
+                            buffers[f] = ColumnBuffer.create(fields.get(f), count);
+                            sources[f].read(from, count, buffers[f]);
+                            processedBytes.addAndGet(sources[f].payloadBytes(from, count));
+                        }
+                    }
+                    task.advance(appender.append(collection, collection.importColumns(buffers)));
+                }
+            }
+            return;
+        }
+
+        AtomicBoolean failed = new AtomicBoolean();
+        Queue<Segment> written = new ConcurrentLinkedQueue<>();
+        List<Future<Segment>> writes = new ArrayList<>();
+        long total = 0L;
+        for (int p = 0; p < parts.size(); p++) {
+            Source[] sources = parts.get(p);
+            total += rows[p];
+            for (long start = 0L; start < rows[p]; start += segmentRows) {
+                long from = start;
+                int count = (int) Math.min(segmentRows, rows[p] - from);
+                writes.add(ForkJoinPool.commonPool().submit(() -> {
+                    if (failed.get()) {
+                        return null;
+                    }
+                    try {
+                        Segment segment = collection.writeImported(count,
+                                (f, channel, position) -> sources[f].writeRegion(from, count, channel, position));
+                        written.add(segment);
+                        for (Source source : sources) {
+                            if (source != null) {
+                                processedBytes.addAndGet(source.payloadBytes(from, count));
+                            }
+                        }
+                        return segment;
+                    } catch (IOException | RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+        }
+        boolean installed = false;
+        try {
+            List<Segment> segments = awaitAll(writes, failed);
+            installer.install(collection, segments);
+            installed = true;
+            task.advance(total);
+        } finally {
+            if (!installed) {
+                // every write is done
+                for (Segment segment : written) {
+                    try {
+                        collection.discardImported(segment);
+                    } catch (IOException e) {
+                        // the next restart deletes the files the manifest does not name
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for every future, in order and even once interrupted, so that none is left running, then rethrows the
+     * interruption or the first failure. The first of them sets <code>failed</code> so the rest stop early.
+     */
+    private static <T> List<T> awaitAll(List<Future<T>> futures, AtomicBoolean failed)
+            throws ExecutionException, InterruptedException {
+        List<T> results = new ArrayList<>(futures.size());
+        ExecutionException failure = null;
+        boolean interrupted = false;
+        for (Future<T> future : futures) {
+            while (true) {
+                try {
+                    results.add(future.get());
+                    break;
+                } catch (ExecutionException e) {
+                    failed.set(true);
+                    if (failure == null) {
+                        failure = e;
+                    }
+                    break;
+                } catch (InterruptedException e) {
+                    failed.set(true);
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            throw new InterruptedException();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Returns the state of the task.
+     *
+     * @return {@link GetImportStateResponse}
+     */
+    GetImportStateResponse state() {
+        long end = endNanos;
+        long elapsed = ((end == 0L ? System.nanoTime() : end) - startNanos) / 1_000_000L;
+        return new GetImportStateResponse(task.getTaskId(), task.getState(), collectionName, partitionName, files,
+                task.getProcessedRows(), processedBytes.get(), totalBytes, createTimestamp, elapsed,
+                task.getFailedReason());
+    }
+}
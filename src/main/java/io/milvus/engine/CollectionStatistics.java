@@ -0,0 +1,61 @@
+package io.milvus.engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The running totals of the segments of a collection: rows, deleted rows, the stored bytes of every field and the
+ * rows covered by an index of every field. Segments report every change as a delta while they are attached, so
+ * reading a total never visits a segment.
+ * <p>
+ * Each total is exact on its own but they are updated one after the other without a lock: a reader racing an
+ * insert or a compaction swap may see the rows of a batch before its bytes, or a merged segment before its sources
+ * are subtracted.
+ */
+final class CollectionStatistics {
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong deleted = new AtomicLong();
+    private final AtomicLongArray fieldBytes;
+    private final AtomicLongArray indexedRows;
+
+    CollectionStatistics(int fields) {
+        this.fieldBytes = new AtomicLongArray(fields);
+        this.indexedRows = new AtomicLongArray(fields);
+    }
+
+    /**
+     * Adds appended rows and the bytes they take per field.
+     */
+    void addRows(long count, long[] bytes) {
+        for (int f = 0; f < bytes.length; f++) {
+            if (bytes[f] != 0L) {
+                fieldBytes.addAndGet(f, bytes[f]);
+            }
+        }
+        rows.addAndGet(count);
+    }
+
+    void addDeleted(long count) {
+        deleted.addAndGet(count);
+    }
+
+    void addIndexed(int field, long count) {
+        indexedRows.addAndGet(field, count);
+    }
+
+    long getRowCount() {
+        return rows.get();
+    }
+
+    long getDeletedCount() {
+        return deleted.get();
+    }
+
+    long getFieldBytes(int field) {
+        return fieldBytes.get(field);
+    }
+
+    long getIndexedRows(int field) {
+        return indexedRows.get(field);
+    }
+}
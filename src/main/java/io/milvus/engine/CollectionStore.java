@@ -0,0 +1,246 @@
+package io.milvus.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.index.CreateIndexParam;
+
+/**
+ * The directory of a persisted collection: one file per sealed segment, the index files of some index types, and a
+ * manifest that names the segments making up the collection, and their deleted rows, as of a write-ahead log
+ * position. The manifest is replaced atomically, so a crash leaves either the old or the new one; files it does not
+ * name are leftovers of segments sealed after it and are deleted when the collection is reopened.
+ */
+final class CollectionStore {
+    private static final String MANIFEST = "MANIFEST";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final int MAGIC = 0x4D434F4C;
+    // version 2 adds the deleted rows of every segment
+    private static final int VERSION = 2;
+
+    /**
+     * The persisted state of a collection.
+     */
+    static final class Manifest {
+        String name;
+        CollectionSchema schema;
+        // the log records of the collection up to this LSN are reflected by the segments
+        long checkpoint;
+        long nextSegmentId;
+        long nextAutoId;
+        final List<Long> segments = new ArrayList<>();
+        // the deleted rows of the segments that have any
+        final Map<Long, RowBitmap> deleted = new HashMap<>();
+        final List<CreateIndexParam> indexes = new ArrayList<>();
+    }
+
+    private final Path directory;
+
+    CollectionStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Lists the collection directories under a root. A directory without a manifest is what a crash during
+     * collection creation leaves behind and is deleted.
+     *
+     * @return one store per persisted collection.
+     * @throws IOException if the root cannot be read.
+     */
+    static List<CollectionStore> list(Path root) throws IOException {
+        List<CollectionStore> stores = new ArrayList<>();
+        if (!Files.isDirectory(root)) {
+            return stores;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path directory : stream) {
+                CollectionStore store = new CollectionStore(directory);
+                if (Files.exists(directory.resolve(MANIFEST))) {
+                    stores.add(store);
+                } else {
+                    store.delete();
+                }
+            }
+        }
+        return stores;
+    }
+
+    Path segmentFile(long segmentId) {
+        return directory.resolve(SEGMENT_PREFIX + segmentId + ".seg");
+    }
+
+    Path indexFile(long segmentId, int field, IndexType indexType) {
+        return directory.resolve(SEGMENT_PREFIX + segmentId + "-" + field + "." + indexType.name().toLowerCase());
+    }
+
+    Manifest readManifest() throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(
+                Files.readAllBytes(directory.resolve(MANIFEST))));
+        int version;
+        if (in.readInt() != MAGIC || (version = in.readInt()) < 1 || version > VERSION) {
+            throw new IOException("Not a collection manifest: " + directory.resolve(MANIFEST));
+        }
+        Manifest manifest = new Manifest();
+        manifest.checkpoint = in.readLong();
+        manifest.nextSegmentId = in.readLong();
+        manifest.nextAutoId = in.readLong();
+        byte[] schema = readBlock(in);
+        manifest.name = WalRecords.collectionName(schema);
+        manifest.schema = WalRecords.readSchema(schema);
+        int segments = in.readInt();
+        for (int i = 0; i < segments; i++) {
+            manifest.segments.add(in.readLong());
+        }
+        if (version >= 2) {
+            int deleted = in.readInt();
+            for (int i = 0; i < deleted; i++) {
+                manifest.deleted.put(in.readLong(), RowBitmap.readFrom(in));
+            }
+        }
+        int indexes = in.readInt();
+        for (int i = 0; i < indexes; i++) {
+            manifest.indexes.add(WalRecords.readCreateIndex(readBlock(in)));
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes a manifest to a temporary file, forces it and renames it over the current one.
+     *
+     * @throws IOException if the manifest cannot be written.
+     */
+    void writeManifest(Manifest manifest) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(manifest.checkpoint);
+        out.writeLong(manifest.nextSegmentId);
+        out.writeLong(manifest.nextAutoId);
+        writeBlock(out, WalRecords.createCollection(manifest.name, manifest.schema));
+        out.writeInt(manifest.segments.size());
+        for (long segment : manifest.segments) {
+            out.writeLong(segment);
+        }
+        out.writeInt(manifest.deleted.size());
+        for (Map.Entry<Long, RowBitmap> entry : manifest.deleted.entrySet()) {
+            out.writeLong(entry.getKey());
+            entry.getValue().writeTo(out);
+        }
+        out.writeInt(manifest.indexes.size());
+        for (CreateIndexParam index : manifest.indexes) {
+            writeBlock(out, WalRecords.createIndex(index));
+        }
+
+        Files.createDirectories(directory);
+        Path temporary = directory.resolve(MANIFEST + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, directory.resolve(MANIFEST), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Deletes the segment and index files of segments a manifest does not name, and unfinished index files.
+     *
+     * @throws IOException if the directory cannot be read or a file cannot be deleted.
+     */
+    void deleteOrphans(Set<Long> segments) throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                int end = SEGMENT_PREFIX.length();
+                while (end < name.length() && Character.isDigit(name.charAt(end))) {
+                    end++;
+                }
+                if (end == SEGMENT_PREFIX.length() || name.endsWith(".tmp")
+                        || !segments.contains(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), end)))) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the segment file and the index files of a segment.
+     *
+     * @throws IOException if the directory cannot be read or a file cannot be deleted.
+     */
+    void deleteSegment(long segmentId) throws IOException {
+        String prefix = SEGMENT_PREFIX + segmentId;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*")) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                char next = name.charAt(prefix.length());
+                if (next == '.' || next == '-') {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the directory with everything in it.
+     *
+     * @throws IOException if a file cannot be deleted.
+     */
+    void delete() throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] block) throws IOException {
+        out.writeInt(block.length);
+        out.write(block);
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        byte[] block = new byte[in.readInt()];
+        in.readFully(block);
+        return block;
+    }
+}
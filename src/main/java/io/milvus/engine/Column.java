@@ -0,0 +1,64 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * The values of one field in one segment, stored outside the Java heap. A growing column accepts writes to distinct
+ * rows from several threads at once; {@link #seal(int)} then copies the written rows into one compact region and
+ * frees the growing pages. A sealed column can be written to a file and replaced by a read-only mapping of it,
+ * which can be unmapped and mapped again.
+ * <p>
+ * Values use the types produced by insert validation: <code>Boolean</code>, <code>Long</code> for every integer
+ * type, <code>Double</code> for <code>FLOAT</code> and <code>DOUBLE</code>, <code>String</code>,
+ * <code>float[]</code> and packed <code>long[]</code> vectors.
+ */
+abstract class Column {
+
+    static Column create(FieldType field) {
+        if (field.getDataType() == DataType.VARCHAR) {
+            return new VarcharColumn();
+        }
+        return new FixedColumn(field.getDataType(), field.getDimension());
+    }
+
+    /**
+     * Writes the value of a row. Rows are written once, before they are published to readers.
+     *
+     * @return the bytes the value takes in a sealed column.
+     */
+    abstract int set(int row, Object value);
+
+    abstract Object get(int row);
+
+    /**
+     * Compacts the first <code>rows</code> rows into an immutable region.
+     */
+    abstract void seal(int rows);
+
+    /**
+     * Writes the sealed region to a file.
+     *
+     * @return the file position after the region.
+     */
+    abstract long writeTo(FileChannel channel, long position) throws IOException;
+
+    /**
+     * Replaces the region of a column of <code>rows</code> rows by a read-only mapping of the file written by
+     * {@link #writeTo(FileChannel, long)}.
+     */
+    abstract void map(FileChannel channel, long position, int rows) throws IOException;
+
+    /**
+     * Reads a mapped region into physical memory.
+     */
+    abstract void load();
+
+    /**
+     * Unmaps a mapped region. The column must not be read until it is mapped again.
+     */
+    abstract void unmap();
+}
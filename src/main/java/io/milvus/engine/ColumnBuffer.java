@@ -0,0 +1,217 @@
+package io.milvus.engine;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import io.milvus.index.BinaryDistances;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * The values of one field parsed by a bulk import, kept in a primitive array that grows as rows are added. The
+ * buffer is also a read-only list of the values in the form insert validation produces, so imported rows go through
+ * the same append and logging path as inserted ones; elements are boxed, or copied for vectors, only as they are
+ * read.
+ */
+abstract class ColumnBuffer extends AbstractList<Object> {
+    int size;
+
+    static ColumnBuffer create(FieldType field, int capacity) {
+        switch (field.getDataType()) {
+            case BOOL:
+                return new Bools(capacity);
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return new Longs(capacity);
+            case FLOAT:
+            case DOUBLE:
+                return new Doubles(capacity);
+            case VARCHAR:
+                return new Strings(capacity);
+            case FLOAT_VECTOR:
+                return new FloatVectors(field.getDimension(), capacity);
+            case BINARY_VECTOR:
+                return new BinaryVectors(field.getDimension(), capacity);
+            default:
+                throw new IllegalArgumentException("Data type " + field.getDataType() + " cannot be imported");
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    static int grow(int length, int needed) {
+        return Math.max(needed, Math.max(16, length + (length >> 1)));
+    }
+
+    static final class Bools extends ColumnBuffer {
+        private boolean[] values;
+
+        Bools(int capacity) {
+            this.values = new boolean[capacity];
+        }
+
+        void add(boolean value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+    }
+
+    static final class Longs extends ColumnBuffer {
+        private long[] values;
+
+        Longs(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        long getLong(int index) {
+            return values[index];
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+    }
+
+    static final class Doubles extends ColumnBuffer {
+        private double[] values;
+
+        Doubles(int capacity) {
+            this.values = new double[capacity];
+        }
+
+        void add(double value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+    }
+
+    static final class Strings extends ColumnBuffer {
+        private String[] values;
+
+        Strings(int capacity) {
+            this.values = new String[capacity];
+        }
+
+        void add(String value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, size + 1));
+            }
+            values[size++] = value;
+        }
+
+        @Override
+        public Object get(int index) {
+            return values[index];
+        }
+    }
+
+    /**
+     * Float vectors stored back to back. Components are added one at a time and a row is counted once
+     * {@link #endRow()} is called.
+     */
+    static final class FloatVectors extends ColumnBuffer {
+        private final int dim;
+        private float[] values;
+        private int length;
+
+        FloatVectors(int dim, int capacity) {
+            this.dim = dim;
+            this.values = new float[dim * capacity];
+        }
+
+        void add(float component) {
+            if (length == values.length) {
+                values = Arrays.copyOf(values, grow(values.length, length + 1));
+            }
+            values[length++] = component;
+        }
+
+        /**
+         * Ends the current row.
+         *
+         * @return the number of components it has.
+         */
+        int endRow() {
+            int components = length - size * dim;
+            size++;
+            return components;
+        }
+
+        @Override
+        public Object get(int index) {
+            return Arrays.copyOfRange(values, index * dim, (index + 1) * dim);
+        }
+    }
+
+    /**
+     * Binary vectors packed into little-endian words as they are added a byte at a time; a row is counted once
+     * {@link #endRow()} is called.
+     */
+    static final class BinaryVectors extends ColumnBuffer {
+        private final int words;
+        private long[] values;
+        private int bytes;
+
+        BinaryVectors(int dim, int capacity) {
+            this.words = BinaryDistances.words(dim);
+            this.values = new long[words * capacity];
+        }
+
+        void add(int value) {
+            int word = size * words + bytes / 8;
+            if (word >= values.length) {
+                values = Arrays.copyOf(values, grow(values.length, word + words));
+            }
+            if (bytes < words * 8) {
+                values[word] |= (value & 0xFFL) << (bytes % 8 * 8);
+            }
+            bytes++;
+        }
+
+        /**
+         * Ends the current row.
+         *
+         * @return the number of bytes it has.
+         */
+        int endRow() {
+            int count = bytes;
+            if ((size + 1) * words > values.length) {
+                values = Arrays.copyOf(values, grow(values.length, (size + 1) * words));
+            }
+            bytes = 0;
+            size++;
+            return count;
+        }
+
+        @Override
+        public Object get(int index) {
+            return Arrays.copyOfRange(values, index * words, (index + 1) * words);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package io.milvus.engine;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces a compaction so that it stays within a share of one core and a disk bandwidth. The compactor reports the
+ * work it did in steps of a few thousand rows; after each step it pauses long enough that the time spent working
+ * is at most <code>cpuShare</code> of the elapsed time and the bytes copied are at most
+ * <code>bytesPerSecond</code> per second.
+ */
+final class CompactionBudget {
+    static final CompactionBudget UNLIMITED = new CompactionBudget(0L, 1d);
+
+    private final long bytesPerSecond;
+    private final double cpuShare;
+
+    /**
+     * @param bytesPerSecond The bandwidth limit, 0 for none.
+     * @param cpuShare The share of one core to use, in <code>(0, 1]</code>.
+     */
+    CompactionBudget(long bytesPerSecond, double cpuShare) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.cpuShare = cpuShare;
+    }
+
+    /**
+     * Pauses after a step of work.
+     *
+     * @param bytes The bytes copied by the step.
+     * @param busyNanos The time the step took.
+     * @throws IllegalStateException if the thread is interrupted, which abandons the compaction.
+     */
+    void charge(long bytes, long busyNanos) {
+        long cpuPause = cpuShare >= 1d ? 0L : (long) (busyNanos * (1d - cpuShare) / cpuShare);
+        long ioPause = bytesPerSecond <= 0L ? 0L
+                : TimeUnit.SECONDS.toNanos(bytes) / bytesPerSecond - busyNanos;
+        long pause = Math.max(cpuPause, ioPause);
+        long deadline = System.nanoTime() + pause;
+        while (pause > 0L) {
+            LockSupport.parkNanos(pause);
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Compaction was interrupted");
+            }
+            pause = deadline - System.nanoTime();
+        }
+    }
+}
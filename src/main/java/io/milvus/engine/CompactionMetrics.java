@@ -0,0 +1,124 @@
+package io.milvus.engine;
+
+/**
+ * A snapshot of the compaction counters of a collection of a {@link LocalMilvusClient}.
+ */
+public final class CompactionMetrics {
+    private final long compactions;
+    private final long sourceSegments;
+    private final long rowsWritten;
+    private final long rowsPurged;
+    private final long bytesWritten;
+    private final long insertedRows;
+    private final long failures;
+    private final int sealedSegments;
+
+    CompactionMetrics(long compactions, long sourceSegments, long rowsWritten, long rowsPurged, long bytesWritten,
+                      long insertedRows, long failures, int sealedSegments) {
+        this.compactions = compactions;
+        this.sourceSegments = sourceSegments;
+        this.rowsWritten = rowsWritten;
+        this.rowsPurged = rowsPurged;
+        this.bytesWritten = bytesWritten;
+        this.insertedRows = insertedRows;
+        this.failures = failures;
+        this.sealedSegments = sealedSegments;
+    }
+
+    /**
+     * Returns the number of merges swapped in.
+     *
+     * @return <code>long</code>
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * Returns the number of segments replaced by merges.
+     *
+     * @return <code>long</code>
+     */
+    public long getSourceSegments() {
+        return sourceSegments;
+    }
+
+    /**
+     * Returns the number of rows copied into merged segments.
+     *
+     * @return <code>long</code>
+     */
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Returns the number of deleted rows dropped by merges.
+     *
+     * @return <code>long</code>
+     */
+    public long getRowsPurged() {
+        return rowsPurged;
+    }
+
+    /**
+     * Returns the size of the segment files written by merges, 0 for a collection kept in memory.
+     *
+     * @return <code>long</code>
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns the number of rows inserted since the client started, replayed rows included.
+     *
+     * @return <code>long</code>
+     */
+    public long getInsertedRows() {
+        return insertedRows;
+    }
+
+    /**
+     * Returns the number of merges abandoned because of an error.
+     *
+     * @return <code>long</code>
+     */
+    public long getFailures() {
+        return failures;
+    }
+
+    /**
+     * Returns the current number of sealed segments.
+     *
+     * @return <code>int</code>
+     */
+    public int getSealedSegments() {
+        return sealedSegments;
+    }
+
+    /**
+     * Returns the rows written per inserted row: 1 without compaction, plus one for every time compaction copied a
+     * row again.
+     *
+     * @return <code>double</code>
+     */
+    public double getWriteAmplification() {
+        return insertedRows == 0L ? 1d : (double) (insertedRows + rowsWritten) / insertedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionMetrics{" +
+                "compactions=" + compactions +
+                ", sourceSegments=" + sourceSegments +
+                ", rowsWritten=" + rowsWritten +
+                ", rowsPurged=" + rowsPurged +
+                ", bytesWritten=" + bytesWritten +
+                ", insertedRows=" + insertedRows +
+                ", failures=" + failures +
+                ", sealedSegments=" + sealedSegments +
+                ", writeAmplification=" + String.format("%.3f", getWriteAmplification()) +
+                '}';
+    }
+}
@@ -0,0 +1,41 @@
+package io.milvus.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fixed-size direct byte pages, allocated the first time they are touched. The page table is copied on growth and
+ * published through a volatile field, so looking up an existing page never locks; only the allocation of a new
+ * page does.
+ */
+final class DirectPages {
+    private final int pageBytes;
+    private volatile ByteBuffer[] pages = new ByteBuffer[0];
+
+    DirectPages(int pageBytes) {
+        this.pageBytes = pageBytes;
+    }
+
+    ByteBuffer page(int index) {
+        ByteBuffer[] table = pages;
+        if (index < table.length && table[index] != null) {
+            return table[index];
+        }
+        return allocate(index);
+    }
+
+    private synchronized ByteBuffer allocate(int index) {
+        ByteBuffer[] table = pages;
+        if (index >= table.length) {
+            table = Arrays.copyOf(table, Math.max(index + 1, table.length * 2));
+        } else if (table[index] != null) {
+            return table[index];
+        } else {
+            table = table.clone();
+        }
+        table[index] = ByteBuffer.allocateDirect(pageBytes).order(ByteOrder.LITTLE_ENDIAN);
+        pages = table;
+        return table[index];
+    }
+}
@@ -0,0 +1,20 @@
+package io.milvus.engine;
+
+/**
+ * When a write logged by {@link LocalMilvusClient} is forced to disk before the call returns.
+ */
+public enum Durability {
+    /**
+     * Every request forces the log itself before it returns.
+     */
+    SYNC,
+    /**
+     * Requests wait for the group-commit thread, which forces the records of all concurrent writers at once.
+     */
+    GROUP,
+    /**
+     * Requests return as soon as their record is queued; the group-commit thread forces the log in the background,
+     * so a crash loses at most one commit interval of writes.
+     */
+    ASYNC
+}
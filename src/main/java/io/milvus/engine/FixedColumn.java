@@ -0,0 +1,365 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.BinaryDistances;
+import io.milvus.index.Distances;
+import io.milvus.index.TopKHeap;
+
+/**
+ * A column of fixed-width values: little-endian primitives, <code>float32</code> vectors and binary vectors packed
+ * into 64-bit words. Rows never straddle two pages, and the sealed region is one {@link PagedBuffer} with one
+ * record per row, the layout the index builders read.
+ */
+final class FixedColumn extends Column {
+    private static final int PAGE_TARGET_BYTES = 1 << 18;
+
+    private final DataType dataType;
+    private final int width;
+    private final int rowsPerPage;
+    private volatile DirectPages growing;
+    private volatile PagedBuffer sealed;
+
+    FixedColumn(DataType dataType, int dim) {
+        this.dataType = dataType;
+        this.width = width(dataType, dim);
+        this.rowsPerPage = Math.max(1, PAGE_TARGET_BYTES / width);
+        this.growing = new DirectPages(rowsPerPage * width);
+    }
+
+    static int width(DataType dataType, int dim) {
+        switch (dataType) {
+            case BOOL:
+            case INT8:
+                return 1;
+            case INT16:
+                return 2;
+            case INT32:
+            case FLOAT:
+                return 4;
+            case INT64:
+            case DOUBLE:
+                return 8;
+            case FLOAT_VECTOR:
+                return 4 * dim;
+            case BINARY_VECTOR:
+                return 8 * BinaryDistances.words(dim);
+            default:
+                throw new IllegalArgumentException("Data type " + dataType + " has no fixed width");
+        }
+    }
+
+    @Override
+    int set(int row, Object value) {
+        ByteBuffer page = growing.page(row / rowsPerPage);
+        int offset = (row % rowsPerPage) * width;
+        switch (dataType) {
+            case BOOL:
+                page.put(offset, (byte) ((Boolean) value ? 1 : 0));
+                break;
+            case INT8:
+                page.put(offset, ((Long) value).byteValue());
+                break;
+            case INT16:
+                page.putShort(offset, ((Long) value).shortValue());
+                break;
+            case INT32:
+                page.putInt(offset, ((Long) value).intValue());
+                break;
+            case INT64:
+                page.putLong(offset, (Long) value);
+                break;
+            case FLOAT:
+                page.putFloat(offset, ((Double) value).floatValue());
+                break;
+            case DOUBLE:
+                page.putDouble(offset, (Double) value);
+                break;
+            case FLOAT_VECTOR:
+                float[] floats = (float[]) value;
+                for (int i = 0; i < floats.length; i++) {
+                    page.putFloat(offset + 4 * i, floats[i]);
+                }
+                break;
+            default:
+                long[] words = (long[]) value;
+                for (int i = 0; i < words.length; i++) {
+                    page.putLong(offset + 8 * i, words[i]);
+                }
+        }
+        return width;
+    }
+
+    @Override
+    Object get(int row) {
+        PagedBuffer region = sealed;
+        if (region == null) {
+            DirectPages pages = growing;
+            if (pages != null) {
+                return read(pages.page(row / rowsPerPage), (row % rowsPerPage) * width);
+            }
+            region = sealed;
+        }
+        return read(region.chunk(row), region.offset(row));
+    }
+
+    private Object read(ByteBuffer buffer, int offset) {
+        switch (dataType) {
+            case BOOL:
+                return buffer.get(offset) != 0;
+            case INT8:
+                return (long) buffer.get(offset);
+            case INT16:
+                return (long) buffer.getShort(offset);
+            case INT32:
+                return (long) buffer.getInt(offset);
+            case INT64:
+                return buffer.getLong(offset);
+            case FLOAT:
+                return (double) buffer.getFloat(offset);
+            case DOUBLE:
+                return buffer.getDouble(offset);
+            case FLOAT_VECTOR:
+                float[] floats = new float[width / 4];
+                for (int i = 0; i < floats.length; i++) {
+                    floats[i] = buffer.getFloat(offset + 4 * i);
+                }
+                return floats;
+            default:
+                long[] words = new long[width / 8];
+                for (int i = 0; i < words.length; i++) {
+                    words[i] = buffer.getLong(offset + 8 * i);
+                }
+                return words;
+        }
+    }
+
+    @Override
+    void seal(int rows) {
+        PagedBuffer region = PagedBuffer.allocateDirect(rows, width);
+        DirectPages pages = growing;
+        int row = 0;
+        while (row < rows) {
+            ByteBuffer target = region.chunk(row);
+            int targetOffset = region.offset(row);
+            int n = Math.min(rows - row, Math.min(rowsPerPage - row % rowsPerPage,
+                    (target.capacity() - targetOffset) / width));
+            ByteBuffer source = pages.page(row / rowsPerPage).duplicate();
+            source.position((row % rowsPerPage) * width).limit((row % rowsPerPage + n) * width);
+            ByteBuffer view = target.duplicate();
+            view.position(targetOffset);
+            view.put(source);
+            row += n;
+        }
+        sealed = region;
+        growing = null;
+    }
+
+    /**
+     * Returns the sealed region, one record per row.
+     *
+     * @return {@link PagedBuffer}
+     */
+    PagedBuffer region() {
+        return sealed;
+    }
+
+    @Override
+    long writeTo(FileChannel channel, long position) throws IOException {
+        PagedBuffer region = sealed;
+        region.writeTo(channel, position);
+        return position + region.byteSize();
+    }
+
+    @Override
+    void map(FileChannel channel, long position, int rows) throws IOException {
+        sealed = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, position, rows, width);
+        growing = null;
+    }
+
+    @Override
+    void load() {
+        sealed.load();
+    }
+
+    @Override
+    void unmap() {
+        PagedBuffer region = sealed;
+        sealed = null;
+        region.unmap();
+    }
+
+    /**
+     * Offers the distance between a query and each of the first <code>rows</code> float vectors to a heap, with
+     * row offsets as IDs, skipping the excluded rows. Works on growing and sealed columns alike.
+     */
+    void scan(float[] query, MetricType metricType, int rows, RowBitmap excluded, TopKHeap heap) {
+        PagedBuffer region = sealed;
+        DirectPages pages = region == null ? growing : null;
+        if (region == null && pages == null) {
+            region = sealed;
+        }
+        int dim = width / 4;
+        int skip = excluded == null ? -1 : excluded.next(0);
+        for (int row = 0; row < rows; row++) {
+            if (row == skip) {
+                skip = excluded.next(row + 1);
+                continue;
+            }
+            float distance = pages != null
+                    ? Distances.distance(metricType, query, pages.page(row / rowsPerPage), (row % rowsPerPage) * width,
+                    dim)
+                    : Distances.distance(metricType, query, region.chunk(row), region.offset(row), dim);
+            heap.offer(row, distance);
+        }
+    }
+
+    /**
+     * Offers the distance between a packed query and each of the first <code>rows</code> binary vectors to a
+     * heap, with row offsets as IDs, skipping the excluded rows. Works on growing and sealed columns alike.
+     */
+    void scan(long[] query, MetricType metricType, int rows, RowBitmap excluded, TopKHeap heap) {
+        PagedBuffer region = sealed;
+        DirectPages pages = region == null ? growing : null;
+        if (region == null && pages == null) {
+            region = sealed;
+        }
+        long[] words = new long[width / 8];
+        int skip = excluded == null ? -1 : excluded.next(0);
+        for (int row = 0; row < rows; row++) {
+            if (row == skip) {
+                skip = excluded.next(row + 1);
+                continue;
+            }
+            ByteBuffer buffer = pages != null ? pages.page(row / rowsPerPage) : region.chunk(row);
+            int offset = pages != null ? (row % rowsPerPage) * width : region.offset(row);
+            for (int w = 0; w < words.length; w++) {
+                words[w] = buffer.getLong(offset + 8 * w);
+            }
+            heap.offer(row, BinaryDistances.distance(metricType, query, 0, words, 0, words.length));
+        }
+    }
+
+    /**
+     * Copies the values of rows <code>[from, from + count)</code> of an integer or <code>BOOL</code> column, as 1
+     * and 0, into an array, a run of rows of one page or chunk at a time. Works on growing and sealed columns alike.
+     */
+    void readLongs(int from, int count, long[] into) {
+        PagedBuffer region = sealed;
+        DirectPages pages = region == null ? growing : null;
+        if (region == null && pages == null) {
+            region = sealed;
+        }
+        int done = 0;
+        while (done < count) {
+            int row = from + done;
+            ByteBuffer buffer = pages != null ? pages.page(row / rowsPerPage) : region.chunk(row);
+            int offset = pages != null ? (row % rowsPerPage) * width : region.offset(row);
+            int n = Math.min(count - done, pages != null ? rowsPerPage - row % rowsPerPage
+                    : (buffer.capacity() - offset) / width);
+            switch (dataType) {
+                case BOOL:
+                case INT8:
+                    for (int i = 0; i < n; i++) {
+                        into[done + i] = buffer.get(offset + i);
+                    }
+                    break;
+                case INT16:
+                    for (int i = 0; i < n; i++) {
+                        into[done + i] = buffer.getShort(offset + 2 * i);
+                    }
+                    break;
+                case INT32:
+                    for (int i = 0; i < n; i++) {
+                        into[done + i] = buffer.getInt(offset + 4 * i);
+                    }
+                    break;
+                case INT64:
+                    for (int i = 0; i < n; i++) {
+                        into[done + i] = buffer.getLong(offset + 8 * i);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Data type " + dataType + " is not an integer type");
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Copies the values of rows <code>[from, from + count)</code> of a <code>FLOAT</code> or <code>DOUBLE</code>
+     * column into an array, a run of rows of one page or chunk at a time. Works on growing and sealed columns alike.
+     */
+    void readDoubles(int from, int count, double[] into) {
+        PagedBuffer region = sealed;
+        DirectPages pages = region == null ? growing : null;
+        if (region == null && pages == null) {
+            region = sealed;
+        }
+        int done = 0;
+        while (done < count) {
+            int row = from + done;
+            ByteBuffer buffer = pages != null ? pages.page(row / rowsPerPage) : region.chunk(row);
+            int offset = pages != null ? (row % rowsPerPage) * width : region.offset(row);
+            int n = Math.min(count - done, pages != null ? rowsPerPage - row % rowsPerPage
+                    : (buffer.capacity() - offset) / width);
+            if (dataType == DataType.FLOAT) {
+                for (int i = 0; i < n; i++) {
+                    into[done + i] = buffer.getFloat(offset + 4 * i);
+                }
+            } else if (dataType == DataType.DOUBLE) {
+                for (int i = 0; i < n; i++) {
+                    into[done + i] = buffer.getDouble(offset + 8 * i);
+                }
+            } else {
+                throw new IllegalStateException("Data type " + dataType + " is not a floating-point type");
+            }
+            done += n;
+        }
+    }
+
+    /**
+     * Copies the first <code>rows</code> float vectors of a sealed column into one row-major array.
+     */
+    float[] toFloatArray(int rows) {
+        float[] out = new float[rows * (width / 4)];
+        PagedBuffer region = sealed;
+        int row = 0;
+        while (row < rows) {
+            ByteBuffer chunk = region.chunk(row);
+            int offset = region.offset(row);
+            int n = Math.min(rows - row, (chunk.capacity() - offset) / width);
+            ByteBuffer view = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            view.position(offset);
+            view.asFloatBuffer().get(out, row * (width / 4), n * (width / 4));
+            row += n;
+        }
+        return out;
+    }
+
+    /**
+     * Copies the first <code>rows</code> packed binary vectors of a sealed column into one array of words.
+     */
+    long[] toLongArray(int rows) {
+        long[] out = new long[rows * (width / 8)];
+        PagedBuffer region = sealed;
+        int row = 0;
+        while (row < rows) {
+            ByteBuffer chunk = region.chunk(row);
+            int offset = region.offset(row);
+            int n = Math.min(rows - row, (chunk.capacity() - offset) / width);
+            ByteBuffer view = chunk.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+            view.position(offset);
+            view.asLongBuffer().get(out, row * (width / 8), n * (width / 8));
+            row += n;
+        }
+        return out;
+    }
+}
@@ -0,0 +1,338 @@
+package io.milvus.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Just enough of FlatBuffers to read and write Arrow IPC metadata: tables with scalar fields, strings, tables,
+ * vectors of tables and vectors of structs.
+ * <p>
+ * {@link Table} reads a table in place. {@link TableWriter} describes a table and serializes it front to back: the
+ * vtable, then the table with every scalar aligned to its size, then whatever the table refers to, so all offsets
+ * point forward as the format requires.
+ */
+final class FlatBuffers {
+
+    private FlatBuffers() {}
+
+    /**
+     * A table in a little-endian buffer. Absent fields read as their default value.
+     */
+    static final class Table {
+        private final ByteBuffer buffer;
+        private final int position;
+
+        private Table(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        /**
+         * Returns the root table of a buffer starting at <code>start</code>.
+         *
+         * @return {@link Table}
+         */
+        static Table root(ByteBuffer buffer, int start) {
+            return new Table(buffer, start + buffer.getInt(start));
+        }
+
+        private int offset(int field) {
+            int vtable = position - buffer.getInt(position);
+            int slot = 4 + 2 * field;
+            return slot < (buffer.getShort(vtable) & 0xFFFF) ? buffer.getShort(vtable + slot) & 0xFFFF : 0;
+        }
+
+        boolean has(int field) {
+            return offset(field) != 0;
+        }
+
+        int getByte(int field) {
+            int o = offset(field);
+            return o == 0 ? 0 : buffer.get(position + o) & 0xFF;
+        }
+
+        boolean getBool(int field) {
+            return getByte(field) != 0;
+        }
+
+        int getShort(int field) {
+            int o = offset(field);
+            return o == 0 ? 0 : buffer.getShort(position + o);
+        }
+
+        int getInt(int field) {
+            int o = offset(field);
+            return o == 0 ? 0 : buffer.getInt(position + o);
+        }
+
+        long getLong(int field) {
+            int o = offset(field);
+            return o == 0 ? 0L : buffer.getLong(position + o);
+        }
+
+        private int target(int field) {
+            int o = offset(field);
+            return o == 0 ? -1 : position + o + buffer.getInt(position + o);
+        }
+
+        /**
+         * @return the table a field refers to, or <code>null</code>.
+         */
+        Table getTable(int field) {
+            int target = target(field);
+            return target < 0 ? null : new Table(buffer, target);
+        }
+
+        /**
+         * @return the string a field refers to, or <code>null</code>.
+         */
+        String getString(int field) {
+            int target = target(field);
+            if (target < 0) {
+                return null;
+            }
+            byte[] utf8 = new byte[buffer.getInt(target)];
+            for (int i = 0; i < utf8.length; i++) {
+                utf8[i] = buffer.get(target + 4 + i);
+            }
+            return new String(utf8, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * @return the length of the vector a field refers to, 0 if absent.
+         */
+        int vectorLength(int field) {
+            int target = target(field);
+            return target < 0 ? 0 : buffer.getInt(target);
+        }
+
+        /**
+         * Returns the table at an index of a vector of tables.
+         *
+         * @return {@link Table}
+         */
+        Table vectorTable(int field, int index) {
+            int element = target(field) + 4 + 4 * index;
+            return new Table(buffer, element + buffer.getInt(element));
+        }
+
+        /**
+         * Returns a <code>long</code> of the struct at an index of a vector of structs.
+         *
+         * @return <code>long</code>
+         */
+        long structLong(int field, int index, int structBytes, int offset) {
+            return buffer.getLong(target(field) + 4 + index * structBytes + offset);
+        }
+
+        /**
+         * Returns an <code>int</code> of the struct at an index of a vector of structs.
+         *
+         * @return <code>int</code>
+         */
+        int structInt(int field, int index, int structBytes, int offset) {
+            return buffer.getInt(target(field) + 4 + index * structBytes + offset);
+        }
+    }
+
+    /**
+     * A table to serialize, described field by field.
+     */
+    static final class TableWriter {
+        private final List<Object[]> fields = new ArrayList<>();
+
+        private TableWriter add(int field, int size, Object value) {
+            fields.add(new Object[] {field, size, value});
+            return this;
+        }
+
+        TableWriter addByte(int field, int value) {
+            return add(field, 1, (long) value);
+        }
+
+        TableWriter addBool(int field, boolean value) {
+            return add(field, 1, value ? 1L : 0L);
+        }
+
+        TableWriter addShort(int field, int value) {
+            return add(field, 2, (long) value);
+        }
+
+        TableWriter addInt(int field, int value) {
+            return add(field, 4, (long) value);
+        }
+
+        TableWriter addLong(int field, long value) {
+            return add(field, 8, value);
+        }
+
+        TableWriter addString(int field, String value) {
+            return add(field, 0, value);
+        }
+
+        TableWriter addTable(int field, TableWriter table) {
+            return add(field, 0, table);
+        }
+
+        TableWriter addTables(int field, List<TableWriter> tables) {
+            return add(field, 0, tables);
+        }
+
+        /**
+         * Adds a vector of structs of 8-byte alignment, given as their little-endian bytes.
+         */
+        TableWriter addStructs(int field, int count, ByteBuffer structs) {
+            return add(field, 0, new Object[] {count, structs});
+        }
+
+        /**
+         * Serializes the table as the root of a buffer, padded to a multiple of 8 bytes.
+         *
+         * @return the buffer, flipped.
+         */
+        ByteBuffer finish() {
+            Output out = new Output();
+            out.skip(4);
+            int root = write(out);
+            out.buffer.putInt(0, root);
+            out.align(8);
+            out.buffer.flip();
+            return out.buffer;
+        }
+
+        private int write(Output out) {
+            int slots = 0;
+            for (Object[] field : fields) {
+                slots = Math.max(slots, (Integer) field[0] + 1);
+            }
+            out.align(2);
+            int vtable = out.position();
+            out.skip(4 + 2 * slots);
+            // the table starts on 8 bytes and its scalars go from the widest down, each aligned to its size
+            out.align(8);
+            int table = out.position();
+            out.skip(4);
+            out.buffer.putInt(table, table - vtable);
+            List<Object[]> order = new ArrayList<>(fields);
+            order.sort((a, b) -> Integer.compare(width(b), width(a)));
+            int[] positions = new int[order.size()];
+            for (int i = 0; i < order.size(); i++) {
+                Object[] field = order.get(i);
+                int size = width(field);
+                out.align(size);
+                positions[i] = out.position();
+                out.buffer.putShort(vtable + 4 + 2 * (Integer) field[0], (short) (positions[i] - table));
+                if ((Integer) field[1] == 0) {
+                    out.skip(4);
+                } else {
+                    long value = (Long) field[2];
+                    out.skip(size);
+                    switch (size) {
+                        case 1:
+                            out.buffer.put(positions[i], (byte) value);
+                            break;
+                        case 2:
+                            out.buffer.putShort(positions[i], (short) value);
+                            break;
+                        case 4:
+                            out.buffer.putInt(positions[i], (int) value);
+                            break;
+                        default:
+                            out.buffer.putLong(positions[i], value);
+                    }
+                }
+            }
+            out.buffer.putShort(vtable, (short) (4 + 2 * slots));
+            out.buffer.putShort(vtable + 2, (short) (out.position() - table));
+            for (int i = 0; i < order.size(); i++) {
+                Object[] field = order.get(i);
+                if ((Integer) field[1] == 0) {
+                    int target = writeReference(out, field[2]);
+                    out.buffer.putInt(positions[i], target - positions[i]);
+                }
+            }
+            return table;
+        }
+
+        private static int width(Object[] field) {
+            int size = (Integer) field[1];
+            return size == 0 ? 4 : size;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int writeReference(Output out, Object value) {
+            if (value instanceof TableWriter) {
+                return ((TableWriter) value).write(out);
+            }
+            if (value instanceof String) {
+                byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                out.align(4);
+                int start = out.position();
+                out.ensure(4 + utf8.length + 1);
+                out.buffer.putInt(utf8.length).put(utf8).put((byte) 0);
+                return start;
+            }
+            if (value instanceof List) {
+                List<TableWriter> tables = (List<TableWriter>) value;
+                out.align(4);
+                int start = out.position();
+                out.ensure(4 + 4 * tables.size());
+                out.buffer.putInt(tables.size());
+                out.skip(4 * tables.size());
+                for (int i = 0; i < tables.size(); i++) {
+                    int element = start + 4 + 4 * i;
+                    int target = tables.get(i).write(out);
+                    out.buffer.putInt(element, target - element);
+                }
+                return start;
+            }
+            Object[] structs = (Object[]) value;
+            ByteBuffer bytes = ((ByteBuffer) structs[1]).duplicate();
+            // the elements, after the length, start on 8 bytes
+            out.align(4);
+            if ((out.position() + 4) % 8 != 0) {
+                out.skip(4);
+            }
+            int start = out.position();
+            out.ensure(4 + bytes.remaining());
+            out.buffer.putInt((Integer) structs[0]).put(bytes);
+            return start;
+        }
+    }
+
+    /**
+     * A little-endian heap buffer that grows as it is written.
+     */
+    private static final class Output {
+        private ByteBuffer buffer = ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN);
+
+        int position() {
+            return buffer.position();
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+        }
+
+        void skip(int bytes) {
+            ensure(bytes);
+            buffer.put(new byte[bytes]);
+        }
+
+        void align(int alignment) {
+            int padding = (alignment - buffer.position() % alignment) % alignment;
+            if (padding > 0) {
+                skip(padding);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.milvus.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import io.milvus.param.response.GetImportStateResponse;
+
+/**
+ * The bulk-insert tasks of a client, indexed by task ID and, per collection, in the order they were created.
+ * <p>
+ * Task IDs grow with creation time, so the time order is the order of the IDs: a state lookup is one hash lookup,
+ * and listing the latest <code>limit</code> tasks walks those tasks only from the end of a sorted map, however many
+ * tasks are retained. Once more than <code>retention</code> tasks are registered, the oldest done tasks are dropped;
+ * a running task is never dropped. Lookups and listings take no lock.
+ */
+final class ImportTasks {
+    private final int retention;
+    private final ConcurrentHashMap<Long, BulkImport> byId = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, BulkImport> byTime = new ConcurrentSkipListMap<>();
+    private final ConcurrentHashMap<String, ConcurrentSkipListMap<Long, BulkImport>> byCollection =
+            new ConcurrentHashMap<>();
+    private int size;
+
+    ImportTasks(int retention) {
+        this.retention = retention;
+    }
+
+    /**
+     * Registers a new task, then drops the oldest done tasks beyond the retention.
+     */
+    synchronized void add(BulkImport job) {
+        long taskId = job.getTask().getTaskId();
+        byId.put(taskId, job);
+        byTime.put(taskId, job);
+        byCollection.computeIfAbsent(job.getCollectionName(), name -> new ConcurrentSkipListMap<>())
+                .put(taskId, job);
+        size++;
+        Iterator<BulkImport> oldest = byTime.values().iterator();
+        while (size > retention && oldest.hasNext()) {
+            BulkImport old = oldest.next();
+            if (old.getTask().isDone()) {
+                oldest.remove();
+                remove(old);
+            }
+        }
+    }
+
+    private void remove(BulkImport job) {
+        long taskId = job.getTask().getTaskId();
+        byId.remove(taskId);
+        ConcurrentSkipListMap<Long, BulkImport> tasks = byCollection.get(job.getCollectionName());
+        tasks.remove(taskId);
+        if (tasks.isEmpty()) {
+            byCollection.remove(job.getCollectionName());
+        }
+        size--;
+    }
+
+    /**
+     * @return the task with an ID, or <code>null</code> if there is none or it was dropped.
+     */
+    BulkImport get(long taskId) {
+        return byId.get(taskId);
+    }
+
+    /**
+     * Returns the state of the latest tasks, oldest first.
+     *
+     * @param collectionName The collection whose tasks are listed, <code>null</code> for every collection.
+     * @param limit The maximum number of tasks, 0 for every retained task.
+     * @return <code>List&lt;GetImportStateResponse&gt;</code>
+     */
+    List<GetImportStateResponse> list(String collectionName, int limit) {
+        ConcurrentNavigableMap<Long, BulkImport> tasks = collectionName == null ? byTime
+                : byCollection.get(collectionName);
+        if (tasks == null) {
+            return Collections.emptyList();
+        }
+        List<GetImportStateResponse> states = new ArrayList<>(limit > 0 ? Math.min(limit, 256) : 16);
+        for (BulkImport job : tasks.descendingMap().values()) {
+            if (limit > 0 && states.size() == limit) {
+                break;
+            }
+            states.add(job.state());
+        }
+        Collections.reverse(states);
+        return states;
+    }
+}
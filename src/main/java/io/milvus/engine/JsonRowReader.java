@@ -0,0 +1,717 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import io.milvus.param.collection.FieldType;
+
+/**
+ * Reads a row-based JSON import file, <code>{"rows": [{"field": value, ...}, ...]}</code>, in byte ranges that can
+ * be parsed on several cores at once.
+ * <p>
+ * {@link #split(long, Consumer)} makes one sequential pass that only follows strings and nesting to find where rows
+ * start, and cuts the rows array into chunks of about the requested size at row boundaries, noting the line each
+ * chunk starts on and handing it over as soon as it ends, so that chunks parse while the pass goes on.
+ * {@link #parse(Chunk, BooleanSupplier)} maps a chunk and tokenizes it straight into one
+ * {@link ColumnBuffer} per field: keys are matched against the field names as bytes, numbers are parsed without
+ * building strings whenever they fit a <code>long</code> mantissa, and no object is made per row. Any value that
+ * does not match its {@link FieldType} fails the chunk with the file name and line number.
+ */
+final class JsonRowReader {
+    private static final byte[] ROWS = "rows".getBytes(StandardCharsets.US_ASCII);
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final int SCAN_BUFFER_BYTES = 1 << 20;
+    private static final int INITIAL_ROWS = 1024;
+
+    /**
+     * A range of whole rows of the file.
+     */
+    static final class Chunk {
+        final long start;
+        final long end;
+        final long line;
+
+        Chunk(long start, long end, long line) {
+            this.start = start;
+            this.end = end;
+            this.line = line;
+        }
+
+        long length() {
+            return end - start;
+        }
+    }
+
+    private final Path file;
+    private final List<FieldType> fields;
+    private final byte[][] names;
+
+    JsonRowReader(Path file, List<FieldType> fields) {
+        this.file = file;
+        this.fields = fields;
+        this.names = new byte[fields.size()][];
+        for (int f = 0; f < names.length; f++) {
+            names[f] = fields.get(f).getName().getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Finds the rows array and cuts it into chunks of whole rows.
+     *
+     * @param chunkBytes The size after which a chunk ends at the next row.
+     * @param sink Receives the chunks in file order, none for an empty array.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not an object holding a <code>rows</code> array of objects.
+     */
+    void split(long chunkBytes, Consumer<Chunk> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Scanner in = new Scanner(channel);
+            in.expect('{');
+            in.expect('"');
+            for (byte b : ROWS) {
+                if (in.read() != b) {
+                    throw error(in.line, "Expected a \"rows\" array");
+                }
+            }
+            in.expect('"');
+            in.expect(':');
+            in.expect('[');
+
+            long chunkStart = -1L;
+            long chunkLine = 0L;
+            int depth = 0;
+            boolean inString = false;
+            boolean escaped = false;
+            long line = in.line;
+            scan:
+            while (true) {
+                if (!in.fill()) {
+                    throw error(line, "The rows array is not closed");
+                }
+                byte[] bytes = in.bytes;
+                int limit = in.limit;
+                for (int i = in.position; i < limit; i++) {
+                    int b = bytes[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (b == '\\') {
+                            escaped = true;
+                        } else if (b == '"') {
+                            inString = false;
+                        }
+                        continue;
+                    }
+                    if (b == '"') {
+                        if (depth == 0) {
+                            throw error(line, "Rows must be objects");
+                        }
+                        inString = true;
+                    } else if (b == '{' || b == '[') {
+                        if (depth == 0) {
+                            if (b != '{') {
+                                throw error(line, "Rows must be objects");
+                            }
+                            long rowStart = in.offset + i;
+                            if (chunkStart < 0L || rowStart - chunkStart >= chunkBytes) {
+                                if (chunkStart >= 0L) {
+                                    sink.accept(new Chunk(chunkStart, rowStart, chunkLine));
+                                }
+                                chunkStart = rowStart;
+                                chunkLine = line;
+                            }
+                        }
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        if (depth == 0) {
+                            if (b != ']') {
+                                throw error(line, "Unexpected '}'");
+                            }
+                            if (chunkStart >= 0L) {
+                                sink.accept(new Chunk(chunkStart, in.offset + i, chunkLine));
+                            }
+                            in.position = i + 1;
+                            break scan;
+                        }
+                        depth--;
+                    } else if (b == '\n') {
+                        line++;
+                    } else if (depth == 0 && b != ',' && !isWhitespace(b)) {
+                        throw error(line, "Rows must be objects");
+                    }
+                }
+                in.position = limit;
+            }
+            in.line = line;
+            in.expect('}');
+            if (in.skipWhitespace() >= 0) {
+                throw error(in.line, "Unexpected content after the rows array");
+            }
+        }
+    }
+
+    /**
+     * Parses the rows of a chunk.
+     *
+     * @param cancelled Checked between rows, to stop early once another chunk has failed.
+     * @return one buffer per field in schema order, <code>null</code> for a generated primary key, or
+     * <code>null</code> if the parse was cancelled.
+     * @throws IOException if the file cannot be mapped.
+     * @throws IllegalArgumentException if a row does not match the schema.
+     */
+    ColumnBuffer[] parse(Chunk chunk, BooleanSupplier cancelled) throws IOException {
+        MappedByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.length());
+        }
+        ColumnBuffer[] columns = new ColumnBuffer[fields.size()];
+        for (int f = 0; f < columns.length; f++) {
+            FieldType field = fields.get(f);
+            if (!(field.isPrimaryKey() && field.isAutoID())) {
+                columns[f] = ColumnBuffer.create(field, INITIAL_ROWS);
+            }
+        }
+        Tokenizer in = new Tokenizer(data, chunk.line);
+        boolean[] seen = new boolean[fields.size()];
+        while (in.skipWhitespace() >= 0) {
+            if (cancelled.getAsBoolean()) {
+                return null;
+            }
+            in.expect('{');
+            parseRow(in, columns, seen);
+            int next = in.skipWhitespace();
+            if (next >= 0) {
+                in.expect(',');
+            }
+        }
+        return columns;
+    }
+
+    private void parseRow(Tokenizer in, ColumnBuffer[] columns, boolean[] seen) {
+        Arrays.fill(seen, false);
+        if (in.skipWhitespace() == '}') {
+            in.position++;
+        } else {
+            while (true) {
+                in.expect('"');
+                int length = in.readString();
+                int f = fieldOf(in.scratch, length);
+                if (f < 0) {
+                    throw error(in.line, "Unknown field " + new String(in.scratch, 0, length,
+                            StandardCharsets.UTF_8));
+                }
+                FieldType field = fields.get(f);
+                if (columns[f] == null) {
+                    throw error(in.line, "Primary key " + field.getName() + " is generated");
+                }
+                if (seen[f]) {
+                    throw error(in.line, "Field " + field.getName() + " is given twice");
+                }
+                seen[f] = true;
+                in.expect(':');
+                in.skipWhitespace();
+                parseValue(in, field, columns[f]);
+                int next = in.skipWhitespace();
+                in.position++;
+                if (next == '}') {
+                    break;
+                }
+                if (next != ',') {
+                    throw error(in.line, "Expected ',' or '}' after the value of field " + field.getName());
+                }
+                in.skipWhitespace();
+            }
+        }
+        for (int f = 0; f < seen.length; f++) {
+            if (!seen[f] && columns[f] != null) {
+                throw error(in.line, "Missing field " + fields.get(f).getName());
+            }
+        }
+    }
+
+    private int fieldOf(byte[] key, int length) {
+        for (int f = 0; f < names.length; f++) {
+            byte[] name = names[f];
+            if (name.length == length && matches(name, key)) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matches(byte[] name, byte[] key) {
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void parseValue(Tokenizer in, FieldType field, ColumnBuffer column) {
+        if (in.peek() == 'n') {
+            throw error(in.line, "Field " + field.getName() + " has a null value");
+        }
+        switch (field.getDataType()) {
+            case BOOL:
+                ((ColumnBuffer.Bools) column).add(in.readBoolean(field));
+                break;
+            case INT8:
+                ((ColumnBuffer.Longs) column).add(in.readLong(field, Byte.MIN_VALUE, Byte.MAX_VALUE));
+                break;
+            case INT16:
+                ((ColumnBuffer.Longs) column).add(in.readLong(field, Short.MIN_VALUE, Short.MAX_VALUE));
+                break;
+            case INT32:
+                ((ColumnBuffer.Longs) column).add(in.readLong(field, Integer.MIN_VALUE, Integer.MAX_VALUE));
+                break;
+            case INT64:
+                ((ColumnBuffer.Longs) column).add(in.readLong(field, Long.MIN_VALUE, Long.MAX_VALUE));
+                break;
+            case FLOAT:
+            case DOUBLE:
+                ((ColumnBuffer.Doubles) column).add(in.readDouble(field));
+                break;
+            case VARCHAR:
+                ((ColumnBuffer.Strings) column).add(in.readVarchar(field));
+                break;
+            case FLOAT_VECTOR:
+                ColumnBuffer.FloatVectors floats = (ColumnBuffer.FloatVectors) column;
+                in.expectVector(field);
+                if (in.skipWhitespace() != ']') {
+                    do {
+                        in.skipWhitespace();
+                        floats.add((float) in.readDouble(field));
+                    } while (in.nextInVector(field));
+                } else {
+                    in.position++;
+                }
+                int dim = floats.endRow();
+                if (dim != field.getDimension()) {
+                    throw error(in.line, "Vector of field " + field.getName() + " has dimension " + dim
+                            + ", expected " + field.getDimension());
+                }
+                break;
+            default:
+                ColumnBuffer.BinaryVectors bits = (ColumnBuffer.BinaryVectors) column;
+                in.expectVector(field);
+                if (in.skipWhitespace() != ']') {
+                    do {
+                        in.skipWhitespace();
+                        bits.add((int) in.readLong(field, 0, 255));
+                    } while (in.nextInVector(field));
+                } else {
+                    in.position++;
+                }
+                int bytes = bits.endRow();
+                if (bytes != field.getDimension() / 8) {
+                    throw error(in.line, "Vector of field " + field.getName() + " has " + bytes
+                            + " bytes, expected " + field.getDimension() / 8);
+                }
+        }
+    }
+
+    private IllegalArgumentException error(long line, String message) {
+        return new IllegalArgumentException(file.getFileName() + " line " + line + ": " + message);
+    }
+
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Reads a file sequentially through a heap buffer, for the split pass.
+     */
+    private final class Scanner {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        final byte[] bytes = buffer.array();
+        long offset;
+        int position;
+        int limit;
+        long line = 1L;
+
+        Scanner(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Reads the next block once the current one is consumed.
+         *
+         * @return <code>false</code> at the end of the file.
+         */
+        boolean fill() throws IOException {
+            if (position < limit) {
+                return true;
+            }
+            offset += limit;
+            buffer.clear();
+            int n;
+            do {
+                n = channel.read(buffer);
+            } while (n == 0);
+            if (n < 0) {
+                limit = 0;
+                position = 0;
+                return false;
+            }
+            position = 0;
+            limit = n;
+            return true;
+        }
+
+        int read() throws IOException {
+            return fill() ? bytes[position++] & 0xFF : -1;
+        }
+
+        int skipWhitespace() throws IOException {
+            while (true) {
+                int b = read();
+                if (b == '\n') {
+                    line++;
+                } else if (b < 0 || !isWhitespace(b)) {
+                    return b;
+                }
+            }
+        }
+
+        void expect(char c) throws IOException {
+            if (skipWhitespace() != c) {
+                throw error(line, "Expected '" + c + "'");
+            }
+        }
+    }
+
+    /**
+     * Tokenizes a mapped chunk. Strings and keys are decoded into a scratch array that grows as needed.
+     */
+    private final class Tokenizer {
+        private final ByteBuffer data;
+        private final int limit;
+        int position;
+        long line;
+        byte[] scratch = new byte[256];
+
+        Tokenizer(ByteBuffer data, long line) {
+            this.data = data;
+            this.limit = data.limit();
+            this.line = line;
+        }
+
+        int peek() {
+            return position < limit ? data.get(position) & 0xFF : -1;
+        }
+
+        /**
+         * Skips whitespace, counting lines.
+         *
+         * @return the next byte, not consumed, or -1 at the end of the chunk.
+         */
+        int skipWhitespace() {
+            while (position < limit) {
+                int b = data.get(position) & 0xFF;
+                if (b == '\n') {
+                    line++;
+                } else if (!isWhitespace(b)) {
+                    return b;
+                }
+                position++;
+            }
+            return -1;
+        }
+
+        void expect(char c) {
+            if (skipWhitespace() != c) {
+                throw error(line, "Expected '" + c + "'");
+            }
+            position++;
+        }
+
+        void expectVector(FieldType field) {
+            if (peek() != '[') {
+                throw error(line, "Field " + field.getName() + " expects an array");
+            }
+            position++;
+        }
+
+        /**
+         * Consumes the separator after a vector component.
+         *
+         * @return <code>false</code> once the closing bracket is consumed.
+         */
+        boolean nextInVector(FieldType field) {
+            int b = skipWhitespace();
+            position++;
+            if (b == ']') {
+                return false;
+            }
+            if (b != ',') {
+                throw error(line, "Expected ',' or ']' in the vector of field " + field.getName());
+            }
+            return true;
+        }
+
+        boolean readBoolean(FieldType field) {
+            if (matchLiteral("true")) {
+                return true;
+            }
+            if (matchLiteral("false")) {
+                return false;
+            }
+            throw error(line, "Field " + field.getName() + " expects a boolean");
+        }
+
+        private boolean matchLiteral(String literal) {
+            if (position + literal.length() > limit) {
+                return false;
+            }
+            for (int i = 0; i < literal.length(); i++) {
+                if (data.get(position + i) != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            position += literal.length();
+            return true;
+        }
+
+        long readLong(FieldType field, long min, long max) {
+            int start = position;
+            boolean negative = peek() == '-';
+            if (negative) {
+                position++;
+            }
+            long value = 0L;
+            int digits = 0;
+            while (position < limit) {
+                int b = data.get(position);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                int digit = b - '0';
+                // accumulate negatively so that Long.MIN_VALUE fits
+                if (value < (Long.MIN_VALUE + digit) / 10) {
+                    throw error(line, "Value of field " + field.getName() + " is out of range");
+                }
+                value = value * 10 - digit;
+                digits++;
+                position++;
+            }
+            int next = peek();
+            if (digits == 0 || next == '.' || next == 'e' || next == 'E') {
+                position = start;
+                throw error(line, "Field " + field.getName() + " expects an integer");
+            }
+            if (!negative) {
+                if (value == Long.MIN_VALUE) {
+                    throw error(line, "Value of field " + field.getName() + " is out of range");
+                }
+                value = -value;
+            }
+            if (value < min || value > max) {
+                throw error(line, "Value " + value + " of field " + field.getName() + " is out of range");
+            }
+            return value;
+        }
+
+        double readDouble(FieldType field) {
+            int start = position;
+            boolean negative = peek() == '-';
+            if (negative) {
+                position++;
+            }
+            long mantissa = 0L;
+            int significant = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean exact = true;
+            while (position < limit) {
+                int b = data.get(position);
+                if (b >= '0' && b <= '9') {
+                    digits++;
+                    if (mantissa != 0L || b != '0') {
+                        if (++significant > 18) {
+                            exact = false;
+                        } else {
+                            mantissa = mantissa * 10 + (b - '0');
+                        }
+                    }
+                    position++;
+                } else if (b == '.') {
+                    position++;
+                    while (position < limit && data.get(position) >= '0' && data.get(position) <= '9') {
+                        int d = data.get(position) - '0';
+                        digits++;
+                        if (mantissa != 0L || d != 0) {
+                            if (++significant > 18) {
+                                exact = false;
+                            } else {
+                                mantissa = mantissa * 10 + d;
+                            }
+                        }
+                        exponent--;
+                        position++;
+                    }
+                    break;
+                } else {
+                    break;
+                }
+            }
+            int b = peek();
+            if (b == 'e' || b == 'E') {
+                position++;
+                boolean negativeExponent = peek() == '-';
+                if (peek() == '-' || peek() == '+') {
+                    position++;
+                }
+                int e = 0;
+                int exponentDigits = 0;
+                while (position < limit && data.get(position) >= '0' && data.get(position) <= '9') {
+                    e = Math.min(e * 10 + data.get(position) - '0', 100_000);
+                    exponentDigits++;
+                    position++;
+                }
+                if (exponentDigits == 0) {
+                    digits = 0;
+                }
+                exponent += negativeExponent ? -e : e;
+            }
+            if (digits == 0) {
+                position = start;
+                throw error(line, "Field " + field.getName() + " expects a number");
+            }
+            if (exact && mantissa <= 1L << 53 && exponent >= -22 && exponent <= 22) {
+                // both operands are exact doubles, so the result is correctly rounded
+                double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent]
+                        : mantissa / POWERS_OF_TEN[-exponent];
+                return negative ? -value : value;
+            }
+            byte[] text = new byte[position - start];
+            for (int i = 0; i < text.length; i++) {
+                text[i] = data.get(start + i);
+            }
+            return Double.parseDouble(new String(text, StandardCharsets.US_ASCII));
+        }
+
+        String readVarchar(FieldType field) {
+            if (peek() != '"') {
+                throw error(line, "Field " + field.getName() + " expects a string");
+            }
+            position++;
+            String value = new String(scratch, 0, readString(), StandardCharsets.UTF_8);
+            int maxLength = VarcharColumn.maxChars(field);
+            if (value.length() > maxLength) {
+                throw error(line, "Value of field " + field.getName() + " is longer than " + maxLength);
+            }
+            return value;
+        }
+
+        /**
+         * Decodes the rest of a string, after its opening quote, into the scratch array as UTF-8.
+         *
+         * @return the number of decoded bytes.
+         */
+        int readString() {
+            int n = 0;
+            while (true) {
+                if (position >= limit) {
+                    throw error(line, "Unterminated string");
+                }
+                int b = data.get(position++);
+                if (b == '"') {
+                    return n;
+                }
+                if (n + 4 > scratch.length) {
+                    scratch = Arrays.copyOf(scratch, scratch.length * 2);
+                }
+                if (b == '\\') {
+                    n = readEscape(n);
+                } else if (b >= 0 && b < 0x20) {
+                    throw error(line, "Control character in a string");
+                } else {
+                    scratch[n++] = (byte) b;
+                }
+            }
+        }
+
+        private int readEscape(int n) {
+            if (position >= limit) {
+                throw error(line, "Unterminated string");
+            }
+            int b = data.get(position++);
+            switch (b) {
+                case '"':
+                case '\\':
+                case '/':
+                    scratch[n++] = (byte) b;
+                    return n;
+                case 'b':
+                    scratch[n++] = '\b';
+                    return n;
+                case 'f':
+                    scratch[n++] = '\f';
+                    return n;
+                case 'n':
+                    scratch[n++] = '\n';
+                    return n;
+                case 'r':
+                    scratch[n++] = '\r';
+                    return n;
+                case 't':
+                    scratch[n++] = '\t';
+                    return n;
+                case 'u':
+                    int c = readHex();
+                    if (Character.isHighSurrogate((char) c) && position + 1 < limit
+                            && data.get(position) == '\\' && data.get(position + 1) == 'u') {
+                        position += 2;
+                        int low = readHex();
+                        if (Character.isLowSurrogate((char) low)) {
+                            c = Character.toCodePoint((char) c, (char) low);
+                        } else {
+                            n = putCodePoint(n, c);
+                            c = low;
+                        }
+                    }
+                    return putCodePoint(n, c);
+                default:
+                    throw error(line, "Invalid escape in a string");
+            }
+        }
+
+        private int readHex() {
+            if (position + 4 > limit) {
+                throw error(line, "Invalid \\u escape in a string");
+            }
+            int c = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(data.get(position++), 16);
+                if (digit < 0) {
+                    throw error(line, "Invalid \\u escape in a string");
+                }
+                c = c << 4 | digit;
+            }
+            return c;
+        }
+
+        private int putCodePoint(int n, int c) {
+            if (n + 4 > scratch.length) {
+                scratch = Arrays.copyOf(scratch, scratch.length * 2);
+            }
+            byte[] utf8 = new String(Character.toChars(c)).getBytes(StandardCharsets.UTF_8);
+            System.arraycopy(utf8, 0, scratch, n, utf8.length);
+            return n + utf8.length;
+        }
+    }
+}
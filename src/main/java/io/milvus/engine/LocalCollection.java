@@ -0,0 +1,1523 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.filter.FilterCache;
+import io.milvus.filter.FilterPlan;
+import io.milvus.index.AnnoyIndex;
+import io.milvus.index.BinaryDistances;
+import io.milvus.index.BinaryVectorIndex;
+import io.milvus.index.DiskAnnIndex;
+import io.milvus.index.Distances;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.HnswIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.TopKHeap;
+import io.milvus.index.VectorIndex;
+import io.milvus.index.VectorIndexFactory;
+import io.milvus.param.Task;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.response.GetCollectionStatisticsResponse;
+import io.milvus.param.response.GetPartitionStatisticsResponse;
+import io.milvus.param.response.SearchResponse;
+
+/**
+ * The data of one collection: a growing segment that takes inserts and the sealed segments behind it, plus the
+ * index declared on each vector field and on any scalar field that filters should not scan. A segment is sealed on
+ * flush or once it reaches its row limit; sealing compacts its columns and schedules the builds of its indexes.
+ * <p>
+ * A collection with a {@link CollectionStore} persists every sealed segment and keeps it as a read-only mapping of
+ * its file; ANNOY and DISKANN indexes go to index files as well. Loading and releasing the collection then only
+ * map and unmap files, while indexes that live on the heap stay where they are. {@link #checkpoint(long)} records
+ * the sealed segments in the manifest, after which the logged inserts they hold are no longer needed.
+ * <p>
+ * Searches need a loaded collection and run on its {@link ReplicaGroup}; each one pins the segments it reads, so
+ * a release waits for the searches in flight before unmapping anything.
+ * <p>
+ * A delete finds the rows holding the given primary keys, or matching a filter expression, and adds them to the
+ * deleted rows of their segment, which searches mask out; no segment is rewritten. The deleted rows are recorded in
+ * the manifest with the segments. Filter expressions are compiled once into {@link FilterPlan}s cached by their
+ * text; a filtered search also masks out the rows they reject.
+ * <p>
+ * {@link #compact(double, CompactionBudget)} merges small and delete-heavy sealed segments into new ones without
+ * their deleted rows. The merged segment is written and indexed off to the side, then swapped for its sources in
+ * one step, so a search sees either the sources or the merged segment, never both. The sources are unmapped once
+ * the searches reading them are done and their files deleted once the manifest no longer names them.
+ * <p>
+ * The live segments are attached to a {@link CollectionStatistics} that they keep up to date as rows are appended,
+ * deleted and indexed; a merge detaches its sources and attaches itself in the swap.
+ */
+final class LocalCollection {
+    static final String DEFAULT_PARTITION = "_default";
+    private static final int MERGE_INDEX_BATCH = 4096;
+
+    private final String name;
+    private final CollectionSchema schema;
+    private final List<FieldType> fields;
+    private final int primaryField;
+    private final int segmentMaxRows;
+    private final Executor indexBuilders;
+    private final AtomicLong nextSegmentId = new AtomicLong();
+    private final AtomicLong nextAutoId = new AtomicLong();
+    // replaced under indexLock, never modified, so readers iterate a consistent snapshot
+    private volatile List<Segment> sealed = Collections.emptyList();
+    private final Map<String, CreateIndexParam> indexes = new ConcurrentHashMap<>();
+    private final AtomicReference<Segment> growing = new AtomicReference<>();
+    private final AtomicInteger sealing = new AtomicInteger();
+    private final Object indexLock = new Object();
+    private final CollectionStore store;
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private volatile long checkpoint;
+    // guarded by indexLock
+    private boolean loaded;
+    private volatile ReplicaGroup replicas;
+    // orders manifest writes; taken before indexLock
+    private final Object manifestLock = new Object();
+    // guarded by manifestLock: the segments the manifest names, and whether the collection has been dropped
+    private List<Long> manifestSegments = Collections.emptyList();
+    private boolean dropped;
+    private final Object compactionLock = new Object();
+    private final AtomicLong insertedRows = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong compactedSegments = new AtomicLong();
+    private final AtomicLong compactedRows = new AtomicLong();
+    private final AtomicLong purgedRows = new AtomicLong();
+    private final AtomicLong compactedBytes = new AtomicLong();
+    private final AtomicLong compactionFailures = new AtomicLong();
+    // the last failed index build of each field, until a later build of the field succeeds
+    private final Map<String, String> indexFailures = new ConcurrentHashMap<>();
+    private final CollectionStatistics statistics;
+    private final FilterCache filters;
+
+    /**
+     * Creates an empty collection, kept in memory only if <code>store</code> is <code>null</code>.
+     */
+    LocalCollection(String name, CollectionSchema schema, int segmentMaxRows, Executor indexBuilders,
+                    CollectionStore store) {
+        this.name = name;
+        this.schema = schema;
+        this.fields = schema.getFieldTypes();
+        this.segmentMaxRows = segmentMaxRows;
+        this.indexBuilders = indexBuilders;
+        this.store = store;
+        this.primaryField = validate(schema);
+        this.statistics = new CollectionStatistics(fields.size());
+        this.filters = new FilterCache(fields);
+    }
+
+    /**
+     * Reopens a persisted collection from its manifest, released. Segment files are opened without mapping them;
+     * the declared indexes are reopened from their index files on load, or rebuilt in the background.
+     *
+     * @return {@link LocalCollection}
+     * @throws IOException if the manifest or a segment file cannot be read.
+     */
+    static LocalCollection restore(CollectionStore store, int segmentMaxRows, Executor indexBuilders)
+            throws IOException {
+        CollectionStore.Manifest manifest = store.readManifest();
+        LocalCollection collection = new LocalCollection(manifest.name, manifest.schema, segmentMaxRows,
+                indexBuilders, store);
+        store.deleteOrphans(new HashSet<>(manifest.segments));
+        for (long id : manifest.segments) {
+            Segment segment = Segment.open(id, collection.fields, store.segmentFile(id));
+            segment.setDeleted(manifest.deleted.get(id));
+            segment.attach(collection.statistics);
+            collection.sealed = append(collection.sealed, segment);
+        }
+        collection.manifestSegments = new ArrayList<>(manifest.segments);
+        collection.nextSegmentId.set(manifest.nextSegmentId);
+        collection.nextAutoId.set(manifest.nextAutoId);
+        collection.checkpoint = manifest.checkpoint;
+        for (CreateIndexParam param : manifest.indexes) {
+            collection.indexes.put(param.getFieldName(), param);
+            for (Segment segment : collection.sealed) {
+                collection.scheduleBuild(segment, param, null, null);
+            }
+        }
+        return collection;
+    }
+
+    private static List<Segment> append(List<Segment> segments, Segment segment) {
+        List<Segment> next = new ArrayList<>(segments.size() + 1);
+        next.addAll(segments);
+        next.add(segment);
+        return Collections.unmodifiableList(next);
+    }
+
+    private static int validate(CollectionSchema schema) {
+        int primary = -1;
+        List<FieldType> fields = schema.getFieldTypes();
+        Map<String, FieldType> names = new HashMap<>();
+        for (int f = 0; f < fields.size(); f++) {
+            FieldType field = fields.get(f);
+            if (field.getName() == null || field.getDataType() == null) {
+                throw new IllegalArgumentException("Every field needs a name and a data type");
+            }
+            if (names.put(field.getName(), field) != null) {
+                throw new IllegalArgumentException("Duplicate field name: " + field.getName());
+            }
+            if (isVector(field.getDataType()) && field.getDimension() <= 0) {
+                throw new IllegalArgumentException("Vector field " + field.getName() + " needs a positive dimension");
+            }
+            if (field.getDataType() == DataType.BINARY_VECTOR && field.getDimension() % 8 != 0) {
+                throw new IllegalArgumentException("Dimension of binary vector field " + field.getName()
+                        + " must be a multiple of 8");
+            }
+            if (field.isPrimaryKey()) {
+                if (primary >= 0) {
+                    throw new IllegalArgumentException("A collection has only one primary key");
+                }
+                if (field.getDataType() != DataType.INT64 && field.getDataType() != DataType.VARCHAR) {
+                    throw new IllegalArgumentException("Primary key must be INT64 or VARCHAR, got: "
+                            + field.getDataType());
+                }
+                if (field.isAutoID() && field.getDataType() != DataType.INT64) {
+                    throw new IllegalArgumentException("Only INT64 primary keys can be generated");
+                }
+                primary = f;
+            }
+        }
+        if (primary < 0) {
+            throw new IllegalArgumentException("The schema has no primary key field");
+        }
+        return primary;
+    }
+
+    static boolean isVector(DataType dataType) {
+        return dataType == DataType.FLOAT_VECTOR || dataType == DataType.BINARY_VECTOR;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    List<FieldType> getFields() {
+        return fields;
+    }
+
+    int primaryField() {
+        return primaryField;
+    }
+
+    /**
+     * Returns the lock that orders logged writes against checkpoints: inserts hold the read lock while they log
+     * and append rows, a flush holds the write lock while it logs, seals and records its checkpoint. A delete holds
+     * the write lock as well, so it applies to exactly the rows inserted before its log record.
+     *
+     * @return {@link ReadWriteLock}
+     */
+    ReadWriteLock checkpointLock() {
+        return checkpointLock;
+    }
+
+    /**
+     * Returns the LSN up to which the write-ahead log records of this collection are reflected by its manifest.
+     *
+     * @return <code>long</code>
+     */
+    long getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Persists the sealed segments that are not yet, then writes a manifest naming all of them as of a log
+     * position. Has no effect on a collection kept in memory.
+     *
+     * @throws IOException if a segment or the manifest cannot be written.
+     */
+    void checkpoint(long lsn) throws IOException {
+        checkpoint(lsn, Collections.emptyList());
+    }
+
+    /**
+     * Checkpoints as {@link #checkpoint(long)} does, with imported segments written by
+     * {@link #writeImported(int, Segment.RegionWriter)} added to the sealed ones. The manifest names them before
+     * they become visible, so an import shows all of its rows or none of them, also after a restart.
+     *
+     * @throws IOException if a segment or the manifest cannot be written, in which case nothing is imported.
+     * @throws IllegalStateException if the collection has been dropped.
+     */
+    void checkpoint(long lsn, List<Segment> imported) throws IOException {
+        if (store == null) {
+            return;
+        }
+        synchronized (manifestLock) {
+            if (dropped) {
+                if (!imported.isEmpty()) {
+                    throw new IllegalStateException("Collection " + name + " has been dropped");
+                }
+                return;
+            }
+            List<Segment> segments;
+            synchronized (indexLock) {
+                segments = sealed;
+                for (Segment segment : segments) {
+                    if (!segment.isPersisted()) {
+                        segment.persist(store.segmentFile(segment.getId()));
+                        if (!loaded) {
+                            segment.release();
+                        }
+                    }
+                }
+            }
+            List<Segment> named = new ArrayList<>(segments);
+            named.addAll(imported);
+            writeManifest(lsn, named);
+            checkpoint = lsn;
+            if (imported.isEmpty()) {
+                return;
+            }
+            synchronized (indexLock) {
+                for (Segment segment : imported) {
+                    if (loaded) {
+                        segment.load();
+                    }
+                    segment.attach(statistics);
+                    insertedRows.addAndGet(segment.getRowCount());
+                    sealed = append(sealed, segment);
+                    for (CreateIndexParam param : indexes.values()) {
+                        scheduleBuild(segment, param, null, null);
+                    }
+                }
+            }
+        }
+    }
+
+    boolean isPersisted() {
+        return store != null;
+    }
+
+    int getSegmentMaxRows() {
+        return segmentMaxRows;
+    }
+
+    /**
+     * Writes imported rows to the file of a new sealed segment, which stays out of the collection until a
+     * {@link #checkpoint(long, List)} adds it. Generated primary keys are assigned here; every other field is
+     * written by <code>source</code>.
+     *
+     * @return the segment, released.
+     * @throws IOException if the file cannot be written, in which case it is deleted.
+     */
+    Segment writeImported(int rows, Segment.RegionWriter source) throws IOException {
+        long id = nextSegmentId.incrementAndGet();
+        boolean generated = fields.get(primaryField).isAutoID();
+        long first = generated ? nextAutoId.getAndAdd(rows) : 0L;
+        Path file = store.segmentFile(id);
+        try {
+            return Segment.write(id, fields, file, rows, (f, channel, position) -> f == primaryField && generated
+                    ? writeIds(channel, position, first, rows) : source.write(f, channel, position));
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static long writeIds(FileChannel channel, long position, long first, int rows) throws IOException {
+        ByteBuffer ids = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < rows; i++) {
+            ids.putLong(first + i);
+            if (!ids.hasRemaining() || i == rows - 1) {
+                ids.flip();
+                while (ids.hasRemaining()) {
+                    position += channel.write(ids, position);
+                }
+                ids.clear();
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Deletes the file of an imported segment that was not added.
+     *
+     * @throws IOException if the file cannot be deleted.
+     */
+    void discardImported(Segment segment) throws IOException {
+        store.deleteSegment(segment.getId());
+    }
+
+    /**
+     * Writes a manifest naming persisted segments with their deleted rows. The caller holds the manifest lock.
+     * Deletes logged after <code>lsn</code> may already show in the deleted rows; replaying them again finds
+     * nothing left to delete.
+     */
+    private void writeManifest(long lsn, List<Segment> segments) throws IOException {
+        CollectionStore.Manifest manifest = new CollectionStore.Manifest();
+        manifest.name = name;
+        manifest.schema = schema;
+        manifest.checkpoint = lsn;
+        for (Segment segment : segments) {
+            manifest.segments.add(segment.getId());
+            RowBitmap deleted = segment.getDeleted();
+            if (deleted != null) {
+                manifest.deleted.put(segment.getId(), deleted);
+            }
+        }
+        manifest.indexes.addAll(indexes.values());
+        manifest.nextSegmentId = nextSegmentId.get();
+        manifest.nextAutoId = nextAutoId.get();
+        store.writeManifest(manifest);
+        manifestSegments = new ArrayList<>(manifest.segments);
+    }
+
+    /**
+     * Maps the sealed segments, reopens their index files and starts the search replicas, then optionally reads
+     * the mappings into physical memory on the index builders. Loading a loaded collection again only warms it up,
+     * unless the number of replicas changes: new replicas then take over and the old ones finish their queues.
+     *
+     * @param searchThreads The number of search threads, split among the replicas.
+     * @return a task counting the warmed-up rows, completed at once without warm-up.
+     * @throws IOException if a segment cannot be mapped.
+     */
+    Task load(long taskId, boolean warmUp, int numReplicas, int searchThreads) throws IOException {
+        List<Segment> targets;
+        synchronized (indexLock) {
+            targets = new ArrayList<>(sealed);
+            for (Segment segment : targets) {
+                segment.load();
+            }
+            loaded = true;
+            ReplicaGroup previous = replicas;
+            if (previous == null || previous.size() != numReplicas) {
+                replicas = new ReplicaGroup(name, numReplicas, searchThreads);
+                if (previous != null) {
+                    previous.shutdown();
+                }
+            }
+        }
+        long total = 0L;
+        for (Segment segment : targets) {
+            total += segment.getRowCount();
+        }
+        Task task = new Task(taskId, total);
+        if (!warmUp || targets.isEmpty()) {
+            task.advance(total);
+            task.complete();
+            return task;
+        }
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        for (Segment segment : targets) {
+            indexBuilders.execute(() -> {
+                if (segment.pin()) {
+                    try {
+                        segment.warmUp();
+                    } finally {
+                        segment.unpin();
+                    }
+                }
+                task.advance(segment.getRowCount());
+                if (remaining.decrementAndGet() == 0) {
+                    task.complete();
+                }
+            });
+        }
+        return task;
+    }
+
+    /**
+     * Stops the search replicas and unmaps the persisted sealed segments once their readers are done. Segments
+     * sealed while the collection is released are unmapped as soon as they are persisted.
+     */
+    void release() {
+        synchronized (indexLock) {
+            loaded = false;
+            if (replicas != null) {
+                replicas.shutdown();
+                replicas = null;
+            }
+            for (Segment segment : sealed) {
+                segment.release();
+            }
+        }
+    }
+
+    /**
+     * Releases the collection and deletes its files.
+     *
+     * @throws IOException if a file cannot be deleted.
+     */
+    void drop() throws IOException {
+        synchronized (manifestLock) {
+            dropped = true;
+            release();
+            if (store != null) {
+                store.delete();
+            }
+        }
+    }
+
+    /**
+     * Searches a vector field on the least busy replica. Every segment is searched through its index or by a scan
+     * of its column, and the per-segment results are merged into the global nearest entities. A filter expression
+     * is evaluated once per segment into the rows it rejects, which every query skips along with the deleted ones.
+     *
+     * @throws IllegalStateException if the collection is not loaded.
+     * @throws InterruptedException if interrupted while waiting for the replica.
+     */
+    SearchResponse search(SearchParam param) throws InterruptedException {
+        ReplicaGroup group = replicas;
+        if (group == null) {
+            throw new IllegalStateException("Collection " + name + " is not loaded");
+        }
+        int f = fieldIndex(param.getVectorFieldName());
+        FieldType field = fields.get(f);
+        if (!isVector(field.getDataType())) {
+            throw new IllegalArgumentException("Field " + field.getName() + " is not a vector field");
+        }
+        MetricType metricType = param.getMetricType();
+        if (metricType == null) {
+            CreateIndexParam index = indexes.get(field.getName());
+            if (index == null) {
+                throw new IllegalArgumentException("Metric type is required to search a field without an index");
+            }
+            metricType = index.getMetricType();
+        }
+        if (field.getDataType() == DataType.FLOAT_VECTOR) {
+            Distances.checkFloatMetric(metricType);
+        } else {
+            BinaryDistances.checkBinaryMetric(metricType);
+        }
+        List<Object> queries = new ArrayList<>(param.getVectors().size());
+        for (Object vector : param.getVectors()) {
+            queries.add(convertValue(field, vector));
+        }
+        IndexParams searchParams = IndexParams.of(param.getParams());
+        MetricType metric = metricType;
+        String expr = param.getExpr();
+        FilterPlan plan = expr == null || expr.trim().isEmpty() ? null : filters.get(expr);
+        while (true) {
+            try {
+                return group.call(() -> search(f, queries, metric, param.getTopK(), searchParams, plan));
+            } catch (IllegalStateException e) {
+                // a reload with another number of replicas shut down the group this search was routed to
+                ReplicaGroup current = replicas;
+                if (current == null || current == group) {
+                    throw e;
+                }
+                group = current;
+            }
+        }
+    }
+
+    private SearchResponse search(int field, List<Object> queries, MetricType metricType, int topK,
+                                  IndexParams searchParams, FilterPlan plan) {
+        List<Segment> segments = pinSegments();
+        try {
+            // a filter is evaluated once per segment, for every query
+            int[] filtered = new int[segments.size()];
+            RowBitmap[] masks = new RowBitmap[segments.size()];
+            if (plan != null) {
+                for (int s = 0; s < masks.length; s++) {
+                    filtered[s] = segments.get(s).getRowCount();
+                    masks[s] = segments.get(s).filter(plan, filtered[s], true);
+                }
+            }
+            List<List<?>> ids = new ArrayList<>(queries.size());
+            List<float[]> scores = new ArrayList<>(queries.size());
+            for (Object query : queries) {
+                SearchResult[] results = new SearchResult[segments.size()];
+                int candidates = 0;
+                for (int s = 0; s < results.length; s++) {
+                    results[s] = plan == null
+                            ? segments.get(s).search(field, query, metricType, topK, searchParams)
+                            : segments.get(s).search(field, query, metricType, topK, searchParams, filtered[s],
+                            masks[s]);
+                    candidates += results[s].size();
+                }
+                // map every candidate back to its segment and row; toScore turns scores back into distances
+                int[] owners = new int[candidates];
+                int[] rows = new int[candidates];
+                TopKHeap heap = new TopKHeap(Math.max(1, Math.min(topK, candidates)));
+                int c = 0;
+                for (int s = 0; s < results.length; s++) {
+                    for (int i = 0; i < results[s].size(); i++) {
+                        owners[c] = s;
+                        rows[c] = results[s].getIds()[i];
+                        heap.offer(c++, Distances.toScore(metricType, results[s].getDistances()[i]));
+                    }
+                }
+                SearchResult merged = heap.toResult(metricType);
+                List<Object> keys = new ArrayList<>(merged.size());
+                for (int id : merged.getIds()) {
+                    keys.add(segments.get(owners[id]).get(primaryField, rows[id]));
+                }
+                ids.add(keys);
+                scores.add(merged.getDistances());
+            }
+            return new SearchResponse(ids, scores);
+        } finally {
+            for (Segment segment : segments) {
+                segment.unpin();
+            }
+        }
+    }
+
+    /**
+     * Pins the growing segment and the sealed ones. A segment a compaction has just replaced may already be
+     * released, in which case the snapshot is taken again.
+     */
+    private List<Segment> pinSegments() {
+        while (true) {
+            // take the growing segment first: once sealed, it shows up in the sealed list as well
+            List<Segment> segments = new ArrayList<>();
+            Segment current = growing.get();
+            if (current != null) {
+                segments.add(current);
+            }
+            for (Segment segment : sealed) {
+                if (segment != current) {
+                    segments.add(segment);
+                }
+            }
+            int pinned = 0;
+            while (pinned < segments.size() && segments.get(pinned).pin()) {
+                pinned++;
+            }
+            if (pinned == segments.size()) {
+                return segments;
+            }
+            for (int s = 0; s < pinned; s++) {
+                segments.get(s).unpin();
+            }
+            if (replicas == null) {
+                throw new IllegalStateException("Collection " + name + " has been released");
+            }
+        }
+    }
+
+    /**
+     * Resolves the primary keys a delete request names, either as a list or as a filter expression. An expression
+     * that only lists primary keys, like <code>pk in [1, 2]</code>, is taken as is; any other expression selects
+     * the live entities it matches in every segment. The caller holds the write lock of {@link #checkpointLock()},
+     * so that no row is appended between matching the expression and deleting the keys.
+     *
+     * @return the distinct keys, as <code>Long</code> or <code>String</code> values.
+     */
+    Set<Object> deleteKeys(DeleteParam param) {
+        String partition = param.getPartitionName();
+        checkPartition(partition);
+        FieldType primary = fields.get(primaryField);
+        Set<Object> keys = new LinkedHashSet<>();
+        if (param.getPrimaryKeys() != null && !param.getPrimaryKeys().isEmpty()) {
+            if (primary.getDataType() != DataType.INT64) {
+                throw new IllegalArgumentException("Primary key " + primary.getName() + " is not an INT64 field");
+            }
+            for (Integer key : param.getPrimaryKeys()) {
+                if (key == null) {
+                    throw new IllegalArgumentException("Primary keys must not be null");
+                }
+                keys.add(key.longValue());
+            }
+            return keys;
+        }
+        FilterPlan plan = filters.get(param.getExpr());
+        Set<Object> listed = plan.getKeys(primaryField);
+        if (listed != null) {
+            keys.addAll(listed);
+            return keys;
+        }
+        List<Segment> segments = new ArrayList<>(sealed);
+        Segment current = growing.get();
+        if (current != null && !segments.contains(current)) {
+            segments.add(current);
+        }
+        for (Segment segment : segments) {
+            keys.addAll(segment.filterValues(plan, primaryField));
+        }
+        return keys;
+    }
+
+    /**
+     * Checks that a partition name is empty or names the <code>_default</code> partition, the only one.
+     */
+    void checkPartition(String partition) {
+        if (partition != null && !partition.isEmpty() && !DEFAULT_PARTITION.equals(partition)) {
+            throw new IllegalArgumentException("Collection " + name + " has no partition " + partition);
+        }
+    }
+
+    /**
+     * Marks the rows holding any of the primary keys as deleted in every segment, the growing one included. The
+     * caller holds the write lock of {@link #checkpointLock()}, so no segment is sealed meanwhile.
+     *
+     * @return the number of deleted rows.
+     */
+    long delete(Collection<?> keys) {
+        if (keys.isEmpty()) {
+            return 0L;
+        }
+        Set<?> lookup = keys instanceof Set ? (Set<?>) keys : new HashSet<>(keys);
+        List<Segment> segments = new ArrayList<>(sealed);
+        Segment current = growing.get();
+        if (current != null && !segments.contains(current)) {
+            segments.add(current);
+        }
+        long deleted = 0L;
+        for (Segment segment : segments) {
+            int[] rows = segment.findRows(primaryField, lookup);
+            deleted += segment.delete(rows, rows.length);
+        }
+        return deleted;
+    }
+
+    boolean hasIndex(String fieldName) {
+        return indexes.containsKey(fieldName);
+    }
+
+    /**
+     * Checks an insert batch against the schema and converts it to one list per field in schema order, with
+     * vectors as <code>float[]</code> or packed <code>long[]</code> rows and generated primary keys filled in.
+     */
+    List<List<?>> prepare(InsertParam param) {
+        return columns(param.getFields());
+    }
+
+    /**
+     * Appends prepared rows. Concurrent inserters append to the same growing segment without locking; whichever of
+     * them finds it full swaps in a new one and seals the old.
+     *
+     * @return the number of inserted rows.
+     */
+    long insert(List<List<?>> values) {
+        int rows = values.get(primaryField).size();
+        int done = 0;
+        while (done < rows) {
+            Segment segment = growing();
+            int appended = segment.append(values, done, rows - done);
+            insertedRows.addAndGet(appended);
+            done += appended;
+            if (segment.isFull()) {
+                retire(segment);
+            }
+        }
+        return rows;
+    }
+
+    private Segment growing() {
+        while (true) {
+            Segment segment = growing.get();
+            if (segment != null) {
+                return segment;
+            }
+            segment = new Segment(nextSegmentId.incrementAndGet(), fields, segmentMaxRows);
+            segment.attach(statistics);
+            if (growing.compareAndSet(null, segment)) {
+                return segment;
+            }
+        }
+    }
+
+    /**
+     * Seals the growing segment, if it holds any rows, and waits for the seals started by inserters.
+     */
+    void flush() {
+        Segment segment = growing.get();
+        if (segment != null) {
+            retire(segment);
+        }
+        while (sealing.get() > 0) {
+            LockSupport.parkNanos(100_000L);
+        }
+    }
+
+    /**
+     * Writes the rows of the sealed segments that are not deleted to an Arrow IPC file, one record batch per
+     * segment. Compaction waits meanwhile, so that no segment is deleted while it is read; released segments are
+     * mapped one at a time.
+     *
+     * @return the number of rows written.
+     * @throws IOException if the file cannot be written, in which case it is deleted.
+     */
+    long exportArrow(Path file) throws IOException {
+        synchronized (compactionLock) {
+            List<Segment> segments = sealed;
+            boolean[] largeStrings = new boolean[fields.size()];
+            for (int f = 0; f < fields.size(); f++) {
+                for (Segment segment : segments) {
+                    // the end offsets take 8 bytes a row besides the bytes
+                    largeStrings[f] |= fields.get(f).getDataType() == DataType.VARCHAR
+                            && segment.getFieldBytes(f) - 8L * segment.getRowCount() > Integer.MAX_VALUE;
+                }
+            }
+            try (ArrowWriter writer = new ArrowWriter(file, fields, largeStrings)) {
+                long rows = 0L;
+                for (Segment segment : segments) {
+                    RowBitmap deleted = segment.getDeleted();
+                    rows += segment.readColumns(columns -> writer.writeBatch(columns, segment.getRowCount(), deleted));
+                }
+                writer.finish();
+                return rows;
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+    }
+
+    private void retire(Segment segment) {
+        sealing.incrementAndGet();
+        try {
+            if (!growing.compareAndSet(segment, null)) {
+                return;
+            }
+            segment.seal();
+            if (segment.getRowCount() == 0) {
+                return;
+            }
+            IOException failure = null;
+            if (store != null) {
+                try {
+                    segment.persist(store.segmentFile(segment.getId()));
+                } catch (IOException e) {
+                    // keep the rows in memory; the next checkpoint tries again
+                    failure = e;
+                }
+            }
+            synchronized (indexLock) {
+                sealed = append(sealed, segment);
+                if (!loaded) {
+                    segment.release();
+                }
+                for (CreateIndexParam param : indexes.values()) {
+                    scheduleBuild(segment, param, null, null);
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+        } finally {
+            sealing.decrementAndGet();
+        }
+    }
+
+    /**
+     * Merges the sealed segments worth it, one group at a time: segments holding fewer than half of
+     * <code>segmentMaxRows</code> live rows are packed together in ID order up to <code>segmentMaxRows</code> rows,
+     * and a segment with at least <code>deleteRatio</code> of its rows deleted is rewritten even alone. Only
+     * segments the manifest names are merged, since the others still depend on the write-ahead log.
+     *
+     * @return the number of merges swapped in.
+     * @throws IOException if a merged segment cannot be written, in which case its sources stay in place.
+     */
+    int compact(double deleteRatio, CompactionBudget budget) throws IOException {
+        synchronized (compactionLock) {
+            int merges = 0;
+            for (List<Segment> group : planCompaction(deleteRatio)) {
+                try {
+                    if (compact(group, budget)) {
+                        merges++;
+                    }
+                } catch (IOException | RuntimeException e) {
+                    compactionFailures.incrementAndGet();
+                    throw e;
+                }
+            }
+            return merges;
+        }
+    }
+
+    private List<List<Segment>> planCompaction(double deleteRatio) {
+        List<Segment> candidates = new ArrayList<>();
+        synchronized (manifestLock) {
+            if (dropped) {
+                return Collections.emptyList();
+            }
+            for (Segment segment : sealed) {
+                int rows = segment.getRowCount();
+                int live = rows - segment.getDeletedCount();
+                boolean covered = store == null || manifestSegments.contains(segment.getId());
+                if (covered && (live < segmentMaxRows / 2 || isDeleteHeavy(segment, deleteRatio))) {
+                    candidates.add(segment);
+                }
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+        List<List<Segment>> groups = new ArrayList<>();
+        List<Segment> group = new ArrayList<>();
+        long live = 0L;
+        for (Segment segment : candidates) {
+            int rows = segment.getRowCount() - segment.getDeletedCount();
+            if (!group.isEmpty() && live + rows > segmentMaxRows) {
+                addGroup(groups, group, deleteRatio);
+                group = new ArrayList<>();
+                live = 0L;
+            }
+            group.add(segment);
+            live += rows;
+        }
+        addGroup(groups, group, deleteRatio);
+        return groups;
+    }
+
+    private static void addGroup(List<List<Segment>> groups, List<Segment> group, double deleteRatio) {
+        if (group.size() > 1 || (group.size() == 1 && isDeleteHeavy(group.get(0), deleteRatio))) {
+            groups.add(group);
+        }
+    }
+
+    private static boolean isDeleteHeavy(Segment segment, double deleteRatio) {
+        int deleted = segment.getDeletedCount();
+        return deleted > 0 && deleted >= deleteRatio * segment.getRowCount();
+    }
+
+    /**
+     * Writes and indexes the merge of a group of segments, then swaps it in unless the group changed meanwhile.
+     */
+    private boolean compact(List<Segment> sources, CompactionBudget budget) throws IOException {
+        RowBitmap[] purged = new RowBitmap[sources.size()];
+        for (int s = 0; s < purged.length; s++) {
+            purged[s] = sources.get(s).getDeleted();
+        }
+        int[][] rowMaps = new int[sources.size()][];
+        Segment merged = Segment.merge(nextSegmentId.incrementAndGet(), fields, sources, purged, rowMaps, budget);
+        boolean swapped = false;
+        try {
+            if (merged.getRowCount() > 0) {
+                if (store != null) {
+                    merged.persist(store.segmentFile(merged.getId()));
+                }
+                for (CreateIndexParam param : indexes.values()) {
+                    buildMergedIndex(merged, param, budget);
+                }
+            }
+            // keep deletes and checkpoints out while inserts go on
+            Lock lock = checkpointLock.readLock();
+            lock.lock();
+            try {
+                synchronized (manifestLock) {
+                    swapped = swap(sources, merged, purged, rowMaps);
+                    if (swapped && store != null) {
+                        List<Segment> named = new ArrayList<>();
+                        for (Segment segment : sealed) {
+                            if (segment == merged || manifestSegments.contains(segment.getId())) {
+                                named.add(segment);
+                            }
+                        }
+                        // should this fail, the sources keep their files until a checkpoint names the merge
+                        writeManifest(checkpoint, named);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            if (!swapped && store != null && merged.isPersisted()) {
+                merged.release();
+                store.deleteSegment(merged.getId());
+            }
+        }
+        if (!swapped) {
+            return false;
+        }
+        long purgedRows = 0L;
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            purgedRows += purged[s] == null ? 0 : purged[s].cardinality();
+            // waits for the searches that pinned the source before the swap
+            source.release();
+            if (store != null) {
+                store.deleteSegment(source.getId());
+            }
+        }
+        compactions.incrementAndGet();
+        compactedSegments.addAndGet(sources.size());
+        compactedRows.addAndGet(merged.getRowCount());
+        this.purgedRows.addAndGet(purgedRows);
+        if (store != null && merged.getRowCount() > 0) {
+            compactedBytes.addAndGet(Files.size(store.segmentFile(merged.getId())));
+        }
+        return true;
+    }
+
+    /**
+     * Builds an index of a merged segment on the compaction thread. HNSW graphs grow by batches of rows so the
+     * budget paces the build; other indexes are built in one go.
+     */
+    private void buildMergedIndex(Segment merged, CreateIndexParam param, CompactionBudget budget)
+            throws IOException {
+        int f = fieldIndex(param.getFieldName());
+        FieldType field = fields.get(f);
+        Path file = indexFile(merged, f, param.getIndexType());
+        long start = System.nanoTime();
+        if (!isVector(field.getDataType())) {
+            merged.putIndex(param.getFieldName(), merged.buildScalarIndex(f, param.getIndexType()));
+            budget.charge(0L, System.nanoTime() - start);
+            return;
+        }
+        if (file != null) {
+            VectorIndex index = buildFile(merged, f, param, file);
+            merged.putIndex(param.getFieldName(), index, () -> openIndex(param.getIndexType(), file));
+            budget.charge(0L, System.nanoTime() - start);
+            return;
+        }
+        VectorIndex index = newIndex(field, param);
+        if (!(index instanceof HnswIndex)) {
+            index = build(merged, param);
+            budget.charge(0L, System.nanoTime() - start);
+            merged.putIndex(param.getFieldName(), index);
+            return;
+        }
+        HnswIndex graph = (HnswIndex) index;
+        float[] vectors = merged.floatVectors(f);
+        int rows = merged.getRowCount();
+        int dim = field.getDimension();
+        for (int from = 0; from < rows; from += MERGE_INDEX_BATCH) {
+            int n = Math.min(MERGE_INDEX_BATCH, rows - from);
+            long batchStart = System.nanoTime();
+            graph.addAll(Arrays.copyOfRange(vectors, from * dim, (from + n) * dim), n);
+            budget.charge(0L, System.nanoTime() - batchStart);
+        }
+        merged.putIndex(param.getFieldName(), graph);
+    }
+
+    /**
+     * Replaces the sources by the merged segment in the sealed list, carrying over to the merged rows the deletes
+     * that reached the sources during the merge. The caller holds the read lock of {@link #checkpointLock()} and
+     * the manifest lock, so no delete runs meanwhile.
+     *
+     * @return <code>false</code> if a source is gone or the collection was dropped, leaving everything as it was.
+     */
+    private boolean swap(List<Segment> sources, Segment merged, RowBitmap[] purged, int[][] rowMaps) {
+        synchronized (indexLock) {
+            if (dropped || !sealed.containsAll(sources)) {
+                return false;
+            }
+            carryOverDeletes(sources, merged, purged, rowMaps);
+            for (Segment source : sources) {
+                source.detach();
+            }
+            if (merged.getRowCount() > 0) {
+                merged.attach(statistics);
+            }
+            List<Segment> next = new ArrayList<>();
+            boolean placed = false;
+            for (Segment segment : sealed) {
+                if (!sources.contains(segment)) {
+                    next.add(segment);
+                } else if (!placed) {
+                    placed = true;
+                    if (merged.getRowCount() > 0) {
+                        next.add(merged);
+                    }
+                }
+            }
+            sealed = Collections.unmodifiableList(next);
+            if (merged.getRowCount() > 0) {
+                if (!loaded) {
+                    merged.release();
+                }
+                // indexes declared while the merge ran
+                for (CreateIndexParam param : indexes.values()) {
+                    if (!merged.hasIndex(param.getFieldName())) {
+                        scheduleBuild(merged, param, null, null);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static void carryOverDeletes(List<Segment> sources, Segment merged, RowBitmap[] purged,
+                                         int[][] rowMaps) {
+        for (int s = 0; s < sources.size(); s++) {
+            RowBitmap now = sources.get(s).getDeleted();
+            if (now == null || now == purged[s]) {
+                continue;
+            }
+            int[] rows = new int[16];
+            int n = 0;
+            for (int row = now.next(0); row >= 0; row = now.next(row + 1)) {
+                if ((purged[s] == null || !purged[s].contains(row)) && rowMaps[s][row] >= 0) {
+                    if (n == rows.length) {
+                        rows = Arrays.copyOf(rows, n * 2);
+                    }
+                    rows[n++] = rowMaps[s][row];
+                }
+            }
+            merged.delete(rows, n);
+        }
+    }
+
+    /**
+     * Returns the compaction counters.
+     *
+     * @return {@link CompactionMetrics}
+     */
+    CompactionMetrics compactionMetrics() {
+        return new CompactionMetrics(compactions.get(), compactedSegments.get(), compactedRows.get(),
+                purgedRows.get(), compactedBytes.get(), insertedRows.get(), compactionFailures.get(), sealed.size());
+    }
+
+    /**
+     * Returns the statistics of the collection from its running totals, without visiting any segment.
+     *
+     * @return {@link GetCollectionStatisticsResponse}
+     */
+    GetCollectionStatisticsResponse statistics() {
+        Map<String, Long> fieldBytes = new LinkedHashMap<>();
+        Map<String, Long> indexedRows = new LinkedHashMap<>();
+        long deleted = collectStatistics(fieldBytes, indexedRows);
+        return new GetCollectionStatisticsResponse(Math.max(0L, statistics.getRowCount() - deleted), deleted,
+                fieldBytes, indexedRows, new LinkedHashMap<>(indexFailures));
+    }
+
+    /**
+     * Returns the statistics of a partition. Every row is in the <code>_default</code> partition, the only one.
+     *
+     * @return {@link GetPartitionStatisticsResponse}
+     */
+    GetPartitionStatisticsResponse partitionStatistics(String partition) {
+        checkPartition(partition);
+        Map<String, Long> fieldBytes = new LinkedHashMap<>();
+        Map<String, Long> indexedRows = new LinkedHashMap<>();
+        long deleted = collectStatistics(fieldBytes, indexedRows);
+        return new GetPartitionStatisticsResponse(Math.max(0L, statistics.getRowCount() - deleted), deleted,
+                fieldBytes, indexedRows);
+    }
+
+    /**
+     * Fills in the bytes of every field and the indexed rows of every indexed field.
+     *
+     * @return the number of deleted rows.
+     */
+    private long collectStatistics(Map<String, Long> fieldBytes, Map<String, Long> indexedRows) {
+        long deleted = statistics.getDeletedCount();
+        for (int f = 0; f < fields.size(); f++) {
+            String fieldName = fields.get(f).getName();
+            fieldBytes.put(fieldName, statistics.getFieldBytes(f));
+            if (indexes.containsKey(fieldName)) {
+                indexedRows.put(fieldName, statistics.getIndexedRows(f));
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Declares the index of a field and builds it on every sealed segment, several segments at a time. Segments
+     * sealed later are indexed when they are sealed. Vector fields take the indexes of {@link VectorIndexFactory};
+     * scalar fields take <code>STL_SORT</code>, <code>INVERTED</code>, <code>TRIE</code> for <code>VARCHAR</code>
+     * fields only, or <code>AUTOINDEX</code>, which picks one of the first two per segment, and need no metric type.
+     *
+     * @param log Logs the declaration once it is accepted and before any build starts, or <code>null</code> when
+     *            replaying the log. If it fails, the index is not declared.
+     * @return a task counting the indexed rows of the segments sealed so far.
+     */
+    Task createIndex(CreateIndexParam param, long taskId, IndexLog log) throws IOException {
+        int f = fieldIndex(param.getFieldName());
+        FieldType field = fields.get(f);
+        if (isVector(field.getDataType())) {
+            if (param.getIndexType() == null || param.getMetricType() == null) {
+                throw new IllegalArgumentException("Index type and metric type are required");
+            }
+            // fail fast on parameters the factory rejects
+            newIndex(field, param);
+        } else {
+            checkScalarIndex(field, param.getIndexType());
+        }
+
+        List<Segment> targets;
+        synchronized (indexLock) {
+            if (indexes.putIfAbsent(field.getName(), param) != null) {
+                throw new IllegalArgumentException("Field " + field.getName() + " already has an index");
+            }
+            if (log != null) {
+                // under indexLock, so that no segment sealed meanwhile starts a build of an unlogged index
+                try {
+                    log.append(param);
+                } catch (IOException | RuntimeException e) {
+                    indexes.remove(field.getName());
+                    throw e;
+                }
+            }
+            targets = new ArrayList<>(sealed);
+        }
+        long total = 0L;
+        for (Segment segment : targets) {
+            total += segment.getRowCount();
+        }
+        Task task = new Task(taskId, total);
+        if (targets.isEmpty()) {
+            task.complete();
+            return task;
+        }
+        AtomicInteger remaining = new AtomicInteger(targets.size());
+        for (Segment segment : targets) {
+            scheduleBuild(segment, param, task, remaining);
+        }
+        return task;
+    }
+
+    /**
+     * Writes the declaration of an index to the write-ahead log.
+     */
+    interface IndexLog {
+        void append(CreateIndexParam param) throws IOException;
+    }
+
+    private static void checkScalarIndex(FieldType field, IndexType indexType) {
+        switch (field.getDataType()) {
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+            case FLOAT:
+            case DOUBLE:
+            case VARCHAR:
+                break;
+            default:
+                throw new IllegalArgumentException("Field " + field.getName() + " is a " + field.getDataType()
+                        + " field, scalar indexes apply to integer, floating-point and VARCHAR fields");
+        }
+        if (indexType == IndexType.TRIE && field.getDataType() != DataType.VARCHAR) {
+            throw new IllegalArgumentException("Index type TRIE only applies to VARCHAR fields, field "
+                    + field.getName() + " is a " + field.getDataType() + " field");
+        }
+        if (indexType != IndexType.STL_SORT && indexType != IndexType.INVERTED && indexType != IndexType.TRIE
+                && indexType != IndexType.AUTOINDEX) {
+            throw new IllegalArgumentException("Index type of scalar field " + field.getName()
+                    + " must be STL_SORT, INVERTED, TRIE or AUTOINDEX, got: " + indexType);
+        }
+    }
+
+    private void scheduleBuild(Segment segment, CreateIndexParam param, Task task, AtomicInteger remaining) {
+        indexBuilders.execute(() -> {
+            try {
+                int f = fieldIndex(param.getFieldName());
+                Path file = indexFile(segment, f, param.getIndexType());
+                if (!isVector(fields.get(f).getDataType())) {
+                    segment.putIndex(param.getFieldName(), segment.buildScalarIndex(f, param.getIndexType()));
+                } else if (file == null) {
+                    segment.putIndex(param.getFieldName(), build(segment, param));
+                } else {
+                    VectorIndex index = buildFile(segment, f, param, file);
+                    segment.putIndex(param.getFieldName(), index, () -> openIndex(param.getIndexType(), file));
+                }
+                indexFailures.remove(param.getFieldName());
+                if (task != null) {
+                    task.advance(segment.getRowCount());
+                    if (remaining.decrementAndGet() == 0) {
+                        task.complete();
+                    }
+                }
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                // searches and filters of the segment scan it instead; the statistics report why
+                String reason = "Index build on segment " + segment.getId() + " failed: " + e;
+                indexFailures.put(param.getFieldName(), reason);
+                if (task != null) {
+                    task.fail(reason);
+                }
+            }
+        });
+    }
+
+    private VectorIndex build(Segment segment, CreateIndexParam param) {
+        int f = fieldIndex(param.getFieldName());
+        FieldType field = fields.get(f);
+        VectorIndex index = newIndex(field, param);
+        if (index instanceof FloatVectorIndex) {
+            ((FloatVectorIndex) index).build(segment.floatVectors(f), segment.getRowCount());
+        } else {
+            ((BinaryVectorIndex) index).build(segment.binaryVectors(f), segment.getRowCount());
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index file of a segment, or <code>null</code> for indexes that live on the heap.
+     */
+    private Path indexFile(Segment segment, int field, IndexType indexType) {
+        if (!segment.isPersisted() || (indexType != IndexType.ANNOY && indexType != IndexType.DISKANN)) {
+            return null;
+        }
+        return store.indexFile(segment.getId(), field, indexType);
+    }
+
+    /**
+     * Opens the index file of a segment, or builds it into a temporary file that is then renamed, so a crash
+     * never leaves a partial index file behind.
+     */
+    private VectorIndex buildFile(Segment segment, int f, CreateIndexParam param, Path file) throws IOException {
+        if (Files.exists(file)) {
+            return openIndex(param.getIndexType(), file);
+        }
+        FieldType field = fields.get(f);
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        if (param.getIndexType() == IndexType.DISKANN) {
+            new DiskAnnIndex(field.getDimension(), param.getMetricType(), IndexParams.of(param.getExtraParam()),
+                    temporary).build(segment.floatVectors(f), segment.getRowCount());
+        } else {
+            AnnoyIndex annoy = (AnnoyIndex) newIndex(field, param);
+            annoy.build(segment.floatVectors(f), segment.getRowCount());
+            annoy.save(temporary);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return openIndex(param.getIndexType(), file);
+    }
+
+    private static VectorIndex openIndex(IndexType indexType, Path file) throws IOException {
+        return indexType == IndexType.DISKANN ? DiskAnnIndex.open(file) : AnnoyIndex.open(file);
+    }
+
+    private static VectorIndex newIndex(FieldType field, CreateIndexParam param) {
+        if (field.getDataType() == DataType.FLOAT_VECTOR) {
+            return VectorIndexFactory.create(param, field.getDimension());
+        }
+        return VectorIndexFactory.createBinary(param, field.getDimension());
+    }
+
+    int fieldIndex(String fieldName) {
+        for (int f = 0; f < fields.size(); f++) {
+            if (fields.get(f).getName().equals(fieldName)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Collection " + name + " has no field " + fieldName);
+    }
+
+    /**
+     * Turns the buffers of a parsed import chunk into prepared rows, generating the primary keys if the schema
+     * asks for it.
+     */
+    List<List<?>> importColumns(ColumnBuffer[] buffers) {
+        int rows = -1;
+        for (ColumnBuffer buffer : buffers) {
+            if (buffer != null) {
+                rows = buffer.size();
+                break;
+            }
+        }
+        List<List<?>> columns = new ArrayList<>(buffers.length);
+        for (int f = 0; f < buffers.length; f++) {
+            if (buffers[f] != null) {
+                columns.add(buffers[f]);
+                continue;
+            }
+            long first = nextAutoId.getAndAdd(rows);
+            ColumnBuffer.Longs ids = new ColumnBuffer.Longs(rows);
+            for (int i = 0; i < rows; i++) {
+                ids.add(first + i);
+            }
+            columns.add(ids);
+        }
+        return columns;
+    }
+
+    /**
+     * Appends rows found in the write-ahead log, moving the primary key generator past their keys.
+     */
+    void replayInsert(List<List<?>> values) {
+        if (fields.get(primaryField).isAutoID()) {
+            long max = -1L;
+            for (Object key : values.get(primaryField)) {
+                max = Math.max(max, (Long) key);
+            }
+            nextAutoId.accumulateAndGet(max + 1, Math::max);
+        }
+        insert(values);
+    }
+
+    private List<List<?>> columns(List<InsertParam.Field> batch) {
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("No fields to insert");
+        }
+        Map<String, List<?>> given = new HashMap<>();
+        int rows = -1;
+        for (InsertParam.Field field : batch) {
+            fieldIndex(field.getName());
+            if (given.put(field.getName(), field.getValues()) != null) {
+                throw new IllegalArgumentException("Field " + field.getName() + " is given twice");
+            }
+            if (rows >= 0 && field.getValues().size() != rows) {
+                throw new IllegalArgumentException("Row count of field " + field.getName() + " is "
+                        + field.getValues().size() + ", expected " + rows);
+            }
+            rows = field.getValues().size();
+        }
+        if (rows == 0) {
+            throw new IllegalArgumentException("No rows to insert");
+        }
+        List<List<?>> columns = new ArrayList<>(fields.size());
+        for (FieldType field : fields) {
+            List<?> values = given.get(field.getName());
+            if (field.isPrimaryKey() && field.isAutoID()) {
+                if (values != null) {
+                    throw new IllegalArgumentException("Primary key " + field.getName() + " is generated");
+                }
+                long first = nextAutoId.getAndAdd(rows);
+                List<Long> ids = new ArrayList<>(rows);
+                for (int i = 0; i < rows; i++) {
+                    ids.add(first + i);
+                }
+                columns.add(ids);
+            } else if (values == null) {
+                throw new IllegalArgumentException("Missing field " + field.getName());
+            } else {
+                columns.add(convert(field, values));
+            }
+        }
+        return columns;
+    }
+
+    private static List<?> convert(FieldType field, List<?> values) {
+        List<Object> out = new ArrayList<>(values.size());
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Field " + field.getName() + " has a null value");
+            }
+            out.add(convertValue(field, value));
+        }
+        return out;
+    }
+
+    private static Object convertValue(FieldType field, Object value) {
+        switch (field.getDataType()) {
+            case FLOAT_VECTOR:
+                return floatVector(field, value);
+            case BINARY_VECTOR:
+                return binaryVector(field, value);
+            case BOOL:
+                if (value instanceof Boolean) {
+                    return value;
+                }
+                break;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                if (value instanceof Long || value instanceof Integer || value instanceof Short
+                        || value instanceof Byte) {
+                    return checkRange(field, ((Number) value).longValue());
+                }
+                break;
+            case FLOAT:
+            case DOUBLE:
+                if (value instanceof Number) {
+                    return ((Number) value).doubleValue();
+                }
+                break;
+            case VARCHAR:
+                if (value instanceof String) {
+                    int maxLength = VarcharColumn.maxChars(field);
+                    if (((String) value).length() > maxLength) {
+                        throw new IllegalArgumentException("Value of field " + field.getName()
+                                + " is longer than " + maxLength);
+                    }
+                    return value;
+                }
+                break;
+            default:
+                break;
+        }
+        throw new IllegalArgumentException("Field " + field.getName() + " of type " + field.getDataType()
+                + " does not accept " + value.getClass().getSimpleName() + " values");
+    }
+
+    /**
+     * Rejects an integer that the column of the field would narrow to another value.
+     */
+    private static long checkRange(FieldType field, long value) {
+        long limit;
+        switch (field.getDataType()) {
+            case INT8:
+                limit = Byte.MAX_VALUE;
+                break;
+            case INT16:
+                limit = Short.MAX_VALUE;
+                break;
+            case INT32:
+                limit = Integer.MAX_VALUE;
+                break;
+            default:
+                return value;
+        }
+        if (value > limit || value < -limit - 1) {
+            throw new IllegalArgumentException("Value " + value + " of field " + field.getName() + " is out of the "
+                    + field.getDataType() + " range [" + (-limit - 1) + ", " + limit + "]");
+        }
+        return value;
+    }
+
+    private static float[] floatVector(FieldType field, Object value) {
+        int dim = field.getDimension();
+        float[] vector;
+        if (value instanceof float[]) {
+            vector = ((float[]) value).clone();
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            vector = new float[list.size()];
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] = ((Number) list.get(i)).floatValue();
+            }
+        } else {
+            throw new IllegalArgumentException("Field " + field.getName() + " expects List<Float> vectors");
+        }
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Vector of field " + field.getName() + " has dimension "
+                    + vector.length + ", expected " + dim);
+        }
+        return vector;
+    }
+
+    /**
+     * Packs the bytes of a binary vector into little-endian words; the distances only need a consistent bit order.
+     */
+    private static long[] binaryVector(FieldType field, Object value) {
+        ByteBuffer bytes;
+        if (value instanceof ByteBuffer) {
+            bytes = ((ByteBuffer) value).duplicate();
+            bytes.rewind();
+        } else if (value instanceof byte[]) {
+            bytes = ByteBuffer.wrap((byte[]) value);
+        } else {
+            throw new IllegalArgumentException("Field " + field.getName() + " expects ByteBuffer vectors");
+        }
+        int dim = field.getDimension();
+        if (bytes.remaining() != dim / 8) {
+            throw new IllegalArgumentException("Vector of field " + field.getName() + " has "
+                    + bytes.remaining() + " bytes, expected " + dim / 8);
+        }
+        long[] words = new long[BinaryDistances.words(dim)];
+        ByteBuffer padded = ByteBuffer.allocate(words.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        padded.put(bytes).rewind();
+        padded.asLongBuffer().get(words);
+        return words;
+    }
+}
@@ -0,0 +1,977 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+import io.milvus.client.MilvusClient;
+import io.milvus.param.R;
+import io.milvus.param.Task;
+import io.milvus.param.alias.*;
+import io.milvus.param.collection.*;
+import io.milvus.param.dml.*;
+import io.milvus.param.index.*;
+import io.milvus.param.partition.*;
+import io.milvus.param.response.*;
+
+/**
+ * An in-process {@link MilvusClient} that keeps collections in columnar segments outside the Java heap and indexes
+ * them with the indexes of {@link io.milvus.index}.
+ * <p>
+ * Inserted rows go to a growing segment, appended to by all inserters without locking, that is sealed into
+ * compact immutable columns on {@link #flush(FlushParam) flush()} or once it holds <code>segmentMaxRows</code>
+ * rows. {@link #createIndex(CreateIndexParam) createIndex()} builds the index of every
+ * sealed segment on a pool of index builders, several segments at a time, while each build spreads k-means
+ * assignment or graph insertion over the common fork-join pool. The returned {@link Task} counts the indexed rows
+ * as segments complete. On an integer, floating-point or <code>VARCHAR</code> field it builds a
+ * {@link io.milvus.index.scalar.ScalarIndex} instead, which filter expressions use for selective comparisons.
+ * With <code>syncMode</code> the call waits on the task itself, so it returns as soon as the last segment is
+ * indexed; <code>syncWaitingInterval</code> is not needed and <code>syncWaitingTimeout</code> (seconds, 0 for no
+ * limit) bounds the wait.
+ * <p>
+ * Given a data directory, every collection change, insert, delete, flush and index declaration is first appended to
+ * a {@link WriteAheadLog} and forced to disk as the {@link Durability} mode requires; a new client on the same
+ * directory replays the log, appending the logged rows of each collection from several threads at once.
+ * <p>
+ * With a data directory every sealed segment is also written to a file of its own and kept as a read-only
+ * mapping of it, shared with any other process mapping the same file through the OS page cache. A flush records
+ * the sealed segments in the collection manifest and lets the log files it covers be deleted, and a new client
+ * reopens the segments instead of replaying their rows. {@link #loadCollection(LoadCollectionParam)
+ * loadCollection()} and {@link #releaseCollection(ReleaseCollectionParam) releaseCollection()} map and unmap the
+ * segment files and the ANNOY and DISKANN index files; loading optionally reads the mappings into memory in the
+ * background. Without a data directory they only change the load state.
+ * <p>
+ * Loading a collection starts <code>numReplicas</code> search replicas, each a pool of search threads with its own
+ * queue over the shared segments; the replicas split the search threads among them. {@link #search(SearchParam)
+ * search()} routes every request to the replica with the fewest queued or running searches. Loading a loaded
+ * collection with another number of replicas replaces them without failing the searches in flight.
+ * <p>
+ * {@link #delete(DeleteParam) delete()} takes primary keys or a filter expression over scalar fields and marks the
+ * matching rows in per-segment bitmaps of deleted rows that searches skip, without rewriting any segment. The same
+ * expressions filter searches; each is compiled once into a plan that evaluates whole blocks of a column at a time.
+ * <p>
+ * A background compactor merges the sealed segments left small by frequent flushes, and rewrites the ones with
+ * many deleted rows, within a disk bandwidth and CPU budget; the merged segment is indexed before it replaces its
+ * sources, so searches never fall back to scanning it. {@link #compact(String)} runs a pass right away and
+ * {@link #getCompactionMetrics(String)} reports the write amplification.
+ * <p>
+ * {@link #getCollectionStatistics(GetCollectionStatisticsParam) getCollectionStatistics()} and
+ * {@link #getPartitionStatistics(GetPartitionStatisticsParam) getPartitionStatistics()} read running totals that
+ * every insert, delete, seal, index build and compaction keeps up to date, so they take the same time whatever
+ * the size of the collection. The only partition is <code>_default</code>, so loading or releasing it loads or
+ * releases the whole collection.
+ * <p>
+ * {@link #bulkInsert(BulkInsertParam) bulkInsert()} imports local row-based JSON files on a background importer:
+ * each file is cut into chunks of whole rows that are parsed on all cores straight into column buffers and only
+ * appended once the whole file has parsed, so rows that do not match the schema fail the task, with their line
+ * number, before any row of the file is imported. Column-based imports take one NumPy <code>.npy</code> file per
+ * field, named after it; their payloads are copied straight into new sealed segment files, without conversion
+ * when the array stores values as the column does, and the segments are added all at once by a flush. Arrow IPC
+ * files, in the file or the streaming format, import the same way with one column per field, and
+ * {@link #export(ExportParam) export()} writes a collection out as one.
+ * {@link #getBulkInsertState(GetBulkInsertStateParam) getBulkInsertState()} reports the bytes read and the imported
+ * rows per second. Tasks are kept by ID and per collection in creation order, up to a retention past which the
+ * oldest finished ones are forgotten, so looking a task up or
+ * {@link #listBulkInsertTasks(ListBulkInsertParam) listing} the latest ones costs the same however many imports
+ * ran before.
+ * <p>
+ * Operations the engine does not implement return a failed {@link R} with an
+ * {@link UnsupportedOperationException}.
+ */
+public class LocalMilvusClient implements MilvusClient, AutoCloseable {
+    static final int DEFAULT_SEGMENT_MAX_ROWS = 1 << 16;
+    static final int DEFAULT_GROUP_COMMIT_INTERVAL = 2;
+    static final long DEFAULT_LOG_SEGMENT_BYTES = 64L << 20;
+    static final int DEFAULT_COMPACTION_INTERVAL = 10_000;
+    static final long DEFAULT_COMPACTION_BYTES_PER_SECOND = 64L << 20;
+    static final double DEFAULT_COMPACTION_CPU_SHARE = 0.25d;
+    static final double DEFAULT_COMPACTION_DELETE_RATIO = 0.2d;
+    static final int DEFAULT_IMPORT_TASK_RETENTION = 10_000;
+    private static final Pattern COLLECTION_NAME = Pattern.compile("[A-Za-z_][A-Za-z0-9_]{0,254}");
+
+    private final int segmentMaxRows;
+    private final int searchThreads;
+    private final boolean loadWarmUp;
+    private final Path collectionsDirectory;
+    private final ExecutorService indexBuilders;
+    private final ConcurrentHashMap<String, LocalCollection> collections = new ConcurrentHashMap<>();
+    private final AtomicLong taskIds = new AtomicLong();
+    private final WriteAheadLog wal;
+    private final double compactionDeleteRatio;
+    private final CompactionBudget compactionBudget;
+    private final ScheduledExecutorService compactor;
+    private final ExecutorService importer;
+    private final ImportTasks imports;
+
+    private LocalMilvusClient(Builder builder) {
+        this.segmentMaxRows = builder.segmentMaxRows;
+        this.searchThreads = builder.searchThreads;
+        this.loadWarmUp = builder.loadWarmUp;
+        this.compactionDeleteRatio = builder.compactionDeleteRatio;
+        this.compactionBudget = new CompactionBudget(builder.compactionBytesPerSecond, builder.compactionCpuShare);
+        this.imports = new ImportTasks(builder.importTaskRetention);
+        AtomicInteger threads = new AtomicInteger();
+        this.indexBuilders = Executors.newFixedThreadPool(builder.indexBuildThreads, r -> {
+            Thread thread = new Thread(r, "index-builder-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (builder.dataDirectory == null) {
+            this.collectionsDirectory = null;
+            this.wal = null;
+        } else {
+            this.collectionsDirectory = builder.dataDirectory.resolve("collections");
+            try {
+                this.wal = replay(builder);
+            } catch (IOException e) {
+                indexBuilders.shutdownNow();
+                throw new UncheckedIOException(e);
+            }
+        }
+        this.importer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "bulk-importer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (builder.compactionInterval <= 0) {
+            this.compactor = null;
+            return;
+        }
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "segment-compactor");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(this::compactAll, builder.compactionInterval, builder.compactionInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs a compaction pass over every collection; a failed pass is counted in the collection's metrics and
+     * retried on the next run.
+     */
+    private void compactAll() {
+        for (LocalCollection collection : collections.values()) {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            try {
+                collection.compact(compactionDeleteRatio, compactionBudget);
+            } catch (IOException | RuntimeException e) {
+                // reported by getCompactionMetrics(); letting it escape would cancel every later pass
+            }
+        }
+    }
+
+    /**
+     * Reopens the persisted collections, then opens the write-ahead log and replays the records that their
+     * manifests do not cover. Collection changes are applied in log order while logged inserts are decoded and
+     * appended on a pool of threads; a flush or an index declaration first waits for the inserts of its collection
+     * that precede it.
+     */
+    private WriteAheadLog replay(Builder builder) throws IOException {
+        long checkpoint = 0L;
+        for (CollectionStore store : CollectionStore.list(collectionsDirectory)) {
+            LocalCollection collection = LocalCollection.restore(store, segmentMaxRows, indexBuilders);
+            collections.put(collection.getName(), collection);
+            checkpoint = Math.max(checkpoint, collection.getCheckpoint());
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        ExecutorService replayers = Executors.newFixedThreadPool(threads);
+        Semaphore inFlight = new Semaphore(2 * threads);
+        Map<LocalCollection, List<Future<?>>> pending = new HashMap<>();
+        try {
+            WriteAheadLog log = WriteAheadLog.open(builder.dataDirectory.resolve("wal"), builder.durability,
+                    builder.groupCommitInterval, TimeUnit.MILLISECONDS, builder.logSegmentBytes, checkpoint,
+                    (lsn, type, payload) -> {
+                        String name = WalRecords.collectionName(payload);
+                        LocalCollection collection = collections.get(name);
+                        if (collection != null && lsn <= collection.getCheckpoint()) {
+                            return;
+                        }
+                        if (type == WalRecords.CREATE_COLLECTION) {
+                            if (collection != null) {
+                                collection.drop();
+                            }
+                            collection = new LocalCollection(name, WalRecords.readSchema(payload), segmentMaxRows,
+                                    indexBuilders, store(name));
+                            collection.checkpoint(lsn);
+                            collections.put(name, collection);
+                            return;
+                        }
+                        if (collection == null) {
+                            return;
+                        }
+                        List<Future<?>> inserts = pending.computeIfAbsent(collection, c -> new ArrayList<>());
+                        if (type == WalRecords.INSERT) {
+                            inFlight.acquireUninterruptibly();
+                            LocalCollection target = collection;
+                            inserts.add(replayers.submit(() -> {
+                                try {
+                                    target.replayInsert(WalRecords.readInsert(payload, target.getFields()));
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                } finally {
+                                    inFlight.release();
+                                }
+                            }));
+                            return;
+                        }
+                        await(inserts);
+                        if (type == WalRecords.DROP_COLLECTION) {
+                            collections.remove(name);
+                            collection.drop();
+                        } else if (type == WalRecords.DELETE) {
+                            FieldType primary = collection.getFields().get(collection.primaryField());
+                            collection.delete(WalRecords.readDelete(payload, primary));
+                        } else if (type == WalRecords.FLUSH) {
+                            collection.flush();
+                            collection.checkpoint(lsn);
+                        } else if (type == WalRecords.CREATE_INDEX) {
+                            CreateIndexParam param = WalRecords.readCreateIndex(payload);
+                            // the manifest of a checkpoint taken while the record was written may declare it
+                            if (!collection.hasIndex(param.getFieldName())) {
+                                collection.createIndex(param, taskIds.incrementAndGet(), null);
+                            }
+                        }
+                    });
+            for (List<Future<?>> inserts : pending.values()) {
+                await(inserts);
+            }
+            truncate(log);
+            return log;
+        } finally {
+            replayers.shutdownNow();
+        }
+    }
+
+    private CollectionStore store(String name) {
+        return collectionsDirectory == null ? null : new CollectionStore(collectionsDirectory.resolve(name));
+    }
+
+    /**
+     * Deletes the log files holding only records that every collection manifest covers.
+     */
+    private void truncate(WriteAheadLog log) throws IOException {
+        long lsn = Long.MAX_VALUE;
+        for (LocalCollection collection : collections.values()) {
+            lsn = Math.min(lsn, collection.getCheckpoint());
+        }
+        log.truncate(lsn);
+    }
+
+    private static void await(List<Future<?>> futures) throws IOException {
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while replaying the write-ahead log", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Cannot replay the write-ahead log", e.getCause());
+        }
+        futures.clear();
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    @Override
+    public R<CreateCollectionResponse> createCollection(CreateCollectionParam requestParam) {
+        return call(() -> {
+            String name = requestParam.getCollectionName();
+            if (name == null || !COLLECTION_NAME.matcher(name).matches()) {
+                throw new IllegalArgumentException("Invalid collection name: " + name);
+            }
+            if (requestParam.getSchema() == null) {
+                throw new IllegalArgumentException("Collection schema is required");
+            }
+            LocalCollection collection = new LocalCollection(name, requestParam.getSchema(), segmentMaxRows,
+                    indexBuilders, store(name));
+            if (collections.putIfAbsent(name, collection) != null) {
+                throw new IllegalArgumentException("Collection " + name + " already exists");
+            }
+            if (wal != null) {
+                try {
+                    collection.checkpoint(wal.append(WalRecords.CREATE_COLLECTION,
+                            WalRecords.createCollection(name, requestParam.getSchema())));
+                } catch (IOException e) {
+                    collections.remove(name, collection);
+                    throw e;
+                }
+            }
+            return new CreateCollectionResponse();
+        });
+    }
+
+    @Override
+    public R<DescribeCollectionResponse> describeCollection(DescribeCollectionParam requestParam) {
+        return unsupported("describeCollection");
+    }
+
+    @Override
+    public R<Task> loadCollection(LoadCollectionParam requestParam) {
+        return load(requestParam.getCollectionName(), null, requestParam.getNumReplicas(), requestParam.getAsync(),
+                requestParam.getLoadWaitingTimeout());
+    }
+
+    private R<Task> load(String collectionName, String partitionName, int numReplicas, Boolean async,
+                         int loadWaitingTimeout) {
+        R<Task> started = call(() -> {
+            if (numReplicas < 0) {
+                throw new IllegalArgumentException("numReplicas must not be negative, got: " + numReplicas);
+            }
+            LocalCollection collection = collection(collectionName);
+            collection.checkPartition(partitionName);
+            return collection.load(taskIds.incrementAndGet(), loadWarmUp, Math.max(1, numReplicas), searchThreads);
+        });
+        if (Boolean.TRUE.equals(async)) {
+            return started;
+        }
+        return await(started, loadWaitingTimeout, "Load");
+    }
+
+    @Override
+    public R<ReleaseCollectionResponse> releaseCollection(ReleaseCollectionParam requestParam) {
+        return call(() -> {
+            collection(requestParam.getCollectionName()).release();
+            return new ReleaseCollectionResponse();
+        });
+    }
+
+    @Override
+    public R<DropCollectionResponse> dropCollection(DropCollectionParam requestParam) {
+        return call(() -> {
+            String name = requestParam.getCollectionName();
+            LocalCollection collection = collections.remove(name);
+            if (collection == null) {
+                throw new IllegalArgumentException("Collection " + name + " does not exist");
+            }
+            if (wal != null) {
+                wal.append(WalRecords.DROP_COLLECTION, WalRecords.collection(name));
+            }
+            collection.drop();
+            if (wal != null) {
+                truncate(wal);
+            }
+            return new DropCollectionResponse();
+        });
+    }
+
+    @Override
+    public R<GetCollectionStatisticsResponse> getCollectionStatistics(GetCollectionStatisticsParam requestParam) {
+        return call(() -> collection(requestParam.getCollectionName()).statistics());
+    }
+
+    @Override
+    public R<ListCollectionsResponse> listCollections(ListCollectionsParam requestParam) {
+        return unsupported("listCollections");
+    }
+
+    @Override
+    public R<HasCollectionResponse> hasCollection(HasCollectionParam requestParam) {
+        return call(() -> new HasCollectionResponse(collections.containsKey(requestParam.getCollectionName())));
+    }
+
+    @Override
+    public R<Task> createIndex(CreateIndexParam requestParam) {
+        R<Task> started = call(() -> collection(requestParam.getCollectionName()).createIndex(requestParam,
+                taskIds.incrementAndGet(), wal == null ? null
+                        : param -> wal.append(WalRecords.CREATE_INDEX, WalRecords.createIndex(param))));
+        if (!Boolean.TRUE.equals(requestParam.getSyncMode())) {
+            return started;
+        }
+        return await(started, requestParam.getSyncWaitingTimeout(), "Index build");
+    }
+
+    /**
+     * Waits for a started task, failing on timeout (0 for no limit) or if the task fails.
+     */
+    private static R<Task> await(R<Task> started, long timeoutSeconds, String operation) {
+        if (started.getStatus() != R.SUCCESS) {
+            return started;
+        }
+        Task task = started.getData();
+        try {
+            if (!task.await(timeoutSeconds, TimeUnit.SECONDS)) {
+                return R.failed(new IllegalStateException(operation + " did not finish within " + timeoutSeconds
+                        + " seconds: " + task));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return R.failed(e);
+        }
+        if (task.getState() == Task.State.FAILED) {
+            return R.failed(new IllegalStateException(task.getFailedReason()));
+        }
+        return started;
+    }
+
+    @Override
+    public R<DescribeIndexResponse> describeIndex(DescribeIndexParam requestParam) {
+        return unsupported("describeIndex");
+    }
+
+    @Override
+    public R<DropIndexResponse> dropIndex(DropIndexParam requestParam) {
+        return unsupported("dropIndex");
+    }
+
+    @Override
+    public R<ListIndexesResponse> listIndexes(ListIndexesParam requestParam) {
+        return unsupported("listIndexes");
+    }
+
+    @Override
+    public R<HasIndexResponse> hasIndex(HasIndexParam requestParam) {
+        return unsupported("hasIndex");
+    }
+
+    @Override
+    public R<Task> insert(InsertParam requestParam) {
+        return call(() -> {
+            LocalCollection collection = collection(requestParam.getCollectionName());
+            List<List<?>> values = collection.prepare(requestParam);
+            return Task.completed(taskIds.incrementAndGet(), append(collection, values));
+        });
+    }
+
+    /**
+     * Logs and appends prepared rows.
+     *
+     * @return the number of appended rows.
+     */
+    private long append(LocalCollection collection, List<List<?>> values) throws IOException {
+        Lock lock = collection.checkpointLock().readLock();
+        lock.lock();
+        try {
+            if (wal != null) {
+                wal.append(WalRecords.INSERT, WalRecords.insert(collection.getName(), collection.getFields(), values));
+            }
+            return collection.insert(values);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds the segments an import wrote to a collection as a flush does, so that no delete logged before is
+     * replayed on the imported rows after a restart.
+     */
+    private void install(LocalCollection collection, List<Segment> segments) throws IOException {
+        Lock lock = collection.checkpointLock().writeLock();
+        lock.lock();
+        try {
+            long lsn = wal.append(WalRecords.FLUSH, WalRecords.collection(collection.getName()));
+            collection.flush();
+            collection.checkpoint(lsn, segments);
+        } finally {
+            lock.unlock();
+        }
+        truncate(wal);
+    }
+
+    @Override
+    public R<Task> bulkInsert(BulkInsertParam requestParam) {
+        return call(() -> {
+            LocalCollection collection = collection(requestParam.getCollectionName());
+            collection.checkPartition(requestParam.getPartitionName());
+            BulkImport job = new BulkImport(taskIds.incrementAndGet(), collection.getName(),
+                    requestParam.getPartitionName(), requestParam.getFiles());
+            imports.add(job);
+            importer.execute(() -> job.run(collection, this::append, this::install));
+            return job.getTask();
+        });
+    }
+
+    @Override
+    public R<FlushResponse> flush(FlushParam requestParam) {
+        return call(() -> {
+            flush(collection(requestParam.getCollectionName()));
+            return new FlushResponse();
+        });
+    }
+
+    private void flush(LocalCollection collection) throws IOException {
+        if (wal == null) {
+            collection.flush();
+            return;
+        }
+        // no insert may be logged before the flush record and appended after the checkpoint
+        Lock lock = collection.checkpointLock().writeLock();
+        lock.lock();
+        try {
+            long lsn = wal.append(WalRecords.FLUSH, WalRecords.collection(collection.getName()));
+            collection.flush();
+            collection.checkpoint(lsn);
+        } finally {
+            lock.unlock();
+        }
+        truncate(wal);
+    }
+
+    /**
+     * Flushes a collection, then writes the rows it holds that are not deleted to a local Arrow IPC file, one
+     * record batch per sealed segment, copying column values without building an object per row.
+     * {@link #bulkInsert(BulkInsertParam) bulkInsert()} imports the file back.
+     *
+     * @param requestParam {@link ExportParam}
+     * @return {@link R} holding the number of exported rows.
+     */
+    public R<Long> export(ExportParam requestParam) {
+        return call(() -> {
+            LocalCollection collection = collection(requestParam.getCollectionName());
+            collection.checkPartition(requestParam.getPartitionName());
+            String file = requestParam.getFile();
+            Path path = file.startsWith("file:") ? Paths.get(URI.create(file)) : Paths.get(file);
+            flush(collection);
+            return collection.exportArrow(path);
+        });
+    }
+
+    @Override
+    public R<Task> delete(DeleteParam requestParam) {
+        return call(() -> {
+            LocalCollection collection = collection(requestParam.getCollectionName());
+            // inserts append under the read lock, so an expression matches every row appended before the delete
+            // and none appended after it; the write lock also keeps seals out
+            Lock lock = collection.checkpointLock().writeLock();
+            lock.lock();
+            try {
+                Set<Object> keys = collection.deleteKeys(requestParam);
+                if (wal != null) {
+                    FieldType primary = collection.getFields().get(collection.primaryField());
+                    wal.append(WalRecords.DELETE, WalRecords.delete(collection.getName(), primary, keys));
+                }
+                return Task.completed(taskIds.incrementAndGet(), collection.delete(keys));
+            } finally {
+                lock.unlock();
+            }
+        });
+    }
+
+    @Override
+    public R<SearchResponse> search(SearchParam requestParam) {
+        return call(() -> collection(requestParam.getCollectionName()).search(requestParam));
+    }
+
+    /**
+     * Merges the small and delete-heavy segments of a collection right away, without the pacing of background
+     * compaction.
+     *
+     * @param collectionName The name of the collection.
+     * @return {@link R} holding the {@link CompactionMetrics} of the collection after the merges.
+     */
+    public R<CompactionMetrics> compact(String collectionName) {
+        return call(() -> {
+            LocalCollection collection = collection(collectionName);
+            collection.compact(compactionDeleteRatio, CompactionBudget.UNLIMITED);
+            return collection.compactionMetrics();
+        });
+    }
+
+    /**
+     * Returns the compaction counters of a collection.
+     *
+     * @param collectionName The name of the collection.
+     * @return {@link R} holding {@link CompactionMetrics}
+     */
+    public R<CompactionMetrics> getCompactionMetrics(String collectionName) {
+        return call(() -> collection(collectionName).compactionMetrics());
+    }
+
+    @Override
+    public R<GetImportStateResponse> getBulkInsertState(GetBulkInsertStateParam requestParam) {
+        return call(() -> {
+            BulkImport job = imports.get(requestParam.getTaskId());
+            if (job == null) {
+                throw new IllegalArgumentException("Bulk insert task " + requestParam.getTaskId()
+                        + " does not exist or is no longer retained");
+            }
+            return job.state();
+        });
+    }
+
+    @Override
+    public R<ListImportTaskResponse> listBulkInsertTasks(ListBulkInsertParam requestParam) {
+        return call(() -> {
+            String collectionName = requestParam.getCollectionName();
+            if (collectionName != null && !collectionName.isEmpty()) {
+                collection(collectionName);
+            }
+            return new ListImportTaskResponse(imports.list(
+                    collectionName == null || collectionName.isEmpty() ? null : collectionName,
+                    requestParam.getLimit()));
+        });
+    }
+
+    @Override
+    public R<CreatePartitionResponse> createPartition(CreatePartitionParam requestParam) {
+        return unsupported("createPartition");
+    }
+
+    @Override
+    public R<DescribePartitionResponse> describePartition(DescribePartitionParam requestParam) {
+        return unsupported("describePartition");
+    }
+
+    @Override
+    public R<Task> loadPartition(LoadPartitionParam requestParam) {
+        return load(requestParam.getCollectionName(), requestParam.getPartitionName(), requestParam.getNumReplicas(),
+                requestParam.getAsync(), requestParam.getLoadWaitingTimeout());
+    }
+
+    @Override
+    public R<ReleasePartitionResponse> releasePartition(ReleasePartitionParam requestParam) {
+        return call(() -> {
+            LocalCollection collection = collection(requestParam.getCollectionName());
+            collection.checkPartition(requestParam.getPartitionName());
+            collection.release();
+            return new ReleasePartitionResponse();
+        });
+    }
+
+    @Override
+    public R<ListPartitionsResponse> listPartitions(ListPartitionsParam requestParam) {
+        return unsupported("listPartitions");
+    }
+
+    @Override
+    public R<DropPartitionResponse> dropPartition(DropPartitionParam requestParam) {
+        return unsupported("dropPartition");
+    }
+
+    @Override
+    public R<HasPartitionResponse> hasPartition(HasPartitionParam requestParam) {
+        return unsupported("hasPartition");
+    }
+
+    @Override
+    public R<GetPartitionStatisticsResponse> getPartitionStatistics(GetPartitionStatisticsParam requestParam) {
+        return call(() -> collection(requestParam.getCollectionName())
+                .partitionStatistics(requestParam.getPartitionName()));
+    }
+
+    @Override
+    public R<CreateAliasResponse> createAlias(CreateAliasParam requestParam) {
+        return unsupported("createAlias");
+    }
+
+    @Override
+    public R<AlterAliasResponse> alterAlias(AlterAliasParam requestParam) {
+        return unsupported("alterAlias");
+    }
+
+    @Override
+    public R<ListAliasesResponse> listAliases(ListAliasesParam requestParam) {
+        return unsupported("listAliases");
+    }
+
+    @Override
+    public R<DropAliasResponse> dropAlias(DropAliasParam requestParam) {
+        return unsupported("dropAlias");
+    }
+
+    @Override
+    public R<DescribeAliasResponse> describeAlias(DescribeAliasParam requestParam) {
+        return unsupported("describeAlias");
+    }
+
+    @Override
+    public R<HasAliasResponse> hasAlias(HasAliasParam requestParam) {
+        return unsupported("hasAlias");
+    }
+
+    private LocalCollection collection(String name) {
+        LocalCollection collection = collections.get(name);
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection " + name + " does not exist");
+        }
+        return collection;
+    }
+
+    private static <T> R<T> call(Callable<T> operation) {
+        try {
+            return R.success(operation.call());
+        } catch (Exception e) {
+            return R.failed(e);
+        }
+    }
+
+    private static <T> R<T> unsupported(String operation) {
+        return R.failed(new UnsupportedOperationException(operation + " is not supported by the local engine"));
+    }
+
+    /**
+     * Releases the collections once their searches in flight are done, stops the index builders, abandoning the
+     * builds still running, and closes the write-ahead log after forcing its pending records.
+     *
+     * @throws IOException if the last records cannot be forced to disk.
+     */
+    @Override
+    public void close() throws IOException {
+        importer.shutdownNow();
+        try {
+            importer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (compactor != null) {
+            compactor.shutdownNow();
+            try {
+                compactor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (LocalCollection collection : collections.values()) {
+            collection.release();
+        }
+        indexBuilders.shutdownNow();
+        if (wal != null) {
+            wal.close();
+        }
+    }
+
+    /**
+     * The builder class for the {@link LocalMilvusClient} object class.
+     */
+    public static final class Builder {
+        private int segmentMaxRows = DEFAULT_SEGMENT_MAX_ROWS;
+        private int indexBuildThreads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        private Path dataDirectory;
+        private Durability durability = Durability.GROUP;
+        private int groupCommitInterval = DEFAULT_GROUP_COMMIT_INTERVAL;
+        private long logSegmentBytes = DEFAULT_LOG_SEGMENT_BYTES;
+        private boolean loadWarmUp;
+        private int searchThreads = Runtime.getRuntime().availableProcessors();
+        private int compactionInterval = DEFAULT_COMPACTION_INTERVAL;
+        private long compactionBytesPerSecond = DEFAULT_COMPACTION_BYTES_PER_SECOND;
+        private double compactionCpuShare = DEFAULT_COMPACTION_CPU_SHARE;
+        private double compactionDeleteRatio = DEFAULT_COMPACTION_DELETE_RATIO;
+        private int importTaskRetention = DEFAULT_IMPORT_TASK_RETENTION;
+
+        private Builder() {}
+
+        /**
+         * Sets the number of rows after which a growing segment is sealed.
+         *
+         * @param segmentMaxRows A positive number of rows, 65536 by default.
+         * @return The builder object itself.
+         */
+        public Builder withSegmentMaxRows(int segmentMaxRows) {
+            this.segmentMaxRows = segmentMaxRows;
+            return this;
+        }
+
+        /**
+         * Sets the number of segments whose indexes are built at the same time.
+         *
+         * @param indexBuildThreads A positive number, half the available processors by default.
+         * @return The builder object itself.
+         */
+        public Builder withIndexBuildThreads(int indexBuildThreads) {
+            this.indexBuildThreads = indexBuildThreads;
+            return this;
+        }
+
+        /**
+         * Sets the directory that holds the write-ahead log and the segment files. Without one, the client keeps
+         * nothing on disk.
+         *
+         * @param dataDirectory A directory, created if missing.
+         * @return The builder object itself.
+         */
+        public Builder withDataDirectory(Path dataDirectory) {
+            this.dataDirectory = dataDirectory;
+            return this;
+        }
+
+        /**
+         * Sets when logged writes are forced to disk.
+         *
+         * @param durability A {@link Durability} mode, {@link Durability#GROUP} by default.
+         * @return The builder object itself.
+         */
+        public Builder withDurability(Durability durability) {
+            this.durability = durability;
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two forces of the write-ahead log in the group and asynchronous modes.
+         *
+         * @param groupCommitInterval An interval in milliseconds, 2 by default.
+         * @return The builder object itself.
+         */
+        public Builder withGroupCommitInterval(int groupCommitInterval) {
+            this.groupCommitInterval = groupCommitInterval;
+            return this;
+        }
+
+        /**
+         * Sets the size after which the write-ahead log starts a new file.
+         *
+         * @param logSegmentBytes A positive number of bytes, 64 MB by default.
+         * @return The builder object itself.
+         */
+        public Builder withLogSegmentBytes(long logSegmentBytes) {
+            this.logSegmentBytes = logSegmentBytes;
+            return this;
+        }
+
+        /**
+         * Sets whether loading a collection also reads its segment files into memory, so that the first searches
+         * do not wait for page faults. The load task completes when the read-ahead does.
+         *
+         * @param loadWarmUp <code>true</code> to read ahead, <code>false</code> by default.
+         * @return The builder object itself.
+         */
+        public Builder withLoadWarmUp(boolean loadWarmUp) {
+            this.loadWarmUp = loadWarmUp;
+            return this;
+        }
+
+        /**
+         * Sets the number of search threads of a loaded collection, split among its replicas.
+         *
+         * @param searchThreads A positive number, the available processors by default.
+         * @return The builder object itself.
+         */
+        public Builder withSearchThreads(int searchThreads) {
+            this.searchThreads = searchThreads;
+            return this;
+        }
+
+        /**
+         * Sets the time between two background compaction passes.
+         *
+         * @param compactionInterval An interval in milliseconds, 10000 by default; 0 disables background
+         * compaction.
+         * @return The builder object itself.
+         */
+        public Builder withCompactionInterval(int compactionInterval) {
+            this.compactionInterval = compactionInterval;
+            return this;
+        }
+
+        /**
+         * Sets the rate at which background compaction copies rows.
+         *
+         * @param compactionBytesPerSecond A number of bytes per second, 64 MB by default; 0 for no limit.
+         * @return The builder object itself.
+         */
+        public Builder withCompactionBytesPerSecond(long compactionBytesPerSecond) {
+            this.compactionBytesPerSecond = compactionBytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the share of one core background compaction may keep busy, pausing between steps to stay below it.
+         *
+         * @param compactionCpuShare A share in <code>(0, 1]</code>, 0.25 by default.
+         * @return The builder object itself.
+         */
+        public Builder withCompactionCpuShare(double compactionCpuShare) {
+            this.compactionCpuShare = compactionCpuShare;
+            return this;
+        }
+
+        /**
+         * Sets the share of deleted rows from which a segment is rewritten even when it is not small.
+         *
+         * @param compactionDeleteRatio A ratio in <code>(0, 1]</code>, 0.2 by default.
+         * @return The builder object itself.
+         */
+        public Builder withCompactionDeleteRatio(double compactionDeleteRatio) {
+            this.compactionDeleteRatio = compactionDeleteRatio;
+            return this;
+        }
+
+        /**
+         * Sets the number of bulk-insert tasks kept for {@link #getBulkInsertState(GetBulkInsertStateParam)
+         * getBulkInsertState()} and {@link #listBulkInsertTasks(ListBulkInsertParam) listBulkInsertTasks()}; the
+         * oldest finished tasks beyond it are forgotten.
+         *
+         * @param importTaskRetention A positive number of tasks, 10000 by default.
+         * @return The builder object itself.
+         */
+        public Builder withImportTaskRetention(int importTaskRetention) {
+            this.importTaskRetention = importTaskRetention;
+            return this;
+        }
+
+        /**
+         * Verifies the parameters, replays the write-ahead log if there is a data directory, and creates a new
+         * {@link LocalMilvusClient} instance.
+         *
+         * @return {@link LocalMilvusClient}
+         * @throws UncheckedIOException if the write-ahead log cannot be replayed.
+         */
+        public LocalMilvusClient build() {
+            if (segmentMaxRows <= 0) {
+                throw new IllegalArgumentException("segmentMaxRows must be positive, got: " + segmentMaxRows);
+            }
+            if (indexBuildThreads <= 0) {
+                throw new IllegalArgumentException("indexBuildThreads must be positive, got: " + indexBuildThreads);
+            }
+            if (searchThreads <= 0) {
+                throw new IllegalArgumentException("searchThreads must be positive, got: " + searchThreads);
+            }
+            if (durability == null) {
+                throw new IllegalArgumentException("Durability is required");
+            }
+            if (groupCommitInterval < 0) {
+                throw new IllegalArgumentException("groupCommitInterval must not be negative, got: "
+                        + groupCommitInterval);
+            }
+            if (logSegmentBytes <= 0) {
+                throw new IllegalArgumentException("logSegmentBytes must be positive, got: " + logSegmentBytes);
+            }
+            if (compactionInterval < 0) {
+                throw new IllegalArgumentException("compactionInterval must not be negative, got: "
+                        + compactionInterval);
+            }
+            if (compactionBytesPerSecond < 0) {
+                throw new IllegalArgumentException("compactionBytesPerSecond must not be negative, got: "
+                        + compactionBytesPerSecond);
+            }
+            if (!(compactionCpuShare > 0d && compactionCpuShare <= 1d)) {
+                throw new IllegalArgumentException("compactionCpuShare must be in (0, 1], got: "
+                        + compactionCpuShare);
+            }
+            if (!(compactionDeleteRatio > 0d && compactionDeleteRatio <= 1d)) {
+                throw new IllegalArgumentException("compactionDeleteRatio must be in (0, 1], got: "
+                        + compactionDeleteRatio);
+            }
+            if (importTaskRetention <= 0) {
+                throw new IllegalArgumentException("importTaskRetention must be positive, got: "
+                        + importTaskRetention);
+            }
+            return new LocalMilvusClient(this);
+        }
+    }
+}
@@ -0,0 +1,436 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * A NumPy <code>.npy</code> file holding the values of one field for a column-based import: an array of shape
+ * <code>(rows,)</code> for a scalar field and <code>(rows, dim)</code> for a float vector field, or
+ * <code>(rows, dim / 8)</code> bytes for a binary vector field. Only the header is read when the file is opened;
+ * the payload is read through read-only mappings, a range of rows at a time.
+ * <p>
+ * When the array stores its rows exactly as the column does, that is little-endian <code>bool</code>, integers and
+ * floats of the width of the field, <code>float32</code> vectors, or <code>uint8</code> binary vectors that fill
+ * whole words, {@link #writeRegion(long, int, FileChannel, long)} transfers the payload to the segment file as is.
+ * Otherwise every element is converted: byte order, integer and float widths, the padding of binary vector rows
+ * and UTF-32 <code>&lt;U</code> strings.
+ */
+final class NpyArray implements BulkImport.Source {
+    private static final byte[] MAGIC = {(byte) 0x93, 'N', 'U', 'M', 'P', 'Y'};
+    private static final int MAX_HEADER_BYTES = 1 << 20;
+    private static final Pattern DESCR = Pattern.compile("'descr'\\s*:\\s*'([<>|=])([a-zA-Z])(\\d+)'");
+    private static final Pattern FORTRAN_ORDER = Pattern.compile("'fortran_order'\\s*:\\s*(True|False)");
+    private static final Pattern SHAPE = Pattern.compile("'shape'\\s*:\\s*\\(([^)]*)\\)");
+
+    private final Path file;
+    private final FieldType field;
+    private final String dtype;
+    private final char kind;
+    // the bytes of one element
+    private final int itemSize;
+    private final ByteOrder order;
+    private final long rows;
+    private final int rowBytes;
+    private final long dataOffset;
+    private final boolean adoptable;
+
+    private NpyArray(Path file, FieldType field, String header, long dataOffset, long fileSize) {
+        this.file = file;
+        this.field = field;
+        this.dataOffset = dataOffset;
+        Matcher descr = DESCR.matcher(header);
+        if (!descr.find()) {
+            throw error("Unsupported array header " + header.trim());
+        }
+        this.dtype = descr.group(1) + descr.group(2) + descr.group(3);
+        char byteOrder = descr.group(1).charAt(0);
+        this.order = byteOrder == '>' ? ByteOrder.BIG_ENDIAN
+                : byteOrder == '=' ? ByteOrder.nativeOrder() : ByteOrder.LITTLE_ENDIAN;
+        this.kind = descr.group(2).charAt(0);
+        int size = Integer.parseInt(descr.group(3));
+        this.itemSize = kind == 'U' ? 4 * size : size;
+
+        Matcher shape = SHAPE.matcher(header);
+        if (!shape.find()) {
+            throw error("The array header has no shape");
+        }
+        String[] parts = shape.group(1).split(",");
+        long[] dims = new long[parts.length];
+        int n = 0;
+        for (String part : parts) {
+            if (!part.trim().isEmpty()) {
+                dims[n++] = Long.parseLong(part.trim());
+            }
+        }
+        DataType dataType = field.getDataType();
+        boolean vector = LocalCollection.isVector(dataType);
+        int columns = dataType == DataType.FLOAT_VECTOR ? field.getDimension()
+                : dataType == DataType.BINARY_VECTOR ? field.getDimension() / 8 : 1;
+        if (n != (vector ? 2 : 1)) {
+            throw error("Field " + field.getName() + " expects an array of shape "
+                    + (vector ? "(rows, " + columns + ")" : "(rows,)") + ", got (" + shape.group(1) + ")");
+        }
+        if (vector && dims[1] != columns) {
+            throw error("Vector field " + field.getName() + " has " + columns + (dataType == DataType.FLOAT_VECTOR
+                    ? " dimensions" : " bytes per row") + ", the array has " + dims[1] + " columns");
+        }
+        Matcher fortranOrder = FORTRAN_ORDER.matcher(header);
+        if (vector && fortranOrder.find() && "True".equals(fortranOrder.group(1))) {
+            throw error("Fortran-ordered arrays cannot be imported");
+        }
+        if (!accepts(dataType)) {
+            throw error("Field " + field.getName() + " of type " + dataType + " cannot be imported from dtype '"
+                    + dtype + "'");
+        }
+        this.rows = dims[0];
+        this.rowBytes = itemSize * columns;
+        if (rows < 0 || rows > (fileSize - dataOffset) / rowBytes) {
+            throw error("The file is shorter than an array of " + rows + " rows");
+        }
+        this.adoptable = dataType != DataType.VARCHAR
+                && rowBytes == FixedColumn.width(dataType, field.getDimension())
+                && (itemSize == 1 || order == ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private boolean accepts(DataType dataType) {
+        switch (dataType) {
+            case BOOL:
+                return kind == 'b' && itemSize == 1;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return kind == 'i' && (itemSize == 1 || itemSize == 2 || itemSize == 4 || itemSize == 8);
+            case FLOAT:
+            case DOUBLE:
+            case FLOAT_VECTOR:
+                return kind == 'f' && (itemSize == 4 || itemSize == 8);
+            case BINARY_VECTOR:
+                return kind == 'u' && itemSize == 1;
+            case VARCHAR:
+                return kind == 'U' && itemSize > 0;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Reads the header of a file and checks the array against the field it is imported into.
+     *
+     * @return {@link NpyArray}
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not an array the field can take.
+     */
+    static NpyArray open(Path file, FieldType field) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer prefix = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+            while (prefix.hasRemaining() && channel.read(prefix, prefix.position()) >= 0) {
+                // until the prefix is full or the file ends
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (prefix.position() < 10 || prefix.get(i) != MAGIC[i]) {
+                    throw new IllegalArgumentException(file.getFileName() + ": Not a .npy file");
+                }
+            }
+            int major = prefix.get(6) & 0xFF;
+            long headerBytes;
+            int prefixBytes;
+            if (major == 1) {
+                headerBytes = prefix.getShort(8) & 0xFFFF;
+                prefixBytes = 10;
+            } else if (major == 2 || major == 3) {
+                headerBytes = prefix.getInt(8) & 0xFFFFFFFFL;
+                prefixBytes = 12;
+            } else {
+                throw new IllegalArgumentException(file.getFileName() + ": Unsupported .npy version " + major);
+            }
+            if (headerBytes > MAX_HEADER_BYTES) {
+                throw new IllegalArgumentException(file.getFileName() + ": The array header is too long");
+            }
+            ByteBuffer header = ByteBuffer.allocate((int) headerBytes);
+            while (header.hasRemaining()) {
+                if (channel.read(header, prefixBytes + header.position()) < 0) {
+                    throw new IllegalArgumentException(file.getFileName() + ": Truncated array header");
+                }
+            }
+            String text = new String(header.array(),
+                    major == 3 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+            return new NpyArray(file, field, text, prefixBytes + headerBytes, channel.size());
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Returns the bytes before the payload.
+     *
+     * @return <code>long</code>
+     */
+    long getDataOffset() {
+        return dataOffset;
+    }
+
+    /**
+     * Returns the payload bytes of a range of rows.
+     *
+     * @return <code>long</code>
+     */
+    @Override
+    public long payloadBytes(long from, long count) {
+        return count * rowBytes;
+    }
+
+    /**
+     * Writes rows <code>[from, from + count)</code> as the region of a sealed column in a segment file, moving the
+     * payload from file to file without reading it into the heap when it needs no conversion.
+     *
+     * @return the file position after the region.
+     * @throws IOException if a file cannot be read or written.
+     * @throws IllegalArgumentException if a value does not fit the field.
+     */
+    @Override
+    public long writeRegion(long from, int count, FileChannel target, long position) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (adoptable) {
+                long start = dataOffset + from * rowBytes;
+                long length = (long) count * rowBytes;
+                target.position(position);
+                for (long done = 0L; done < length; ) {
+                    done += source.transferTo(start + done, length - done, target);
+                }
+                return position + length;
+            }
+            PagedBuffer region = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY, dataOffset + from * rowBytes,
+                    count, rowBytes);
+            try {
+                if (field.getDataType() == DataType.VARCHAR) {
+                    Rows in = new Rows(region);
+                    return VarcharColumn.writeRegion(target, position, count,
+                            row -> string(in.at(row), region.offset(row), from + row));
+                }
+                return convert(region, from, count, target, position);
+            } finally {
+                region.unmap();
+            }
+        }
+    }
+
+    private long convert(PagedBuffer region, long from, int count, FileChannel target, long position)
+            throws IOException {
+        DataType dataType = field.getDataType();
+        int width = FixedColumn.width(dataType, field.getDimension());
+        ByteBuffer out = ByteBuffer.allocateDirect(Math.max(width, 1 << 20)).order(ByteOrder.LITTLE_ENDIAN);
+        Rows in = new Rows(region);
+        for (int row = 0; row < count; row++) {
+            if (out.remaining() < width) {
+                position = drain(target, out, position);
+            }
+            ByteBuffer buffer = in.at(row);
+            int offset = region.offset(row);
+            switch (dataType) {
+                case BOOL:
+                    out.put((byte) (buffer.get(offset) != 0 ? 1 : 0));
+                    break;
+                case INT8:
+                    out.put((byte) integer(buffer, offset, from + row));
+                    break;
+                case INT16:
+                    out.putShort((short) integer(buffer, offset, from + row));
+                    break;
+                case INT32:
+                    out.putInt((int) integer(buffer, offset, from + row));
+                    break;
+                case INT64:
+                    out.putLong(integer(buffer, offset, from + row));
+                    break;
+                case FLOAT:
+                    out.putFloat((float) real(buffer, offset));
+                    break;
+                case DOUBLE:
+                    out.putDouble(real(buffer, offset));
+                    break;
+                case FLOAT_VECTOR:
+                    for (int i = 0; i < field.getDimension(); i++) {
+                        out.putFloat((float) real(buffer, offset + i * itemSize));
+                    }
+                    break;
+                case BINARY_VECTOR:
+                    for (int i = 0; i < width; i++) {
+                        out.put(i < rowBytes ? buffer.get(offset + i) : 0);
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("Data type " + dataType + " has no fixed width");
+            }
+        }
+        return drain(target, out, position);
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    /**
+     * Reads rows <code>[from, from + count)</code> into a buffer made by {@link ColumnBuffer#create(FieldType, int)}
+     * for the field, for collections that are not persisted.
+     *
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a value does not fit the field.
+     */
+    @Override
+    public void read(long from, int count, ColumnBuffer into) throws IOException {
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            PagedBuffer region = PagedBuffer.map(source, FileChannel.MapMode.READ_ONLY, dataOffset + from * rowBytes,
+                    count, rowBytes);
+            try {
+                Rows in = new Rows(region);
+                for (int row = 0; row < count; row++) {
+                    ByteBuffer buffer = in.at(row);
+                    int offset = region.offset(row);
+                    switch (field.getDataType()) {
+                        case BOOL:
+                            ((ColumnBuffer.Bools) into).add(buffer.get(offset) != 0);
+                            break;
+                        case INT8:
+                        case INT16:
+                        case INT32:
+                        case INT64:
+                            ((ColumnBuffer.Longs) into).add(integer(buffer, offset, from + row));
+                            break;
+                        case FLOAT:
+                        case DOUBLE:
+                            ((ColumnBuffer.Doubles) into).add(real(buffer, offset));
+                            break;
+                        case VARCHAR:
+                            ((ColumnBuffer.Strings) into).add(string(buffer, offset, from + row));
+                            break;
+                        case FLOAT_VECTOR:
+                            ColumnBuffer.FloatVectors floats = (ColumnBuffer.FloatVectors) into;
+                            for (int i = 0; i < field.getDimension(); i++) {
+                                floats.add((float) real(buffer, offset + i * itemSize));
+                            }
+                            floats.endRow();
+                            break;
+                        default:
+                            ColumnBuffer.BinaryVectors bytes = (ColumnBuffer.BinaryVectors) into;
+                            for (int i = 0; i < rowBytes; i++) {
+                                bytes.add(buffer.get(offset + i));
+                            }
+                            bytes.endRow();
+                    }
+                }
+            } finally {
+                region.unmap();
+            }
+        }
+    }
+
+    private long integer(ByteBuffer buffer, int offset, long row) {
+        long value;
+        switch (itemSize) {
+            case 1:
+                value = buffer.get(offset);
+                break;
+            case 2:
+                value = buffer.getShort(offset);
+                break;
+            case 4:
+                value = buffer.getInt(offset);
+                break;
+            default:
+                value = buffer.getLong(offset);
+        }
+        long limit;
+        switch (field.getDataType()) {
+            case INT8:
+                limit = Byte.MAX_VALUE;
+                break;
+            case INT16:
+                limit = Short.MAX_VALUE;
+                break;
+            case INT32:
+                limit = Integer.MAX_VALUE;
+                break;
+            default:
+                return value;
+        }
+        if (value > limit || value < -limit - 1) {
+            throw error("Value " + value + " of field " + field.getName() + " at row " + row + " is out of range");
+        }
+        return value;
+    }
+
+    private double real(ByteBuffer buffer, int offset) {
+        return itemSize == 4 ? buffer.getFloat(offset) : buffer.getDouble(offset);
+    }
+
+    /**
+     * Decodes a UTF-32 string, which NumPy pads with NUL characters.
+     */
+    private String string(ByteBuffer buffer, int offset, long row) {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < itemSize; i += 4) {
+            int codePoint = buffer.getInt(offset + i);
+            if (codePoint == 0) {
+                break;
+            }
+            if (!Character.isValidCodePoint(codePoint)) {
+                throw error("Invalid character in value of field " + field.getName() + " at row " + row);
+            }
+            value.appendCodePoint(codePoint);
+        }
+        int maxChars = VarcharColumn.maxChars(field);
+        if (value.length() > maxChars) {
+            throw error("Value of field " + field.getName() + " at row " + row + " is longer than " + maxChars);
+        }
+        return value.toString();
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(file.getFileName() + ": " + message);
+    }
+
+    /**
+     * The chunks of a mapped region in the byte order of the array.
+     */
+    private final class Rows {
+        private final PagedBuffer region;
+        private ByteBuffer chunk;
+        private ByteBuffer view;
+
+        Rows(PagedBuffer region) {
+            this.region = region;
+        }
+
+        ByteBuffer at(int row) {
+            ByteBuffer current = region.chunk(row);
+            if (current != chunk) {
+                chunk = current;
+                view = current.duplicate().order(order);
+            }
+            return view;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package io.milvus.engine;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The search replicas of a loaded collection. Every replica is an independent pool of search threads with its own
+ * queue, so a slow search only holds up the replica running it; the segments themselves are immutable or
+ * append-only and shared by all replicas. Each search goes to the replica with the fewest searches queued or
+ * running, ties broken round-robin.
+ * <p>
+ * The search threads are split among the replicas rather than given to each of them, so adding replicas isolates
+ * searches from each other without oversubscribing the CPU. Every replica keeps at least one thread.
+ */
+final class ReplicaGroup {
+    private final Replica[] replicas;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private static final class Replica {
+        final ExecutorService executor;
+        final AtomicInteger depth = new AtomicInteger();
+
+        Replica(String name, int threads) {
+            AtomicInteger count = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    ReplicaGroup(String collectionName, int count, int threads) {
+        replicas = new Replica[count];
+        for (int r = 0; r < count; r++) {
+            int share = threads / count + (r < threads % count ? 1 : 0);
+            replicas[r] = new Replica("search-" + collectionName + "-replica-" + r, Math.max(1, share));
+        }
+    }
+
+    int size() {
+        return replicas.length;
+    }
+
+    /**
+     * Runs a search on the least loaded replica and waits for its result.
+     *
+     * @return the result of the search.
+     * @throws IllegalStateException if the replicas have been shut down.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    <T> T call(Callable<T> search) throws InterruptedException {
+        Replica replica = route();
+        replica.depth.incrementAndGet();
+        Future<T> future;
+        try {
+            future = replica.executor.submit(() -> {
+                try {
+                    return search.call();
+                } finally {
+                    replica.depth.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            replica.depth.decrementAndGet();
+            throw new IllegalStateException("The collection has been released", e);
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private Replica route() {
+        int start = Math.floorMod(next.getAndIncrement(), replicas.length);
+        Replica best = replicas[start];
+        int bestDepth = best.depth.get();
+        for (int i = 1; i < replicas.length && bestDepth > 0; i++) {
+            Replica replica = replicas[(start + i) % replicas.length];
+            int depth = replica.depth.get();
+            if (depth < bestDepth) {
+                best = replica;
+                bestDepth = depth;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Stops accepting searches; the searches already queued still run.
+     */
+    void shutdown() {
+        for (Replica replica : replicas) {
+            replica.executor.shutdown();
+        }
+    }
+}
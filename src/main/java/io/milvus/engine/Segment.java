@@ -0,0 +1,959 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.filter.ColumnBlocks;
+import io.milvus.filter.FilterPlan;
+import io.milvus.filter.Utf8Block;
+import io.milvus.index.BinaryVectorIndex;
+import io.milvus.index.FloatVectorIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.index.SearchResult;
+import io.milvus.index.TopKHeap;
+import io.milvus.index.VectorIndex;
+import io.milvus.index.scalar.ScalarIndex;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * A horizontal slice of a collection with one off-heap {@link Column} per field. While growing, inserters claim a
+ * row range with a compare-and-set on the reservation counter, write their rows without locking, and publish them
+ * in reservation order, so readers only ever see fully written rows. Sealing stops new reservations, waits for the
+ * writers in flight and compacts every column; the sealed segment is immutable and every indexed vector field gets
+ * its own {@link VectorIndex} over its rows, every indexed scalar field its own {@link ScalarIndex} on the heap.
+ * <p>
+ * A sealed segment can be persisted to a file of consecutive column regions, after which its columns are read-only
+ * mappings of that file that {@link #release()} unmaps and {@link #load()} maps again; indexes kept in index files
+ * are dropped and reopened with them. Readers {@link #pin()} the segment while they use it, so unmapping waits
+ * for them instead of pulling the pages from under their feet.
+ * <p>
+ * Deleting rows never rewrites a segment: the deleted row offsets go to a compressed {@link RowBitmap} that
+ * searches pass as a mask to the index or the column scan. The bitmap is copied on write, so a search keeps the
+ * one it started with. Filter expressions read the scalar columns they need a block of rows at a time, or look the
+ * rows up in the scalar indexes, into the same kind of bitmap, which a filtered search passes as its mask instead.
+ * <p>
+ * A segment counts its rows, deleted rows, stored bytes per field and indexed fields as they change, and while it
+ * is attached to the {@link CollectionStatistics} of its collection it reports every change there as well.
+ */
+final class Segment {
+    private static final int MAGIC = 0x4D534547;
+    private static final int VERSION = 1;
+
+    /**
+     * Reopens an index kept in an index file.
+     */
+    interface IndexFile {
+        VectorIndex open() throws IOException;
+    }
+
+    private final long id;
+    private final List<FieldType> fields;
+    private final Column[] columns;
+    private final int capacity;
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicInteger committed = new AtomicInteger();
+    private final Map<String, VectorIndex> indexes = new ConcurrentHashMap<>();
+    // on the heap, kept while the segment is released
+    private final Map<String, ScalarIndex> scalarIndexes = new ConcurrentHashMap<>();
+    // the number of readers, -1 while the columns are unmapped
+    private final AtomicInteger readers = new AtomicInteger();
+    // guarded by this
+    private final Map<String, IndexFile> indexFiles = new HashMap<>();
+    private volatile Path file;
+    private long[] positions;
+    private final Object deleteLock = new Object();
+    // replaced, never modified, once published; null while no row is deleted
+    private volatile RowBitmap deleted;
+    private volatile int deletedCount;
+    private final AtomicLongArray bytes;
+    // changed under this
+    private volatile CollectionStatistics statistics;
+
+    Segment(long id, List<FieldType> fields, int capacity) {
+        this.id = id;
+        this.fields = fields;
+        this.capacity = capacity;
+        this.columns = new Column[fields.size()];
+        this.bytes = new AtomicLongArray(fields.size());
+        for (int f = 0; f < columns.length; f++) {
+            columns[f] = Column.create(fields.get(f));
+        }
+    }
+
+    /**
+     * Opens a segment persisted by {@link #persist(Path)}, released: only the header is read.
+     *
+     * @return {@link Segment}
+     * @throws IOException if the file cannot be read or does not match the fields.
+     */
+    static Segment open(long id, List<FieldType> fields, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(headerBytes(fields.size())).order(ByteOrder.LITTLE_ENDIAN);
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (header.hasRemaining()) {
+                if (channel.read(header, header.position()) < 0) {
+                    throw new IOException("Truncated segment file: " + file);
+                }
+            }
+            size = channel.size();
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a segment file: " + file);
+        }
+        int rows = header.getInt();
+        if (header.getInt() != fields.size()) {
+            throw new IOException("Segment file " + file + " does not match the schema");
+        }
+        Segment segment = new Segment(id, fields, rows);
+        segment.reserved.set(rows);
+        segment.committed.set(rows);
+        segment.positions = new long[fields.size()];
+        for (int f = 0; f < fields.size(); f++) {
+            segment.positions[f] = header.getLong();
+        }
+        // the column regions are written back to back
+        for (int f = 0; f < fields.size(); f++) {
+            long end = f + 1 < fields.size() ? segment.positions[f + 1] : size;
+            segment.bytes.set(f, end - segment.positions[f]);
+        }
+        segment.file = file;
+        segment.readers.set(-1);
+        return segment;
+    }
+
+    /**
+     * Writes the region of one column in the layout the column maps, from a file position.
+     */
+    interface RegionWriter {
+        /**
+         * @return the file position after the region.
+         */
+        long write(int field, FileChannel channel, long position) throws IOException;
+    }
+
+    /**
+     * Assembles a segment file of <code>rows</code> rows region by region, without building its columns in
+     * memory, and opens it released as {@link #open(long, List, Path)} does.
+     *
+     * @return {@link Segment}
+     * @throws IOException if the file cannot be written.
+     */
+    static Segment write(long id, List<FieldType> fields, Path target, int rows, RegionWriter writer)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(headerBytes(fields.size())).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(fields.size());
+            long position = headerBytes(fields.size());
+            for (int f = 0; f < fields.size(); f++) {
+                header.putLong(position);
+                position = writer.write(f, channel, position);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        return open(id, fields, target);
+    }
+
+    private static int headerBytes(int columns) {
+        return 16 + 8 * columns;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Returns the number of published rows.
+     *
+     * @return <code>int</code>
+     */
+    int getRowCount() {
+        return committed.get();
+    }
+
+    /**
+     * Returns the deleted rows, or <code>null</code> if there are none. The bitmap must not be modified.
+     *
+     * @return {@link RowBitmap}
+     */
+    RowBitmap getDeleted() {
+        return deleted;
+    }
+
+    /**
+     * Returns the number of deleted rows.
+     *
+     * @return <code>int</code>
+     */
+    int getDeletedCount() {
+        return deletedCount;
+    }
+
+    /**
+     * Returns the bytes the values of a field take once sealed.
+     *
+     * @return <code>long</code>
+     */
+    long getFieldBytes(int field) {
+        return bytes.get(field);
+    }
+
+    /**
+     * Replaces the deleted rows by ones read from a manifest.
+     */
+    void setDeleted(RowBitmap rows) {
+        synchronized (deleteLock) {
+            deleted = rows == null || rows.isEmpty() ? null : rows;
+            int count = deleted == null ? 0 : deleted.cardinality();
+            CollectionStatistics totals = statistics;
+            if (totals != null) {
+                totals.addDeleted(count - deletedCount);
+            }
+            deletedCount = count;
+        }
+    }
+
+    /**
+     * Marks rows as deleted by publishing a copy of the bitmap with them added.
+     *
+     * @return the number of rows that were not deleted yet.
+     */
+    int delete(int[] rows, int count) {
+        if (count == 0) {
+            return 0;
+        }
+        synchronized (deleteLock) {
+            RowBitmap next = deleted == null ? new RowBitmap() : deleted.copy();
+            int added = 0;
+            for (int i = 0; i < count; i++) {
+                if (next.add(rows[i])) {
+                    added++;
+                }
+            }
+            next.runOptimize();
+            deleted = next;
+            deletedCount += added;
+            CollectionStatistics totals = statistics;
+            if (totals != null) {
+                totals.addDeleted(added);
+            }
+            return added;
+        }
+    }
+
+    /**
+     * Finds the rows whose value of a field is one of <code>values</code> and that are not deleted, through the
+     * scalar index of the field if it has one, and otherwise mapping the column just for the lookup while the
+     * segment is released.
+     *
+     * @return the row offsets in ascending order.
+     */
+    int[] findRows(int field, Set<?> values) {
+        ScalarIndex index = scalarIndexes.get(fields.get(field).getName());
+        if (index != null) {
+            return findRows(index, values);
+        }
+        if (pin()) {
+            try {
+                return findRows(columns[field], values);
+            } finally {
+                unpin();
+            }
+        }
+        Column column = mapColumn(field);
+        try {
+            return findRows(column, values);
+        } finally {
+            column.unmap();
+        }
+    }
+
+    private int[] findRows(ScalarIndex index, Set<?> values) {
+        int rows = index.getRowCount();
+        long[] words = new long[(rows + 63) >>> 6];
+        for (Object value : values) {
+            if (value instanceof String) {
+                byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                index.select(utf8, true, utf8, true, words);
+            } else {
+                index.select((Long) value, (Long) value, words);
+            }
+        }
+        RowBitmap excluded = deleted;
+        if (excluded != null) {
+            for (int row = excluded.next(0); row >= 0 && row < rows; row = excluded.next(row + 1)) {
+                words[row >>> 6] &= ~(1L << row);
+            }
+        }
+        int n = 0;
+        for (long word : words) {
+            n += Long.bitCount(word);
+        }
+        int[] found = new int[n];
+        n = 0;
+        for (int w = 0; w < words.length; w++) {
+            for (long word = words[w]; word != 0; word &= word - 1) {
+                found[n++] = w << 6 | Long.numberOfTrailingZeros(word);
+            }
+        }
+        return found;
+    }
+
+    private int[] findRows(Column column, Set<?> values) {
+        RowBitmap excluded = deleted;
+        int rows = getRowCount();
+        int[] found = new int[16];
+        int n = 0;
+        for (int row = 0; row < rows; row++) {
+            if (values.contains(column.get(row)) && (excluded == null || !excluded.contains(row))) {
+                if (n == found.length) {
+                    found = Arrays.copyOf(found, n * 2);
+                }
+                found[n++] = row;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    /**
+     * Returns whether no more rows can be reserved.
+     *
+     * @return <code>boolean</code>
+     */
+    boolean isFull() {
+        return reserved.get() >= capacity;
+    }
+
+    /**
+     * Appends rows from validated column values, one list per field in schema order. If writing them fails, the
+     * reserved rows are still published, as deleted rows, before the failure is thrown.
+     *
+     * @return the number of appended rows, less than <code>count</code> once the segment is full.
+     */
+    int append(List<List<?>> values, int from, int count) {
+        int start;
+        int n;
+        do {
+            start = reserved.get();
+            n = Math.min(count, capacity - start);
+            if (n <= 0) {
+                return 0;
+            }
+        } while (!reserved.compareAndSet(start, start + n));
+
+        long[] written = new long[columns.length];
+        boolean complete = false;
+        try {
+            for (int f = 0; f < columns.length; f++) {
+                List<?> column = values.get(f);
+                for (int i = 0; i < n; i++) {
+                    written[f] += columns[f].set(start + i, column.get(from + i));
+                }
+                bytes.addAndGet(f, written[f]);
+            }
+            complete = true;
+        } finally {
+            // publish after the writers of all earlier ranges, even a failed range, which later writers and
+            // seal() would otherwise wait on forever
+            while (committed.get() != start) {
+                Thread.yield();
+            }
+            CollectionStatistics totals = statistics;
+            if (totals != null) {
+                totals.addRows(n, written);
+            }
+            if (!complete) {
+                // the rows may be partly written: hide them before they become visible
+                int[] rows = new int[n];
+                for (int i = 0; i < n; i++) {
+                    rows[i] = start + i;
+                }
+                delete(rows, n);
+            }
+            committed.set(start + n);
+        }
+        return n;
+    }
+
+    /**
+     * Stops new reservations, waits until the rows reserved so far are published and compacts every column.
+     */
+    void seal() {
+        int rows = Math.min(capacity, reserved.getAndSet(capacity));
+        while (committed.get() != rows) {
+            LockSupport.parkNanos(10_000L);
+        }
+        for (Column column : columns) {
+            column.seal(rows);
+        }
+    }
+
+    /**
+     * Copies the rows of sealed segments that are not excluded into a new sealed segment, source after source and
+     * in row order, pacing the copy with a budget. Released sources are mapped just for the copy.
+     *
+     * @param excluded The rows to leave out of each source, or <code>null</code> entries.
+     * @param rowMaps Receives, for every source, the row each of its rows became in the new segment, or -1.
+     * @return the new segment, possibly without rows.
+     */
+    static Segment merge(long id, List<FieldType> fields, List<Segment> sources, RowBitmap[] excluded,
+                         int[][] rowMaps, CompactionBudget budget) {
+        int total = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            total += sources.get(s).getRowCount() - (excluded[s] == null ? 0 : excluded[s].cardinality());
+        }
+        Segment merged = new Segment(id, fields, Math.max(total, 1));
+        long rowBytes = rowBytes(fields);
+        int next = 0;
+        for (int s = 0; s < sources.size(); s++) {
+            Segment source = sources.get(s);
+            boolean pinned = source.pin();
+            Column[] columns = new Column[fields.size()];
+            try {
+                for (int f = 0; f < columns.length; f++) {
+                    columns[f] = pinned ? source.columns[f] : source.mapColumn(f);
+                }
+                int rows = source.getRowCount();
+                int[] map = new int[rows];
+                RowBitmap skip = excluded[s];
+                int nextSkip = skip == null ? -1 : skip.next(0);
+                long stepStart = System.nanoTime();
+                int stepRows = 0;
+                for (int row = 0; row < rows; row++) {
+                    if (row == nextSkip) {
+                        map[row] = -1;
+                        nextSkip = skip.next(row + 1);
+                        continue;
+                    }
+                    for (int f = 0; f < columns.length; f++) {
+                        merged.bytes.addAndGet(f, merged.columns[f].set(next, columns[f].get(row)));
+                    }
+                    map[row] = next++;
+                    if (++stepRows == 4096) {
+                        budget.charge(stepRows * rowBytes, System.nanoTime() - stepStart);
+                        stepRows = 0;
+                        stepStart = System.nanoTime();
+                    }
+                }
+                budget.charge(stepRows * rowBytes, System.nanoTime() - stepStart);
+                rowMaps[s] = map;
+            } finally {
+                if (pinned) {
+                    source.unpin();
+                } else {
+                    for (Column column : columns) {
+                        if (column != null) {
+                            column.unmap();
+                        }
+                    }
+                }
+            }
+        }
+        merged.reserved.set(next);
+        merged.committed.set(next);
+        merged.seal();
+        return merged;
+    }
+
+    /**
+     * Estimates the bytes of a row, counting 16 bytes for every string.
+     */
+    static long rowBytes(List<FieldType> fields) {
+        long bytes = 0L;
+        for (FieldType field : fields) {
+            switch (field.getDataType()) {
+                case BOOL:
+                    bytes += 1;
+                    break;
+                case FLOAT_VECTOR:
+                    bytes += 4L * field.getDimension();
+                    break;
+                case BINARY_VECTOR:
+                    bytes += field.getDimension() / 8;
+                    break;
+                case VARCHAR:
+                    bytes += 16;
+                    break;
+                default:
+                    bytes += 8;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Reads a value. The caller holds a {@link #pin()} on a persisted segment.
+     */
+    Object get(int field, int row) {
+        return columns[field].get(row);
+    }
+
+    /**
+     * Copies the float vectors of a sealed segment to the heap for an index build, mapping the column just for
+     * the copy while the segment is released.
+     */
+    float[] floatVectors(int field) {
+        if (pin()) {
+            try {
+                return ((FixedColumn) columns[field]).toFloatArray(getRowCount());
+            } finally {
+                unpin();
+            }
+        }
+        FixedColumn column = (FixedColumn) mapColumn(field);
+        try {
+            return column.toFloatArray(getRowCount());
+        } finally {
+            column.unmap();
+        }
+    }
+
+    /**
+     * Builds an index of a scalar field of a sealed segment, mapping the column just for the build while the
+     * segment is released.
+     *
+     * @return {@link ScalarIndex}
+     */
+    ScalarIndex buildScalarIndex(int field, IndexType indexType) {
+        int rows = getRowCount();
+        try {
+            return readColumns(new int[]{field}, columns -> {
+                Column column = columns[field];
+                switch (fields.get(field).getDataType()) {
+                    case VARCHAR:
+                        return ScalarIndex.build(indexType, rows, ((VarcharColumn) column)::utf8);
+                    case FLOAT:
+                    case DOUBLE:
+                        double[] doubles = new double[rows];
+                        ((FixedColumn) column).readDoubles(0, rows, doubles);
+                        return ScalarIndex.build(indexType, doubles);
+                    default:
+                        long[] longs = new long[rows];
+                        ((FixedColumn) column).readLongs(0, rows, longs);
+                        return ScalarIndex.build(indexType, longs);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Copies the packed binary vectors of a sealed segment to the heap for an index build, mapping the column
+     * just for the copy while the segment is released.
+     */
+    long[] binaryVectors(int field) {
+        if (pin()) {
+            try {
+                return ((FixedColumn) columns[field]).toLongArray(getRowCount());
+            } finally {
+                unpin();
+            }
+        }
+        FixedColumn column = (FixedColumn) mapColumn(field);
+        try {
+            return column.toLongArray(getRowCount());
+        } finally {
+            column.unmap();
+        }
+    }
+
+    /**
+     * Reads the sealed columns of a segment as a whole.
+     */
+    interface ColumnsReader<T> {
+        T read(Column[] columns) throws IOException;
+    }
+
+    /**
+     * Hands the sealed columns to a reader, mapping them just for the read while the segment is released.
+     *
+     * @return what the reader returns.
+     * @throws IOException if the reader fails to write what it read.
+     */
+    <T> T readColumns(ColumnsReader<T> reader) throws IOException {
+        int[] all = new int[columns.length];
+        for (int f = 0; f < all.length; f++) {
+            all[f] = f;
+        }
+        return readColumns(all, reader);
+    }
+
+    /**
+     * Hands the columns to a reader, mapping only the given fields just for the read while the segment is
+     * released; the other columns are then <code>null</code>.
+     */
+    private <T> T readColumns(int[] needed, ColumnsReader<T> reader) throws IOException {
+        if (pin()) {
+            try {
+                return reader.read(columns);
+            } finally {
+                unpin();
+            }
+        }
+        Column[] mapped = new Column[columns.length];
+        try {
+            for (int f : needed) {
+                mapped[f] = mapColumn(f);
+            }
+            return reader.read(mapped);
+        } finally {
+            for (Column column : mapped) {
+                if (column != null) {
+                    column.unmap();
+                }
+            }
+        }
+    }
+
+    /**
+     * Evaluates a filter over the first <code>rows</code> rows, reading the columns it needs a block at a time.
+     *
+     * @param reject Whether to return the rows that are deleted or do not match, the mask of a filtered search,
+     *               rather than the live rows that match.
+     * @return {@link RowBitmap}
+     */
+    RowBitmap filter(FilterPlan plan, int rows, boolean reject) {
+        RowBitmap excluded = deleted;
+        try {
+            return readColumns(plan.getFields(), columns -> reject
+                    ? plan.reject(new ColumnBlockReader(columns), rows, excluded)
+                    : plan.select(new ColumnBlockReader(columns), rows, excluded));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the values of a field of the live rows that match a filter, such as the primary keys a delete by
+     * expression removes.
+     *
+     * @return <code>List</code>
+     */
+    List<Object> filterValues(FilterPlan plan, int field) {
+        int[] planFields = plan.getFields();
+        int[] needed = Arrays.copyOf(planFields, planFields.length + 1);
+        needed[planFields.length] = field;
+        RowBitmap excluded = deleted;
+        int rows = getRowCount();
+        try {
+            return readColumns(needed, columns -> {
+                RowBitmap matches = plan.select(new ColumnBlockReader(columns), rows, excluded);
+                List<Object> values = new ArrayList<>(matches.cardinality());
+                for (int row = matches.next(0); row >= 0; row = matches.next(row + 1)) {
+                    values.add(columns[field].get(row));
+                }
+                return values;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the scalar columns of a segment for a {@link FilterPlan}, along with their indexes.
+     */
+    private final class ColumnBlockReader implements ColumnBlocks {
+        private final Column[] columns;
+
+        ColumnBlockReader(Column[] columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public ScalarIndex index(int field) {
+            return scalarIndexes.get(fields.get(field).getName());
+        }
+
+        @Override
+        public void readLongs(int field, int from, int count, long[] into) {
+            ((FixedColumn) columns[field]).readLongs(from, count, into);
+        }
+
+        @Override
+        public void readDoubles(int field, int from, int count, double[] into) {
+            ((FixedColumn) columns[field]).readDoubles(from, count, into);
+        }
+
+        @Override
+        public void readStrings(int field, int from, int count, Utf8Block into) {
+            ((VarcharColumn) columns[field]).readStrings(from, count, into);
+        }
+    }
+
+    private Column mapColumn(int field) {
+        Column column = Column.create(fields.get(field));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            column.map(channel, positions[field], getRowCount());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return column;
+    }
+
+    /**
+     * Searches a vector field for the rows nearest to a query, through the field's index once it is built and by
+     * scanning the column otherwise. Deleted rows are masked out. The caller holds a {@link #pin()}.
+     *
+     * @param query A <code>float[]</code> or packed <code>long[]</code> vector.
+     * @return the nearest row offsets and their scores.
+     */
+    SearchResult search(int field, Object query, MetricType metricType, int topK, IndexParams searchParams) {
+        return search(field, query, metricType, topK, searchParams, getRowCount(), deleted);
+    }
+
+    /**
+     * Searches the first <code>rows</code> rows of a vector field, skipping the excluded ones, such as the mask
+     * {@link #filter(FilterPlan, int, boolean)} returns for those rows. The caller holds a {@link #pin()}.
+     *
+     * @return the nearest row offsets and their scores.
+     */
+    SearchResult search(int field, Object query, MetricType metricType, int topK, IndexParams searchParams,
+                        int rows, RowBitmap excluded) {
+        if (rows == 0) {
+            return SearchResult.empty();
+        }
+        VectorIndex index = indexes.get(fields.get(field).getName());
+        if (index != null) {
+            if (index.getMetricType() != metricType) {
+                throw new IllegalArgumentException("Field " + fields.get(field).getName() + " is indexed with "
+                        + index.getMetricType() + ", not " + metricType);
+            }
+            if (index instanceof FloatVectorIndex) {
+                return ((FloatVectorIndex) index).search((float[]) query, topK, searchParams, excluded);
+            }
+            return ((BinaryVectorIndex) index).search((long[]) query, topK, searchParams, excluded);
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topK, rows));
+        FixedColumn column = (FixedColumn) columns[field];
+        if (query instanceof float[]) {
+            column.scan((float[]) query, metricType, rows, excluded, heap);
+        } else {
+            column.scan((long[]) query, metricType, rows, excluded, heap);
+        }
+        return heap.toResult(metricType);
+    }
+
+    /**
+     * Returns whether an index of a field has been built, whether or not it is open.
+     *
+     * @return <code>boolean</code>
+     */
+    synchronized boolean hasIndex(String fieldName) {
+        return indexes.containsKey(fieldName) || indexFiles.containsKey(fieldName)
+                || scalarIndexes.containsKey(fieldName);
+    }
+
+    synchronized void putIndex(String fieldName, VectorIndex index) {
+        countIndex(fieldName);
+        indexes.put(fieldName, index);
+    }
+
+    synchronized void putIndex(String fieldName, ScalarIndex index) {
+        countIndex(fieldName);
+        scalarIndexes.put(fieldName, index);
+    }
+
+    /**
+     * Adds an index kept in an index file. While the segment is released the index is only remembered, to be
+     * reopened by {@link #load()}.
+     */
+    synchronized void putIndex(String fieldName, VectorIndex index, IndexFile indexFile) {
+        countIndex(fieldName);
+        indexFiles.put(fieldName, indexFile);
+        if (readers.get() >= 0) {
+            indexes.put(fieldName, index);
+        }
+    }
+
+    private void countIndex(String fieldName) {
+        if (statistics != null && !hasIndex(fieldName)) {
+            statistics.addIndexed(fieldIndex(fieldName), getRowCount());
+        }
+    }
+
+    private int fieldIndex(String fieldName) {
+        for (int f = 0; f < fields.size(); f++) {
+            if (fields.get(f).getName().equals(fieldName)) {
+                return f;
+            }
+        }
+        throw new IllegalArgumentException("Field " + fieldName + " does not exist");
+    }
+
+    /**
+     * Starts reporting to the statistics of a collection, adding what the segment holds so far. A growing segment
+     * is attached before inserters can see it.
+     */
+    synchronized void attach(CollectionStatistics totals) {
+        report(totals, 1);
+        synchronized (deleteLock) {
+            totals.addDeleted(deletedCount);
+            statistics = totals;
+        }
+    }
+
+    /**
+     * Stops reporting to the statistics of the collection and subtracts what the segment holds, once a merge has
+     * replaced it.
+     */
+    synchronized void detach() {
+        CollectionStatistics totals = statistics;
+        if (totals == null) {
+            return;
+        }
+        synchronized (deleteLock) {
+            statistics = null;
+            totals.addDeleted(-deletedCount);
+        }
+        report(totals, -1);
+    }
+
+    private void report(CollectionStatistics totals, int sign) {
+        int rows = getRowCount();
+        long[] fieldBytes = new long[fields.size()];
+        for (int f = 0; f < fieldBytes.length; f++) {
+            fieldBytes[f] = sign * bytes.get(f);
+            if (hasIndex(fields.get(f).getName())) {
+                totals.addIndexed(f, sign * (long) rows);
+            }
+        }
+        totals.addRows(sign * (long) rows, fieldBytes);
+    }
+
+    /**
+     * Returns whether the segment has been written to a file.
+     *
+     * @return <code>boolean</code>
+     */
+    boolean isPersisted() {
+        return file != null;
+    }
+
+    /**
+     * Writes a sealed segment to a file and replaces its columns by read-only mappings of it, so its pages live
+     * in the OS page cache rather than in process memory.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    synchronized void persist(Path target) throws IOException {
+        int rows = getRowCount();
+        long[] starts = new long[columns.length];
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = headerBytes(columns.length);
+            for (int f = 0; f < columns.length; f++) {
+                starts[f] = position;
+                position = columns[f].writeTo(channel, position);
+            }
+            ByteBuffer header = ByteBuffer.allocate(headerBytes(columns.length)).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(columns.length);
+            for (long start : starts) {
+                header.putLong(start);
+            }
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+            for (int f = 0; f < columns.length; f++) {
+                columns[f].map(channel, starts[f], rows);
+            }
+        }
+        positions = starts;
+        file = target;
+    }
+
+    /**
+     * Maps the columns of a released segment again and reopens its index files. Only metadata is read.
+     *
+     * @throws IOException if a file cannot be mapped.
+     */
+    synchronized void load() throws IOException {
+        if (readers.get() >= 0) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (int f = 0; f < columns.length; f++) {
+                columns[f].map(channel, positions[f], getRowCount());
+            }
+        }
+        for (Map.Entry<String, IndexFile> entry : indexFiles.entrySet()) {
+            indexes.put(entry.getKey(), entry.getValue().open());
+        }
+        readers.set(0);
+    }
+
+    /**
+     * Reads the mapped columns into physical memory. The caller holds a {@link #pin()}.
+     */
+    void warmUp() {
+        for (Column column : columns) {
+            column.load();
+        }
+    }
+
+    /**
+     * Waits until no reader is left, then unmaps the columns and drops the indexes kept in index files. Has no
+     * effect on a segment that is not persisted, whose columns are its only copy.
+     */
+    synchronized void release() {
+        if (file == null || readers.get() < 0) {
+            return;
+        }
+        while (!readers.compareAndSet(0, -1)) {
+            LockSupport.parkNanos(100_000L);
+        }
+        for (Column column : columns) {
+            column.unmap();
+        }
+        for (String fieldName : indexFiles.keySet()) {
+            indexes.remove(fieldName);
+        }
+    }
+
+    /**
+     * Registers a reader of the columns.
+     *
+     * @return <code>false</code> if the segment is released, in which case it must not be read.
+     */
+    boolean pin() {
+        while (true) {
+            int current = readers.get();
+            if (current < 0) {
+                return false;
+            }
+            if (readers.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    void unpin() {
+        readers.decrementAndGet();
+    }
+}
@@ -0,0 +1,278 @@
+package io.milvus.engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.filter.Utf8Block;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * A column of UTF-8 strings. While growing, writers reserve byte ranges in the data pages with one compare-and-set
+ * and record <code>(position, length)</code> in a slot per row; a value never straddles two data pages. Sealing
+ * packs the bytes back to back and keeps one end offset per row, so row <code>i</code> spans
+ * <code>[end(i - 1), end(i))</code>; in a file the end offsets precede the bytes.
+ */
+final class VarcharColumn extends Column {
+    private static final int DATA_PAGE_SHIFT = 20;
+    private static final int DATA_PAGE_BYTES = 1 << DATA_PAGE_SHIFT;
+    private static final int SLOT_BYTES = 12;
+    private static final int SLOTS_PER_PAGE = (1 << 16) / SLOT_BYTES;
+
+    /**
+     * The longest accepted string, so that a value of up to three bytes per character fits in one data page.
+     */
+    static final int MAX_CHARS = DATA_PAGE_BYTES / 3;
+
+    /**
+     * Returns the longest string a field accepts: its <code>max_length</code>, bounded by {@link #MAX_CHARS}.
+     *
+     * @return <code>int</code>
+     */
+    static int maxChars(FieldType field) {
+        return field.getMaxLength() > 0 ? Math.min(field.getMaxLength(), MAX_CHARS) : MAX_CHARS;
+    }
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile DirectPages data = new DirectPages(DATA_PAGE_BYTES);
+    private volatile DirectPages slots = new DirectPages(SLOTS_PER_PAGE * SLOT_BYTES);
+    private volatile PagedBuffer offsets;
+    private volatile PagedBuffer bytes;
+
+    @Override
+    int set(int row, Object value) {
+        byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+        long position = reserve(utf8.length);
+        ByteBuffer page = data.page((int) (position >>> DATA_PAGE_SHIFT)).duplicate();
+        page.position((int) (position & (DATA_PAGE_BYTES - 1)));
+        page.put(utf8);
+        ByteBuffer slot = slots.page(row / SLOTS_PER_PAGE);
+        int offset = (row % SLOTS_PER_PAGE) * SLOT_BYTES;
+        slot.putLong(offset, position);
+        slot.putInt(offset + 8, utf8.length);
+        // the bytes and the end offset
+        return utf8.length + 8;
+    }
+
+    private long reserve(int length) {
+        while (true) {
+            long current = cursor.get();
+            long start = current;
+            if ((current & (DATA_PAGE_BYTES - 1)) + length > DATA_PAGE_BYTES) {
+                start = (current >>> DATA_PAGE_SHIFT) + 1 << DATA_PAGE_SHIFT;
+            }
+            if (cursor.compareAndSet(current, start + length)) {
+                return start;
+            }
+        }
+    }
+
+    @Override
+    Object get(int row) {
+        return new String(utf8(row), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the UTF-8 bytes of a row without decoding them. Works on growing and sealed columns alike.
+     *
+     * @return <code>byte[]</code>
+     */
+    byte[] utf8(int row) {
+        PagedBuffer ends = offsets;
+        if (ends == null) {
+            DirectPages slotPages = slots;
+            DirectPages dataPages = data;
+            if (slotPages != null && dataPages != null) {
+                ByteBuffer slot = slotPages.page(row / SLOTS_PER_PAGE);
+                int offset = (row % SLOTS_PER_PAGE) * SLOT_BYTES;
+                long position = slot.getLong(offset);
+                byte[] utf8 = new byte[slot.getInt(offset + 8)];
+                ByteBuffer page = dataPages.page((int) (position >>> DATA_PAGE_SHIFT)).duplicate();
+                page.position((int) (position & (DATA_PAGE_BYTES - 1)));
+                page.get(utf8);
+                return utf8;
+            }
+            ends = offsets;
+        }
+        long start = row == 0 ? 0L : end(ends, row - 1);
+        byte[] utf8 = new byte[(int) (end(ends, row) - start)];
+        PagedBuffer region = bytes;
+        for (int i = 0; i < utf8.length; i++) {
+            utf8[i] = region.chunk(start + i).get(region.offset(start + i));
+        }
+        return utf8;
+    }
+
+    /**
+     * Appends the UTF-8 bytes of rows <code>[from, from + count)</code> to a block, without decoding them. Works on
+     * growing and sealed columns alike.
+     */
+    void readStrings(int from, int count, Utf8Block into) {
+        PagedBuffer ends = offsets;
+        if (ends == null) {
+            DirectPages slotPages = slots;
+            DirectPages dataPages = data;
+            if (slotPages != null && dataPages != null) {
+                for (int row = from; row < from + count; row++) {
+                    ByteBuffer slot = slotPages.page(row / SLOTS_PER_PAGE);
+                    int offset = (row % SLOTS_PER_PAGE) * SLOT_BYTES;
+                    long position = slot.getLong(offset);
+                    into.add(dataPages.page((int) (position >>> DATA_PAGE_SHIFT)),
+                            (int) (position & (DATA_PAGE_BYTES - 1)), slot.getInt(offset + 8));
+                }
+                return;
+            }
+            ends = offsets;
+        }
+        PagedBuffer region = bytes;
+        long start = from == 0 ? 0L : end(ends, from - 1);
+        for (int row = from; row < from + count; row++) {
+            long end = end(ends, row);
+            int length = (int) (end - start);
+            if (length == 0) {
+                into.add(EMPTY);
+            } else if (region.chunk(start) == region.chunk(end - 1)) {
+                into.add(region.chunk(start), region.offset(start), length);
+            } else {
+                // straddles two chunks
+                byte[] utf8 = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    utf8[i] = region.chunk(start + i).get(region.offset(start + i));
+                }
+                into.add(utf8);
+            }
+            start = end;
+        }
+    }
+
+    private static long end(PagedBuffer ends, int row) {
+        return ends.chunk(row).getLong(ends.offset(row));
+    }
+
+    /**
+     * Writes the region a sealed column of <code>rows</code> values maps, without building the column. The values
+     * are asked for once each, in row order.
+     *
+     * @return the file position after the region.
+     */
+    static long writeRegion(FileChannel channel, long position, int rows, IntFunction<String> values)
+            throws IOException {
+        ByteBuffer ends = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        // holds any value of at most MAX_CHARS characters
+        ByteBuffer packed = ByteBuffer.allocateDirect(DATA_PAGE_BYTES);
+        long endsPosition = position;
+        long bytesPosition = position + 8L * rows;
+        long written = 0L;
+        for (int row = 0; row < rows; row++) {
+            byte[] utf8 = values.apply(row).getBytes(StandardCharsets.UTF_8);
+            if (packed.remaining() < utf8.length) {
+                bytesPosition = drain(channel, packed, bytesPosition);
+            }
+            packed.put(utf8);
+            written += utf8.length;
+            if (!ends.hasRemaining()) {
+                endsPosition = drain(channel, ends, endsPosition);
+            }
+            ends.putLong(written);
+        }
+        drain(channel, ends, endsPosition);
+        return drain(channel, packed, bytesPosition);
+    }
+
+    private static long drain(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        return position;
+    }
+
+    @Override
+    void seal(int rows) {
+        long total = 0L;
+        for (int row = 0; row < rows; row++) {
+            total += slots.page(row / SLOTS_PER_PAGE).getInt((row % SLOTS_PER_PAGE) * SLOT_BYTES + 8);
+        }
+        PagedBuffer ends = PagedBuffer.allocateDirect(rows, 8);
+        PagedBuffer packed = PagedBuffer.allocateDirect(total, 1);
+        long written = 0L;
+        for (int row = 0; row < rows; row++) {
+            ByteBuffer slot = slots.page(row / SLOTS_PER_PAGE);
+            int offset = (row % SLOTS_PER_PAGE) * SLOT_BYTES;
+            long position = slot.getLong(offset);
+            int length = slot.getInt(offset + 8);
+            ByteBuffer page = data.page((int) (position >>> DATA_PAGE_SHIFT));
+            int pageOffset = (int) (position & (DATA_PAGE_BYTES - 1));
+            for (int i = 0; i < length; i++) {
+                packed.chunk(written + i).put(packed.offset(written + i), page.get(pageOffset + i));
+            }
+            written += length;
+            ends.chunk(row).putLong(ends.offset(row), written);
+        }
+        bytes = packed;
+        offsets = ends;
+        data = null;
+        slots = null;
+    }
+
+    /**
+     * Returns the end offset of every row of the sealed column, 8 bytes each.
+     *
+     * @return {@link PagedBuffer}
+     */
+    PagedBuffer endRegion() {
+        return offsets;
+    }
+
+    /**
+     * Returns the packed bytes of the sealed column, one record per byte.
+     *
+     * @return {@link PagedBuffer}
+     */
+    PagedBuffer byteRegion() {
+        return bytes;
+    }
+
+    @Override
+    long writeTo(FileChannel channel, long position) throws IOException {
+        PagedBuffer ends = offsets;
+        PagedBuffer packed = bytes;
+        ends.writeTo(channel, position);
+        packed.writeTo(channel, position + ends.byteSize());
+        return position + ends.byteSize() + packed.byteSize();
+    }
+
+    @Override
+    void map(FileChannel channel, long position, int rows) throws IOException {
+        PagedBuffer ends = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, position, rows, 8);
+        long total = rows == 0 ? 0L : end(ends, rows - 1);
+        bytes = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, position + ends.byteSize(), total, 1);
+        offsets = ends;
+        data = null;
+        slots = null;
+    }
+
+    @Override
+    void load() {
+        offsets.load();
+        bytes.load();
+    }
+
+    @Override
+    void unmap() {
+        PagedBuffer ends = offsets;
+        PagedBuffer packed = bytes;
+        offsets = null;
+        bytes = null;
+        ends.unmap();
+        packed.unmap();
+    }
+}
@@ -0,0 +1,266 @@
+package io.milvus.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Hashtable;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.BinaryDistances;
+import io.milvus.index.IndexParams;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.index.CreateIndexParam;
+
+/**
+ * The record types of the engine's {@link WriteAheadLog} and their payloads. Every payload starts with the
+ * collection name, so replay can route records before decoding the rest; inserts are logged after validation,
+ * with generated primary keys filled in, so replay reproduces the same rows.
+ */
+final class WalRecords {
+    static final byte CREATE_COLLECTION = 1;
+    static final byte DROP_COLLECTION = 2;
+    static final byte INSERT = 3;
+    static final byte FLUSH = 4;
+    static final byte CREATE_INDEX = 5;
+    static final byte DELETE = 6;
+
+    private WalRecords() {}
+
+    static byte[] collection(String name) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new DataOutputStream(bytes).writeUTF(name);
+        return bytes.toByteArray();
+    }
+
+    static String collectionName(byte[] payload) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+    }
+
+    static byte[] createCollection(String name, CollectionSchema schema) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(name);
+        writeNullable(out, schema.getDescription());
+        out.writeInt(schema.getFieldTypes().size());
+        for (FieldType field : schema.getFieldTypes()) {
+            out.writeUTF(field.getName());
+            out.writeUTF(field.getDataType().name());
+            out.writeBoolean(field.isPrimaryKey());
+            out.writeBoolean(field.isAutoID());
+            writeNullable(out, field.getDescription());
+            writeMap(out, field.getTypeParams());
+        }
+        return bytes.toByteArray();
+    }
+
+    static CollectionSchema readSchema(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        CollectionSchema.Builder schema = CollectionSchema.newBuilder().withDescription(readNullable(in));
+        int fields = in.readInt();
+        for (int f = 0; f < fields; f++) {
+            FieldType.Builder field = FieldType.newBuilder()
+                    .withName(in.readUTF())
+                    .withDataType(DataType.valueOf(in.readUTF()))
+                    .withPrimaryKey(in.readBoolean())
+                    .withAutoID(in.readBoolean())
+                    .withDescription(readNullable(in));
+            field.withTypeParams(readMap(in));
+            schema.addFieldType(field.build());
+        }
+        return schema.build();
+    }
+
+    static byte[] insert(String name, List<FieldType> fields, List<List<?>> columns) throws IOException {
+        int rows = columns.get(0).size();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + rows * 16 * fields.size());
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(name);
+        out.writeInt(rows);
+        for (int f = 0; f < fields.size(); f++) {
+            DataType dataType = fields.get(f).getDataType();
+            for (Object value : columns.get(f)) {
+                switch (dataType) {
+                    case BOOL:
+                        out.writeBoolean((Boolean) value);
+                        break;
+                    case INT8:
+                    case INT16:
+                    case INT32:
+                    case INT64:
+                        out.writeLong((Long) value);
+                        break;
+                    case FLOAT:
+                    case DOUBLE:
+                        out.writeDouble((Double) value);
+                        break;
+                    case VARCHAR:
+                        byte[] utf8 = ((String) value).getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(utf8.length);
+                        out.write(utf8);
+                        break;
+                    case FLOAT_VECTOR:
+                        for (float x : (float[]) value) {
+                            out.writeFloat(x);
+                        }
+                        break;
+                    default:
+                        for (long word : (long[]) value) {
+                            out.writeLong(word);
+                        }
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<List<?>> readInsert(byte[] payload, List<FieldType> fields) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        int rows = in.readInt();
+        List<List<?>> columns = new ArrayList<>(fields.size());
+        for (FieldType field : fields) {
+            List<Object> column = new ArrayList<>(rows);
+            for (int i = 0; i < rows; i++) {
+                switch (field.getDataType()) {
+                    case BOOL:
+                        column.add(in.readBoolean());
+                        break;
+                    case INT8:
+                    case INT16:
+                    case INT32:
+                    case INT64:
+                        column.add(in.readLong());
+                        break;
+                    case FLOAT:
+                    case DOUBLE:
+                        column.add(in.readDouble());
+                        break;
+                    case VARCHAR:
+                        byte[] utf8 = new byte[in.readInt()];
+                        in.readFully(utf8);
+                        column.add(new String(utf8, StandardCharsets.UTF_8));
+                        break;
+                    case FLOAT_VECTOR:
+                        float[] vector = new float[field.getDimension()];
+                        for (int d = 0; d < vector.length; d++) {
+                            vector[d] = in.readFloat();
+                        }
+                        column.add(vector);
+                        break;
+                    default:
+                        long[] words = new long[BinaryDistances.words(field.getDimension())];
+                        for (int w = 0; w < words.length; w++) {
+                            words[w] = in.readLong();
+                        }
+                        column.add(words);
+                }
+            }
+            columns.add(column);
+        }
+        return columns;
+    }
+
+    static byte[] delete(String name, FieldType primary, Collection<?> keys) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + keys.size() * 8);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(name);
+        out.writeInt(keys.size());
+        for (Object key : keys) {
+            if (primary.getDataType() == DataType.VARCHAR) {
+                byte[] utf8 = ((String) key).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            } else {
+                out.writeLong((Long) key);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    static List<Object> readDelete(byte[] payload, FieldType primary) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        in.readUTF();
+        int count = in.readInt();
+        List<Object> keys = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (primary.getDataType() == DataType.VARCHAR) {
+                byte[] utf8 = new byte[in.readInt()];
+                in.readFully(utf8);
+                keys.add(new String(utf8, StandardCharsets.UTF_8));
+            } else {
+                keys.add(in.readLong());
+            }
+        }
+        return keys;
+    }
+
+    static byte[] createIndex(CreateIndexParam param) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(param.getCollectionName());
+        out.writeUTF(param.getFieldName());
+        writeNullable(out, param.getIndexName());
+        out.writeUTF(param.getIndexType().name());
+        // scalar indexes have no metric type
+        out.writeUTF((param.getMetricType() == null ? MetricType.INVALID : param.getMetricType()).name());
+        writeMap(out, IndexParams.of(param.getExtraParam()).asMap());
+        return bytes.toByteArray();
+    }
+
+    static CreateIndexParam readCreateIndex(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        return CreateIndexParam.newBuilder()
+                .withCollectionName(in.readUTF())
+                .withFieldName(in.readUTF())
+                .withIndexName(readNullable(in))
+                .withIndexType(IndexType.valueOf(in.readUTF()))
+                .withMetricType(metricType(in.readUTF()))
+                .withExtraParam(new Hashtable<>(readMap(in)))
+                .build();
+    }
+
+    private static MetricType metricType(String name) {
+        MetricType metricType = MetricType.valueOf(name);
+        return metricType == MetricType.INVALID ? null : metricType;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeMap(DataOutputStream out, Map<String, String> map) throws IOException {
+        out.writeInt(map.size());
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue());
+        }
+    }
+
+    private static Map<String, String> readMap(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, String> map = new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            map.put(in.readUTF(), in.readUTF());
+        }
+        return map;
+    }
+}
@@ -0,0 +1,382 @@
+package io.milvus.engine;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * A segmented, append-only log of CRC-framed records. Every record gets the next log sequence number (LSN); a
+ * frame is <code>[length:int][crc:int][lsn:long][type:byte][payload]</code>, little-endian, with the CRC-32
+ * covering everything after it. A log file is closed once it exceeds the segment size and the next one is named
+ * after its first LSN.
+ * <p>
+ * In {@link Durability#SYNC} mode every append writes and forces its own frame. Otherwise appends only copy their
+ * frame into a pending buffer and a single group-commit thread writes and forces everything pending, at most once
+ * per commit interval: {@link Durability#GROUP} appends wait for that force, {@link Durability#ASYNC} appends do
+ * not.
+ * <p>
+ * {@link #open} replays the existing records before accepting appends. A torn or corrupt frame at the end of the
+ * last file is the trace of a crash in the middle of a write and is truncated; anywhere else it is an error.
+ * Once the records of a prefix of the log are reflected elsewhere, {@link #truncate(long)} deletes the files
+ * holding only those records.
+ */
+final class WriteAheadLog implements Closeable {
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 1;
+    private static final int MAX_RECORD_BYTES = 1 << 30;
+
+    /**
+     * Receives the records found by {@link #open}, in log order.
+     */
+    interface Handler {
+        void apply(long lsn, byte type, byte[] payload) throws IOException;
+    }
+
+    private final Path directory;
+    private final Durability durability;
+    private final long intervalNanos;
+    private final long segmentBytes;
+    private final Object appendLock = new Object();
+    private final Object durableLock = new Object();
+    // serializes truncations, which may come from flushes of different collections at once
+    private final Object truncateLock = new Object();
+    private final Thread committer;
+
+    // guarded by appendLock
+    private ByteBuffer pending = newBuffer(1 << 16);
+    private long pendingFirstLsn;
+    private long nextLsn;
+    private boolean closed;
+
+    // written by one thread at a time: the appender in SYNC mode, the committer otherwise
+    private FileChannel channel;
+    private Path file;
+    private long channelBytes;
+
+    // guarded by durableLock
+    private long durableLsn;
+    private IOException failure;
+
+    private WriteAheadLog(Path directory, Durability durability, long intervalNanos, long segmentBytes,
+                          long nextLsn) throws IOException {
+        this.directory = directory;
+        this.durability = durability;
+        this.intervalNanos = intervalNanos;
+        this.segmentBytes = segmentBytes;
+        this.nextLsn = nextLsn;
+        this.pendingFirstLsn = nextLsn;
+        this.durableLsn = nextLsn - 1;
+        openFile(nextLsn);
+        if (durability == Durability.SYNC) {
+            committer = null;
+        } else {
+            committer = new Thread(this::commitLoop, "wal-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    /**
+     * Replays the log in a directory, then opens it for appending in a new file.
+     *
+     * @param directory The log directory, created if missing.
+     * @param durability When appends are forced to disk.
+     * @param interval The minimum time between two group commits.
+     * @param unit The unit of the interval.
+     * @param segmentBytes The size after which a new log file is started.
+     * @param checkpoint The highest LSN known to have been used elsewhere, so that LSNs keep increasing after the
+     * files holding it have been truncated.
+     * @param handler Receives every valid record in log order.
+     * @return {@link WriteAheadLog}
+     * @throws IOException if the log cannot be read or opened.
+     */
+    static WriteAheadLog open(Path directory, Durability durability, long interval, TimeUnit unit,
+                              long segmentBytes, long checkpoint, Handler handler) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = files(directory);
+        long lastLsn = 0L;
+        for (int i = 0; i < files.size(); i++) {
+            lastLsn = replay(files.get(i), i == files.size() - 1, lastLsn, handler);
+        }
+        return new WriteAheadLog(directory, durability, unit.toNanos(interval), segmentBytes,
+                Math.max(lastLsn, checkpoint) + 1);
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        // zero-padded names sort by first LSN
+        Collections.sort(files);
+        return files;
+    }
+
+    private static long firstLsn(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static long replay(Path file, boolean last, long lastLsn, Handler handler) throws IOException {
+        long valid = 0L;
+        long lsn = lastLsn;
+        byte[] header = new byte[HEADER_BYTES];
+        ByteBuffer head = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        CRC32 crc = new CRC32();
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file), 1 << 16)) {
+            DataInputStream data = new DataInputStream(in);
+            while (true) {
+                byte[] payload;
+                try {
+                    data.readFully(header);
+                    int length = head.getInt(0);
+                    if (length < 0 || length > MAX_RECORD_BYTES) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    data.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(header, 8, HEADER_BYTES - 8);
+                crc.update(payload, 0, payload.length);
+                long recordLsn = head.getLong(8);
+                if ((int) crc.getValue() != head.getInt(4) || recordLsn <= lsn) {
+                    break;
+                }
+                handler.apply(recordLsn, header[16], payload);
+                lsn = recordLsn;
+                valid += HEADER_BYTES + payload.length;
+            }
+        }
+        if (valid < Files.size(file)) {
+            if (!last) {
+                throw new IOException("Corrupt write-ahead log " + file + " at offset " + valid);
+            }
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(valid);
+                truncate.force(true);
+            }
+        }
+        return lsn;
+    }
+
+    /**
+     * Appends a record and waits as long as the durability mode requires.
+     *
+     * @return the LSN of the record.
+     * @throws IOException if the log cannot be written or has been closed.
+     */
+    long append(byte type, byte[] payload) throws IOException {
+        long lsn;
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IOException("Write-ahead log is closed");
+            }
+            lsn = nextLsn++;
+            frame(lsn, type, payload);
+            if (durability == Durability.SYNC) {
+                writePending();
+                channel.force(false);
+                return lsn;
+            }
+            appendLock.notifyAll();
+        }
+        if (durability == Durability.GROUP) {
+            awaitDurable(lsn);
+        } else {
+            checkFailure();
+        }
+        return lsn;
+    }
+
+    /**
+     * Deletes the log files whose records all have an LSN up to <code>lsn</code>. The file being appended to is
+     * kept.
+     *
+     * @throws IOException if the directory cannot be read or a file cannot be deleted.
+     */
+    void truncate(long lsn) throws IOException {
+        synchronized (truncateLock) {
+            List<Path> files = files(directory);
+            for (int i = 0; i + 1 < files.size(); i++) {
+                // a file followed by another one is closed
+                if (firstLsn(files.get(i + 1)) - 1 > lsn) {
+                    return;
+                }
+                Files.deleteIfExists(files.get(i));
+            }
+        }
+    }
+
+    private void frame(long lsn, byte type, byte[] payload) {
+        int size = HEADER_BYTES + payload.length;
+        if (pending.remaining() < size) {
+            ByteBuffer grown = newBuffer(Math.max(pending.capacity() * 2, pending.position() + size));
+            pending.flip();
+            grown.put(pending);
+            pending = grown;
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer tail = ByteBuffer.allocate(9).order(ByteOrder.LITTLE_ENDIAN).putLong(lsn).put(type);
+        crc.update(tail.array(), 0, 9);
+        crc.update(payload, 0, payload.length);
+        pending.putInt(payload.length).putInt((int) crc.getValue()).putLong(lsn).put(type).put(payload);
+    }
+
+    private void awaitDurable(long lsn) throws IOException {
+        synchronized (durableLock) {
+            while (durableLsn < lsn && failure == null) {
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        synchronized (durableLock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void commitLoop() {
+        long lastCommit = System.nanoTime() - intervalNanos;
+        while (true) {
+            ByteBuffer batch;
+            long firstLsn;
+            long lastLsn;
+            boolean stop;
+            synchronized (appendLock) {
+                while (pending.position() == 0 && !closed) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                stop = closed;
+            }
+            long wait = lastCommit + intervalNanos - System.nanoTime();
+            if (wait > 0 && !stop) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(wait);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            synchronized (appendLock) {
+                batch = pending;
+                firstLsn = pendingFirstLsn;
+                lastLsn = nextLsn - 1;
+                pending = newBuffer(Math.max(1 << 16, batch.capacity()));
+                pendingFirstLsn = nextLsn;
+                stop = closed;
+            }
+            lastCommit = System.nanoTime();
+            try {
+                if (batch.position() > 0) {
+                    batch.flip();
+                    write(batch, firstLsn);
+                    channel.force(false);
+                }
+                synchronized (durableLock) {
+                    durableLsn = lastLsn;
+                    durableLock.notifyAll();
+                }
+            } catch (IOException e) {
+                synchronized (durableLock) {
+                    failure = e;
+                    durableLock.notifyAll();
+                }
+                return;
+            }
+            if (stop) {
+                return;
+            }
+        }
+    }
+
+    private void writePending() throws IOException {
+        pending.flip();
+        write(pending, pendingFirstLsn);
+        pending.clear();
+        pendingFirstLsn = nextLsn;
+    }
+
+    private void write(ByteBuffer batch, long firstLsn) throws IOException {
+        if (channelBytes >= segmentBytes) {
+            channel.force(false);
+            channel.close();
+            openFile(firstLsn);
+        }
+        while (batch.hasRemaining()) {
+            channelBytes += channel.write(batch);
+        }
+    }
+
+    private void openFile(long firstLsn) throws IOException {
+        file = directory.resolve(String.format("%s%020d%s", PREFIX, firstLsn, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        channelBytes = channel.size();
+    }
+
+    private static ByteBuffer newBuffer(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Forces every pending record to disk and closes the log.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appendLock.notifyAll();
+        }
+        if (committer != null) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        channel.force(false);
+        channel.close();
+        if (channelBytes == 0) {
+            Files.delete(file);
+        }
+        checkFailure();
+    }
+}
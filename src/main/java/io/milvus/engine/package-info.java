@@ -0,0 +1,7 @@
+/**
+ * Provides an in-process engine that implements {@link io.milvus.client.MilvusClient} on top of the indexes in
+ * {@link io.milvus.index}.
+ * 
+ * @since 2.3.0
+ */
+package io.milvus.engine;
@@ -0,0 +1,37 @@
+package io.milvus.filter;
+
+import io.milvus.index.scalar.ScalarIndex;
+
+/**
+ * The scalar columns a {@link FilterPlan} reads, a block of consecutive rows at a time into primitive arrays.
+ * Fields are identified by their position in the schema the plan was compiled against.
+ */
+public interface ColumnBlocks {
+
+    /**
+     * Reads the values of an integer field, or of a <code>BOOL</code> field as 1 and 0, of rows
+     * <code>[from, from + count)</code>.
+     */
+    void readLongs(int field, int from, int count, long[] into);
+
+    /**
+     * Reads the values of a <code>FLOAT</code> or <code>DOUBLE</code> field of rows <code>[from, from + count)</code>.
+     */
+    void readDoubles(int field, int from, int count, double[] into);
+
+    /**
+     * Appends the strings of a <code>VARCHAR</code> field of rows <code>[from, from + count)</code> to a cleared
+     * block.
+     */
+    void readStrings(int field, int from, int count, Utf8Block into);
+
+    /**
+     * Returns an index of a field over the rows being filtered, which a plan may look values up in instead of
+     * reading the field, or <code>null</code> if there is none.
+     *
+     * @return {@link ScalarIndex}
+     */
+    default ScalarIndex index(int field) {
+        return null;
+    }
+}
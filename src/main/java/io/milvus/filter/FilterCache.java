@@ -0,0 +1,79 @@
+package io.milvus.filter;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.milvus.param.collection.FieldType;
+
+/**
+ * The most recently used {@link FilterPlan}s of one schema, keyed by the text of their expression, so that a filter
+ * sent again and again is parsed and compiled once.
+ */
+public final class FilterCache {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final List<FieldType> fields;
+    private final Map<String, FilterPlan> plans;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public FilterCache(List<FieldType> fields) {
+        this(fields, DEFAULT_CAPACITY);
+    }
+
+    public FilterCache(List<FieldType> fields, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Filter cache capacity must be positive");
+        }
+        this.fields = fields;
+        this.plans = new LinkedHashMap<String, FilterPlan>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FilterPlan> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the plan of an expression, compiling it if it is not cached.
+     *
+     * @return {@link FilterPlan}
+     * @throws IllegalArgumentException if the expression is not valid or does not match the schema.
+     */
+    public FilterPlan get(String text) {
+        synchronized (plans) {
+            FilterPlan plan = plans.get(text);
+            if (plan != null) {
+                hits.incrementAndGet();
+                return plan;
+            }
+        }
+        misses.incrementAndGet();
+        // compiled outside the lock; two threads missing at once both compile an equivalent plan
+        FilterPlan plan = FilterPlan.compile(text, fields);
+        synchronized (plans) {
+            plans.put(text, plan);
+        }
+        return plan;
+    }
+
+    /**
+     * Returns the number of lookups that found a cached plan.
+     *
+     * @return <code>long</code>
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that compiled a plan.
+     *
+     * @return <code>long</code>
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
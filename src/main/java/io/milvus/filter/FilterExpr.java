@@ -0,0 +1,698 @@
+package io.milvus.filter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A parsed boolean filter expression over the scalar fields of a collection, such as
+ * <code>age &gt;= 18 and city in ["Paris", "Rome"]</code>.
+ * <p>
+ * The grammar follows Milvus boolean expressions: comparisons of a field with a literal (<code>==</code>,
+ * <code>!=</code>, <code>&lt;</code>, <code>&lt;=</code>, <code>&gt;</code>, <code>&gt;=</code>, in either order),
+ * ranges such as <code>1 &lt; x &lt;= 5</code>, <code>in</code> and <code>not in</code> lists, <code>like</code> with
+ * a prefix pattern such as <code>"abc%"</code>, bare <code>BOOL</code> fields, <code>and</code> or
+ * <code>&amp;&amp;</code>, <code>or</code> or <code>||</code>, <code>not</code> or <code>!</code>, and parentheses.
+ * Literals are integers, floating-point numbers, single- or double-quoted strings and <code>true</code> or
+ * <code>false</code>; keywords are case-insensitive.
+ * <p>
+ * {@link #test(Row)} interprets the expression one row at a time over boxed values, the reference the compiled
+ * {@link FilterPlan} must agree with. Numbers compare by their exact values, and strings by code points, which is
+ * the order of their UTF-8 bytes.
+ */
+public abstract class FilterExpr {
+
+    /**
+     * The values of one row, by field name: <code>Boolean</code>, <code>Long</code>, <code>Double</code> or
+     * <code>String</code>.
+     */
+    public interface Row {
+        Object get(String field);
+    }
+
+    FilterExpr() {}
+
+    /**
+     * Parses an expression.
+     *
+     * @param text The expression.
+     * @return {@link FilterExpr}
+     * @throws IllegalArgumentException if the expression is not valid.
+     */
+    public static FilterExpr parse(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            throw new IllegalArgumentException("Filter expression cannot be empty");
+        }
+        return new Parser(text).parse();
+    }
+
+    /**
+     * Returns whether a row matches the expression.
+     *
+     * @return <code>boolean</code>
+     * @throws IllegalArgumentException if a value does not have the type of the literal it is compared with.
+     */
+    public abstract boolean test(Row row);
+
+    /**
+     * The comparison operators, with the literal on the right.
+     */
+    enum Op {
+        EQ("=="), NE("!="), LT("<"), LE("<="), GT(">"), GE(">=");
+
+        private final String symbol;
+
+        Op(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * Returns the operator that compares the other way round, so that <code>1 &lt; x</code> reads
+         * <code>x &gt; 1</code>.
+         */
+        Op flip() {
+            switch (this) {
+                case LT:
+                    return GT;
+                case LE:
+                    return GE;
+                case GT:
+                    return LT;
+                case GE:
+                    return LE;
+                default:
+                    return this;
+            }
+        }
+
+        boolean matches(int comparison) {
+            switch (this) {
+                case EQ:
+                    return comparison == 0;
+                case NE:
+                    return comparison != 0;
+                case LT:
+                    return comparison < 0;
+                case LE:
+                    return comparison <= 0;
+                case GT:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    // an unordered comparison, with NaN
+    private static final int UNORDERED = 2;
+
+    /**
+     * Compares a row value with a literal.
+     *
+     * @return a negative number, zero or a positive number, or {@link #UNORDERED} if either is NaN.
+     */
+    static int compare(String field, Object value, Object literal) {
+        if (value instanceof String && literal instanceof String) {
+            return compareCodePoints((String) value, (String) literal);
+        }
+        if (value instanceof Boolean && literal instanceof Boolean) {
+            return Boolean.compare((Boolean) value, (Boolean) literal);
+        }
+        if (value instanceof Number && literal instanceof Number) {
+            return compareNumbers((Number) value, (Number) literal);
+        }
+        throw new IllegalArgumentException("Field " + field + " holds " + describe(value) + ", cannot compare it with "
+                + describe(literal));
+    }
+
+    private static String describe(Object value) {
+        return value instanceof String ? "\"" + value + "\"" : String.valueOf(value);
+    }
+
+    private static int compareCodePoints(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int x = a.codePointAt(i);
+            int y = b.codePointAt(j);
+            if (x != y) {
+                return x < y ? -1 : 1;
+            }
+            i += Character.charCount(x);
+            j += Character.charCount(y);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+
+    private static int compareNumbers(Number a, Number b) {
+        if (a instanceof Long && b instanceof Long) {
+            return Long.compare(a.longValue(), b.longValue());
+        }
+        if (a instanceof Long) {
+            return compareExact(a.longValue(), b.doubleValue());
+        }
+        if (b instanceof Long) {
+            int c = compareExact(b.longValue(), a.doubleValue());
+            return c == UNORDERED ? c : -c;
+        }
+        double x = a.doubleValue();
+        double y = b.doubleValue();
+        return x < y ? -1 : x > y ? 1 : x == y ? 0 : UNORDERED;
+    }
+
+    /**
+     * Compares a <code>long</code> with a <code>double</code> by their exact values, without rounding the
+     * <code>long</code> to the nearest <code>double</code>.
+     */
+    static int compareExact(long value, double literal) {
+        if (Double.isNaN(literal)) {
+            return UNORDERED;
+        }
+        if (literal >= 0x1p63) {
+            return -1;
+        }
+        if (literal < -0x1p63) {
+            return 1;
+        }
+        long floor = (long) Math.floor(literal);
+        if (value != floor) {
+            return value < floor ? -1 : 1;
+        }
+        return literal > floor ? -1 : 0;
+    }
+
+    static final class Constant extends FilterExpr {
+        final boolean value;
+
+        Constant(boolean value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(value);
+        }
+    }
+
+    /**
+     * A bare <code>BOOL</code> field.
+     */
+    static final class BoolField extends FilterExpr {
+        final String field;
+
+        BoolField(String field) {
+            this.field = field;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            Object value = row.get(field);
+            if (!(value instanceof Boolean)) {
+                throw new IllegalArgumentException("Field " + field + " is not a boolean field");
+            }
+            return (Boolean) value;
+        }
+
+        @Override
+        public String toString() {
+            return field;
+        }
+    }
+
+    static final class Compare extends FilterExpr {
+        final String field;
+        final Op op;
+        final Object literal;
+
+        Compare(String field, Op op, Object literal) {
+            this.field = field;
+            this.op = op;
+            this.literal = literal;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            int c = compare(field, row.get(field), literal);
+            return c == UNORDERED ? op == Op.NE : op.matches(c);
+        }
+
+        @Override
+        public String toString() {
+            return field + " " + op + " " + describe(literal);
+        }
+    }
+
+    static final class In extends FilterExpr {
+        final String field;
+        final List<Object> literals;
+        final boolean negated;
+
+        In(String field, List<Object> literals, boolean negated) {
+            this.field = field;
+            this.literals = Collections.unmodifiableList(literals);
+            this.negated = negated;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            Object value = row.get(field);
+            for (Object literal : literals) {
+                if (compare(field, value, literal) == 0) {
+                    return !negated;
+                }
+            }
+            return negated;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(field).append(negated ? " not in [" : " in [");
+            for (int i = 0; i < literals.size(); i++) {
+                builder.append(i == 0 ? "" : ", ").append(describe(literals.get(i)));
+            }
+            return builder.append(']').toString();
+        }
+    }
+
+    /**
+     * A <code>like</code> pattern: a prefix followed by <code>%</code>, or an exact value.
+     */
+    static final class Like extends FilterExpr {
+        final String field;
+        final String prefix;
+        final boolean exact;
+
+        Like(String field, String prefix, boolean exact) {
+            this.field = field;
+            this.prefix = prefix;
+            this.exact = exact;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            Object value = row.get(field);
+            if (!(value instanceof String)) {
+                throw new IllegalArgumentException("Field " + field + " is not a string field");
+            }
+            return exact ? value.equals(prefix) : ((String) value).startsWith(prefix);
+        }
+
+        @Override
+        public String toString() {
+            return field + " like " + describe(exact ? prefix : prefix + "%");
+        }
+    }
+
+    static final class Not extends FilterExpr {
+        final FilterExpr operand;
+
+        Not(FilterExpr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public boolean test(Row row) {
+            return !operand.test(row);
+        }
+
+        @Override
+        public String toString() {
+            return "not (" + operand + ")";
+        }
+    }
+
+    static final class And extends FilterExpr {
+        final List<FilterExpr> operands;
+
+        And(List<FilterExpr> operands) {
+            this.operands = Collections.unmodifiableList(operands);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            for (FilterExpr operand : operands) {
+                if (!operand.test(row)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " and ");
+        }
+    }
+
+    static final class Or extends FilterExpr {
+        final List<FilterExpr> operands;
+
+        Or(List<FilterExpr> operands) {
+            this.operands = Collections.unmodifiableList(operands);
+        }
+
+        @Override
+        public boolean test(Row row) {
+            for (FilterExpr operand : operands) {
+                if (operand.test(row)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " or ");
+        }
+    }
+
+    private static String join(List<FilterExpr> operands, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < operands.size(); i++) {
+            builder.append(i == 0 ? "" : separator).append(operands.get(i));
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * A recursive-descent parser over a hand-written tokenizer.
+     */
+    private static final class Parser {
+        private static final int END = 0;
+        private static final int NAME = 1;
+        private static final int NUMBER = 2;
+        private static final int STRING = 3;
+        private static final int SYMBOL = 4;
+
+        private final String text;
+        private int position;
+        private int type;
+        private int start;
+        private String token;
+        private Object value;
+
+        Parser(String text) {
+            this.text = text;
+            advance();
+        }
+
+        FilterExpr parse() {
+            FilterExpr expr = or();
+            if (type != END) {
+                throw error("end of expression");
+            }
+            return expr;
+        }
+
+        private FilterExpr or() {
+            List<FilterExpr> operands = new ArrayList<>();
+            operands.add(and());
+            while (isSymbol("||") || isKeyword("or")) {
+                advance();
+                operands.add(and());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands);
+        }
+
+        private FilterExpr and() {
+            List<FilterExpr> operands = new ArrayList<>();
+            operands.add(unary());
+            while (isSymbol("&&") || isKeyword("and")) {
+                advance();
+                operands.add(unary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(operands);
+        }
+
+        private FilterExpr unary() {
+            if (isSymbol("!") || isKeyword("not")) {
+                advance();
+                return new Not(unary());
+            }
+            if (isSymbol("(")) {
+                advance();
+                FilterExpr expr = or();
+                expect(")");
+                return expr;
+            }
+            if (type == NAME && !isKeyword("true") && !isKeyword("false")) {
+                return predicate();
+            }
+            // a literal on the left: true, false, or a comparison such as 1 < x or 1 < x < 5
+            Object literal = literal();
+            Op op = comparison();
+            if (op == null) {
+                if (literal instanceof Boolean) {
+                    return new Constant((Boolean) literal);
+                }
+                throw error("comparison operator");
+            }
+            String field = name();
+            FilterExpr lower = new Compare(field, op.flip(), literal);
+            Op second = comparison();
+            if (second == null) {
+                return lower;
+            }
+            boolean ascending = (op == Op.LT || op == Op.LE) && (second == Op.LT || second == Op.LE);
+            boolean descending = (op == Op.GT || op == Op.GE) && (second == Op.GT || second == Op.GE);
+            if (!ascending && !descending) {
+                throw new IllegalArgumentException("Invalid range " + op + " " + field + " " + second
+                        + " in filter expression: " + text);
+            }
+            List<FilterExpr> bounds = new ArrayList<>(2);
+            bounds.add(lower);
+            bounds.add(new Compare(field, second, literal()));
+            return new And(bounds);
+        }
+
+        private FilterExpr predicate() {
+            String field = name();
+            Op op = comparison();
+            if (op != null) {
+                Object literal = literal();
+                if (comparison() != null) {
+                    throw new IllegalArgumentException("A range must start with a literal, such as 1 < " + field
+                            + " < 5, in filter expression: " + text);
+                }
+                return new Compare(field, op, literal);
+            }
+            boolean negated = false;
+            if (isKeyword("not")) {
+                advance();
+                negated = true;
+                if (!isKeyword("in")) {
+                    throw error("in");
+                }
+            }
+            if (isKeyword("in")) {
+                advance();
+                return new In(field, list(), negated);
+            }
+            if (isKeyword("like")) {
+                advance();
+                if (type != STRING) {
+                    throw error("pattern string");
+                }
+                String pattern = (String) value;
+                advance();
+                int wildcard = pattern.indexOf('%');
+                if (wildcard >= 0 && wildcard != pattern.length() - 1) {
+                    throw new IllegalArgumentException("Only prefix patterns such as \"abc%\" are supported, got \""
+                            + pattern + "\" in filter expression: " + text);
+                }
+                return new Like(field, wildcard < 0 ? pattern : pattern.substring(0, wildcard), wildcard < 0);
+            }
+            return new BoolField(field);
+        }
+
+        private List<Object> list() {
+            expect("[");
+            List<Object> literals = new ArrayList<>();
+            while (!isSymbol("]")) {
+                literals.add(literal());
+                if (!isSymbol("]")) {
+                    expect(",");
+                }
+            }
+            advance();
+            return literals;
+        }
+
+        private String name() {
+            if (type != NAME) {
+                throw error("field name");
+            }
+            String name = token;
+            advance();
+            return name;
+        }
+
+        private Object literal() {
+            Object literal;
+            if (type == NUMBER || type == STRING) {
+                literal = value;
+            } else if (isKeyword("true") || isKeyword("false")) {
+                literal = Boolean.valueOf(token.toLowerCase(Locale.ROOT));
+            } else {
+                throw error("literal");
+            }
+            advance();
+            return literal;
+        }
+
+        private Op comparison() {
+            if (type != SYMBOL) {
+                return null;
+            }
+            for (Op op : Op.values()) {
+                if (op.symbol.equals(token)) {
+                    advance();
+                    return op;
+                }
+            }
+            return null;
+        }
+
+        private boolean isSymbol(String symbol) {
+            return type == SYMBOL && token.equals(symbol);
+        }
+
+        private boolean isKeyword(String keyword) {
+            return type == NAME && token.equalsIgnoreCase(keyword);
+        }
+
+        private void expect(String symbol) {
+            if (!isSymbol(symbol)) {
+                throw error(symbol);
+            }
+            advance();
+        }
+
+        private IllegalArgumentException error(String expected) {
+            String found = type == END ? "the end" : "'" + token + "'";
+            return new IllegalArgumentException("Expected " + expected + " at position " + start + " but found "
+                    + found + " in filter expression: " + text);
+        }
+
+        private void advance() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+            start = position;
+            value = null;
+            if (position == text.length()) {
+                type = END;
+                token = "";
+                return;
+            }
+            char c = text.charAt(position);
+            if (Character.isLetter(c) || c == '_') {
+                while (position < text.length()
+                        && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                    position++;
+                }
+                type = NAME;
+            } else if (Character.isDigit(c) || (c == '-' || c == '+' || c == '.') && position + 1 < text.length()
+                    && (Character.isDigit(text.charAt(position + 1)) || text.charAt(position + 1) == '.')) {
+                number();
+                return;
+            } else if (c == '"' || c == '\'') {
+                string(c);
+                return;
+            } else {
+                String two = text.substring(position, Math.min(text.length(), position + 2));
+                if (two.equals("==") || two.equals("!=") || two.equals("<=") || two.equals(">=")
+                        || two.equals("&&") || two.equals("||")) {
+                    position += 2;
+                } else if ("<>!()[],".indexOf(c) >= 0) {
+                    position++;
+                } else {
+                    throw new IllegalArgumentException("Unexpected character '" + c + "' at position " + position
+                            + " in filter expression: " + text);
+                }
+                type = SYMBOL;
+            }
+            token = text.substring(start, position);
+        }
+
+        private void number() {
+            if (text.charAt(position) == '-' || text.charAt(position) == '+') {
+                position++;
+            }
+            boolean integer = true;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    integer = false;
+                } else if ((c == '-' || c == '+') && (text.charAt(position - 1) == 'e'
+                        || text.charAt(position - 1) == 'E')) {
+                    integer = false;
+                } else if (!Character.isDigit(c)) {
+                    break;
+                }
+                position++;
+            }
+            type = NUMBER;
+            token = text.substring(start, position);
+            try {
+                if (integer) {
+                    try {
+                        value = Long.parseLong(token);
+                        return;
+                    } catch (NumberFormatException e) {
+                        // beyond the range of a long, kept as a double
+                    }
+                }
+                value = Double.parseDouble(token);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid number " + token + " at position " + start
+                        + " in filter expression: " + text);
+            }
+        }
+
+        private void string(char quote) {
+            StringBuilder builder = new StringBuilder();
+            position++;
+            while (position < text.length() && text.charAt(position) != quote) {
+                char c = text.charAt(position++);
+                if (c == '\\' && position < text.length()) {
+                    c = text.charAt(position++);
+                    switch (c) {
+                        case 'n':
+                            c = '\n';
+                            break;
+                        case 't':
+                            c = '\t';
+                            break;
+                        case 'r':
+                            c = '\r';
+                            break;
+                        default:
+                            // \" \' \\ and any other escaped character stand for themselves
+                    }
+                }
+                builder.append(c);
+            }
+            if (position == text.length()) {
+                throw new IllegalArgumentException("Unterminated string at position " + start
+                        + " in filter expression: " + text);
+            }
+            position++;
+            type = STRING;
+            token = text.substring(start, position);
+            value = builder.toString();
+        }
+    }
+}
@@ -0,0 +1,1386 @@
+package io.milvus.filter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.index.scalar.ScalarIndex;
+import io.milvus.param.collection.FieldType;
+
+/**
+ * A {@link FilterExpr} compiled against a schema into a tree of column-at-a-time operators.
+ * <p>
+ * Rows are evaluated in blocks of {@link #BLOCK_ROWS}. Every column the plan reads is copied once per block into a
+ * primitive array, and each comparison, <code>in</code> list or prefix test is one tight loop over that array that
+ * sets a bit per matching row in 64-bit words. <code>and</code>, <code>or</code> and <code>not</code> combine the
+ * words of their operands 64 rows at a time, and skip the remaining operands of a block once its outcome is known.
+ * <p>
+ * Compiling checks every field and literal against the schema and normalizes the comparisons: a comparison of an
+ * integer field becomes an inclusive range of <code>long</code>s clamped to the type of the field, so that
+ * <code>x &gt; 1.5</code> reads <code>x &gt;= 2</code>; the ranges of one field under an <code>and</code> are
+ * intersected into one; comparisons that cannot fail or cannot match fold to constants; and the operands of an
+ * <code>and</code> or <code>or</code> run cheapest first.
+ * <p>
+ * A test of a field with a {@link ScalarIndex} first asks the index how many rows it holds. If the index finds at
+ * most one row in 4, the test takes its rows from the index for the whole evaluation, and runs before the
+ * scanned operands of its <code>and</code> or <code>or</code>, whose blocks it often decides alone. A plan keeps
+ * no state between evaluations, so threads share one through a {@link FilterCache}.
+ */
+public final class FilterPlan {
+    static final int BLOCK_ROWS = 2048;
+    // an index lookup costs a few nanoseconds per row found and a scan about as much per row read
+    private static final int INDEX_ROWS_PER_MATCH = 4;
+
+    private final String text;
+    private final int fieldCount;
+    private final Node root;
+    private final int[] fields;
+    private final Leaf[] leaves;
+
+    private FilterPlan(String text, int fieldCount, Node root) {
+        this.text = text;
+        this.fieldCount = fieldCount;
+        this.root = root;
+        Set<Integer> read = new TreeSet<>();
+        root.collectFields(read);
+        this.fields = read.stream().mapToInt(Integer::intValue).toArray();
+        List<Leaf> tests = new ArrayList<>();
+        root.collectLeaves(tests);
+        this.leaves = tests.toArray(new Leaf[0]);
+        for (int slot = 0; slot < leaves.length; slot++) {
+            leaves[slot].slot = slot;
+        }
+    }
+
+    /**
+     * Parses and compiles an expression.
+     *
+     * @param text The expression.
+     * @param fields The schema, whose field positions the plan reads columns by.
+     * @return {@link FilterPlan}
+     * @throws IllegalArgumentException if the expression is not valid or does not match the schema.
+     */
+    public static FilterPlan compile(String text, List<FieldType> fields) {
+        return new FilterPlan(text, fields.size(), new Compiler(fields).compile(FilterExpr.parse(text)));
+    }
+
+    /**
+     * Returns the expression the plan was compiled from.
+     *
+     * @return <code>String</code>
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * Returns the positions of the fields the plan reads, in ascending order.
+     *
+     * @return <code>int[]</code>
+     */
+    public int[] getFields() {
+        return fields.clone();
+    }
+
+    /**
+     * Returns the values of a field the plan matches when it is nothing but an equality or an <code>in</code> list
+     * on that field, such as <code>pk in [1, 2]</code>, so that they can be looked up instead of scanned for.
+     *
+     * @return the <code>Long</code> or <code>String</code> values, or <code>null</code> if the plan is anything else.
+     */
+    public Set<Object> getKeys(int field) {
+        return root.keys(field);
+    }
+
+    /**
+     * Returns the live rows that match, out of the first <code>rows</code> rows of a set of columns.
+     *
+     * @param deleted The deleted rows, which never match, or <code>null</code>.
+     * @return {@link RowBitmap}
+     */
+    public RowBitmap select(ColumnBlocks source, int rows, RowBitmap deleted) {
+        return RowBitmap.fromWords(evaluate(source, rows, deleted, false));
+    }
+
+    /**
+     * Returns the rows that are deleted or do not match, out of the first <code>rows</code> rows of a set of
+     * columns: the mask a search excludes.
+     *
+     * @param deleted The deleted rows, or <code>null</code>.
+     * @return {@link RowBitmap}
+     */
+    public RowBitmap reject(ColumnBlocks source, int rows, RowBitmap deleted) {
+        return RowBitmap.fromWords(evaluate(source, rows, deleted, true));
+    }
+
+    private long[] evaluate(ColumnBlocks source, int rows, RowBitmap deleted, boolean negate) {
+        long[] words = new long[(rows + 63) >>> 6];
+        if (root instanceof Constant) {
+            if (((Constant) root).value) {
+                Arrays.fill(words, -1L);
+            }
+        } else {
+            Block block = new Block(source, fieldCount, leaves.length);
+            for (Leaf leaf : leaves) {
+                ScalarIndex index = source.index(leaf.field);
+                // the index counts the rows of a test exactly, which is the selectivity it is chosen by
+                if (index != null && index.getRowCount() == rows
+                        && (long) leaf.count(index) * INDEX_ROWS_PER_MATCH <= rows) {
+                    long[] selected = new long[words.length];
+                    leaf.select(index, selected);
+                    block.selected[leaf.slot] = selected;
+                }
+            }
+            long[] out = new long[BLOCK_ROWS / 64];
+            for (int from = 0; from < rows; from += BLOCK_ROWS) {
+                block.reset(from, Math.min(BLOCK_ROWS, rows - from));
+                root.evaluate(block, out, 0);
+                System.arraycopy(out, 0, words, from >>> 6, block.words());
+            }
+        }
+        if (negate) {
+            for (int w = 0; w < words.length; w++) {
+                words[w] = ~words[w];
+            }
+        }
+        if ((rows & 63) != 0) {
+            words[words.length - 1] &= (1L << rows) - 1;
+        }
+        if (deleted != null) {
+            for (int row = deleted.next(0); row >= 0 && row < rows; row = deleted.next(row + 1)) {
+                if (negate) {
+                    words[row >>> 6] |= 1L << row;
+                } else {
+                    words[row >>> 6] &= ~(1L << row);
+                }
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Returns the operator tree, for instance <code>and(range(age, 18, 64), in(city, 2 values))</code>.
+     *
+     * @return <code>String</code>
+     */
+    @Override
+    public String toString() {
+        return root.toString();
+    }
+
+    /**
+     * The rows being evaluated and the columns read for them, each read once per block whatever the number of
+     * operators on it.
+     */
+    private static final class Block {
+        private final ColumnBlocks source;
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final Utf8Block[] strings;
+        private final int[] loaded;
+        // the rows of the tests answered by an index, by slot
+        private final long[][] selected;
+        private final List<long[]> scratch = new ArrayList<>();
+        private int from;
+        private int count;
+        private int stamp;
+
+        Block(ColumnBlocks source, int fieldCount, int leafCount) {
+            this.source = source;
+            this.selected = new long[leafCount][];
+            this.longs = new long[fieldCount][];
+            this.doubles = new double[fieldCount][];
+            this.strings = new Utf8Block[fieldCount];
+            this.loaded = new int[fieldCount];
+        }
+
+        void reset(int from, int count) {
+            this.from = from;
+            this.count = count;
+            stamp++;
+        }
+
+        int words() {
+            return (count + 63) >>> 6;
+        }
+
+        long[] longs(int field) {
+            if (longs[field] == null) {
+                longs[field] = new long[BLOCK_ROWS];
+            }
+            if (loaded[field] != stamp) {
+                source.readLongs(field, from, count, longs[field]);
+                loaded[field] = stamp;
+            }
+            return longs[field];
+        }
+
+        double[] doubles(int field) {
+            if (doubles[field] == null) {
+                doubles[field] = new double[BLOCK_ROWS];
+            }
+            if (loaded[field] != stamp) {
+                source.readDoubles(field, from, count, doubles[field]);
+                loaded[field] = stamp;
+            }
+            return doubles[field];
+        }
+
+        Utf8Block strings(int field) {
+            if (strings[field] == null) {
+                strings[field] = new Utf8Block();
+            }
+            if (loaded[field] != stamp) {
+                strings[field].clear();
+                source.readStrings(field, from, count, strings[field]);
+                loaded[field] = stamp;
+            }
+            return strings[field];
+        }
+
+        /**
+         * Returns the words an operator at some depth of the tree evaluates its later operands into.
+         */
+        long[] scratch(int depth) {
+            while (scratch.size() <= depth) {
+                scratch.add(new long[BLOCK_ROWS / 64]);
+            }
+            return scratch.get(depth);
+        }
+    }
+
+    /**
+     * An operator that sets the bits of the matching rows of a block. Bits past the last row of the block are
+     * left unspecified.
+     */
+    private abstract static class Node {
+
+        abstract void evaluate(Block block, long[] words, int depth);
+
+        /**
+         * Returns the relative cost per row, by which the operands of <code>and</code> and <code>or</code> run.
+         */
+        abstract int cost();
+
+        void collectFields(Set<Integer> into) {
+        }
+
+        void collectLeaves(List<Leaf> into) {
+        }
+
+        /**
+         * Returns whether the rows of the operator come from an index rather than a scan.
+         */
+        boolean selected(Block block) {
+            return false;
+        }
+
+        Set<Object> keys(int field) {
+            return null;
+        }
+    }
+
+    private static final class Constant extends Node {
+        static final Constant TRUE = new Constant(true);
+        static final Constant FALSE = new Constant(false);
+
+        final boolean value;
+
+        private Constant(boolean value) {
+            this.value = value;
+        }
+
+        static Constant of(boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
+        @Override
+        void evaluate(Block block, long[] words, int depth) {
+            Arrays.fill(words, 0, block.words(), value ? -1L : 0L);
+        }
+
+        @Override
+        int cost() {
+            return 0;
+        }
+
+        @Override
+        public String toString() {
+            return Boolean.toString(value);
+        }
+    }
+
+    /**
+     * A test of one field. If the field has a {@link ScalarIndex} that finds few enough of the rows, the rows are
+     * selected from the index before the first block and copied block by block, and the field is not read.
+     */
+    private abstract static class Leaf extends Node {
+        final int field;
+        final String name;
+        int slot;
+
+        Leaf(int field, String name) {
+            this.field = field;
+            this.name = name;
+        }
+
+        @Override
+        final void evaluate(Block block, long[] words, int depth) {
+            long[] selected = block.selected[slot];
+            if (selected == null) {
+                scan(block, words);
+            } else {
+                System.arraycopy(selected, block.from >>> 6, words, 0, block.words());
+            }
+        }
+
+        abstract void scan(Block block, long[] words);
+
+        /**
+         * Returns the number of rows an index finds for the test.
+         */
+        abstract int count(ScalarIndex index);
+
+        /**
+         * Sets the bits of the rows an index finds for the test.
+         */
+        abstract void select(ScalarIndex index, long[] words);
+
+        @Override
+        boolean selected(Block block) {
+            return block.selected[slot] != null;
+        }
+
+        @Override
+        void collectFields(Set<Integer> into) {
+            into.add(field);
+        }
+
+        @Override
+        void collectLeaves(List<Leaf> into) {
+            into.add(this);
+        }
+    }
+
+    /**
+     * An integer or <code>BOOL</code> field in an inclusive range.
+     */
+    private static final class LongRange extends Leaf {
+        final long lower;
+        final long upper;
+
+        LongRange(int field, String name, long lower, long upper) {
+            super(field, name);
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        void scan(Block block, long[] words) {
+            long[] values = block.longs(field);
+            int count = block.count;
+            long lower = this.lower;
+            // lower <= v <= upper as one unsigned comparison of v - lower, biased to compare signed
+            long span = upper - lower + Long.MIN_VALUE;
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                int n = Math.min(64, count - base);
+                long word = 0L;
+                for (int j = 0; j < n; j++) {
+                    word |= (values[base + j] - lower + Long.MIN_VALUE <= span ? 1L : 0L) << j;
+                }
+                words[w] = word;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        Set<Object> keys(int field) {
+            return field == this.field && lower == upper ? Collections.singleton(lower) : null;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            return index.count(lower, upper);
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            index.select(lower, upper, words);
+        }
+
+        @Override
+        public String toString() {
+            return lower == upper ? "eq(" + name + ", " + lower + ")" : "range(" + name + ", " + lower + ", " + upper
+                    + ")";
+        }
+    }
+
+    /**
+     * An integer field in a sorted list of values.
+     */
+    private static final class LongIn extends Leaf {
+        final long[] values;
+
+        LongIn(int field, String name, long[] values) {
+            super(field, name);
+            this.values = values;
+        }
+
+        @Override
+        void scan(Block block, long[] words) {
+            long[] column = block.longs(field);
+            int count = block.count;
+            long[] values = this.values;
+            long min = values[0];
+            long max = values[values.length - 1];
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                int n = Math.min(64, count - base);
+                long word = 0L;
+                for (int j = 0; j < n; j++) {
+                    long v = column[base + j];
+                    if (v >= min && v <= max && Arrays.binarySearch(values, v) >= 0) {
+                        word |= 1L << j;
+                    }
+                }
+                words[w] = word;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 3;
+        }
+
+        @Override
+        Set<Object> keys(int field) {
+            if (field != this.field) {
+                return null;
+            }
+            Set<Object> keys = new LinkedHashSet<>();
+            for (long value : values) {
+                keys.add(value);
+            }
+            return keys;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            int count = 0;
+            for (long value : values) {
+                count += index.count(value, value);
+            }
+            return count;
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            for (long value : values) {
+                index.select(value, value, words);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "in(" + name + ", " + values.length + " values)";
+        }
+    }
+
+    /**
+     * A <code>FLOAT</code> or <code>DOUBLE</code> field in an inclusive range; NaN is in none.
+     */
+    private static final class DoubleRange extends Leaf {
+        final double lower;
+        final double upper;
+
+        DoubleRange(int field, String name, double lower, double upper) {
+            super(field, name);
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        void scan(Block block, long[] words) {
+            double[] values = block.doubles(field);
+            int count = block.count;
+            double lower = this.lower;
+            double upper = this.upper;
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                int n = Math.min(64, count - base);
+                long word = 0L;
+                for (int j = 0; j < n; j++) {
+                    double v = values[base + j];
+                    word |= (v >= lower & v <= upper ? 1L : 0L) << j;
+                }
+                words[w] = word;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 1;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            return lower <= upper ? index.count(ScalarIndex.doubleKey(lower), ScalarIndex.doubleKey(upper)) : 0;
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            if (lower <= upper) {
+                index.select(ScalarIndex.doubleKey(lower), ScalarIndex.doubleKey(upper), words);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "range(" + name + ", " + lower + ", " + upper + ")";
+        }
+    }
+
+    /**
+     * A <code>FLOAT</code> or <code>DOUBLE</code> field in a sorted list of values, with no negative zero.
+     */
+    private static final class DoubleIn extends Leaf {
+        final double[] values;
+
+        DoubleIn(int field, String name, double[] values) {
+            super(field, name);
+            this.values = values;
+        }
+
+        @Override
+        void scan(Block block, long[] words) {
+            double[] column = block.doubles(field);
+            int count = block.count;
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                int n = Math.min(64, count - base);
+                long word = 0L;
+                for (int j = 0; j < n; j++) {
+                    // adding 0 turns -0.0 into 0.0
+                    if (Arrays.binarySearch(values, column[base + j] + 0d) >= 0) {
+                        word |= 1L << j;
+                    }
+                }
+                words[w] = word;
+            }
+        }
+
+        @Override
+        int cost() {
+            return 3;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            int count = 0;
+            for (double value : values) {
+                long key = ScalarIndex.doubleKey(value);
+                count += index.count(key, key);
+            }
+            return count;
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            for (double value : values) {
+                long key = ScalarIndex.doubleKey(value);
+                index.select(key, key, words);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "in(" + name + ", " + values.length + " values)";
+        }
+    }
+
+    /**
+     * A <code>VARCHAR</code> test on the UTF-8 bytes of a value.
+     */
+    private abstract static class Utf8Node extends Leaf {
+        Utf8Node(int field, String name) {
+            super(field, name);
+        }
+
+        abstract boolean matches(Utf8Block strings, int row);
+
+        @Override
+        final void scan(Block block, long[] words) {
+            Utf8Block strings = block.strings(field);
+            int count = block.count;
+            for (int w = 0, base = 0; base < count; w++, base += 64) {
+                int n = Math.min(64, count - base);
+                long word = 0L;
+                for (int j = 0; j < n; j++) {
+                    if (matches(strings, base + j)) {
+                        word |= 1L << j;
+                    }
+                }
+                words[w] = word;
+            }
+        }
+    }
+
+    private static final class Utf8Equals extends Utf8Node {
+        final String value;
+        final byte[] utf8;
+
+        Utf8Equals(int field, String name, String value) {
+            super(field, name);
+            this.value = value;
+            this.utf8 = value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        boolean matches(Utf8Block strings, int row) {
+            return strings.equals(row, utf8);
+        }
+
+        @Override
+        int cost() {
+            return 4;
+        }
+
+        @Override
+        Set<Object> keys(int field) {
+            return field == this.field ? Collections.singleton(value) : null;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            return index.count(utf8, true, utf8, true);
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            index.select(utf8, true, utf8, true, words);
+        }
+
+        @Override
+        public String toString() {
+            return "eq(" + name + ", \"" + value + "\")";
+        }
+    }
+
+    private static final class Utf8In extends Utf8Node {
+        final String[] values;
+        // sorted by unsigned bytes
+        final byte[][] utf8;
+
+        Utf8In(int field, String name, Set<String> values) {
+            super(field, name);
+            this.values = values.toArray(new String[0]);
+            this.utf8 = new byte[this.values.length][];
+            for (int i = 0; i < utf8.length; i++) {
+                utf8[i] = this.values[i].getBytes(StandardCharsets.UTF_8);
+            }
+            Arrays.sort(utf8, FilterPlan::compareBytes);
+        }
+
+        @Override
+        boolean matches(Utf8Block strings, int row) {
+            int low = 0;
+            int high = utf8.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int c = strings.compare(row, utf8[middle]);
+                if (c == 0) {
+                    return true;
+                }
+                if (c < 0) {
+                    high = middle - 1;
+                } else {
+                    low = middle + 1;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        int cost() {
+            return 6;
+        }
+
+        @Override
+        Set<Object> keys(int field) {
+            return field == this.field ? new LinkedHashSet<>(Arrays.asList((Object[]) values)) : null;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            int count = 0;
+            for (byte[] value : utf8) {
+                count += index.count(value, true, value, true);
+            }
+            return count;
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            for (byte[] value : utf8) {
+                index.select(value, true, value, true, words);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "in(" + name + ", " + values.length + " values)";
+        }
+    }
+
+    /**
+     * A <code>VARCHAR</code> field between two bounds, either of which may be absent.
+     */
+    private static final class Utf8Range extends Utf8Node {
+        final byte[] lower;
+        final boolean lowerInclusive;
+        final byte[] upper;
+        final boolean upperInclusive;
+
+        Utf8Range(int field, String name, byte[] lower, boolean lowerInclusive, byte[] upper,
+                  boolean upperInclusive) {
+            super(field, name);
+            this.lower = lower;
+            this.lowerInclusive = lowerInclusive;
+            this.upper = upper;
+            this.upperInclusive = upperInclusive;
+        }
+
+        @Override
+        boolean matches(Utf8Block strings, int row) {
+            if (lower != null) {
+                int c = strings.compare(row, lower);
+                if (c < 0 || c == 0 && !lowerInclusive) {
+                    return false;
+                }
+            }
+            if (upper != null) {
+                int c = strings.compare(row, upper);
+                return c < 0 || c == 0 && upperInclusive;
+            }
+            return true;
+        }
+
+        @Override
+        int cost() {
+            return 5;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            return index.count(lower, lowerInclusive, upper, upperInclusive);
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            index.select(lower, lowerInclusive, upper, upperInclusive, words);
+        }
+
+        @Override
+        public String toString() {
+            return "range(" + name + ", " + (lower == null ? "" : new String(lower, StandardCharsets.UTF_8)) + ", "
+                    + (upper == null ? "" : new String(upper, StandardCharsets.UTF_8)) + ")";
+        }
+    }
+
+    private static final class Utf8Prefix extends Utf8Node {
+        final byte[] prefix;
+        // the least string above every string with the prefix, or null if there is none
+        final byte[] end;
+
+        Utf8Prefix(int field, String name, String prefix) {
+            super(field, name);
+            this.prefix = prefix.getBytes(StandardCharsets.UTF_8);
+            byte[] end = null;
+            for (int i = this.prefix.length - 1; i >= 0 && end == null; i--) {
+                if (this.prefix[i] != (byte) 0xFF) {
+                    end = Arrays.copyOf(this.prefix, i + 1);
+                    end[i]++;
+                }
+            }
+            this.end = end;
+        }
+
+        @Override
+        boolean matches(Utf8Block strings, int row) {
+            return strings.startsWith(row, prefix);
+        }
+
+        @Override
+        int cost() {
+            return 4;
+        }
+
+        @Override
+        int count(ScalarIndex index) {
+            return index.count(prefix, true, end, false);
+        }
+
+        @Override
+        void select(ScalarIndex index, long[] words) {
+            index.select(prefix, true, end, false, words);
+        }
+
+        @Override
+        public String toString() {
+            return "prefix(" + name + ", \"" + new String(prefix, StandardCharsets.UTF_8) + "\")";
+        }
+    }
+
+    private static final class Not extends Node {
+        final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        void evaluate(Block block, long[] words, int depth) {
+            operand.evaluate(block, words, depth);
+            int n = block.words();
+            for (int w = 0; w < n; w++) {
+                words[w] = ~words[w];
+            }
+        }
+
+        @Override
+        int cost() {
+            return operand.cost();
+        }
+
+        @Override
+        void collectFields(Set<Integer> into) {
+            operand.collectFields(into);
+        }
+
+        @Override
+        void collectLeaves(List<Leaf> into) {
+            operand.collectLeaves(into);
+        }
+
+        @Override
+        boolean selected(Block block) {
+            return operand.selected(block);
+        }
+
+        @Override
+        public String toString() {
+            return "not(" + operand + ")";
+        }
+    }
+
+    /**
+     * <code>and</code> or <code>or</code> over operands sorted by cost. Once the words hold the outcome of every
+     * row of the block, the remaining operands are skipped.
+     */
+    private static final class Junction extends Node {
+        final boolean and;
+        final Node[] operands;
+
+        Junction(boolean and, List<Node> operands) {
+            this.and = and;
+            this.operands = operands.toArray(new Node[0]);
+            Arrays.sort(this.operands, Comparator.comparingInt(Node::cost));
+        }
+
+        @Override
+        void evaluate(Block block, long[] words, int depth) {
+            int n = block.words();
+            long last = (block.count & 63) == 0 ? -1L : (1L << block.count) - 1;
+            long[] scratch = block.scratch(depth);
+            boolean first = true;
+            // the operands found through an index first, as they cost next to nothing
+            for (int pass = 0; pass < 2; pass++) {
+                for (Node operand : operands) {
+                    if (operand.selected(block) != (pass == 0)) {
+                        continue;
+                    }
+                    if (first) {
+                        operand.evaluate(block, words, depth);
+                        first = false;
+                        continue;
+                    }
+                    if (decided(words, n, last)) {
+                        return;
+                    }
+                    operand.evaluate(block, scratch, depth + 1);
+                    if (and) {
+                        for (int w = 0; w < n; w++) {
+                            words[w] &= scratch[w];
+                        }
+                    } else {
+                        for (int w = 0; w < n; w++) {
+                            words[w] |= scratch[w];
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns whether no row is left for an <code>and</code>, or every row matches for an <code>or</code>.
+         */
+        private boolean decided(long[] words, int n, long last) {
+            long expected = and ? 0L : -1L;
+            for (int w = 0; w < n - 1; w++) {
+                if (words[w] != expected) {
+                    return false;
+                }
+            }
+            return (words[n - 1] & last) == (expected & last);
+        }
+
+        @Override
+        int cost() {
+            int cost = 0;
+            for (Node operand : operands) {
+                cost += operand.cost();
+            }
+            return cost;
+        }
+
+        @Override
+        void collectFields(Set<Integer> into) {
+            for (Node operand : operands) {
+                operand.collectFields(into);
+            }
+        }
+
+        @Override
+        void collectLeaves(List<Leaf> into) {
+            for (Node operand : operands) {
+                operand.collectLeaves(into);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(and ? "and(" : "or(");
+            for (int o = 0; o < operands.length; o++) {
+                builder.append(o == 0 ? "" : ", ").append(operands[o]);
+            }
+            return builder.append(')').toString();
+        }
+    }
+
+    static int compareBytes(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    /**
+     * Turns the expression tree into operators, checking it against the schema.
+     */
+    private static final class Compiler {
+        private final List<FieldType> fields;
+        private final Map<String, Integer> positions = new HashMap<>();
+
+        Compiler(List<FieldType> fields) {
+            this.fields = fields;
+            for (int f = 0; f < fields.size(); f++) {
+                positions.put(fields.get(f).getName(), f);
+            }
+        }
+
+        Node compile(FilterExpr expr) {
+            if (expr instanceof FilterExpr.Constant) {
+                return Constant.of(((FilterExpr.Constant) expr).value);
+            }
+            if (expr instanceof FilterExpr.BoolField) {
+                int f = field(((FilterExpr.BoolField) expr).field);
+                if (fields.get(f).getDataType() != DataType.BOOL) {
+                    throw new IllegalArgumentException("Field " + fields.get(f).getName()
+                            + " is not a BOOL field and cannot be used as a condition");
+                }
+                return longRange(f, 1L, 1L);
+            }
+            if (expr instanceof FilterExpr.Compare) {
+                FilterExpr.Compare compare = (FilterExpr.Compare) expr;
+                return compare(field(compare.field), compare.op, compare.literal);
+            }
+            if (expr instanceof FilterExpr.In) {
+                FilterExpr.In in = (FilterExpr.In) expr;
+                Node node = in(field(in.field), in.literals);
+                return in.negated ? not(node) : node;
+            }
+            if (expr instanceof FilterExpr.Like) {
+                FilterExpr.Like like = (FilterExpr.Like) expr;
+                int f = field(like.field);
+                if (fields.get(f).getDataType() != DataType.VARCHAR) {
+                    throw new IllegalArgumentException("Field " + like.field + " is not a VARCHAR field, like does "
+                            + "not apply");
+                }
+                if (like.exact) {
+                    return new Utf8Equals(f, like.field, like.prefix);
+                }
+                return like.prefix.isEmpty() ? Constant.TRUE : new Utf8Prefix(f, like.field, like.prefix);
+            }
+            if (expr instanceof FilterExpr.Not) {
+                return not(compile(((FilterExpr.Not) expr).operand));
+            }
+            if (expr instanceof FilterExpr.And) {
+                return and(((FilterExpr.And) expr).operands);
+            }
+            return or(((FilterExpr.Or) expr).operands);
+        }
+
+        private int field(String name) {
+            Integer f = positions.get(name);
+            if (f == null) {
+                throw new IllegalArgumentException("Field " + name + " does not exist");
+            }
+            switch (fields.get(f).getDataType()) {
+                case BOOL:
+                case INT8:
+                case INT16:
+                case INT32:
+                case INT64:
+                case FLOAT:
+                case DOUBLE:
+                case VARCHAR:
+                    return f;
+                default:
+                    throw new IllegalArgumentException("Field " + name + " is a " + fields.get(f).getDataType()
+                            + " field, filters only read scalar fields");
+            }
+        }
+
+        private IllegalArgumentException mismatch(int f, Object literal) {
+            FieldType field = fields.get(f);
+            String value = literal instanceof String ? "\"" + literal + "\"" : String.valueOf(literal);
+            return new IllegalArgumentException("Field " + field.getName() + " is a " + field.getDataType()
+                    + " field, cannot compare it with " + value);
+        }
+
+        private Node compare(int f, FilterExpr.Op op, Object literal) {
+            FieldType field = fields.get(f);
+            String name = field.getName();
+            switch (field.getDataType()) {
+                case BOOL:
+                    if (!(literal instanceof Boolean)) {
+                        throw mismatch(f, literal);
+                    }
+                    if (op != FilterExpr.Op.EQ && op != FilterExpr.Op.NE) {
+                        throw new IllegalArgumentException("Field " + name + " is a BOOL field, only == and != "
+                                + "apply");
+                    }
+                    long value = (Boolean) literal == (op == FilterExpr.Op.EQ) ? 1L : 0L;
+                    return longRange(f, value, value);
+                case VARCHAR:
+                    if (!(literal instanceof String)) {
+                        throw mismatch(f, literal);
+                    }
+                    return compareUtf8(f, name, op, (String) literal);
+                case FLOAT:
+                case DOUBLE:
+                    if (!(literal instanceof Number)) {
+                        throw mismatch(f, literal);
+                    }
+                    return compareDouble(f, name, op, ((Number) literal).doubleValue());
+                default:
+                    if (literal instanceof Long) {
+                        return compareLong(f, op, (Long) literal);
+                    }
+                    if (!(literal instanceof Double)) {
+                        throw mismatch(f, literal);
+                    }
+                    return compareLong(f, op, (Double) literal);
+            }
+        }
+
+        private Node compareLong(int f, FilterExpr.Op op, long value) {
+            switch (op) {
+                case EQ:
+                    return longRange(f, value, value);
+                case NE:
+                    return not(longRange(f, value, value));
+                case LT:
+                    return value == Long.MIN_VALUE ? Constant.FALSE : longRange(f, Long.MIN_VALUE, value - 1);
+                case LE:
+                    return longRange(f, Long.MIN_VALUE, value);
+                case GT:
+                    return value == Long.MAX_VALUE ? Constant.FALSE : longRange(f, value + 1, Long.MAX_VALUE);
+                default:
+                    return longRange(f, value, Long.MAX_VALUE);
+            }
+        }
+
+        /**
+         * Compares an integer field with a <code>double</code> by exact values, through the nearest integers that
+         * satisfy the comparison.
+         */
+        private Node compareLong(int f, FilterExpr.Op op, double value) {
+            if (Double.isNaN(value)) {
+                return Constant.of(op == FilterExpr.Op.NE);
+            }
+            boolean integral = value == Math.floor(value) && value >= -0x1p63 && value < 0x1p63;
+            if (integral) {
+                return compareLong(f, op, (long) value);
+            }
+            if (op == FilterExpr.Op.EQ || op == FilterExpr.Op.NE) {
+                return Constant.of(op == FilterExpr.Op.NE);
+            }
+            boolean below = op == FilterExpr.Op.LT || op == FilterExpr.Op.LE;
+            if (value >= 0x1p63) {
+                return Constant.of(below);
+            }
+            if (value < -0x1p63) {
+                return Constant.of(!below);
+            }
+            // not an integer, so x < value and x <= value both mean x <= floor(value)
+            return below ? longRange(f, Long.MIN_VALUE, (long) Math.floor(value))
+                    : longRange(f, (long) Math.ceil(value), Long.MAX_VALUE);
+        }
+
+        /**
+         * Returns a range clamped to the values the type of the field holds, or a constant.
+         */
+        private Node longRange(int f, long lower, long upper) {
+            long min;
+            long max;
+            switch (fields.get(f).getDataType()) {
+                case BOOL:
+                    min = 0L;
+                    max = 1L;
+                    break;
+                case INT8:
+                    min = Byte.MIN_VALUE;
+                    max = Byte.MAX_VALUE;
+                    break;
+                case INT16:
+                    min = Short.MIN_VALUE;
+                    max = Short.MAX_VALUE;
+                    break;
+                case INT32:
+                    min = Integer.MIN_VALUE;
+                    max = Integer.MAX_VALUE;
+                    break;
+                default:
+                    min = Long.MIN_VALUE;
+                    max = Long.MAX_VALUE;
+            }
+            lower = Math.max(lower, min);
+            upper = Math.min(upper, max);
+            if (lower > upper) {
+                return Constant.FALSE;
+            }
+            if (lower == min && upper == max) {
+                return Constant.TRUE;
+            }
+            return new LongRange(f, fields.get(f).getName(), lower, upper);
+        }
+
+        private Node compareDouble(int f, String name, FilterExpr.Op op, double value) {
+            if (op == FilterExpr.Op.LT && value == Double.NEGATIVE_INFINITY
+                    || op == FilterExpr.Op.GT && value == Double.POSITIVE_INFINITY) {
+                return Constant.FALSE;
+            }
+            switch (op) {
+                case EQ:
+                    return new DoubleRange(f, name, value, value);
+                case NE:
+                    return not(new DoubleRange(f, name, value, value));
+                case LT:
+                    return new DoubleRange(f, name, Double.NEGATIVE_INFINITY, Math.nextDown(value));
+                case LE:
+                    return new DoubleRange(f, name, Double.NEGATIVE_INFINITY, value);
+                case GT:
+                    return new DoubleRange(f, name, Math.nextUp(value), Double.POSITIVE_INFINITY);
+                default:
+                    return new DoubleRange(f, name, value, Double.POSITIVE_INFINITY);
+            }
+        }
+
+        private Node compareUtf8(int f, String name, FilterExpr.Op op, String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            switch (op) {
+                case EQ:
+                    return new Utf8Equals(f, name, value);
+                case NE:
+                    return not(new Utf8Equals(f, name, value));
+                case LT:
+                    return new Utf8Range(f, name, null, false, utf8, false);
+                case LE:
+                    return new Utf8Range(f, name, null, false, utf8, true);
+                case GT:
+                    return new Utf8Range(f, name, utf8, false, null, false);
+                default:
+                    return new Utf8Range(f, name, utf8, true, null, false);
+            }
+        }
+
+        private Node in(int f, List<Object> literals) {
+            FieldType field = fields.get(f);
+            String name = field.getName();
+            switch (field.getDataType()) {
+                case VARCHAR:
+                    Set<String> strings = new LinkedHashSet<>();
+                    for (Object literal : literals) {
+                        if (!(literal instanceof String)) {
+                            throw mismatch(f, literal);
+                        }
+                        strings.add((String) literal);
+                    }
+                    if (strings.size() <= 1) {
+                        return strings.isEmpty() ? Constant.FALSE : new Utf8Equals(f, name, strings.iterator().next());
+                    }
+                    return new Utf8In(f, name, strings);
+                case FLOAT:
+                case DOUBLE:
+                    TreeSet<Double> doubles = new TreeSet<>();
+                    for (Object literal : literals) {
+                        if (!(literal instanceof Number)) {
+                            throw mismatch(f, literal);
+                        }
+                        doubles.add(((Number) literal).doubleValue() + 0d);
+                    }
+                    if (doubles.size() <= 1) {
+                        return doubles.isEmpty() ? Constant.FALSE
+                                : new DoubleRange(f, name, doubles.first(), doubles.first());
+                    }
+                    return new DoubleIn(f, name, doubles.stream().mapToDouble(Double::doubleValue).toArray());
+                default:
+                    List<Node> points = new ArrayList<>();
+                    TreeSet<Long> longs = new TreeSet<>();
+                    for (Object literal : literals) {
+                        boolean bool = field.getDataType() == DataType.BOOL;
+                        if (bool != literal instanceof Boolean || literal instanceof String) {
+                            throw mismatch(f, literal);
+                        }
+                        Node point = bool ? compare(f, FilterExpr.Op.EQ, literal)
+                                : literal instanceof Long ? compareLong(f, FilterExpr.Op.EQ, (Long) literal)
+                                : compareLong(f, FilterExpr.Op.EQ, (Double) literal);
+                        // a value the field cannot hold matches nothing
+                        if (point instanceof LongRange) {
+                            longs.add(((LongRange) point).lower);
+                            points.add(point);
+                        }
+                    }
+                    if (longs.size() <= 1) {
+                        return longs.isEmpty() ? Constant.FALSE : points.get(0);
+                    }
+                    if (field.getDataType() == DataType.BOOL) {
+                        return Constant.TRUE;
+                    }
+                    return new LongIn(f, name, longs.stream().mapToLong(Long::longValue).toArray());
+            }
+        }
+
+        private Node not(Node operand) {
+            if (operand instanceof Constant) {
+                return Constant.of(!((Constant) operand).value);
+            }
+            if (operand instanceof Not) {
+                return ((Not) operand).operand;
+            }
+            if (operand instanceof LongRange && fields.get(((LongRange) operand).field).getDataType()
+                    == DataType.BOOL) {
+                long value = ((LongRange) operand).lower;
+                return longRange(((LongRange) operand).field, 1L - value, 1L - value);
+            }
+            return new Not(operand);
+        }
+
+        private Node and(List<FilterExpr> exprs) {
+            List<Node> operands = new ArrayList<>();
+            Map<Integer, Integer> longRanges = new HashMap<>();
+            Map<Integer, Integer> doubleRanges = new HashMap<>();
+            for (Node operand : flatten(exprs, true)) {
+                if (operand instanceof Constant) {
+                    if (!((Constant) operand).value) {
+                        return Constant.FALSE;
+                    }
+                    continue;
+                }
+                if (operand instanceof LongRange) {
+                    LongRange range = (LongRange) operand;
+                    Integer at = longRanges.get(range.field);
+                    if (at != null) {
+                        LongRange other = (LongRange) operands.get(at);
+                        Node merged = longRange(range.field, Math.max(range.lower, other.lower),
+                                Math.min(range.upper, other.upper));
+                        if (!(merged instanceof LongRange)) {
+                            return merged;
+                        }
+                        operands.set(at, merged);
+                        continue;
+                    }
+                    longRanges.put(range.field, operands.size());
+                } else if (operand instanceof DoubleRange) {
+                    DoubleRange range = (DoubleRange) operand;
+                    Integer at = doubleRanges.get(range.field);
+                    if (at != null) {
+                        DoubleRange other = (DoubleRange) operands.get(at);
+                        double lower = Math.max(range.lower, other.lower);
+                        double upper = Math.min(range.upper, other.upper);
+                        if (!(lower <= upper)) {
+                            return Constant.FALSE;
+                        }
+                        operands.set(at, new DoubleRange(range.field, range.name, lower, upper));
+                        continue;
+                    }
+                    doubleRanges.put(range.field, operands.size());
+                }
+                operands.add(operand);
+            }
+            if (operands.isEmpty()) {
+                return Constant.TRUE;
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(true, operands);
+        }
+
+        private Node or(List<FilterExpr> exprs) {
+            List<Node> operands = new ArrayList<>();
+            for (Node operand : flatten(exprs, false)) {
+                if (operand instanceof Constant) {
+                    if (((Constant) operand).value) {
+                        return Constant.TRUE;
+                    }
+                    continue;
+                }
+                operands.add(operand);
+            }
+            if (operands.isEmpty()) {
+                return Constant.FALSE;
+            }
+            return operands.size() == 1 ? operands.get(0) : new Junction(false, operands);
+        }
+
+        /**
+         * Compiles the operands of a junction, lifting the operands of nested junctions of the same kind.
+         */
+        private List<Node> flatten(List<FilterExpr> exprs, boolean and) {
+            List<Node> nodes = new ArrayList<>();
+            for (FilterExpr expr : exprs) {
+                Node node = compile(expr);
+                if (node instanceof Junction && ((Junction) node).and == and) {
+                    nodes.addAll(Arrays.asList(((Junction) node).operands));
+                } else {
+                    nodes.add(node);
+                }
+            }
+            return nodes;
+        }
+    }
+}
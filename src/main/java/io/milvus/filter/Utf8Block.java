@@ -0,0 +1,104 @@
+package io.milvus.filter;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The UTF-8 bytes of the strings of a block of rows, back to back in one reused array, so that comparing them with
+ * a literal decodes nothing and allocates nothing per row.
+ */
+public final class Utf8Block {
+    private byte[] bytes = new byte[1 << 14];
+    private int[] ends = new int[FilterPlan.BLOCK_ROWS];
+    private int rows;
+
+    /**
+     * Removes every string.
+     */
+    public void clear() {
+        rows = 0;
+    }
+
+    /**
+     * Appends the string of the next row.
+     */
+    public void add(byte[] utf8) {
+        int start = reserve(utf8.length);
+        System.arraycopy(utf8, 0, bytes, start, utf8.length);
+    }
+
+    /**
+     * Appends the string of the next row, <code>length</code> bytes from an absolute offset of a buffer.
+     */
+    public void add(ByteBuffer buffer, int offset, int length) {
+        int start = reserve(length);
+        for (int i = 0; i < length; i++) {
+            bytes[start + i] = buffer.get(offset + i);
+        }
+    }
+
+    private int reserve(int length) {
+        int start = rows == 0 ? 0 : ends[rows - 1];
+        if (start + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + length));
+        }
+        if (rows == ends.length) {
+            ends = Arrays.copyOf(ends, rows * 2);
+        }
+        ends[rows++] = start + length;
+        return start;
+    }
+
+    /**
+     * Returns the number of strings.
+     *
+     * @return <code>int</code>
+     */
+    public int size() {
+        return rows;
+    }
+
+    /**
+     * Compares the string of a row with a literal, byte by byte as unsigned values, which orders UTF-8 strings by
+     * code point.
+     */
+    int compare(int row, byte[] literal) {
+        int start = row == 0 ? 0 : ends[row - 1];
+        int length = ends[row] - start;
+        int n = Math.min(length, literal.length);
+        for (int i = 0; i < n; i++) {
+            int a = bytes[start + i] & 0xFF;
+            int b = literal[i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - literal.length;
+    }
+
+    boolean equals(int row, byte[] literal) {
+        int start = row == 0 ? 0 : ends[row - 1];
+        if (ends[row] - start != literal.length) {
+            return false;
+        }
+        for (int i = 0; i < literal.length; i++) {
+            if (bytes[start + i] != literal[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean startsWith(int row, byte[] prefix) {
+        int start = row == 0 ? 0 : ends[row - 1];
+        if (ends[row] - start < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[start + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Provides the parser and the column-at-a-time evaluator of boolean filter expressions over scalar fields.
+ * 
+ * @since 2.3.0
+ */
+package io.milvus.filter;
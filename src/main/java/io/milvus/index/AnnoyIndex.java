@@ -0,0 +1,418 @@
+package io.milvus.index;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * An ANNOY-style forest of random-projection trees.
+ * <p>
+ * Build parameters: <code>n_trees</code>. Search parameters: <code>search_k</code>, the number of leaf items to
+ * collect before ranking; it defaults to <code>topK * n_trees</code>.
+ * <p>
+ * Trees are built in parallel, one tree per fork-join task. The whole index is laid out as one flat image: a
+ * header, the root of every tree, the raw vectors and then the tree nodes. Every node has the same size; a split
+ * node stores its hyperplane and a leaf stores item IDs in the same space. {@link #save(Path)} writes the image to
+ * a file and {@link #open(Path)} maps it read-only, so opening does not read the file and several JVMs on the same
+ * host share the same pages.
+ */
+public class AnnoyIndex implements FloatVectorIndex {
+    static final int DEFAULT_N_TREES = 8;
+
+    private static final int MAGIC = 0x594E4E41; // "ANNY" in little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int ALIGNMENT = 64;
+    private static final int MIN_LEAF_SIZE = 16;
+    // node layout in 4-byte words
+    private static final int NODE_COUNT = 0;
+    private static final int NODE_LEFT = 1;
+    private static final int NODE_RIGHT = 2;
+    private static final int NODE_OFFSET = 3;
+    private static final int NODE_PAYLOAD = 4;
+    private static final int SPLIT = -1;
+
+    private final int dim;
+    private final MetricType metricType;
+    private final int nTrees;
+    private final int leafSize;
+    private final ThreadLocal<SearchContext> contexts = ThreadLocal.withInitial(SearchContext::new);
+    private int[] roots;
+    private PagedBuffer vectors;
+    private PagedBuffer nodes;
+    private int size;
+
+    public AnnoyIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        this(dim, metricType, buildParams.getInt(IndexParams.N_TREES, DEFAULT_N_TREES));
+    }
+
+    private AnnoyIndex(int dim, MetricType metricType, int nTrees) {
+        Distances.checkFloatMetric(metricType);
+        if (nTrees <= 0) {
+            throw new IllegalArgumentException("n_trees must be positive, got: " + nTrees);
+        }
+        this.dim = dim;
+        this.metricType = metricType;
+        this.nTrees = nTrees;
+        this.leafSize = Math.max(dim, MIN_LEAF_SIZE);
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.ANNOY;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the size of the index image. For a mapped index this memory lives in the OS page cache rather than
+     * in the Java heap.
+     */
+    @Override
+    public long memoryBytes() {
+        return vectors == null ? 0L : vectors.byteSize() + nodes.byteSize();
+    }
+
+    private int nodeBytes() {
+        return 4 * (NODE_PAYLOAD + leafSize);
+    }
+
+    @Override
+    public void build(float[] data, int count) {
+        if (data.length < count * dim) {
+            throw new IllegalArgumentException("Expected " + count * dim + " floats, got: " + data.length);
+        }
+        TreeBuilder[] trees = new TreeBuilder[nTrees];
+        IntStream.range(0, nTrees).parallel().forEach(t -> {
+            TreeBuilder tree = new TreeBuilder(data, count, new Random(31L * count + t));
+            tree.build();
+            trees[t] = tree;
+        });
+
+        int[] bases = new int[nTrees];
+        int[] treeRoots = new int[nTrees];
+        long total = 0;
+        for (int t = 0; t < nTrees; t++) {
+            bases[t] = (int) total;
+            treeRoots[t] = bases[t] + trees[t].root;
+            total += trees[t].count;
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many tree nodes: " + total);
+        }
+        PagedBuffer nodeBuffer = PagedBuffer.allocate(total, nodeBytes());
+        IntStream.range(0, nTrees).parallel().forEach(t -> trees[t].copyTo(nodeBuffer, bases[t]));
+        PagedBuffer vectorBuffer = PagedBuffer.allocate(count, 4 * dim);
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dim; d++) {
+                vectorBuffer.putFloat(i, 4 * d, data[i * dim + d]);
+            }
+        }
+        this.roots = treeRoots;
+        this.nodes = nodeBuffer;
+        this.vectors = vectorBuffer;
+        this.size = count;
+    }
+
+    /**
+     * Writes the index image to a file, replacing any existing file.
+     *
+     * @param path The target file.
+     * @throws IOException if writing fails.
+     */
+    public void save(Path path) throws IOException {
+        if (vectors == null) {
+            throw new IllegalStateException("Index is not built");
+        }
+        long vectorsOffset = align(HEADER_BYTES + 4L * nTrees);
+        long nodesOffset = align(vectorsOffset + vectors.byteSize());
+        ByteBuffer header = ByteBuffer.allocate((int) vectorsOffset).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(metricType.ordinal())
+                .putInt(size).putInt(nTrees).putInt(leafSize).putInt(nodeBytes())
+                .putLong(nodes.records()).putLong(vectorsOffset).putLong(nodesOffset);
+        header.position(HEADER_BYTES);
+        for (int root : roots) {
+            header.putInt(root);
+        }
+        header.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            vectors.writeTo(channel, vectorsOffset);
+            nodes.writeTo(channel, nodesOffset);
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Opens an index file written by {@link #save(Path)} by mapping it read-only. Only the header is read.
+     *
+     * @param path The index file.
+     * @return {@link AnnoyIndex}
+     * @throws IOException if the file cannot be read or is not an index file.
+     */
+    public static AnnoyIndex open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not an ANNOY index file: " + path);
+            }
+            int dim = header.getInt();
+            MetricType metricType = MetricType.values()[header.getInt()];
+            int size = header.getInt();
+            int nTrees = header.getInt();
+            AnnoyIndex index = new AnnoyIndex(dim, metricType, nTrees);
+            if (header.getInt() != index.leafSize || header.getInt() != index.nodeBytes()) {
+                throw new IOException("Unsupported ANNOY node layout: " + path);
+            }
+            long nodeCount = header.getLong();
+            long vectorsOffset = header.getLong();
+            long nodesOffset = header.getLong();
+
+            ByteBuffer rootBuffer = ByteBuffer.allocate(4 * nTrees).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, rootBuffer, HEADER_BYTES);
+            rootBuffer.flip();
+            int[] roots = new int[nTrees];
+            for (int t = 0; t < nTrees; t++) {
+                roots[t] = rootBuffer.getInt();
+            }
+            index.roots = roots;
+            index.vectors = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, vectorsOffset, size, 4 * dim);
+            index.nodes = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, nodesOffset, nodeCount,
+                    index.nodeBytes());
+            index.size = size;
+            return index;
+        }
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        int searchK = searchParams.getInt(IndexParams.SEARCH_K, -1);
+        if (searchK <= 0) {
+            searchK = topK * nTrees;
+        }
+        SearchContext ctx = contexts.get();
+        FloatMinHeap queue = ctx.queue;
+        queue.clear();
+        ctx.count = 0;
+        // the queue is a min-heap, so priorities are negated to pop the most promising node first
+        for (int root : roots) {
+            queue.push(Float.NEGATIVE_INFINITY, root);
+        }
+        while (!queue.isEmpty() && ctx.count < searchK) {
+            float priority = -queue.peekKey();
+            int node = queue.poll();
+            ByteBuffer chunk = nodes.chunk(node);
+            int base = nodes.offset(node);
+            int count = chunk.getInt(base + 4 * NODE_COUNT);
+            if (count == SPLIT) {
+                // the IP kernel returns the negated dot product
+                float margin = chunk.getFloat(base + 4 * NODE_OFFSET)
+                        - Distances.distance(MetricType.IP, query, chunk, base + 4 * NODE_PAYLOAD, dim);
+                queue.push(-Math.min(priority, margin), chunk.getInt(base + 4 * NODE_RIGHT));
+                queue.push(-Math.min(priority, -margin), chunk.getInt(base + 4 * NODE_LEFT));
+            } else {
+                for (int i = 0; i < count; i++) {
+                    ctx.add(chunk.getInt(base + 4 * (NODE_PAYLOAD + i)));
+                }
+            }
+        }
+
+        VisitedSet seen = ctx.seen;
+        seen.clear();
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+        for (int i = 0; i < ctx.count; i++) {
+            int id = ctx.candidates[i];
+            if (seen.add(id)) {
+                heap.offer(id, Distances.distance(metricType, query, vectors.chunk(id), vectors.offset(id), dim));
+            }
+        }
+        return heap.toResult(metricType);
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, p);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            p += n;
+        }
+    }
+
+    /**
+     * Builds one tree into an int array of node words, with child references local to the tree.
+     */
+    private final class TreeBuilder {
+        private final float[] data;
+        private final int[] items;
+        private final Random random;
+        private final int nodeWords = NODE_PAYLOAD + leafSize;
+        private int[] words = new int[64 * (NODE_PAYLOAD + leafSize)];
+        private final float[] normal = new float[dim];
+        int count;
+        int root;
+
+        TreeBuilder(float[] data, int n, Random random) {
+            this.data = data;
+            this.random = random;
+            this.items = new int[n];
+            for (int i = 0; i < n; i++) {
+                items[i] = i;
+            }
+        }
+
+        void build() {
+            root = makeTree(0, items.length);
+        }
+
+        private int newNode() {
+            if ((count + 1) * nodeWords > words.length) {
+                words = Arrays.copyOf(words, words.length * 2);
+            }
+            return count++;
+        }
+
+        private int makeTree(int from, int to) {
+            int n = to - from;
+            if (n <= leafSize) {
+                int node = newNode();
+                int base = node * nodeWords;
+                words[base + NODE_COUNT] = n;
+                System.arraycopy(items, from, words, base + NODE_PAYLOAD, n);
+                return node;
+            }
+            float offset = split(from, to);
+            int mid = partition(from, to, offset);
+            if (mid == from || mid == to) {
+                // degenerate split, e.g. duplicates: fall back to an arbitrary halving
+                Arrays.fill(normal, 0f);
+                offset = 0f;
+                mid = from + n / 2;
+            }
+            int node = newNode();
+            float[] hyperplane = normal.clone();
+            int left = makeTree(from, mid);
+            int right = makeTree(mid, to);
+            int base = node * nodeWords;
+            words[base + NODE_COUNT] = SPLIT;
+            words[base + NODE_LEFT] = left;
+            words[base + NODE_RIGHT] = right;
+            words[base + NODE_OFFSET] = Float.floatToRawIntBits(offset);
+            for (int d = 0; d < dim; d++) {
+                words[base + NODE_PAYLOAD + d] = Float.floatToRawIntBits(hyperplane[d]);
+            }
+            return node;
+        }
+
+        /**
+         * Picks the hyperplane equidistant to two random items and returns its offset; the margin of a vector is
+         * <code>dot(normal, v) + offset</code>.
+         */
+        private float split(int from, int to) {
+            int n = to - from;
+            int a = items[from + random.nextInt(n)];
+            int b = items[from + random.nextInt(n)];
+            double norm = 0d;
+            double offset = 0d;
+            for (int d = 0; d < dim; d++) {
+                float x = data[a * dim + d];
+                float y = data[b * dim + d];
+                normal[d] = x - y;
+                norm += (double) normal[d] * normal[d];
+            }
+            float scale = norm > 0d ? (float) (1d / Math.sqrt(norm)) : 0f;
+            for (int d = 0; d < dim; d++) {
+                normal[d] *= scale;
+                offset -= normal[d] * (data[a * dim + d] + data[b * dim + d]) * 0.5d;
+            }
+            return (float) offset;
+        }
+
+        /**
+         * Moves items with a positive margin to the end of the range and returns the first of them.
+         */
+        private int partition(int from, int to, float offset) {
+            int lo = from;
+            int hi = to - 1;
+            while (lo <= hi) {
+                int item = items[lo];
+                float margin = Distances.ip(normal, 0, data, item * dim, dim) + offset;
+                if (margin > 0f) {
+                    items[lo] = items[hi];
+                    items[hi--] = item;
+                } else {
+                    lo++;
+                }
+            }
+            return lo;
+        }
+
+        void copyTo(PagedBuffer buffer, int base) {
+            for (int node = 0; node < count; node++) {
+                long record = (long) base + node;
+                int w = node * nodeWords;
+                boolean split = words[w + NODE_COUNT] == SPLIT;
+                buffer.putInt(record, 4 * NODE_COUNT, words[w + NODE_COUNT]);
+                buffer.putInt(record, 4 * NODE_LEFT, split ? base + words[w + NODE_LEFT] : 0);
+                buffer.putInt(record, 4 * NODE_RIGHT, split ? base + words[w + NODE_RIGHT] : 0);
+                buffer.putInt(record, 4 * NODE_OFFSET, words[w + NODE_OFFSET]);
+                for (int i = 0; i < leafSize; i++) {
+                    buffer.putInt(record, 4 * (NODE_PAYLOAD + i), words[w + NODE_PAYLOAD + i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Per-thread scratch space reused by every search on that thread.
+     */
+    private static final class SearchContext {
+        final FloatMinHeap queue = new FloatMinHeap(64);
+        final VisitedSet seen = new VisitedSet(1 << 12);
+        int[] candidates = new int[256];
+        int count;
+
+        void add(int id) {
+            if (count == candidates.length) {
+                candidates = Arrays.copyOf(candidates, count * 2);
+            }
+            candidates[count++] = id;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+package io.milvus.index;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * Chooses an index type and its parameters for <code>AUTOINDEX</code>.
+ * <p>
+ * The choice is deterministic and depends only on the row count, dimension, data type, metric type and memory
+ * budget. For float vectors, the first rule that fits the budget wins:
+ * <ol>
+ *     <li>fewer than {@value #FLAT_MAX_ROWS} rows: <code>FLAT</code>, a scan is as fast as any index there;</li>
+ *     <li>fewer than {@value #HNSW_MIN_ROWS} rows: <code>IVF_FLAT</code>, which scans fewer bytes per query than
+ *     a graph walk visits at that size;</li>
+ *     <li><code>HNSW</code> with <code>M</code> 16, or 32 above {@value #HNSW_WIDE_DIMENSION} dimensions,
+ *     searched with <code>ef</code> {@value #HNSW_EF};</li>
+ *     <li><code>IVF_FLAT</code>, then <code>IVF_SQ8</code>;</li>
+ *     <li><code>IVF_PQ</code> with the largest <code>m</code> that divides the dimension, is at most half of it
+ *     and fits. Recall is bounded by the quantization error here.</li>
+ * </ol>
+ * IVF indexes use <code>nlist = 4 * sqrt(rows)</code> and <code>nprobe = nlist / 16</code>, at least
+ * {@value #MIN_NPROBE}.
+ * <p>
+ * For binary vectors, <code>BIN_FLAT</code> is used below {@value #BIN_FLAT_MAX_ROWS} rows or when an IVF index
+ * does not fit, <code>BIN_IVF_FLAT</code> otherwise.
+ * <p>
+ * The memory budget is read from the <code>memory_budget</code> build parameter in bytes and is unlimited by
+ * default. Search parameters passed by the caller take precedence over the chosen ones.
+ */
+public final class AutoIndex {
+    static final int FLAT_MAX_ROWS = 1_000;
+    static final int HNSW_MIN_ROWS = 100_000;
+    static final int BIN_FLAT_MAX_ROWS = 50_000;
+    static final int HNSW_WIDE_DIMENSION = 256;
+    static final int HNSW_EF = 128;
+    static final int MIN_NPROBE = 16;
+    private static final int MAX_NLIST = 65536;
+    private static final int PQ_KSUB = 256;
+
+    private AutoIndex() {}
+
+    /**
+     * Chooses an index for a field.
+     *
+     * @param rowCount The number of vectors to index.
+     * @param dim The number of dimensions, or bits for binary vectors.
+     * @param dataType <code>FLOAT_VECTOR</code> or <code>BINARY_VECTOR</code>.
+     * @param metricType The metric type of the field.
+     * @param memoryBudget The maximum number of index bytes, <code>Long.MAX_VALUE</code> for no limit.
+     * @return {@link Choice}
+     * @throws IllegalArgumentException if the data type is not a vector type, or if no index fits the budget.
+     */
+    public static Choice select(long rowCount, int dim, DataType dataType, MetricType metricType, long memoryBudget) {
+        if (rowCount < 0) {
+            throw new IllegalArgumentException("Row count must not be negative, got: " + rowCount);
+        }
+        if (dim <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive, got: " + dim);
+        }
+        if (dataType == DataType.FLOAT_VECTOR) {
+            Distances.checkFloatMetric(metricType);
+            return selectFloat(rowCount, dim, memoryBudget);
+        }
+        if (dataType == DataType.BINARY_VECTOR) {
+            BinaryDistances.checkBinaryMetric(metricType);
+            return selectBinary(rowCount, dim, memoryBudget);
+        }
+        throw new IllegalArgumentException("Data type " + dataType + " is not a vector type");
+    }
+
+    private static Choice selectFloat(long rows, int dim, long budget) {
+        long flat = rows * 4L * dim;
+        if (rows < FLAT_MAX_ROWS && flat <= budget) {
+            return new Choice(IndexType.FLAT, IndexParams.empty(), IndexParams.empty(), flat);
+        }
+        int nlist = nlist(rows);
+        IndexParams build = IndexParams.empty().with(IndexParams.NLIST, nlist);
+        IndexParams search = IndexParams.empty().with(IndexParams.NPROBE, nprobe(nlist));
+        long centroids = 4L * nlist * dim;
+        long ivfFlat = centroids + rows * (4L * dim + 4L);
+        if (rows < HNSW_MIN_ROWS && ivfFlat <= budget) {
+            return new Choice(IndexType.IVF_FLAT, build, search, ivfFlat);
+        }
+        int m = dim > HNSW_WIDE_DIMENSION ? 32 : 16;
+        // layer 0 holds 2M links, upper layers hold about 1 / M of the nodes
+        long hnsw = rows * (4L * dim + 8L * m + 12L);
+        if (hnsw <= budget) {
+            return new Choice(IndexType.HNSW,
+                    IndexParams.empty().with(IndexParams.HNSW_M, m)
+                            .with(IndexParams.EF_CONSTRUCTION, HnswIndex.DEFAULT_EF_CONSTRUCTION),
+                    IndexParams.empty().with(IndexParams.EF, HNSW_EF), hnsw);
+        }
+        if (ivfFlat <= budget) {
+            return new Choice(IndexType.IVF_FLAT, build, search, ivfFlat);
+        }
+        long ivfSq8 = centroids + 8L * dim + rows * (dim + 4L);
+        if (ivfSq8 <= budget) {
+            return new Choice(IndexType.IVF_SQ8, build, search, ivfSq8);
+        }
+        for (int pqM = dim / 2; pqM >= 1; pqM--) {
+            if (dim % pqM != 0) {
+                continue;
+            }
+            long ivfPq = centroids + 4L * PQ_KSUB * dim + rows * (pqM + 4L);
+            if (ivfPq <= budget) {
+                return new Choice(IndexType.IVF_PQ, build.with(IndexParams.PQ_M, pqM), search, ivfPq);
+            }
+        }
+        throw new IllegalArgumentException("No index over " + rows + " vectors of " + dim
+                + " dimensions fits a memory budget of " + budget + " bytes");
+    }
+
+    private static Choice selectBinary(long rows, int dim, long budget) {
+        long flat = rows * 8L * BinaryDistances.words(dim);
+        int nlist = nlist(rows);
+        long ivf = flat + rows * 4L + (long) nlist * 8L * BinaryDistances.words(dim);
+        if (rows >= BIN_FLAT_MAX_ROWS && ivf <= budget) {
+            return new Choice(IndexType.BIN_IVF_FLAT, IndexParams.empty().with(IndexParams.NLIST, nlist),
+                    IndexParams.empty().with(IndexParams.NPROBE, nprobe(nlist)), ivf);
+        }
+        if (flat <= budget) {
+            return new Choice(IndexType.BIN_FLAT, IndexParams.empty(), IndexParams.empty(), flat);
+        }
+        throw new IllegalArgumentException("No index over " + rows + " binary vectors of " + dim
+                + " bits fits a memory budget of " + budget + " bytes");
+    }
+
+    private static int nlist(long rows) {
+        return (int) Math.max(1L, Math.min(MAX_NLIST, Math.round(4d * Math.sqrt(rows))));
+    }
+
+    private static int nprobe(int nlist) {
+        return Math.min(nlist, Math.max(MIN_NPROBE, nlist / 16));
+    }
+
+    /**
+     * The outcome of {@link #select(long, int, DataType, MetricType, long)}.
+     */
+    public static final class Choice {
+        private final IndexType indexType;
+        private final IndexParams buildParams;
+        private final IndexParams searchParams;
+        private final long estimatedBytes;
+
+        private Choice(IndexType indexType, IndexParams buildParams, IndexParams searchParams, long estimatedBytes) {
+            this.indexType = indexType;
+            this.buildParams = buildParams;
+            this.searchParams = searchParams;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        public IndexType getIndexType() {
+            return indexType;
+        }
+
+        public IndexParams getBuildParams() {
+            return buildParams;
+        }
+
+        public IndexParams getSearchParams() {
+            return searchParams;
+        }
+
+        /**
+         * Returns the estimated index memory in bytes.
+         *
+         * @return <code>long</code>
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return "Choice{indexType=" + indexType + ", buildParams=" + buildParams.asMap()
+                    + ", searchParams=" + searchParams.asMap() + ", estimatedBytes=" + estimatedBytes + '}';
+        }
+    }
+
+    /**
+     * A float vector index that picks its implementation when it is built.
+     */
+    public static final class FloatIndex implements FloatVectorIndex {
+        private final int dim;
+        private final MetricType metricType;
+        private final IndexParams buildParams;
+        private Choice choice;
+        private FloatVectorIndex delegate;
+
+        FloatIndex(int dim, MetricType metricType, IndexParams buildParams) {
+            Distances.checkFloatMetric(metricType);
+            this.dim = dim;
+            this.metricType = metricType;
+            this.buildParams = buildParams;
+        }
+
+        /**
+         * Returns the choice made on build, or <code>null</code> before.
+         *
+         * @return {@link Choice}
+         */
+        public Choice getChoice() {
+            return choice;
+        }
+
+        @Override
+        public IndexType getIndexType() {
+            return choice == null ? IndexType.AUTOINDEX : choice.getIndexType();
+        }
+
+        @Override
+        public MetricType getMetricType() {
+            return metricType;
+        }
+
+        @Override
+        public int getDimension() {
+            return dim;
+        }
+
+        @Override
+        public int size() {
+            return delegate == null ? 0 : delegate.size();
+        }
+
+        @Override
+        public long memoryBytes() {
+            return delegate == null ? 0L : delegate.memoryBytes();
+        }
+
+        @Override
+        public void build(float[] vectors, int count) {
+            Choice c = select(count, dim, DataType.FLOAT_VECTOR, metricType,
+                    buildParams.getLong(IndexParams.MEMORY_BUDGET, Long.MAX_VALUE));
+            FloatVectorIndex index = VectorIndexFactory.create(c.getIndexType(), metricType, dim,
+                    c.getBuildParams());
+            index.build(vectors, count);
+            this.choice = c;
+            this.delegate = index;
+        }
+
+        @Override
+        public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+            if (delegate == null) {
+                return SearchResult.empty();
+            }
+            return delegate.search(query, topK, choice.getSearchParams().withAll(searchParams));
+        }
+
+        @Override
+        public SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+            if (delegate == null) {
+                return SearchResult.empty();
+            }
+            return delegate.search(query, topK, choice.getSearchParams().withAll(searchParams), excluded);
+        }
+    }
+
+    /**
+     * A binary vector index that picks its implementation when it is built.
+     */
+    public static final class BinaryIndex implements BinaryVectorIndex {
+        private final int dim;
+        private final MetricType metricType;
+        private final IndexParams buildParams;
+        private Choice choice;
+        private BinaryVectorIndex delegate;
+
+        BinaryIndex(int dim, MetricType metricType, IndexParams buildParams) {
+            BinaryDistances.checkBinaryMetric(metricType);
+            this.dim = dim;
+            this.metricType = metricType;
+            this.buildParams = buildParams;
+        }
+
+        /**
+         * Returns the choice made on build, or <code>null</code> before.
+         *
+         * @return {@link Choice}
+         */
+        public Choice getChoice() {
+            return choice;
+        }
+
+        @Override
+        public IndexType getIndexType() {
+            return choice == null ? IndexType.AUTOINDEX : choice.getIndexType();
+        }
+
+        @Override
+        public MetricType getMetricType() {
+            return metricType;
+        }
+
+        @Override
+        public int getDimension() {
+            return dim;
+        }
+
+        @Override
+        public int size() {
+            return delegate == null ? 0 : delegate.size();
+        }
+
+        @Override
+        public long memoryBytes() {
+            return delegate == null ? 0L : delegate.memoryBytes();
+        }
+
+        @Override
+        public void build(long[] vectors, int count) {
+            Choice c = select(count, dim, DataType.BINARY_VECTOR, metricType,
+                    buildParams.getLong(IndexParams.MEMORY_BUDGET, Long.MAX_VALUE));
+            BinaryVectorIndex index = VectorIndexFactory.createBinary(c.getIndexType(), metricType, dim,
+                    c.getBuildParams());
+            index.build(vectors, count);
+            this.choice = c;
+            this.delegate = index;
+        }
+
+        @Override
+        public SearchResult search(long[] query, int topK, IndexParams searchParams) {
+            if (delegate == null) {
+                return SearchResult.empty();
+            }
+            return delegate.search(query, topK, choice.getSearchParams().withAll(searchParams));
+        }
+
+        @Override
+        public SearchResult search(long[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+            if (delegate == null) {
+                return SearchResult.empty();
+            }
+            return delegate.search(query, topK, choice.getSearchParams().withAll(searchParams), excluded);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.milvus.index;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A brute-force index over binary vectors that compares the query with every vector.
+ */
+public class BinFlatIndex implements BinaryVectorIndex {
+    private final int dim;
+    private final int words;
+    private final MetricType metricType;
+    private long[] vectors;
+    private int size;
+
+    public BinFlatIndex(int dim, MetricType metricType) {
+        BinaryDistances.checkBinaryMetric(metricType);
+        this.dim = dim;
+        this.words = BinaryDistances.words(dim);
+        this.metricType = metricType;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.BIN_FLAT;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 8L * words * size;
+    }
+
+    /**
+     * Keeps a reference to the vectors; the caller must not modify them afterwards.
+     */
+    @Override
+    public void build(long[] vectors, int count) {
+        if (vectors.length < count * words) {
+            throw new IllegalArgumentException("Expected " + count * words + " longs, got: " + vectors.length);
+        }
+        this.vectors = vectors;
+        this.size = count;
+    }
+
+    @Override
+    public SearchResult search(long[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    @Override
+    public SearchResult search(long[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+        int skip = excluded == null ? -1 : excluded.next(0);
+        for (int i = 0; i < size; i++) {
+            if (i == skip) {
+                skip = excluded.next(i + 1);
+                continue;
+            }
+            heap.offer(i, BinaryDistances.distance(metricType, query, 0, vectors, i * words, words));
+        }
+        return heap.toResult(metricType);
+    }
+}
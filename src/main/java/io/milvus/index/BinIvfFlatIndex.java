@@ -0,0 +1,199 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * An IVF index over binary vectors. Lists are clustered with k-majority: points are assigned by Hamming distance
+ * and each centroid bit is the majority vote of its members, so centroids stay binary and every distance is a
+ * popcount. Each list stores its packed vectors contiguously.
+ * <p>
+ * Build parameters: <code>nlist</code>. Search parameters: <code>nprobe</code>. Supported metrics are
+ * <code>HAMMING</code>, <code>JACCARD</code> and <code>TANIMOTO</code>.
+ */
+public class BinIvfFlatIndex implements BinaryVectorIndex {
+    private static final int TRAIN_ITERATIONS = 10;
+
+    private final int dim;
+    private final int words;
+    private final MetricType metricType;
+    private final int nlist;
+    private long[] centroids;
+    private int centroidCount;
+    private int[][] listIds;
+    private long[][] listVectors;
+    private int size;
+
+    public BinIvfFlatIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        BinaryDistances.checkBinaryMetric(metricType);
+        this.dim = dim;
+        this.words = BinaryDistances.words(dim);
+        this.metricType = metricType;
+        this.nlist = buildParams.getInt(IndexParams.NLIST, IvfFlatIndex.DEFAULT_NLIST);
+        if (nlist <= 0) {
+            throw new IllegalArgumentException("nlist must be positive, got: " + nlist);
+        }
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.BIN_IVF_FLAT;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return centroids == null ? 0L : 8L * centroids.length + (8L * words + 4L) * size;
+    }
+
+    @Override
+    public void build(long[] vectors, int count) {
+        if (vectors.length < count * words) {
+            throw new IllegalArgumentException("Expected " + count * words + " longs, got: " + vectors.length);
+        }
+        int k = Math.max(1, Math.min(nlist, count));
+        long[] trained = train(vectors, count, k, new Random(count));
+        int[] assignment = new int[count];
+        IntStream.range(0, count).parallel().forEach(i -> assignment[i] = nearest(trained, k, vectors, i * words));
+
+        int[] sizes = new int[k];
+        for (int i = 0; i < count; i++) {
+            sizes[assignment[i]]++;
+        }
+        int[][] ids = new int[k][];
+        long[][] data = new long[k][];
+        for (int l = 0; l < k; l++) {
+            ids[l] = new int[sizes[l]];
+            data[l] = new long[sizes[l] * words];
+            sizes[l] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int l = assignment[i];
+            int slot = sizes[l]++;
+            ids[l][slot] = i;
+            System.arraycopy(vectors, i * words, data[l], slot * words, words);
+        }
+        this.centroids = trained;
+        this.centroidCount = k;
+        this.listIds = ids;
+        this.listVectors = data;
+        this.size = count;
+    }
+
+    /**
+     * Trains <code>k</code> binary centroids with k-majority on a sample of the vectors.
+     */
+    private long[] train(long[] vectors, int count, int k, Random random) {
+        int[] sample = KMeans.sample(count, Math.min(count, k * KMeans.MAX_POINTS_PER_CENTROID), random);
+        int n = sample.length;
+        long[] points = new long[n * words];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(vectors, sample[i] * words, points, i * words, words);
+        }
+        long[] result = new long[k * words];
+        int[] init = KMeans.sample(n, k, random);
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(points, init[c] * words, result, c * words, words);
+        }
+        int[] assignment = new int[n];
+        int[] ones = new int[k * dim];
+        int[] members = new int[k];
+        for (int iter = 0; iter < TRAIN_ITERATIONS; iter++) {
+            IntStream.range(0, n).parallel().forEach(i -> assignment[i] = nearest(result, k, points, i * words));
+            Arrays.fill(ones, 0);
+            Arrays.fill(members, 0);
+            for (int i = 0; i < n; i++) {
+                int c = assignment[i];
+                members[c]++;
+                int base = c * dim;
+                for (int w = 0; w < words; w++) {
+                    long bits = points[i * words + w];
+                    while (bits != 0) {
+                        int bit = (w << 6) + Long.numberOfTrailingZeros(bits);
+                        ones[base + bit]++;
+                        bits &= bits - 1;
+                    }
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                int co = c * words;
+                if (members[c] == 0) {
+                    System.arraycopy(points, random.nextInt(n) * words, result, co, words);
+                    continue;
+                }
+                Arrays.fill(result, co, co + words, 0L);
+                int half = members[c];
+                for (int bit = 0; bit < dim; bit++) {
+                    // majority vote, ties broken toward 1
+                    if (2 * ones[c * dim + bit] >= half) {
+                        result[co + (bit >>> 6)] |= 1L << bit;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private int nearest(long[] centers, int k, long[] vectors, int offset) {
+        int best = 0;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int c = 0; c < k; c++) {
+            int d = BinaryDistances.hamming(vectors, offset, centers, c * words, words);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public SearchResult search(long[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    @Override
+    public SearchResult search(long[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        int nprobe = Math.max(1, Math.min(centroidCount,
+                searchParams.getInt(IndexParams.NPROBE, IvfFlatIndex.DEFAULT_NPROBE)));
+        TopKHeap probes = new TopKHeap(nprobe);
+        for (int c = 0; c < centroidCount; c++) {
+            probes.offer(c, BinaryDistances.hamming(query, 0, centroids, c * words, words));
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+        while (probes.size() > 0) {
+            int l = probes.poll();
+            int[] ids = listIds[l];
+            long[] block = listVectors[l];
+            for (int i = 0; i < ids.length; i++) {
+                if (excluded != null && excluded.contains(ids[i])) {
+                    continue;
+                }
+                heap.offer(ids[i], BinaryDistances.distance(metricType, query, 0, block, i * words, words));
+            }
+        }
+        return heap.toResult(metricType);
+    }
+}
@@ -0,0 +1,71 @@
+package io.milvus.index;
+
+import io.milvus.common.enums.MetricType;
+
+/**
+ * Popcount distance kernels over packed binary vectors. Every kernel returns a value where smaller means more
+ * similar.
+ */
+public final class BinaryDistances {
+    private static final double LN2 = Math.log(2d);
+
+    private BinaryDistances() {}
+
+    /**
+     * Returns the number of <code>long</code> words holding a binary vector of the given dimension.
+     */
+    public static int words(int dim) {
+        return (dim + 63) >>> 6;
+    }
+
+    /**
+     * Returns the number of differing bits.
+     */
+    public static int hamming(long[] a, int aOffset, long[] b, int bOffset, int words) {
+        int count = 0;
+        for (int i = 0; i < words; i++) {
+            count += Long.bitCount(a[aOffset + i] ^ b[bOffset + i]);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the distance between two packed vectors for the given metric.
+     *
+     * @throws IllegalArgumentException if the metric does not rank binary vectors.
+     */
+    public static float distance(MetricType metricType, long[] a, int aOffset, long[] b, int bOffset, int words) {
+        if (metricType == MetricType.HAMMING) {
+            return hamming(a, aOffset, b, bOffset, words);
+        }
+        int intersection = 0;
+        int union = 0;
+        for (int i = 0; i < words; i++) {
+            long x = a[aOffset + i];
+            long y = b[bOffset + i];
+            intersection += Long.bitCount(x & y);
+            union += Long.bitCount(x | y);
+        }
+        double similarity = union == 0 ? 1d : (double) intersection / union;
+        switch (metricType) {
+            case JACCARD:
+                return (float) (1d - similarity);
+            case TANIMOTO:
+                return similarity == 0d ? Float.MAX_VALUE : (float) (-Math.log(similarity) / LN2);
+            default:
+                throw new IllegalArgumentException("Metric type " + metricType + " is not supported for binary vectors");
+        }
+    }
+
+    /**
+     * Verifies that a metric ranks binary vectors.
+     *
+     * @throws IllegalArgumentException if it does not.
+     */
+    public static void checkBinaryMetric(MetricType metricType) {
+        if (metricType != MetricType.HAMMING && metricType != MetricType.JACCARD
+                && metricType != MetricType.TANIMOTO) {
+            throw new IllegalArgumentException("Metric type " + metricType + " is not supported for binary vectors");
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package io.milvus.index;
+
+import io.milvus.common.RowBitmap;
+
+/**
+ * A {@link VectorIndex} over <code>BINARY_VECTOR</code> fields. Vectors are packed into <code>long</code> words,
+ * bit <code>i</code> of a vector being bit <code>i % 64</code> of word <code>i / 64</code>.
+ */
+public interface BinaryVectorIndex extends VectorIndex {
+
+    /**
+     * Builds this index from a block of packed vectors. The row offset of each vector becomes its ID.
+     *
+     * @param vectors <code>count * words</code> longs, one vector after another, where <code>words</code> is
+     * <code>ceil(dimension / 64)</code>.
+     * @param count The number of vectors in the block.
+     */
+    void build(long[] vectors, int count);
+
+    /**
+     * Searches this index for the nearest neighbors of a packed query vector.
+     *
+     * @param query A packed vector of <code>ceil(dimension / 64)</code> longs.
+     * @param topK The number of results to return.
+     * @param searchParams Index-specific search parameters, such as <code>nprobe</code>.
+     * @return A {@link SearchResult} sorted from the most to the least similar.
+     */
+    SearchResult search(long[] query, int topK, IndexParams searchParams);
+
+    /**
+     * Searches this index for the nearest neighbors of a packed query vector among the vectors whose IDs are not
+     * excluded, such as the deleted rows of a segment. The default implementation searches for more results and
+     * drops the excluded ones; indexes that can skip IDs while they search override it.
+     *
+     * @param query A packed vector of <code>ceil(dimension / 64)</code> longs.
+     * @param topK The number of results to return.
+     * @param searchParams Index-specific search parameters, such as <code>nprobe</code>.
+     * @param excluded The IDs to leave out, or <code>null</code>.
+     * @return A {@link SearchResult} sorted from the most to the least similar.
+     */
+    default SearchResult search(long[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (excluded == null || excluded.isEmpty()) {
+            return search(query, topK, searchParams);
+        }
+        return SearchResult.excluding(k -> search(query, k, searchParams), topK, size(), excluded);
+    }
+}
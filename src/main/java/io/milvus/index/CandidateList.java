@@ -0,0 +1,90 @@
+package io.milvus.index;
+
+/**
+ * A bounded list of candidates kept sorted by ascending distance, with a flag telling whether each candidate has
+ * been expanded. This is the search list <code>L</code> of a Vamana greedy or beam search.
+ */
+final class CandidateList {
+    private final int capacity;
+    private final int[] ids;
+    private final float[] distances;
+    private final boolean[] expanded;
+    private int size;
+
+    CandidateList(int capacity) {
+        this.capacity = capacity;
+        this.ids = new int[capacity];
+        this.distances = new float[capacity];
+        this.expanded = new boolean[capacity];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int id(int i) {
+        return ids[i];
+    }
+
+    float distance(int i) {
+        return distances[i];
+    }
+
+    /**
+     * Inserts a candidate unless the list is full and the candidate is farther than all of them.
+     *
+     * @return <code>true</code> if the candidate was inserted.
+     */
+    boolean insert(int id, float distance) {
+        if (size == capacity && distance >= distances[size - 1]) {
+            return false;
+        }
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (distances[mid] <= distance) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        int tail = Math.min(size, capacity - 1) - lo;
+        if (tail > 0) {
+            System.arraycopy(ids, lo, ids, lo + 1, tail);
+            System.arraycopy(distances, lo, distances, lo + 1, tail);
+            System.arraycopy(expanded, lo, expanded, lo + 1, tail);
+        }
+        ids[lo] = id;
+        distances[lo] = distance;
+        expanded[lo] = false;
+        if (size < capacity) {
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the position of the closest candidate that has not been expanded, or -1 if there is none.
+     */
+    int closestUnexpanded() {
+        for (int i = 0; i < size; i++) {
+            if (!expanded[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    void markExpanded(int i) {
+        expanded[i] = true;
+    }
+}
@@ -0,0 +1,68 @@
+package io.milvus.index;
+
+import java.util.Random;
+
+/**
+ * The k-means coarse quantizer shared by the IVF indexes: it partitions vectors into <code>nlist</code> inverted
+ * lists and selects the <code>nprobe</code> lists to scan for a query.
+ */
+final class CoarseQuantizer {
+    static final int TRAIN_ITERATIONS = 10;
+
+    private final int dim;
+    private final int nlist;
+    private final float[] centroids;
+
+    private CoarseQuantizer(int dim, int nlist, float[] centroids) {
+        this.dim = dim;
+        this.nlist = nlist;
+        this.centroids = centroids;
+    }
+
+    static CoarseQuantizer train(float[] vectors, int count, int dim, int nlist, Random random) {
+        int k = Math.max(1, Math.min(nlist, count));
+        return new CoarseQuantizer(dim, k, KMeans.train(vectors, count, dim, k, TRAIN_ITERATIONS, random));
+    }
+
+    int nlist() {
+        return nlist;
+    }
+
+    float[] centroids() {
+        return centroids;
+    }
+
+    int[] assign(float[] vectors, int count) {
+        int[] assignment = new int[count];
+        KMeans.assign(centroids, nlist, vectors, count, dim, assignment);
+        return assignment;
+    }
+
+    int[] probe(float[] query, int nprobe) {
+        return KMeans.probe(centroids, nlist, query, dim, Math.max(1, nprobe));
+    }
+
+    /**
+     * Groups row offsets by list, preserving their order within each list.
+     */
+    int[][] bucket(int[] assignment, int count) {
+        int[] sizes = new int[nlist];
+        for (int i = 0; i < count; i++) {
+            sizes[assignment[i]]++;
+        }
+        int[][] lists = new int[nlist][];
+        for (int l = 0; l < nlist; l++) {
+            lists[l] = new int[sizes[l]];
+            sizes[l] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            int l = assignment[i];
+            lists[l][sizes[l]++] = i;
+        }
+        return lists;
+    }
+
+    long memoryBytes() {
+        return 4L * centroids.length;
+    }
+}
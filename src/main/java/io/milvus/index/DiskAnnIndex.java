@@ -0,0 +1,764 @@
+package io.milvus.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A DiskANN-style index: a Vamana graph whose full-precision vectors and adjacency lists live in a memory-mapped
+ * file, navigated with product-quantized vectors kept in the heap.
+ * <p>
+ * Build parameters: <code>max_degree</code> (R), <code>search_list_size</code> (L during the build),
+ * <code>m</code> (PQ sub-quantizers, <code>dim / 4</code> by default) and <code>build_partition_size</code>.
+ * Search parameters: <code>search_list</code> (L, 100 by default and never below <code>topK</code>) and
+ * <code>beam_width</code>.
+ * <p>
+ * Each node record holds its vector followed by its degree and neighbor IDs, and records are packed into 4 KB
+ * sectors without straddling them, so expanding a node costs one sector. The beam search expands
+ * <code>beam_width</code> candidates per round: their sectors are sorted and touched together before the
+ * neighbors are scored with PQ distances, and the expanded nodes are re-ranked with their exact distances.
+ * <p>
+ * Collections larger than <code>build_partition_size</code> are split with k-means into overlapping partitions,
+ * each point going to its two closest partitions. Every partition graph is built on its own and spilled to a
+ * temporary shard file sorted by ID, and the shards are merged in one streaming pass that prunes the union of
+ * each node's edges, so the graph working set is bounded by the largest partition.
+ */
+public class DiskAnnIndex implements FloatVectorIndex {
+    static final int DEFAULT_MAX_DEGREE = 32;
+    static final int DEFAULT_SEARCH_LIST_SIZE = 64;
+    static final int DEFAULT_SEARCH_LIST = 100;
+    static final int DEFAULT_BEAM_WIDTH = 4;
+    static final int DEFAULT_PARTITION_SIZE = 1 << 20;
+    static final int SECTOR_BYTES = 4096;
+
+    private static final int MAGIC = 0x4E4E4144; // "DANN" in little-endian
+    private static final int VERSION = 1;
+    private static final float ALPHA = 1.2f;
+    private static final int PQ_NBITS = 8;
+    private static final int OVERLAP = 2;
+
+    private final int dim;
+    private final MetricType metricType;
+    private final int maxDegree;
+    private final int buildListSize;
+    private final int pqM;
+    private final int partitionSize;
+    private final int nodeBytes;
+    private final int nodesPerRecord;
+    private final int recordBytes;
+    private final Path file;
+    private final ThreadLocal<SearchContext> contexts = ThreadLocal.withInitial(SearchContext::new);
+    private ProductQuantizer pq;
+    private byte[] codes;
+    private PagedBuffer records;
+    private int medoid;
+    private int size;
+
+    /**
+     * Creates an index stored in a temporary file that is deleted when the JVM exits.
+     */
+    public DiskAnnIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        this(dim, metricType, buildParams, temporaryFile());
+    }
+
+    /**
+     * Creates an index stored in the given file.
+     */
+    public DiskAnnIndex(int dim, MetricType metricType, IndexParams buildParams, Path file) {
+        this(dim, metricType, buildParams.getInt(IndexParams.MAX_DEGREE, DEFAULT_MAX_DEGREE),
+                buildParams.getInt(IndexParams.SEARCH_LIST_SIZE, DEFAULT_SEARCH_LIST_SIZE),
+                buildParams.getInt(IndexParams.PQ_M, defaultPqM(dim)),
+                buildParams.getInt(IndexParams.BUILD_PARTITION_SIZE, DEFAULT_PARTITION_SIZE), file);
+    }
+
+    private DiskAnnIndex(int dim, MetricType metricType, int maxDegree, int buildListSize, int pqM,
+                         int partitionSize, Path file) {
+        Distances.checkFloatMetric(metricType);
+        if (maxDegree <= 0 || buildListSize <= 0 || partitionSize <= 0) {
+            throw new IllegalArgumentException("max_degree, search_list_size and build_partition_size must be positive");
+        }
+        new ProductQuantizer(dim, pqM, PQ_NBITS);
+        this.dim = dim;
+        this.metricType = metricType;
+        this.maxDegree = maxDegree;
+        this.buildListSize = Math.max(buildListSize, maxDegree);
+        this.pqM = pqM;
+        this.partitionSize = partitionSize;
+        this.file = file;
+        this.nodeBytes = 4 * dim + 4 + 4 * maxDegree;
+        if (nodeBytes <= SECTOR_BYTES) {
+            this.nodesPerRecord = SECTOR_BYTES / nodeBytes;
+            this.recordBytes = SECTOR_BYTES;
+        } else {
+            // a node larger than a sector starts on a sector boundary and owns whole sectors
+            this.nodesPerRecord = 1;
+            this.recordBytes = (nodeBytes + SECTOR_BYTES - 1) / SECTOR_BYTES * SECTOR_BYTES;
+        }
+    }
+
+    private static int defaultPqM(int dim) {
+        return dim % 4 == 0 ? dim / 4 : dim;
+    }
+
+    private static Path temporaryFile() {
+        try {
+            Path path = Files.createTempFile("diskann", ".idx");
+            path.toFile().deleteOnExit();
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.DISKANN;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the heap memory of the PQ codes and codebooks; the graph and the raw vectors stay in the mapped file.
+     */
+    @Override
+    public long memoryBytes() {
+        return pq == null ? 0L : pq.memoryBytes() + codes.length;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void build(float[] vectors, int count) {
+        if (vectors.length < count * dim) {
+            throw new IllegalArgumentException("Expected " + count * dim + " floats, got: " + vectors.length);
+        }
+        if (count == 0) {
+            throw new IllegalArgumentException("Cannot build a DISKANN index without vectors");
+        }
+        try {
+            buildFile(vectors, count);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens an index file written by {@link #build(float[], int)}. The graph is mapped; only the PQ codes are read.
+     *
+     * @param path The index file.
+     * @return {@link DiskAnnIndex}
+     * @throws IOException if the file cannot be read or is not an index file.
+     */
+    public static DiskAnnIndex open(Path path) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            readFully(channel, header, 0);
+        }
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a DISKANN index file: " + path);
+        }
+        int dim = header.getInt();
+        MetricType metricType = MetricType.values()[header.getInt()];
+        header.getInt();
+        int maxDegree = header.getInt();
+        int pqM = header.getInt();
+        DiskAnnIndex index = new DiskAnnIndex(dim, metricType, maxDegree, maxDegree, pqM, DEFAULT_PARTITION_SIZE, path);
+        index.load();
+        return index;
+    }
+
+    private void load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(64).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0);
+            header.flip();
+            header.position(16);
+            int count = header.getInt();
+            header.getInt();
+            header.getInt();
+            int entry = header.getInt();
+            long pqOffset = header.getLong();
+
+            ProductQuantizer probe = new ProductQuantizer(dim, pqM, PQ_NBITS);
+            int bookFloats = pqM * probe.getKsub() * (dim / pqM);
+            ByteBuffer pqBuffer = ByteBuffer.allocate(4 * bookFloats + count * pqM).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, pqBuffer, pqOffset);
+            pqBuffer.flip();
+            float[] books = new float[bookFloats];
+            pqBuffer.asFloatBuffer().get(books);
+            pqBuffer.position(4 * bookFloats);
+            byte[] pqCodes = new byte[count * pqM];
+            pqBuffer.get(pqCodes);
+
+            long recordCount = (count + nodesPerRecord - 1) / nodesPerRecord;
+            this.records = PagedBuffer.map(channel, FileChannel.MapMode.READ_ONLY, SECTOR_BYTES, recordCount, recordBytes);
+            this.pq = ProductQuantizer.fromCodebooks(dim, pqM, PQ_NBITS, books);
+            this.codes = pqCodes;
+            this.medoid = entry;
+            this.size = count;
+        }
+    }
+
+    private void buildFile(float[] vectors, int count) throws IOException {
+        Random random = new Random(count);
+        ProductQuantizer product = new ProductQuantizer(dim, pqM, PQ_NBITS);
+        int[] sample = KMeans.sample(count, Math.min(count, product.getKsub() * KMeans.MAX_POINTS_PER_CENTROID), random);
+        float[] training = new float[sample.length * dim];
+        for (int i = 0; i < sample.length; i++) {
+            System.arraycopy(vectors, sample[i] * dim, training, i * dim, dim);
+        }
+        if (sample.length >= product.getKsub()) {
+            product.train(training, sample.length, random);
+        } else {
+            // too few vectors for 256 centroids: use the vectors themselves, padded with copies, as codebooks
+            float[] padded = new float[product.getKsub() * dim];
+            for (int i = 0; i < product.getKsub(); i++) {
+                System.arraycopy(training, (i % sample.length) * dim, padded, i * dim, dim);
+            }
+            product.train(padded, product.getKsub(), random);
+        }
+        byte[] pqCodes = new byte[count * pqM];
+        IntStream.range(0, count).parallel().forEach(i -> product.encode(vectors, i * dim, pqCodes, i * pqM));
+
+        int entry = medoid(vectors, count);
+        Path[] shards = buildShards(vectors, count, random);
+        long recordCount = (count + nodesPerRecord - 1) / nodesPerRecord;
+        long pqOffset = SECTOR_BYTES + recordCount * recordBytes;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            mergeShards(shards, vectors, count, channel);
+
+            float[] books = product.getCodebooks();
+            ByteBuffer pqBuffer = ByteBuffer.allocate(4 * books.length + pqCodes.length).order(ByteOrder.LITTLE_ENDIAN);
+            pqBuffer.asFloatBuffer().put(books);
+            pqBuffer.position(4 * books.length);
+            pqBuffer.put(pqCodes);
+            pqBuffer.flip();
+            writeFully(channel, pqBuffer, pqOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(SECTOR_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dim).putInt(metricType.ordinal()).putInt(count)
+                    .putInt(maxDegree).putInt(pqM).putInt(entry).putLong(pqOffset);
+            header.clear();
+            writeFully(channel, header, 0);
+            channel.force(true);
+        } finally {
+            for (Path shard : shards) {
+                Files.deleteIfExists(shard);
+            }
+        }
+    }
+
+    /**
+     * Returns the point closest to the centroid of all points, used as the search entry point.
+     */
+    private int medoid(float[] vectors, int count) {
+        double[] sum = new double[dim];
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dim; d++) {
+                sum[d] += vectors[i * dim + d];
+            }
+        }
+        float[] centroid = new float[dim];
+        for (int d = 0; d < dim; d++) {
+            centroid[d] = (float) (sum[d] / count);
+        }
+        return KMeans.nearest(vectors, count, centroid, 0, dim);
+    }
+
+    /**
+     * Builds one Vamana graph per partition and spills each to a shard file of
+     * <code>(global id, degree, neighbors...)</code> records in ascending ID order.
+     */
+    private Path[] buildShards(float[] vectors, int count, Random random) throws IOException {
+        int partitions = (int) Math.min(count, ((long) count * OVERLAP + partitionSize - 1) / partitionSize);
+        int[][] members;
+        if (partitions <= 1) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = i;
+            }
+            members = new int[][]{all};
+        } else {
+            members = partition(vectors, count, partitions, random);
+        }
+        Path[] shards = new Path[members.length];
+        for (int p = 0; p < members.length; p++) {
+            shards[p] = Files.createTempFile("diskann-shard", ".bin");
+        }
+        try {
+            IntStream.range(0, members.length).parallel().forEach(p -> {
+                int[] ids = members[p];
+                float[] local = new float[ids.length * dim];
+                for (int i = 0; i < ids.length; i++) {
+                    System.arraycopy(vectors, ids[i] * dim, local, i * dim, dim);
+                }
+                VamanaBuilder graph = new VamanaBuilder(local, ids.length, new Random(p));
+                graph.build();
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        Files.newOutputStream(shards[p]), 1 << 16))) {
+                    for (int i = 0; i < ids.length; i++) {
+                        int degree = graph.degree[i];
+                        out.writeInt(ids[i]);
+                        out.writeInt(degree);
+                        for (int j = 0; j < degree; j++) {
+                            out.writeInt(ids[graph.adjacency[i * maxDegree + j]]);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return shards;
+    }
+
+    /**
+     * Assigns every point to its {@value #OVERLAP} closest k-means partitions so that partition graphs overlap
+     * and the merged graph stays connected.
+     */
+    private int[][] partition(float[] vectors, int count, int partitions, Random random) {
+        float[] centroids = KMeans.train(vectors, count, dim, partitions, CoarseQuantizer.TRAIN_ITERATIONS, random);
+        int[][] nearest = new int[count][];
+        IntStream.range(0, count).parallel().forEach(i -> {
+            float[] v = new float[dim];
+            System.arraycopy(vectors, i * dim, v, 0, dim);
+            nearest[i] = KMeans.probe(centroids, partitions, v, dim, OVERLAP);
+        });
+        int[] sizes = new int[partitions];
+        for (int[] lists : nearest) {
+            for (int p : lists) {
+                sizes[p]++;
+            }
+        }
+        int[][] members = new int[partitions][];
+        for (int p = 0; p < partitions; p++) {
+            members[p] = new int[sizes[p]];
+            sizes[p] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            for (int p : nearest[i]) {
+                members[p][sizes[p]++] = i;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Streams the shards in ID order, unions the edges of nodes present in several shards, prunes them back to
+     * <code>max_degree</code> and writes each node into its sector.
+     */
+    private void mergeShards(Path[] shards, float[] vectors, int count, FileChannel channel) throws IOException {
+        DataInputStream[] inputs = new DataInputStream[shards.length];
+        int[] heads = new int[shards.length];
+        try {
+            for (int s = 0; s < shards.length; s++) {
+                inputs[s] = new DataInputStream(new BufferedInputStream(Files.newInputStream(shards[s]), 1 << 16));
+                heads[s] = nextId(inputs[s]);
+            }
+            int[] union = new int[maxDegree * shards.length];
+            float[] unionDistances = new float[union.length];
+            int[] pruned = new int[maxDegree];
+            ByteBuffer record = ByteBuffer.allocate(recordBytes).order(ByteOrder.LITTLE_ENDIAN);
+            long position = SECTOR_BYTES;
+            for (int id = 0; id < count; id++) {
+                int n = 0;
+                for (int s = 0; s < shards.length; s++) {
+                    if (heads[s] != id) {
+                        continue;
+                    }
+                    int degree = inputs[s].readInt();
+                    for (int j = 0; j < degree; j++) {
+                        int neighbor = inputs[s].readInt();
+                        if (!contains(union, n, neighbor)) {
+                            union[n++] = neighbor;
+                        }
+                    }
+                    heads[s] = nextId(inputs[s]);
+                }
+                int degree = n;
+                int[] neighbors = union;
+                if (n > maxDegree) {
+                    for (int j = 0; j < n; j++) {
+                        unionDistances[j] = Distances.l2(vectors, id * dim, vectors, union[j] * dim, dim);
+                    }
+                    degree = robustPrune(vectors, id, union, unionDistances, n, pruned);
+                    neighbors = pruned;
+                }
+                int slot = id % nodesPerRecord;
+                int base = slot * nodeBytes;
+                for (int d = 0; d < dim; d++) {
+                    record.putFloat(base + 4 * d, vectors[id * dim + d]);
+                }
+                record.putInt(base + 4 * dim, degree);
+                for (int j = 0; j < degree; j++) {
+                    record.putInt(base + 4 * dim + 4 + 4 * j, neighbors[j]);
+                }
+                if (slot == nodesPerRecord - 1 || id == count - 1) {
+                    record.clear();
+                    writeFully(channel, record, position);
+                    position += recordBytes;
+                    Arrays.fill(record.array(), (byte) 0);
+                }
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    private static int nextId(DataInputStream input) throws IOException {
+        try {
+            return input.readInt();
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    private static boolean contains(int[] ids, int n, int id) {
+        for (int i = 0; i < n; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Keeps the closest candidates of <code>node</code> while discarding every candidate that a kept neighbor
+     * already covers within a factor of {@value #ALPHA}. The candidate arrays are sorted in place.
+     *
+     * @return The number of neighbors written to <code>out</code>.
+     */
+    private int robustPrune(float[] vectors, int node, int[] ids, float[] distances, int n, int[] out) {
+        sort(ids, distances, n);
+        int count = 0;
+        for (int i = 0; i < n && count < maxDegree; i++) {
+            int candidate = ids[i];
+            if (candidate < 0 || candidate == node) {
+                continue;
+            }
+            out[count++] = candidate;
+            for (int j = i + 1; j < n; j++) {
+                if (ids[j] >= 0
+                        && ALPHA * Distances.l2(vectors, candidate * dim, vectors, ids[j] * dim, dim) <= distances[j]) {
+                    ids[j] = -1;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static void sort(int[] ids, float[] distances, int n) {
+        for (int i = 1; i < n; i++) {
+            int id = ids[i];
+            float d = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > d) {
+                ids[j + 1] = ids[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            distances[j + 1] = d;
+        }
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        int listSize = Math.max(topK, searchParams.getInt(IndexParams.SEARCH_LIST, DEFAULT_SEARCH_LIST));
+        int beamWidth = Math.max(1, searchParams.getInt(IndexParams.BEAM_WIDTH, DEFAULT_BEAM_WIDTH));
+        SearchContext ctx = contexts.get();
+        ctx.prepare(pqM * pq.getKsub(), listSize, beamWidth);
+        float[] table = ctx.table;
+        if (metricType == MetricType.IP) {
+            pq.computeIpTable(query, 0, table);
+        } else {
+            pq.computeL2Table(query, 0, table);
+        }
+        CandidateList candidates = ctx.candidates;
+        VisitedSet visited = ctx.visited;
+        TopKHeap exact = new TopKHeap(Math.min(topK, size));
+        visited.add(medoid);
+        candidates.insert(medoid, pq.adc(table, codes, medoid * pqM));
+
+        int[] beam = ctx.beam;
+        while (true) {
+            int width = 0;
+            for (int i = 0; i < candidates.size() && width < beamWidth; i++) {
+                int next = candidates.closestUnexpanded();
+                if (next < 0) {
+                    break;
+                }
+                candidates.markExpanded(next);
+                beam[width++] = candidates.id(next);
+            }
+            if (width == 0) {
+                break;
+            }
+            // visit the beam in file order and fault its sectors in together
+            Arrays.sort(beam, 0, width);
+            int touched = 0;
+            for (int b = 0; b < width; b++) {
+                touched += records.getInt(beam[b] / nodesPerRecord, 0);
+            }
+            ctx.sink += touched;
+            for (int b = 0; b < width; b++) {
+                int node = beam[b];
+                long record = node / nodesPerRecord;
+                ByteBuffer chunk = records.chunk(record);
+                int base = records.offset(record) + (node % nodesPerRecord) * nodeBytes;
+                exact.offer(node, Distances.distance(metricType, query, chunk, base, dim));
+                int degree = chunk.getInt(base + 4 * dim);
+                for (int j = 0; j < degree; j++) {
+                    int neighbor = chunk.getInt(base + 4 * dim + 4 + 4 * j);
+                    if (visited.add(neighbor)) {
+                        candidates.insert(neighbor, pq.adc(table, codes, neighbor * pqM));
+                    }
+                }
+            }
+        }
+        return exact.toResult(metricType);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, p);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            p += n;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        long p = position;
+        while (buffer.hasRemaining()) {
+            p += channel.write(buffer, p);
+        }
+    }
+
+    /**
+     * Builds a Vamana graph over one in-memory partition with local IDs.
+     */
+    private final class VamanaBuilder {
+        private final float[] data;
+        private final int n;
+        private final Random random;
+        final int[] adjacency;
+        final int[] degree;
+        private final CandidateList list = new CandidateList(buildListSize);
+        private final VisitedSet visited;
+        private int[] expandedIds = new int[buildListSize * 2];
+        private float[] expandedDistances = new float[buildListSize * 2];
+        private final int[] pruned = new int[maxDegree];
+        private int entry;
+
+        VamanaBuilder(float[] data, int n, Random random) {
+            this.data = data;
+            this.n = n;
+            this.random = random;
+            this.adjacency = new int[n * maxDegree];
+            this.degree = new int[n];
+            this.visited = new VisitedSet(n);
+        }
+
+        void build() {
+            if (n == 1) {
+                return;
+            }
+            entry = medoid(data, n);
+            // start from a random graph so that every node is reachable
+            int initial = Math.min(maxDegree, n - 1);
+            for (int i = 0; i < n; i++) {
+                int d = 0;
+                while (d < initial) {
+                    int j = random.nextInt(n);
+                    if (j != i && !contains(adjacency, i * maxDegree, d, j)) {
+                        adjacency[i * maxDegree + d++] = j;
+                    }
+                }
+                degree[i] = d;
+            }
+            int[] order = KMeans.sample(n, n, random);
+            pass(order, 1f);
+            pass(order, ALPHA);
+        }
+
+        private void pass(int[] order, float alpha) {
+            for (int p : order) {
+                int expanded = greedySearch(p);
+                // prune over the expanded nodes plus the current neighbors
+                for (int j = 0; j < degree[p]; j++) {
+                    int neighbor = adjacency[p * maxDegree + j];
+                    if (!contains(expandedIds, 0, expanded, neighbor)) {
+                        ensureExpanded(expanded + 1);
+                        expandedIds[expanded] = neighbor;
+                        expandedDistances[expanded++] = distance(p, neighbor);
+                    }
+                }
+                degree[p] = prune(p, expandedIds, expandedDistances, expanded, alpha);
+                for (int j = 0; j < degree[p]; j++) {
+                    addBackEdge(adjacency[p * maxDegree + j], p, alpha);
+                }
+            }
+        }
+
+        private void addBackEdge(int node, int neighbor, float alpha) {
+            int base = node * maxDegree;
+            if (contains(adjacency, base, degree[node], neighbor)) {
+                return;
+            }
+            if (degree[node] < maxDegree) {
+                adjacency[base + degree[node]++] = neighbor;
+                return;
+            }
+            int[] ids = new int[maxDegree + 1];
+            float[] distances = new float[maxDegree + 1];
+            for (int j = 0; j < maxDegree; j++) {
+                ids[j] = adjacency[base + j];
+                distances[j] = distance(node, ids[j]);
+            }
+            ids[maxDegree] = neighbor;
+            distances[maxDegree] = distance(node, neighbor);
+            degree[node] = prune(node, ids, distances, maxDegree + 1, alpha);
+        }
+
+        private int prune(int node, int[] ids, float[] distances, int count, float alpha) {
+            sort(ids, distances, count);
+            int kept = 0;
+            for (int i = 0; i < count && kept < maxDegree; i++) {
+                int candidate = ids[i];
+                if (candidate < 0 || candidate == node) {
+                    continue;
+                }
+                pruned[kept++] = candidate;
+                for (int j = i + 1; j < count; j++) {
+                    if (ids[j] >= 0 && alpha * distance(candidate, ids[j]) <= distances[j]) {
+                        ids[j] = -1;
+                    }
+                }
+            }
+            System.arraycopy(pruned, 0, adjacency, node * maxDegree, kept);
+            return kept;
+        }
+
+        /**
+         * Runs a greedy search for node <code>p</code> from the entry point and collects every expanded node.
+         *
+         * @return The number of expanded nodes.
+         */
+        private int greedySearch(int p) {
+            list.clear();
+            visited.clear();
+            visited.add(entry);
+            list.insert(entry, distance(p, entry));
+            int expanded = 0;
+            int next;
+            while ((next = list.closestUnexpanded()) >= 0) {
+                list.markExpanded(next);
+                int node = list.id(next);
+                ensureExpanded(expanded + 1);
+                expandedIds[expanded] = node;
+                expandedDistances[expanded++] = list.distance(next);
+                int base = node * maxDegree;
+                for (int j = 0; j < degree[node]; j++) {
+                    int neighbor = adjacency[base + j];
+                    if (visited.add(neighbor)) {
+                        list.insert(neighbor, distance(p, neighbor));
+                    }
+                }
+            }
+            return expanded;
+        }
+
+        private void ensureExpanded(int capacity) {
+            if (capacity > expandedIds.length) {
+                expandedIds = Arrays.copyOf(expandedIds, capacity * 2);
+                expandedDistances = Arrays.copyOf(expandedDistances, capacity * 2);
+            }
+        }
+
+        private float distance(int a, int b) {
+            return Distances.l2(data, a * dim, data, b * dim, dim);
+        }
+
+        private boolean contains(int[] ids, int from, int n, int id) {
+            for (int i = from; i < from + n; i++) {
+                if (ids[i] == id) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Per-thread scratch space reused by every search on that thread.
+     */
+    private static final class SearchContext {
+        final VisitedSet visited = new VisitedSet(1 << 12);
+        float[] table = new float[0];
+        CandidateList candidates;
+        int[] beam = new int[0];
+        // keeps the sector prefetch reads observable so they are not optimized away
+        int sink;
+
+        void prepare(int tableSize, int listSize, int beamWidth) {
+            if (table.length != tableSize) {
+                table = new float[tableSize];
+            }
+            if (candidates == null || candidates.capacity() != listSize) {
+                candidates = new CandidateList(listSize);
+            }
+            if (beam.length < beamWidth) {
+                beam = new int[beamWidth];
+            }
+            candidates.clear();
+            visited.clear();
+        }
+    }
+}
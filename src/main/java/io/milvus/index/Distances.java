@@ -0,0 +1,122 @@
+package io.milvus.index;
+
+import java.nio.ByteBuffer;
+
+import io.milvus.common.enums.MetricType;
+
+/**
+ * Distance kernels shared by the vector indexes. Every kernel returns a value where smaller means more similar,
+ * so inner products are negated internally and converted back by {@link #toScore(MetricType, float)}.
+ */
+public final class Distances {
+
+    private Distances() {}
+
+    /**
+     * Returns the squared Euclidean distance between two vectors.
+     */
+    public static float l2(float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < dim; i += 4) {
+            float d0 = a[aOffset + i] - b[bOffset + i];
+            float d1 = a[aOffset + i + 1] - b[bOffset + i + 1];
+            float d2 = a[aOffset + i + 2] - b[bOffset + i + 2];
+            float d3 = a[aOffset + i + 3] - b[bOffset + i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < dim; i++) {
+            float d = a[aOffset + i] - b[bOffset + i];
+            s0 += d * d;
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Returns the inner product of two vectors.
+     */
+    public static float ip(float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        float s0 = 0f, s1 = 0f, s2 = 0f, s3 = 0f;
+        int i = 0;
+        for (; i + 3 < dim; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < dim; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Returns the distance between two float vectors for the given metric, smaller is better.
+     *
+     * @throws IllegalArgumentException if the metric does not apply to float vectors.
+     */
+    public static float distance(MetricType metricType, float[] a, int aOffset, float[] b, int bOffset, int dim) {
+        switch (metricType) {
+            case L2:
+                return l2(a, aOffset, b, bOffset, dim);
+            case IP:
+                return -ip(a, aOffset, b, bOffset, dim);
+            default:
+                throw new IllegalArgumentException("Metric type " + metricType + " is not supported for float vectors");
+        }
+    }
+
+    /**
+     * Returns the distance between a query and a vector stored as little-endian floats in a buffer, such as a
+     * memory-mapped index file.
+     */
+    public static float distance(MetricType metricType, float[] query, ByteBuffer buffer, int byteOffset, int dim) {
+        float s0 = 0f, s1 = 0f;
+        int i = 0;
+        if (metricType == MetricType.L2) {
+            for (; i + 1 < dim; i += 2) {
+                float d0 = query[i] - buffer.getFloat(byteOffset + 4 * i);
+                float d1 = query[i + 1] - buffer.getFloat(byteOffset + 4 * i + 4);
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+            }
+            for (; i < dim; i++) {
+                float d = query[i] - buffer.getFloat(byteOffset + 4 * i);
+                s0 += d * d;
+            }
+            return s0 + s1;
+        }
+        if (metricType == MetricType.IP) {
+            for (; i + 1 < dim; i += 2) {
+                s0 += query[i] * buffer.getFloat(byteOffset + 4 * i);
+                s1 += query[i + 1] * buffer.getFloat(byteOffset + 4 * i + 4);
+            }
+            for (; i < dim; i++) {
+                s0 += query[i] * buffer.getFloat(byteOffset + 4 * i);
+            }
+            return -(s0 + s1);
+        }
+        throw new IllegalArgumentException("Metric type " + metricType + " is not supported for float vectors");
+    }
+
+    /**
+     * Converts an internal distance back to the score reported to callers.
+     */
+    public static float toScore(MetricType metricType, float distance) {
+        return metricType == MetricType.IP ? -distance : distance;
+    }
+
+    /**
+     * Verifies that a metric applies to float vectors.
+     *
+     * @throws IllegalArgumentException if it does not.
+     */
+    public static void checkFloatMetric(MetricType metricType) {
+        if (metricType != MetricType.L2 && metricType != MetricType.IP) {
+            throw new IllegalArgumentException("Metric type " + metricType + " is not supported for float vectors");
+        }
+    }
+}
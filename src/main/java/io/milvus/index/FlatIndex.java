@@ -0,0 +1,82 @@
+package io.milvus.index;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A brute-force index that compares the query with every vector. It is exact and therefore also serves as the
+ * ground truth for measuring the recall of approximate indexes.
+ */
+public class FlatIndex implements FloatVectorIndex {
+    private final int dim;
+    private final MetricType metricType;
+    private float[] vectors;
+    private int size;
+
+    public FlatIndex(int dim, MetricType metricType) {
+        Distances.checkFloatMetric(metricType);
+        this.dim = dim;
+        this.metricType = metricType;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.FLAT;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return 4L * size * dim;
+    }
+
+    /**
+     * Keeps a reference to the vectors; the caller must not modify them afterwards.
+     */
+    @Override
+    public void build(float[] vectors, int count) {
+        if (vectors.length < count * dim) {
+            throw new IllegalArgumentException("Expected " + count * dim + " floats, got: " + vectors.length);
+        }
+        this.vectors = vectors;
+        this.size = count;
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+        // IDs are visited in order, so the excluded ones are skipped with a cursor
+        int skip = excluded == null ? -1 : excluded.next(0);
+        for (int i = 0; i < size; i++) {
+            if (i == skip) {
+                skip = excluded.next(i + 1);
+                continue;
+            }
+            heap.offer(i, Distances.distance(metricType, query, 0, vectors, i * dim, dim));
+        }
+        return heap.toResult(metricType);
+    }
+}
@@ -0,0 +1,87 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+
+/**
+ * A growable min-heap over primitive (distance, id) pairs. It only allocates when it grows past its previous
+ * peak size, so a heap reused across searches is allocation-free in steady state.
+ */
+final class FloatMinHeap {
+    private float[] keys;
+    private int[] values;
+    private int size;
+
+    FloatMinHeap(int initialCapacity) {
+        this.keys = new float[Math.max(1, initialCapacity)];
+        this.values = new int[keys.length];
+    }
+
+    void push(float key, int value) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            values = Arrays.copyOf(values, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] <= key) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    float peekKey() {
+        return keys[0];
+    }
+
+    int peekValue() {
+        return values[0];
+    }
+
+    /**
+     * Removes the smallest entry and returns its value.
+     */
+    int poll() {
+        int top = values[0];
+        size--;
+        if (size > 0) {
+            float key = keys[size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                int right = child + 1;
+                if (right < size && keys[right] < keys[child]) {
+                    child = right;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+        return top;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,45 @@
+package io.milvus.index;
+
+import io.milvus.common.RowBitmap;
+
+/**
+ * A {@link VectorIndex} over <code>FLOAT_VECTOR</code> fields.
+ */
+public interface FloatVectorIndex extends VectorIndex {
+
+    /**
+     * Builds this index from a row-major block of vectors. The row offset of each vector becomes its ID.
+     *
+     * @param vectors <code>count * dimension</code> floats, one vector after another.
+     * @param count The number of vectors in the block.
+     */
+    void build(float[] vectors, int count);
+
+    /**
+     * Searches this index for the nearest neighbors of a query vector.
+     *
+     * @param query A vector with {@link #getDimension()} floats.
+     * @param topK The number of results to return.
+     * @param searchParams Index-specific search parameters, such as <code>nprobe</code>.
+     * @return A {@link SearchResult} sorted from the most to the least similar.
+     */
+    SearchResult search(float[] query, int topK, IndexParams searchParams);
+
+    /**
+     * Searches this index for the nearest neighbors of a query vector among the vectors whose IDs are not excluded,
+     * such as the deleted rows of a segment. The default implementation searches for more results and drops the
+     * excluded ones; indexes that can skip IDs while they search override it.
+     *
+     * @param query A vector with {@link #getDimension()} floats.
+     * @param topK The number of results to return.
+     * @param searchParams Index-specific search parameters, such as <code>nprobe</code>.
+     * @param excluded The IDs to leave out, or <code>null</code>.
+     * @return A {@link SearchResult} sorted from the most to the least similar.
+     */
+    default SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (excluded == null || excluded.isEmpty()) {
+            return search(query, topK, searchParams);
+        }
+        return SearchResult.excluding(k -> search(query, k, searchParams), topK, size(), excluded);
+    }
+}
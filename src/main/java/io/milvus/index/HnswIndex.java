@@ -0,0 +1,537 @@
+package io.milvus.index;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A hierarchical navigable small world (HNSW) graph index.
+ * <p>
+ * Build parameters: <code>M</code> (links per node on upper layers, twice as many on layer 0) and
+ * <code>efConstruction</code>. Search parameters: <code>ef</code>.
+ * <p>
+ * Vectors and neighbor lists live in fixed-size pages of primitive arrays that never move once allocated, so the
+ * index can grow while it is searched. Every neighbor list is guarded by one of a fixed set of striped monitors;
+ * writers and readers only ever hold one stripe at a time, which lets {@link #build(float[], int)} and
+ * {@link #addAll(float[], int)} insert from all cores at once. Each thread reuses its own visited bitset and
+ * primitive heaps, so searches do not allocate beyond their result.
+ */
+public class HnswIndex implements FloatVectorIndex {
+    static final int DEFAULT_M = 16;
+    static final int DEFAULT_EF_CONSTRUCTION = 200;
+    static final int DEFAULT_EF = 64;
+
+    private static final int PAGE_SHIFT = HnswStorage.PAGE_SHIFT;
+    private static final int PAGE_SIZE = HnswStorage.PAGE_SIZE;
+    private static final int PAGE_MASK = HnswStorage.PAGE_MASK;
+    private static final int LOCK_STRIPES = 1 << 10;
+
+    private final int dim;
+    private final MetricType metricType;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private final Object entryLock = new Object();
+    private final Object growLock = new Object();
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final AtomicInteger inserted = new AtomicInteger();
+    private final HnswStorage storage;
+    private final ThreadLocal<SearchContext> contexts;
+
+    private volatile Pages pages = new Pages(0);
+    private volatile int entryPoint = -1;
+    private volatile int maxLevel = -1;
+
+    public HnswIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        this(dim, metricType, buildParams, new HnswStorage.Flat(dim, metricType));
+    }
+
+    HnswIndex(int dim, MetricType metricType, IndexParams buildParams, HnswStorage storage) {
+        Distances.checkFloatMetric(metricType);
+        this.storage = storage;
+        this.dim = dim;
+        this.metricType = metricType;
+        this.m = buildParams.getInt(IndexParams.HNSW_M, DEFAULT_M);
+        this.efConstruction = buildParams.getInt(IndexParams.EF_CONSTRUCTION, DEFAULT_EF_CONSTRUCTION);
+        if (m < 2) {
+            throw new IllegalArgumentException("M must be at least 2, got: " + m);
+        }
+        if (efConstruction <= 0) {
+            throw new IllegalArgumentException("efConstruction must be positive, got: " + efConstruction);
+        }
+        this.maxM0 = 2 * m;
+        this.levelMultiplier = 1d / Math.log(m);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        this.contexts = ThreadLocal.withInitial(() -> new SearchContext(maxM0, storage.newQuery()));
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.HNSW;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return inserted.get();
+    }
+
+    @Override
+    public long memoryBytes() {
+        long nodes = nextId.get();
+        long upper = 0L;
+        Pages p = pages;
+        for (int id = 0; id < nodes; id++) {
+            int[] links = p.upper[id >>> PAGE_SHIFT][id & PAGE_MASK];
+            upper += links == null ? 0 : 16L + 4L * links.length;
+        }
+        return nodes * (storage.bytesPerVector() + 4L * (1 + maxM0)) + upper + storage.fixedBytes();
+    }
+
+    /**
+     * Inserts a block of vectors into an empty index from all available cores.
+     */
+    @Override
+    public void build(float[] vectors, int count) {
+        if (nextId.get() != 0) {
+            throw new IllegalStateException("Index is already built, use addAll() to insert more vectors");
+        }
+        insertAll(vectors, count);
+    }
+
+    /**
+     * Inserts a block of vectors in parallel. The index stays searchable while the insertion runs, and the new
+     * vectors receive consecutive IDs following the existing ones.
+     *
+     * @param vectors <code>count * dimension</code> floats.
+     * @param count The number of vectors.
+     * @return The ID of the first inserted vector.
+     */
+    public int addAll(float[] vectors, int count) {
+        return insertAll(vectors, count);
+    }
+
+    final int insertAll(float[] vectors, int count) {
+        if (vectors.length < count * dim) {
+            throw new IllegalArgumentException("Expected " + count * dim + " floats, got: " + vectors.length);
+        }
+        int first = nextId.getAndAdd(count);
+        ensureCapacity(first + count);
+        IntStream.range(0, count).parallel().forEach(i -> insert(first + i, vectors, i * dim));
+        return first;
+    }
+
+    /**
+     * Inserts one vector into the index.
+     *
+     * @param vector A vector with {@link #getDimension()} floats.
+     * @return The ID of the vector.
+     */
+    public int add(float[] vector) {
+        if (vector.length != dim) {
+            throw new IllegalArgumentException("Expected " + dim + " floats, got: " + vector.length);
+        }
+        int id = nextId.getAndIncrement();
+        ensureCapacity(id + 1);
+        insert(id, vector, 0);
+        return id;
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    /**
+     * Searches the graph through every node, excluded or not, so the excluded ones still connect the rest, but
+     * only keeps the nodes that are not excluded as results.
+     */
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (entryPoint < 0) {
+            return SearchResult.empty();
+        }
+        int ef = Math.max(topK, searchParams.getInt(IndexParams.EF, DEFAULT_EF));
+        TopKHeap results = searchCandidates(query, ef, excluded);
+        while (results.size() > topK) {
+            results.poll();
+        }
+        return results.toResult(metricType);
+    }
+
+    /**
+     * Returns the <code>ef</code> closest nodes found on layer 0 that are not excluded, in a per-thread heap that
+     * stays valid until the next search on the same thread.
+     */
+    final TopKHeap searchCandidates(float[] query, int ef, RowBitmap excluded) {
+        SearchContext ctx = contexts.get();
+        TopKHeap results = ctx.results(ef);
+        results.clear();
+        // read the level before the entry point, which is at least as high
+        int top = maxLevel;
+        int ep = entryPoint;
+        if (ep < 0) {
+            return results;
+        }
+        HnswStorage.Query q = ctx.query;
+        q.set(query, 0);
+        for (int level = top; level > 0; level--) {
+            ep = greedy(ctx, ep, level);
+        }
+        searchLayer(ctx, ep, q.distance(ep), 0, results, excluded);
+        return results;
+    }
+
+    private void insert(int id, float[] vectors, int offset) {
+        Pages p = pages;
+        storage.store(id, vectors, offset);
+        int level = randomLevel(id);
+        if (level > 0) {
+            p.upper[id >>> PAGE_SHIFT][id & PAGE_MASK] = new int[level * (1 + m)];
+        }
+
+        int ep;
+        int top;
+        synchronized (entryLock) {
+            ep = entryPoint;
+            top = maxLevel;
+            if (ep < 0) {
+                entryPoint = id;
+                maxLevel = level;
+                inserted.incrementAndGet();
+                return;
+            }
+        }
+        if (level > top) {
+            // rare: the new node becomes the entry point, so hold the entry lock while linking it
+            synchronized (entryLock) {
+                link(id, vectors, offset, level, entryPoint, maxLevel);
+                if (level > maxLevel) {
+                    // the entry point is published first: a search that sees the new level also sees its node
+                    entryPoint = id;
+                    maxLevel = level;
+                }
+            }
+        } else {
+            link(id, vectors, offset, level, ep, top);
+        }
+        inserted.incrementAndGet();
+    }
+
+    private void link(int id, float[] vectors, int offset, int level, int ep, int top) {
+        SearchContext ctx = contexts.get();
+        HnswStorage.Query q = ctx.query;
+        q.set(vectors, offset);
+        for (int l = top; l > level; l--) {
+            ep = greedy(ctx, ep, l);
+        }
+        TopKHeap results = ctx.results(efConstruction);
+        for (int l = Math.min(level, top); l >= 0; l--) {
+            searchLayer(ctx, ep, q.distance(ep), l, results, null);
+            int n = ctx.drain(results, id);
+            int maxM = l == 0 ? maxM0 : m;
+            int selected = selectNeighbors(ctx.sortedIds, ctx.sortedDistances, n, maxM, ctx.selected);
+            int[] links = links(id, l);
+            int base = linksOffset(id, l);
+            synchronized (stripe(id)) {
+                System.arraycopy(ctx.selected, 0, links, base + 1, selected);
+                links[base] = selected;
+            }
+            if (n > 0) {
+                ep = ctx.sortedIds[0];
+            }
+        }
+        // only link back once every layer of the node has its own links, so that a search never reaches it on an
+        // upper layer and then finds no way out on layer 0
+        for (int l = Math.min(level, top); l >= 0; l--) {
+            int maxM = l == 0 ? maxM0 : m;
+            int selected = copyNeighbors(id, l, ctx.selected);
+            for (int i = 0; i < selected; i++) {
+                connect(ctx, ctx.selected[i], id, l, maxM);
+            }
+        }
+    }
+
+    /**
+     * Adds <code>id</code> to the neighbor list of <code>node</code>, pruning the list with the neighbor-selection
+     * heuristic when it is full.
+     */
+    private void connect(SearchContext ctx, int node, int id, int level, int maxM) {
+        int[] links = links(node, level);
+        int base = linksOffset(node, level);
+        synchronized (stripe(node)) {
+            int count = links[base];
+            for (int i = 0; i < count; i++) {
+                if (links[base + 1 + i] == id) {
+                    return;
+                }
+            }
+            if (count < maxM) {
+                links[base + 1 + count] = id;
+                links[base] = count + 1;
+                return;
+            }
+            int[] ids = ctx.pruneIds;
+            float[] dists = ctx.pruneDistances;
+            ids[0] = id;
+            dists[0] = distance(node, id);
+            for (int i = 0; i < count; i++) {
+                int other = links[base + 1 + i];
+                ids[i + 1] = other;
+                dists[i + 1] = distance(node, other);
+            }
+            sort(ids, dists, count + 1);
+            int selected = selectNeighbors(ids, dists, count + 1, maxM, ctx.pruned);
+            System.arraycopy(ctx.pruned, 0, links, base + 1, selected);
+            links[base] = selected;
+        }
+    }
+
+    /**
+     * Keeps a candidate only if it is closer to the base node than to every neighbor kept so far, which preserves
+     * links in every direction instead of clustering them.
+     *
+     * @param ids Candidate IDs sorted by ascending distance to the base node.
+     * @param distances The distances of the candidates to the base node.
+     */
+    private int selectNeighbors(int[] ids, float[] distances, int n, int maxM, int[] out) {
+        int count = 0;
+        for (int i = 0; i < n && count < maxM; i++) {
+            int candidate = ids[i];
+            boolean keep = true;
+            for (int j = 0; j < count; j++) {
+                if (distance(candidate, out[j]) < distances[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                out[count++] = candidate;
+            }
+        }
+        return count;
+    }
+
+    private int greedy(SearchContext ctx, int ep, int level) {
+        float best = ctx.query.distance(ep);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int n = copyNeighbors(ep, level, ctx.neighbors);
+            for (int i = 0; i < n; i++) {
+                int candidate = ctx.neighbors[i];
+                float d = ctx.query.distance(candidate);
+                if (d < best) {
+                    best = d;
+                    ep = candidate;
+                    changed = true;
+                }
+            }
+        }
+        return ep;
+    }
+
+    private void searchLayer(SearchContext ctx, int ep, float epDistance, int level, TopKHeap results,
+                             RowBitmap excluded) {
+        VisitedSet visited = ctx.visited;
+        FloatMinHeap candidates = ctx.candidates;
+        visited.clear();
+        candidates.clear();
+        results.clear();
+        visited.add(ep);
+        candidates.push(epDistance, ep);
+        if (excluded == null || !excluded.contains(ep)) {
+            results.offer(ep, epDistance);
+        }
+        while (!candidates.isEmpty()) {
+            if (candidates.peekKey() > results.threshold()) {
+                break;
+            }
+            int current = candidates.poll();
+            int n = copyNeighbors(current, level, ctx.neighbors);
+            for (int i = 0; i < n; i++) {
+                int candidate = ctx.neighbors[i];
+                if (!visited.add(candidate)) {
+                    continue;
+                }
+                float d = ctx.query.distance(candidate);
+                if (d < results.threshold()) {
+                    candidates.push(d, candidate);
+                    if (excluded == null || !excluded.contains(candidate)) {
+                        results.offer(candidate, d);
+                    }
+                }
+            }
+        }
+    }
+
+    private int copyNeighbors(int node, int level, int[] out) {
+        int[] links = links(node, level);
+        int base = linksOffset(node, level);
+        synchronized (stripe(node)) {
+            int count = links[base];
+            System.arraycopy(links, base + 1, out, 0, count);
+            return count;
+        }
+    }
+
+    private int[] links(int node, int level) {
+        Pages p = pages;
+        if (level == 0) {
+            return p.links0[node >>> PAGE_SHIFT];
+        }
+        return p.upper[node >>> PAGE_SHIFT][node & PAGE_MASK];
+    }
+
+    private int linksOffset(int node, int level) {
+        return level == 0 ? (node & PAGE_MASK) * (1 + maxM0) : (level - 1) * (1 + m);
+    }
+
+    private Object stripe(int node) {
+        return stripes[node & (LOCK_STRIPES - 1)];
+    }
+
+    private float distance(int a, int b) {
+        return storage.distance(a, b);
+    }
+
+    /**
+     * Draws the level of a node from a geometric distribution, seeded by its ID so builds are deterministic.
+     */
+    private int randomLevel(int id) {
+        long z = (id + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        double u = ((z >>> 11) + 1) * 0x1.0p-53;
+        return (int) (-Math.log(u) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int nodes) {
+        int needed = (nodes + PAGE_MASK) >>> PAGE_SHIFT;
+        if (needed <= pages.links0.length) {
+            return;
+        }
+        synchronized (growLock) {
+            Pages current = pages;
+            if (needed <= current.links0.length) {
+                return;
+            }
+            Pages grown = new Pages(Math.max(needed, current.links0.length * 2));
+            int old = current.links0.length;
+            storage.ensurePages(grown.links0.length);
+            System.arraycopy(current.links0, 0, grown.links0, 0, old);
+            System.arraycopy(current.upper, 0, grown.upper, 0, old);
+            for (int page = old; page < grown.links0.length; page++) {
+                grown.links0[page] = new int[PAGE_SIZE * (1 + maxM0)];
+                grown.upper[page] = new int[PAGE_SIZE][];
+            }
+            pages = grown;
+        }
+    }
+
+    private static void sort(int[] ids, float[] distances, int n) {
+        for (int i = 1; i < n; i++) {
+            int id = ids[i];
+            float d = distances[i];
+            int j = i - 1;
+            while (j >= 0 && distances[j] > d) {
+                ids[j + 1] = ids[j];
+                distances[j + 1] = distances[j];
+                j--;
+            }
+            ids[j + 1] = id;
+            distances[j + 1] = d;
+        }
+    }
+
+    /**
+     * The page directory of the neighbor lists. Pages are shared between directories when it grows, so writes into
+     * a page are never lost.
+     */
+    private static final class Pages {
+        final int[][] links0;
+        final int[][][] upper;
+
+        Pages(int count) {
+            this.links0 = new int[count][];
+            this.upper = new int[count][][];
+        }
+    }
+
+    /**
+     * Per-thread scratch space reused by every search and insertion on that thread.
+     */
+    private static final class SearchContext {
+        final VisitedSet visited = new VisitedSet(PAGE_SIZE);
+        final HnswStorage.Query query;
+        final FloatMinHeap candidates = new FloatMinHeap(256);
+        final int[] neighbors;
+        final int[] selected;
+        final int[] pruned;
+        final int[] pruneIds;
+        final float[] pruneDistances;
+        int[] sortedIds = new int[0];
+        float[] sortedDistances = new float[0];
+        private TopKHeap results;
+
+        SearchContext(int maxM0, HnswStorage.Query query) {
+            this.query = query;
+            this.neighbors = new int[maxM0];
+            this.selected = new int[maxM0];
+            this.pruned = new int[maxM0];
+            this.pruneIds = new int[maxM0 + 1];
+            this.pruneDistances = new float[maxM0 + 1];
+        }
+
+        TopKHeap results(int ef) {
+            if (results == null || results.capacity() != ef) {
+                results = new TopKHeap(ef);
+            }
+            return results;
+        }
+
+        /**
+         * Drains a result heap into {@link #sortedIds} and {@link #sortedDistances} in ascending order, skipping
+         * the node being inserted in case a concurrent insertion already linked back to it.
+         */
+        int drain(TopKHeap heap, int exclude) {
+            int n = heap.size();
+            if (sortedIds.length < n) {
+                sortedIds = new int[n];
+                sortedDistances = new float[n];
+            }
+            int pos = n;
+            while (heap.size() > 0) {
+                float d = heap.peekDistance();
+                int id = heap.poll();
+                if (id != exclude) {
+                    pos--;
+                    sortedDistances[pos] = d;
+                    sortedIds[pos] = id;
+                }
+            }
+            if (pos > 0) {
+                System.arraycopy(sortedIds, pos, sortedIds, 0, n - pos);
+                System.arraycopy(sortedDistances, pos, sortedDistances, 0, n - pos);
+            }
+            return n - pos;
+        }
+    }
+}
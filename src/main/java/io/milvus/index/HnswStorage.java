@@ -0,0 +1,284 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+
+import io.milvus.common.enums.MetricType;
+
+/**
+ * The vector storage behind an {@link HnswIndex} graph. Vectors live in fixed-size pages that never move once
+ * allocated, and every distance goes through the storage so that the graph can be traversed on full-precision,
+ * SQ8 or PQ vectors alike.
+ */
+abstract class HnswStorage {
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    final int dim;
+    final MetricType metricType;
+
+    HnswStorage(int dim, MetricType metricType) {
+        this.dim = dim;
+        this.metricType = metricType;
+    }
+
+    /**
+     * Makes sure that at least <code>pages</code> pages are allocated. Called under the graph's grow lock.
+     */
+    abstract void ensurePages(int pages);
+
+    abstract void store(int id, float[] vectors, int offset);
+
+    /**
+     * Returns the distance between two stored vectors, smaller is better.
+     */
+    abstract float distance(int a, int b);
+
+    /**
+     * Creates a reusable query holder, one per thread.
+     */
+    abstract Query newQuery();
+
+    abstract int bytesPerVector();
+
+    /**
+     * Returns the memory held independently of the number of vectors, such as codebooks.
+     */
+    long fixedBytes() {
+        return 0L;
+    }
+
+    /**
+     * A query prepared for repeated distance computations against stored vectors.
+     */
+    abstract static class Query {
+        abstract void set(float[] vector, int offset);
+
+        abstract float distance(int node);
+    }
+
+    /**
+     * Keeps full-precision vectors.
+     */
+    static final class Flat extends HnswStorage {
+        private volatile float[][] pages = new float[0][];
+
+        Flat(int dim, MetricType metricType) {
+            super(dim, metricType);
+        }
+
+        @Override
+        void ensurePages(int count) {
+            float[][] current = pages;
+            if (count <= current.length) {
+                return;
+            }
+            float[][] grown = Arrays.copyOf(current, count);
+            for (int p = current.length; p < count; p++) {
+                grown[p] = new float[PAGE_SIZE * dim];
+            }
+            pages = grown;
+        }
+
+        @Override
+        void store(int id, float[] vectors, int offset) {
+            System.arraycopy(vectors, offset, pages[id >>> PAGE_SHIFT], (id & PAGE_MASK) * dim, dim);
+        }
+
+        @Override
+        float distance(int a, int b) {
+            float[][] p = pages;
+            return Distances.distance(metricType, p[a >>> PAGE_SHIFT], (a & PAGE_MASK) * dim,
+                    p[b >>> PAGE_SHIFT], (b & PAGE_MASK) * dim, dim);
+        }
+
+        @Override
+        Query newQuery() {
+            return new Query() {
+                private float[] vector;
+                private int offset;
+
+                @Override
+                void set(float[] v, int off) {
+                    vector = v;
+                    offset = off;
+                }
+
+                @Override
+                float distance(int node) {
+                    return Distances.distance(metricType, vector, offset, pages[node >>> PAGE_SHIFT],
+                            (node & PAGE_MASK) * dim, dim);
+                }
+            };
+        }
+
+        @Override
+        int bytesPerVector() {
+            return 4 * dim;
+        }
+    }
+
+    /**
+     * Keeps SQ8 codes, one byte per dimension.
+     */
+    static final class Sq8 extends HnswStorage {
+        private final ScalarQuantizer sq;
+        private volatile byte[][] pages = new byte[0][];
+
+        Sq8(ScalarQuantizer sq, MetricType metricType) {
+            super(sq.getDimension(), metricType);
+            this.sq = sq;
+        }
+
+        @Override
+        void ensurePages(int count) {
+            byte[][] current = pages;
+            if (count <= current.length) {
+                return;
+            }
+            byte[][] grown = Arrays.copyOf(current, count);
+            for (int p = current.length; p < count; p++) {
+                grown[p] = new byte[PAGE_SIZE * dim];
+            }
+            pages = grown;
+        }
+
+        @Override
+        void store(int id, float[] vectors, int offset) {
+            sq.encode(vectors, offset, pages[id >>> PAGE_SHIFT], (id & PAGE_MASK) * dim);
+        }
+
+        @Override
+        float distance(int a, int b) {
+            byte[][] p = pages;
+            byte[] pa = p[a >>> PAGE_SHIFT];
+            byte[] pb = p[b >>> PAGE_SHIFT];
+            int oa = (a & PAGE_MASK) * dim;
+            int ob = (b & PAGE_MASK) * dim;
+            return metricType == MetricType.IP ? -sq.ip(pa, oa, pb, ob) : sq.l2(pa, oa, pb, ob);
+        }
+
+        @Override
+        Query newQuery() {
+            return new Query() {
+                private final float[] vector = new float[dim];
+
+                @Override
+                void set(float[] v, int off) {
+                    System.arraycopy(v, off, vector, 0, dim);
+                }
+
+                @Override
+                float distance(int node) {
+                    byte[] page = pages[node >>> PAGE_SHIFT];
+                    int o = (node & PAGE_MASK) * dim;
+                    return metricType == MetricType.IP ? -sq.ip(vector, 0, page, o) : sq.l2(vector, 0, page, o);
+                }
+            };
+        }
+
+        @Override
+        int bytesPerVector() {
+            return dim;
+        }
+
+        @Override
+        long fixedBytes() {
+            return sq.memoryBytes();
+        }
+    }
+
+    /**
+     * Keeps PQ codes. Queries use asymmetric distances from a lookup table; distances between two stored vectors
+     * use symmetric distances from precomputed centroid-to-centroid tables.
+     */
+    static final class Pq extends HnswStorage {
+        private final ProductQuantizer pq;
+        private final int m;
+        private final int ksub;
+        private final float[] symmetric;
+        private volatile byte[][] pages = new byte[0][];
+
+        Pq(ProductQuantizer pq, MetricType metricType) {
+            super(pq.getDimension(), metricType);
+            this.pq = pq;
+            this.m = pq.getM();
+            this.ksub = pq.getKsub();
+            int dsub = dim / m;
+            float[] books = pq.getCodebooks();
+            this.symmetric = new float[m * ksub * ksub];
+            for (int j = 0; j < m; j++) {
+                int book = j * ksub * dsub;
+                for (int a = 0; a < ksub; a++) {
+                    for (int b = 0; b < ksub; b++) {
+                        symmetric[(j * ksub + a) * ksub + b] = Distances.distance(metricType, books,
+                                book + a * dsub, books, book + b * dsub, dsub);
+                    }
+                }
+            }
+        }
+
+        @Override
+        void ensurePages(int count) {
+            byte[][] current = pages;
+            if (count <= current.length) {
+                return;
+            }
+            byte[][] grown = Arrays.copyOf(current, count);
+            for (int p = current.length; p < count; p++) {
+                grown[p] = new byte[PAGE_SIZE * m];
+            }
+            pages = grown;
+        }
+
+        @Override
+        void store(int id, float[] vectors, int offset) {
+            pq.encode(vectors, offset, pages[id >>> PAGE_SHIFT], (id & PAGE_MASK) * m);
+        }
+
+        @Override
+        float distance(int a, int b) {
+            byte[][] p = pages;
+            byte[] pa = p[a >>> PAGE_SHIFT];
+            byte[] pb = p[b >>> PAGE_SHIFT];
+            int oa = (a & PAGE_MASK) * m;
+            int ob = (b & PAGE_MASK) * m;
+            float sum = 0f;
+            for (int j = 0; j < m; j++) {
+                sum += symmetric[(j * ksub + (pa[oa + j] & 0xff)) * ksub + (pb[ob + j] & 0xff)];
+            }
+            return sum;
+        }
+
+        @Override
+        Query newQuery() {
+            return new Query() {
+                private final float[] table = new float[m * ksub];
+
+                @Override
+                void set(float[] v, int off) {
+                    if (metricType == MetricType.IP) {
+                        pq.computeIpTable(v, off, table);
+                    } else {
+                        pq.computeL2Table(v, off, table);
+                    }
+                }
+
+                @Override
+                float distance(int node) {
+                    return pq.adc(table, pages[node >>> PAGE_SHIFT], (node & PAGE_MASK) * m);
+                }
+            };
+        }
+
+        @Override
+        int bytesPerVector() {
+            return m;
+        }
+
+        @Override
+        long fixedBytes() {
+            return pq.memoryBytes() + 4L * symmetric.length;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.milvus.index;
+
+import java.util.Collections;
+import java.util.Dictionary;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * An immutable view of index-building or search parameters, such as those passed through
+ * {@link io.milvus.param.index.CreateIndexParam.Builder#withExtraParam(Dictionary) withExtraParam()}.
+ */
+public final class IndexParams {
+    // IVF family
+    public static final String NLIST = "nlist";
+    public static final String NPROBE = "nprobe";
+    // product quantization
+    public static final String PQ_M = "m";
+    public static final String PQ_NBITS = "nbits";
+    // graph indexes
+    public static final String HNSW_M = "M";
+    public static final String EF_CONSTRUCTION = "efConstruction";
+    public static final String EF = "ef";
+    public static final String MAX_DEGREE = "max_degree";
+    public static final String SEARCH_LIST_SIZE = "search_list_size";
+    public static final String SEARCH_LIST = "search_list";
+    public static final String BEAM_WIDTH = "beam_width";
+    public static final String BUILD_PARTITION_SIZE = "build_partition_size";
+    public static final String REFINE_FACTOR = "refine_factor";
+    // tree indexes
+    public static final String N_TREES = "n_trees";
+    public static final String SEARCH_K = "search_k";
+    // automatic index selection
+    public static final String MEMORY_BUDGET = "memory_budget";
+
+    private static final IndexParams EMPTY = new IndexParams(Collections.<String, String>emptyMap());
+
+    private final Map<String, String> params;
+
+    private IndexParams(Map<String, String> params) {
+        this.params = params;
+    }
+
+    public static IndexParams empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates parameters from a dictionary. Keys and values are converted with {@link String#valueOf(Object)}.
+     *
+     * @param dictionary A dictionary of parameters, may be <code>null</code>.
+     * @return {@link IndexParams}
+     */
+    public static IndexParams of(Dictionary<?, ?> dictionary) {
+        if (dictionary == null || dictionary.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, String> map = new HashMap<>();
+        for (Enumeration<?> keys = dictionary.keys(); keys.hasMoreElements(); ) {
+            Object key = keys.nextElement();
+            map.put(String.valueOf(key), String.valueOf(dictionary.get(key)));
+        }
+        return new IndexParams(Collections.unmodifiableMap(map));
+    }
+
+    /**
+     * Creates parameters from a map. Keys and values are converted with {@link String#valueOf(Object)}.
+     *
+     * @param map A map of parameters, may be <code>null</code>.
+     * @return {@link IndexParams}
+     */
+    public static IndexParams of(Map<?, ?> map) {
+        if (map == null || map.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, String> copy = new HashMap<>();
+        map.forEach((k, v) -> copy.put(String.valueOf(k), String.valueOf(v)));
+        return new IndexParams(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns a copy of these parameters with one more entry.
+     *
+     * @param key The parameter name.
+     * @param value The parameter value.
+     * @return {@link IndexParams}
+     */
+    public IndexParams with(String key, Object value) {
+        Map<String, String> copy = new HashMap<>(params);
+        copy.put(key, String.valueOf(value));
+        return new IndexParams(Collections.unmodifiableMap(copy));
+    }
+
+    /**
+     * Returns a copy of these parameters overridden by all entries of another set.
+     *
+     * @param overrides The parameters that take precedence.
+     * @return {@link IndexParams}
+     */
+    public IndexParams withAll(IndexParams overrides) {
+        if (overrides.params.isEmpty()) {
+            return this;
+        }
+        Map<String, String> copy = new HashMap<>(params);
+        copy.putAll(overrides.params);
+        return new IndexParams(Collections.unmodifiableMap(copy));
+    }
+
+    public boolean contains(String key) {
+        return params.containsKey(key);
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = params.get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    /**
+     * Returns an integer parameter.
+     *
+     * @throws IllegalArgumentException if the value is not an integer.
+     */
+    public int getInt(String key, int defaultValue) {
+        String value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + key + " must be an integer, got: " + value);
+        }
+    }
+
+    /**
+     * Returns a long integer parameter.
+     *
+     * @throws IllegalArgumentException if the value is not an integer.
+     */
+    public long getLong(String key, long defaultValue) {
+        String value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + key + " must be an integer, got: " + value);
+        }
+    }
+
+    /**
+     * Returns a floating-point parameter.
+     *
+     * @throws IllegalArgumentException if the value is not a number.
+     */
+    public double getDouble(String key, double defaultValue) {
+        String value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Parameter " + key + " must be a number, got: " + value);
+        }
+    }
+
+    /**
+     * Returns the parameters as an unmodifiable map.
+     *
+     * @return <code>Map</code>
+     */
+    public Map<String, String> asMap() {
+        return params;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexParams" + params;
+    }
+}
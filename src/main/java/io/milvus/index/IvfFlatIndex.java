@@ -0,0 +1,104 @@
+package io.milvus.index;
+
+import java.util.Random;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * An IVF index that stores full-precision vectors in each inverted list.
+ * <p>
+ * Build parameters: <code>nlist</code>. Search parameters: <code>nprobe</code>.
+ */
+public class IvfFlatIndex implements FloatVectorIndex {
+    static final int DEFAULT_NLIST = 128;
+    static final int DEFAULT_NPROBE = 8;
+
+    private final int dim;
+    private final MetricType metricType;
+    private final int nlist;
+    private CoarseQuantizer quantizer;
+    private int[][] listIds;
+    private float[][] listVectors;
+    private int size;
+
+    public IvfFlatIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        Distances.checkFloatMetric(metricType);
+        this.dim = dim;
+        this.metricType = metricType;
+        this.nlist = buildParams.getInt(IndexParams.NLIST, DEFAULT_NLIST);
+        if (nlist <= 0) {
+            throw new IllegalArgumentException("nlist must be positive, got: " + nlist);
+        }
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.IVF_FLAT;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return quantizer == null ? 0L : quantizer.memoryBytes() + (4L * dim + 4L) * size;
+    }
+
+    @Override
+    public void build(float[] vectors, int count) {
+        CoarseQuantizer cq = CoarseQuantizer.train(vectors, count, dim, nlist, new Random(count));
+        int[][] ids = cq.bucket(cq.assign(vectors, count), count);
+        float[][] data = new float[ids.length][];
+        for (int l = 0; l < ids.length; l++) {
+            int[] list = ids[l];
+            float[] block = new float[list.length * dim];
+            for (int i = 0; i < list.length; i++) {
+                System.arraycopy(vectors, list[i] * dim, block, i * dim, dim);
+            }
+            data[l] = block;
+        }
+        this.quantizer = cq;
+        this.listIds = ids;
+        this.listVectors = data;
+        this.size = count;
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        int nprobe = searchParams.getInt(IndexParams.NPROBE, DEFAULT_NPROBE);
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+        for (int l : quantizer.probe(query, nprobe)) {
+            int[] ids = listIds[l];
+            float[] block = listVectors[l];
+            for (int i = 0; i < ids.length; i++) {
+                if (excluded != null && excluded.contains(ids[i])) {
+                    continue;
+                }
+                heap.offer(ids[i], Distances.distance(metricType, query, 0, block, i * dim, dim));
+            }
+        }
+        return heap.toResult(metricType);
+    }
+}
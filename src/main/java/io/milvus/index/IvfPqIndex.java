@@ -0,0 +1,312 @@
+package io.milvus.index;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * An IVF index that stores product-quantized residuals in each inverted list and searches them with asymmetric
+ * distance computation (ADC).
+ * <p>
+ * Build parameters: <code>nlist</code>, <code>m</code> (the number of sub-quantizers, which must divide the
+ * dimension) and <code>nbits</code> (bits per sub-quantizer code, 8 by default). Search parameters:
+ * <code>nprobe</code>.
+ * <p>
+ * With <code>nbits=4</code> the index switches to a fast-scan layout: two codes are packed per byte, and each
+ * probed list is scanned with a byte-quantized lookup table folded into one 256-entry table per code byte, so the
+ * whole table stays in L1 cache and every code byte costs a single lookup. The quantized sum gives a lower bound
+ * of the ADC distance, and only candidates whose bound beats the current top-k are re-scored with the float table,
+ * so the results are identical to plain ADC.
+ */
+public class IvfPqIndex implements FloatVectorIndex {
+    static final int DEFAULT_NBITS = 8;
+    private static final int FAST_SCAN_NBITS = 4;
+
+    private final int dim;
+    private final MetricType metricType;
+    private final int nlist;
+    private final int m;
+    private final int nbits;
+    private final boolean fastScan;
+    private CoarseQuantizer quantizer;
+    private ProductQuantizer pq;
+    private int[][] listIds;
+    private byte[][] listCodes;
+    private int size;
+
+    public IvfPqIndex(int dim, MetricType metricType, IndexParams buildParams) {
+        this(dim, metricType, buildParams, true);
+    }
+
+    /**
+     * Creates an index that may be kept from switching to the fast-scan layout, so that the results of both scans
+     * can be compared.
+     */
+    IvfPqIndex(int dim, MetricType metricType, IndexParams buildParams, boolean allowFastScan) {
+        Distances.checkFloatMetric(metricType);
+        this.dim = dim;
+        this.metricType = metricType;
+        this.nlist = buildParams.getInt(IndexParams.NLIST, IvfFlatIndex.DEFAULT_NLIST);
+        this.m = buildParams.getInt(IndexParams.PQ_M, 0);
+        this.nbits = buildParams.getInt(IndexParams.PQ_NBITS, DEFAULT_NBITS);
+        if (nlist <= 0) {
+            throw new IllegalArgumentException("nlist must be positive, got: " + nlist);
+        }
+        if (m <= 0) {
+            throw new IllegalArgumentException("IVF_PQ requires a positive m, got: " + m);
+        }
+        // validates dim, m and nbits before any work is done
+        new ProductQuantizer(dim, m, nbits);
+        this.fastScan = allowFastScan && nbits == FAST_SCAN_NBITS;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.IVF_PQ;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of bytes stored per vector: the code plus its 4-byte ID.
+     *
+     * @return <code>int</code>
+     */
+    public int bytesPerVector() {
+        return codeSize() + 4;
+    }
+
+    @Override
+    public long memoryBytes() {
+        if (quantizer == null) {
+            return 0L;
+        }
+        return quantizer.memoryBytes() + pq.memoryBytes() + (long) bytesPerVector() * size;
+    }
+
+    private int codeSize() {
+        return fastScan ? (m + 1) / 2 : m;
+    }
+
+    @Override
+    public void build(float[] vectors, int count) {
+        Random random = new Random(count);
+        CoarseQuantizer cq = CoarseQuantizer.train(vectors, count, dim, nlist, random);
+        int[] assignment = cq.assign(vectors, count);
+        float[] centroids = cq.centroids();
+
+        // train the product quantizer on a sample of residuals
+        ProductQuantizer product = new ProductQuantizer(dim, m, nbits);
+        int[] sample = KMeans.sample(count, Math.min(count, product.getKsub() * KMeans.MAX_POINTS_PER_CENTROID),
+                random);
+        float[] residuals = new float[sample.length * dim];
+        for (int i = 0; i < sample.length; i++) {
+            residual(vectors, sample[i], centroids, assignment[sample[i]], residuals, i * dim);
+        }
+        product.train(residuals, sample.length, random);
+
+        // encode every vector in parallel, straight into its inverted list
+        int codeSize = codeSize();
+        int[][] ids = cq.bucket(assignment, count);
+        byte[][] lists = new byte[ids.length][];
+        int[] positions = new int[count];
+        for (int l = 0; l < ids.length; l++) {
+            int[] list = ids[l];
+            lists[l] = new byte[Math.multiplyExact(list.length, codeSize)];
+            for (int i = 0; i < list.length; i++) {
+                positions[list[i]] = i;
+            }
+        }
+        ThreadLocal<float[]> residualBuffer = ThreadLocal.withInitial(() -> new float[dim]);
+        ThreadLocal<byte[]> codeBuffer = ThreadLocal.withInitial(() -> new byte[m]);
+        IntStream.range(0, count).parallel().forEach(i -> {
+            float[] r = residualBuffer.get();
+            byte[] code = codeBuffer.get();
+            residual(vectors, i, centroids, assignment[i], r, 0);
+            product.encode(r, 0, code, 0);
+            byte[] block = lists[assignment[i]];
+            if (fastScan) {
+                pack(code, block, positions[i] * codeSize);
+            } else {
+                System.arraycopy(code, 0, block, positions[i] * codeSize, codeSize);
+            }
+        });
+
+        this.quantizer = cq;
+        this.pq = product;
+        this.listIds = ids;
+        this.listCodes = lists;
+        this.size = count;
+    }
+
+    private void residual(float[] vectors, int row, float[] centroids, int list, float[] out, int outOffset) {
+        int vo = row * dim;
+        int co = list * dim;
+        for (int d = 0; d < dim; d++) {
+            out[outOffset + d] = vectors[vo + d] - centroids[co + d];
+        }
+    }
+
+    private void pack(byte[] code, byte[] out, int offset) {
+        for (int j = 0; j < m; j += 2) {
+            int lo = code[j] & 0x0f;
+            int hi = j + 1 < m ? code[j + 1] & 0x0f : 0;
+            out[offset + j / 2] = (byte) (lo | (hi << 4));
+        }
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        if (size == 0) {
+            return SearchResult.empty();
+        }
+        int nprobe = searchParams.getInt(IndexParams.NPROBE, IvfFlatIndex.DEFAULT_NPROBE);
+        int ksub = pq.getKsub();
+        float[] centroids = quantizer.centroids();
+        float[] table = new float[m * ksub];
+        float[] shifted = new float[dim];
+        FastScanTable fast = fastScan ? new FastScanTable(m) : null;
+        TopKHeap heap = new TopKHeap(Math.min(topK, size));
+
+        if (metricType == MetricType.IP) {
+            // the inner product of the query with the residual does not depend on the list
+            pq.computeIpTable(query, 0, table);
+            if (fast != null) {
+                fast.quantize(table);
+            }
+        }
+        for (int l : quantizer.probe(query, nprobe)) {
+            float bias;
+            if (metricType == MetricType.IP) {
+                bias = -Distances.ip(query, 0, centroids, l * dim, dim);
+            } else {
+                for (int d = 0; d < dim; d++) {
+                    shifted[d] = query[d] - centroids[l * dim + d];
+                }
+                pq.computeL2Table(shifted, 0, table);
+                if (fast != null) {
+                    fast.quantize(table);
+                }
+                bias = 0f;
+            }
+            if (fast != null) {
+                scanFast(fast, table, bias, listIds[l], listCodes[l], heap);
+            } else {
+                scan(table, bias, listIds[l], listCodes[l], heap);
+            }
+        }
+        return heap.toResult(metricType);
+    }
+
+    private void scan(float[] table, float bias, int[] ids, byte[] codes, TopKHeap heap) {
+        for (int i = 0; i < ids.length; i++) {
+            heap.offer(ids[i], bias + pq.adc(table, codes, i * m));
+        }
+    }
+
+    private void scanFast(FastScanTable fast, float[] table, float bias, int[] ids, byte[] codes, TopKHeap heap) {
+        int codeSize = codeSize();
+        short[] pairs = fast.pairs;
+        float base = bias + fast.offset;
+        float slack = fast.slack;
+        float inverseScale = fast.inverseScale;
+        for (int i = 0; i < ids.length; i++) {
+            int co = i * codeSize;
+            int sum = 0;
+            for (int b = 0; b < codeSize; b++) {
+                sum += pairs[(b << 8) | (codes[co + b] & 0xff)];
+            }
+            float lowerBound = base + sum * inverseScale - slack;
+            if (lowerBound >= heap.threshold()) {
+                continue;
+            }
+            heap.offer(ids[i], bias + packedAdc(table, codes, co));
+        }
+    }
+
+    private float packedAdc(float[] table, byte[] codes, int offset) {
+        float sum = 0f;
+        for (int j = 0; j < m; j += 2) {
+            int b = codes[offset + j / 2] & 0xff;
+            sum += table[j * FastScanTable.KSUB + (b & 0x0f)];
+            if (j + 1 < m) {
+                sum += table[(j + 1) * FastScanTable.KSUB + (b >>> 4)];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * A byte-quantized 4-bit lookup table folded into one 256-entry table per packed code byte.
+     */
+    private static final class FastScanTable {
+        static final int KSUB = 1 << FAST_SCAN_NBITS;
+
+        private final int m;
+        private final int[] quantized;
+        final short[] pairs;
+        float offset;
+        float inverseScale;
+        float slack;
+
+        FastScanTable(int m) {
+            this.m = m;
+            this.quantized = new int[m * KSUB];
+            this.pairs = new short[((m + 1) / 2) << 8];
+        }
+
+        void quantize(float[] table) {
+            float maxRange = 0f;
+            float sumMin = 0f;
+            float[] mins = new float[m];
+            for (int j = 0; j < m; j++) {
+                float min = Float.POSITIVE_INFINITY;
+                float max = Float.NEGATIVE_INFINITY;
+                for (int c = 0; c < KSUB; c++) {
+                    float v = table[j * KSUB + c];
+                    min = Math.min(min, v);
+                    max = Math.max(max, v);
+                }
+                mins[j] = min;
+                sumMin += min;
+                maxRange = Math.max(maxRange, max - min);
+            }
+            float scale = maxRange > 0f ? 255f / maxRange : 1f;
+            for (int j = 0; j < m; j++) {
+                for (int c = 0; c < KSUB; c++) {
+                    quantized[j * KSUB + c] = Math.round((table[j * KSUB + c] - mins[j]) * scale);
+                }
+            }
+            for (int b = 0; b < (m + 1) / 2; b++) {
+                int lo = 2 * b;
+                int hi = lo + 1;
+                for (int v = 0; v < 256; v++) {
+                    int s = quantized[lo * KSUB + (v & 0x0f)];
+                    if (hi < m) {
+                        s += quantized[hi * KSUB + (v >>> 4)];
+                    }
+                    pairs[(b << 8) | v] = (short) s;
+                }
+            }
+            this.offset = sumMin;
+            this.inverseScale = 1f / scale;
+            // each rounded entry is off by at most half a step; pad for float error
+            this.slack = (0.5f * m + 1f) * inverseScale;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Lloyd's k-means over row-major float vectors with squared Euclidean distance. Assignment steps run in parallel
+ * on the common fork-join pool.
+ */
+public final class KMeans {
+    // train on at most this many points per centroid, like Faiss does
+    static final int MAX_POINTS_PER_CENTROID = 256;
+
+    private KMeans() {}
+
+    /**
+     * Trains <code>k</code> centroids.
+     *
+     * @param data Row-major training vectors.
+     * @param n The number of training vectors.
+     * @param dim The number of dimensions.
+     * @param k The number of centroids.
+     * @param iterations The number of Lloyd iterations.
+     * @param random The source of randomness for sampling and initialization.
+     * @return <code>k * dim</code> floats.
+     */
+    public static float[] train(float[] data, int n, int dim, int k, int iterations, Random random) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("Cannot train k-means without data");
+        }
+        if (k > n) {
+            throw new IllegalArgumentException("Cannot train " + k + " centroids from " + n + " vectors");
+        }
+        int[] sample = sample(n, Math.min(n, k * MAX_POINTS_PER_CENTROID), random);
+        int sn = sample.length;
+        float[] points = new float[sn * dim];
+        for (int i = 0; i < sn; i++) {
+            System.arraycopy(data, sample[i] * dim, points, i * dim, dim);
+        }
+
+        float[] centroids = new float[k * dim];
+        int[] init = sample(sn, k, random);
+        for (int c = 0; c < k; c++) {
+            System.arraycopy(points, init[c] * dim, centroids, c * dim, dim);
+        }
+
+        int[] assignment = new int[sn];
+        double[] sums = new double[k * dim];
+        int[] counts = new int[k];
+        for (int iter = 0; iter < iterations; iter++) {
+            assign(centroids, k, points, sn, dim, assignment);
+            Arrays.fill(sums, 0d);
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < sn; i++) {
+                int c = assignment[i];
+                counts[c]++;
+                int po = i * dim;
+                int co = c * dim;
+                for (int d = 0; d < dim; d++) {
+                    sums[co + d] += points[po + d];
+                }
+            }
+            for (int c = 0; c < k; c++) {
+                int co = c * dim;
+                if (counts[c] == 0) {
+                    // re-seed an empty cluster from a random point
+                    System.arraycopy(points, random.nextInt(sn) * dim, centroids, co, dim);
+                    continue;
+                }
+                for (int d = 0; d < dim; d++) {
+                    centroids[co + d] = (float) (sums[co + d] / counts[c]);
+                }
+            }
+        }
+        return centroids;
+    }
+
+    /**
+     * Returns the index of the centroid nearest to a vector.
+     */
+    public static int nearest(float[] centroids, int k, float[] vector, int offset, int dim) {
+        int best = 0;
+        float bestDistance = Float.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            float d = Distances.l2(vector, offset, centroids, c * dim, dim);
+            if (d < bestDistance) {
+                bestDistance = d;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Assigns every vector to its nearest centroid in parallel.
+     *
+     * @param out An array of at least <code>n</code> entries receiving the centroid indexes.
+     */
+    public static void assign(float[] centroids, int k, float[] data, int n, int dim, int[] out) {
+        IntStream.range(0, n).parallel().forEach(i -> out[i] = nearest(centroids, k, data, i * dim, dim));
+    }
+
+    /**
+     * Returns the indexes of the <code>nprobe</code> centroids nearest to a query.
+     */
+    public static int[] probe(float[] centroids, int k, float[] query, int dim, int nprobe) {
+        int p = Math.min(nprobe, k);
+        TopKHeap heap = new TopKHeap(p);
+        for (int c = 0; c < k; c++) {
+            heap.offer(c, Distances.l2(query, 0, centroids, c * dim, dim));
+        }
+        int[] lists = new int[heap.size()];
+        for (int i = lists.length - 1; i >= 0; i--) {
+            lists[i] = heap.poll();
+        }
+        return lists;
+    }
+
+    static int[] sample(int n, int count, Random random) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
+        }
+        return count == n ? perm : Arrays.copyOf(perm, count);
+    }
+}
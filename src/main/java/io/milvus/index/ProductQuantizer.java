@@ -0,0 +1,211 @@
+package io.milvus.index;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * A product quantizer that splits vectors into <code>m</code> sub-vectors and encodes each of them with a
+ * codebook of <code>2^nbits</code> centroids. Distances to encoded vectors are computed asymmetrically (ADC) from a
+ * per-query lookup table of <code>m * 2^nbits</code> floats.
+ */
+public final class ProductQuantizer {
+    private static final int TRAIN_ITERATIONS = 15;
+
+    private final int dim;
+    private final int m;
+    private final int nbits;
+    private final int ksub;
+    private final int dsub;
+    private float[] codebooks;
+
+    /**
+     * Creates an untrained product quantizer.
+     *
+     * @param dim The number of dimensions, which must be a multiple of <code>m</code>.
+     * @param m The number of sub-quantizers.
+     * @param nbits The number of bits per sub-quantizer code, from 1 to 8.
+     */
+    public ProductQuantizer(int dim, int m, int nbits) {
+        if (m <= 0 || dim % m != 0) {
+            throw new IllegalArgumentException("Dimension " + dim + " is not a multiple of m=" + m);
+        }
+        if (nbits < 1 || nbits > 8) {
+            throw new IllegalArgumentException("nbits must be between 1 and 8, got: " + nbits);
+        }
+        this.dim = dim;
+        this.m = m;
+        this.nbits = nbits;
+        this.ksub = 1 << nbits;
+        this.dsub = dim / m;
+    }
+
+    /**
+     * Trains the codebooks, one sub-quantizer per fork-join task.
+     *
+     * @param data Row-major training vectors.
+     * @param n The number of training vectors, at least <code>2^nbits</code>.
+     * @param random The source of randomness; each sub-quantizer derives its own seed from it.
+     */
+    public void train(float[] data, int n, Random random) {
+        if (n < ksub) {
+            throw new IllegalArgumentException("Product quantizer needs at least " + ksub + " training vectors, got: " + n);
+        }
+        float[] books = new float[m * ksub * dsub];
+        long[] seeds = new long[m];
+        for (int j = 0; j < m; j++) {
+            seeds[j] = random.nextLong();
+        }
+        IntStream.range(0, m).parallel().forEach(j -> {
+            float[] sub = new float[n * dsub];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(data, i * dim + j * dsub, sub, i * dsub, dsub);
+            }
+            float[] centroids = KMeans.train(sub, n, dsub, ksub, TRAIN_ITERATIONS, new Random(seeds[j]));
+            System.arraycopy(centroids, 0, books, j * ksub * dsub, ksub * dsub);
+        });
+        this.codebooks = books;
+    }
+
+    /**
+     * Restores a trained product quantizer, for instance from an index file.
+     *
+     * @param codebooks <code>m * 2^nbits * (dim / m)</code> floats as returned by {@link #getCodebooks()}.
+     */
+    public static ProductQuantizer fromCodebooks(int dim, int m, int nbits, float[] codebooks) {
+        ProductQuantizer pq = new ProductQuantizer(dim, m, nbits);
+        if (codebooks.length != m * pq.ksub * pq.dsub) {
+            throw new IllegalArgumentException("Expected " + m * pq.ksub * pq.dsub + " codebook floats, got: "
+                    + codebooks.length);
+        }
+        pq.codebooks = codebooks;
+        return pq;
+    }
+
+    /**
+     * Returns the trained codebooks, one block of <code>2^nbits * (dim / m)</code> floats per sub-quantizer.
+     *
+     * @return <code>float[]</code>
+     */
+    public float[] getCodebooks() {
+        checkTrained();
+        return codebooks;
+    }
+
+    public boolean isTrained() {
+        return codebooks != null;
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    public int getM() {
+        return m;
+    }
+
+    public int getNbits() {
+        return nbits;
+    }
+
+    /**
+     * Returns the number of centroids per sub-quantizer, <code>2^nbits</code>.
+     *
+     * @return <code>int</code>
+     */
+    public int getKsub() {
+        return ksub;
+    }
+
+    /**
+     * Returns the number of bytes written by {@link #encode(float[], int, byte[], int)}: one byte per sub-quantizer.
+     *
+     * @return <code>int</code>
+     */
+    public int codeSize() {
+        return m;
+    }
+
+    /**
+     * Encodes one vector into <code>m</code> bytes.
+     */
+    public void encode(float[] vector, int offset, byte[] codes, int codeOffset) {
+        checkTrained();
+        for (int j = 0; j < m; j++) {
+            int book = j * ksub * dsub;
+            int best = 0;
+            float bestDistance = Float.POSITIVE_INFINITY;
+            for (int c = 0; c < ksub; c++) {
+                float d = Distances.l2(vector, offset + j * dsub, codebooks, book + c * dsub, dsub);
+                if (d < bestDistance) {
+                    bestDistance = d;
+                    best = c;
+                }
+            }
+            codes[codeOffset + j] = (byte) best;
+        }
+    }
+
+    /**
+     * Reconstructs an approximation of an encoded vector.
+     */
+    public void decode(byte[] codes, int codeOffset, float[] out, int outOffset) {
+        checkTrained();
+        for (int j = 0; j < m; j++) {
+            int c = codes[codeOffset + j] & 0xff;
+            System.arraycopy(codebooks, (j * ksub + c) * dsub, out, outOffset + j * dsub, dsub);
+        }
+    }
+
+    /**
+     * Fills a lookup table with the squared Euclidean distances between each query sub-vector and each
+     * codebook centroid.
+     *
+     * @param table An array of at least <code>m * 2^nbits</code> floats.
+     */
+    public void computeL2Table(float[] query, int offset, float[] table) {
+        checkTrained();
+        for (int j = 0; j < m; j++) {
+            int book = j * ksub * dsub;
+            for (int c = 0; c < ksub; c++) {
+                table[j * ksub + c] = Distances.l2(query, offset + j * dsub, codebooks, book + c * dsub, dsub);
+            }
+        }
+    }
+
+    /**
+     * Fills a lookup table with the negated inner products between each query sub-vector and each codebook
+     * centroid.
+     *
+     * @param table An array of at least <code>m * 2^nbits</code> floats.
+     */
+    public void computeIpTable(float[] query, int offset, float[] table) {
+        checkTrained();
+        for (int j = 0; j < m; j++) {
+            int book = j * ksub * dsub;
+            for (int c = 0; c < ksub; c++) {
+                table[j * ksub + c] = -Distances.ip(query, offset + j * dsub, codebooks, book + c * dsub, dsub);
+            }
+        }
+    }
+
+    /**
+     * Computes the asymmetric distance of an encoded vector from a lookup table.
+     */
+    public float adc(float[] table, byte[] codes, int codeOffset) {
+        float sum = 0f;
+        for (int j = 0; j < m; j++) {
+            sum += table[j * ksub + (codes[codeOffset + j] & 0xff)];
+        }
+        return sum;
+    }
+
+    public long memoryBytes() {
+        return codebooks == null ? 0L : 4L * codebooks.length;
+    }
+
+    private void checkTrained() {
+        if (codebooks == null) {
+            throw new IllegalStateException("Product quantizer is not trained");
+        }
+    }
+}
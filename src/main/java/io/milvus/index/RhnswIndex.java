@@ -0,0 +1,210 @@
+package io.milvus.index;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import io.milvus.common.PagedBuffer;
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A refined HNSW index: the graph is built and traversed on compressed vectors, and the best candidates are then
+ * re-scored with full-precision vectors.
+ * <p>
+ * <code>RHNSW_FLAT</code> keeps full-precision vectors in the graph and needs no refinement.
+ * <code>RHNSW_SQ</code> keeps SQ8 codes (one byte per dimension) and <code>RHNSW_PQ</code> keeps PQ codes
+ * (<code>m</code> bytes per vector, defaults to a quarter of the dimension). For these two, the raw vectors are
+ * written to a file that is memory-mapped rather than held on the heap, so only the pages touched by the refine
+ * stage become resident.
+ * <p>
+ * Build parameters: those of {@link HnswIndex}, plus <code>m</code> for <code>RHNSW_PQ</code>. Search parameters:
+ * <code>ef</code> and <code>refine_factor</code>; the best <code>topK * refine_factor</code> graph candidates are
+ * re-scored, or all <code>ef</code> candidates when no refine factor is given.
+ */
+public class RhnswIndex implements FloatVectorIndex {
+    private static final int PQ_NBITS = 8;
+
+    private final IndexType indexType;
+    private final int dim;
+    private final MetricType metricType;
+    private final IndexParams buildParams;
+    private final int pqM;
+    private final Path file;
+
+    private HnswIndex graph;
+    private PagedBuffer raw;
+
+    /**
+     * Creates an index that spills raw vectors to a temporary file.
+     */
+    public RhnswIndex(IndexType indexType, int dim, MetricType metricType, IndexParams buildParams) {
+        this(indexType, dim, metricType, buildParams, null);
+    }
+
+    /**
+     * Creates an index that spills raw vectors to the given file, which is overwritten on build.
+     */
+    public RhnswIndex(IndexType indexType, int dim, MetricType metricType, IndexParams buildParams, Path file) {
+        Distances.checkFloatMetric(metricType);
+        if (indexType != IndexType.RHNSW_FLAT && indexType != IndexType.RHNSW_SQ
+                && indexType != IndexType.RHNSW_PQ) {
+            throw new IllegalArgumentException("Not a refined HNSW index type: " + indexType);
+        }
+        this.indexType = indexType;
+        this.dim = dim;
+        this.metricType = metricType;
+        this.buildParams = buildParams;
+        this.pqM = buildParams.getInt(IndexParams.PQ_M, dim % 4 == 0 ? dim / 4 : dim);
+        if (indexType == IndexType.RHNSW_PQ && (pqM <= 0 || dim % pqM != 0)) {
+            throw new IllegalArgumentException("Dimension " + dim + " is not divisible by m: " + pqM);
+        }
+        this.file = file;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    @Override
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    @Override
+    public int getDimension() {
+        return dim;
+    }
+
+    @Override
+    public int size() {
+        return graph == null ? 0 : graph.size();
+    }
+
+    /**
+     * Returns the heap memory of the graph and its compressed vectors. The mapped raw vectors are not counted.
+     */
+    @Override
+    public long memoryBytes() {
+        return graph == null ? 0L : graph.memoryBytes();
+    }
+
+    /**
+     * Returns the size of the memory-mapped raw-vector file.
+     *
+     * @return <code>long</code>
+     */
+    public long mappedBytes() {
+        return raw == null ? 0L : raw.byteSize();
+    }
+
+    @Override
+    public void build(float[] vectors, int count) {
+        if (graph != null) {
+            throw new IllegalStateException("Index is already built");
+        }
+        if (vectors.length < count * dim) {
+            throw new IllegalArgumentException("Expected " + count * dim + " floats, got: " + vectors.length);
+        }
+        HnswStorage storage;
+        switch (indexType) {
+            case RHNSW_SQ:
+                storage = new HnswStorage.Sq8(ScalarQuantizer.train(vectors, count, dim), metricType);
+                break;
+            case RHNSW_PQ:
+                storage = new HnswStorage.Pq(trainPq(vectors, count), metricType);
+                break;
+            default:
+                storage = new HnswStorage.Flat(dim, metricType);
+                break;
+        }
+        if (indexType != IndexType.RHNSW_FLAT) {
+            raw = spill(vectors, count);
+        }
+        HnswIndex built = new HnswIndex(dim, metricType, buildParams, storage);
+        built.insertAll(vectors, count);
+        graph = built;
+    }
+
+    private ProductQuantizer trainPq(float[] vectors, int count) {
+        ProductQuantizer pq = new ProductQuantizer(dim, pqM, PQ_NBITS);
+        Random random = new Random(count);
+        int[] sample = KMeans.sample(count, Math.min(count, pq.getKsub() * KMeans.MAX_POINTS_PER_CENTROID), random);
+        float[] points = new float[sample.length * dim];
+        for (int i = 0; i < sample.length; i++) {
+            System.arraycopy(vectors, sample[i] * dim, points, i * dim, dim);
+        }
+        pq.train(points, sample.length, random);
+        return pq;
+    }
+
+    private PagedBuffer spill(float[] vectors, int count) {
+        Path path = file != null ? file : temporaryFile();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            PagedBuffer buffer = PagedBuffer.map(channel, FileChannel.MapMode.READ_WRITE, 0L, count, 4 * dim);
+            IntStream.range(0, count).parallel().forEach(i -> {
+                for (int d = 0; d < dim; d++) {
+                    buffer.putFloat(i, 4 * d, vectors[i * dim + d]);
+                }
+            });
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path temporaryFile() {
+        try {
+            Path path = Files.createTempFile("rhnsw", ".raw");
+            path.toFile().deleteOnExit();
+            return path;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams) {
+        return search(query, topK, searchParams, null);
+    }
+
+    @Override
+    public SearchResult search(float[] query, int topK, IndexParams searchParams, RowBitmap excluded) {
+        if (graph == null || graph.size() == 0) {
+            return SearchResult.empty();
+        }
+        int ef = Math.max(topK, searchParams.getInt(IndexParams.EF, HnswIndex.DEFAULT_EF));
+        if (raw == null) {
+            return graph.search(query, topK, searchParams, excluded);
+        }
+        int refine = ef;
+        if (searchParams.contains(IndexParams.REFINE_FACTOR)) {
+            int factor = searchParams.getInt(IndexParams.REFINE_FACTOR, 1);
+            if (factor <= 0) {
+                throw new IllegalArgumentException("refine_factor must be positive, got: " + factor);
+            }
+            refine = (int) Math.min(Integer.MAX_VALUE, (long) topK * factor);
+            ef = Math.max(ef, refine);
+        }
+        TopKHeap candidates = graph.searchCandidates(query, ef, excluded);
+        while (candidates.size() > refine) {
+            candidates.poll();
+        }
+        TopKHeap results = new TopKHeap(topK);
+        while (candidates.size() > 0) {
+            int id = candidates.poll();
+            ByteBuffer chunk = raw.chunk(id);
+            results.offer(id, Distances.distance(metricType, query, chunk, raw.offset(id), dim));
+        }
+        return results.toResult(metricType);
+    }
+}
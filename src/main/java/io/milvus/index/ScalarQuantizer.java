@@ -0,0 +1,121 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+
+/**
+ * An 8-bit scalar quantizer (SQ8) that maps each dimension linearly from its trained <code>[min, max]</code>
+ * range onto one byte, cutting vector memory by four.
+ */
+public final class ScalarQuantizer {
+    private final int dim;
+    private final float[] min;
+    private final float[] step;
+
+    private ScalarQuantizer(int dim, float[] min, float[] step) {
+        this.dim = dim;
+        this.min = min;
+        this.step = step;
+    }
+
+    /**
+     * Trains the per-dimension ranges.
+     *
+     * @param vectors Row-major training vectors.
+     * @param count The number of training vectors.
+     * @param dim The number of dimensions.
+     * @return {@link ScalarQuantizer}
+     */
+    public static ScalarQuantizer train(float[] vectors, int count, int dim) {
+        float[] min = new float[dim];
+        float[] max = new float[dim];
+        Arrays.fill(min, Float.POSITIVE_INFINITY);
+        Arrays.fill(max, Float.NEGATIVE_INFINITY);
+        for (int i = 0; i < count; i++) {
+            for (int d = 0; d < dim; d++) {
+                float v = vectors[i * dim + d];
+                min[d] = Math.min(min[d], v);
+                max[d] = Math.max(max[d], v);
+            }
+        }
+        float[] step = new float[dim];
+        for (int d = 0; d < dim; d++) {
+            if (count == 0) {
+                min[d] = 0f;
+                max[d] = 0f;
+            }
+            step[d] = (max[d] - min[d]) / 255f;
+        }
+        return new ScalarQuantizer(dim, min, step);
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    /**
+     * Encodes one vector into <code>dim</code> bytes.
+     */
+    public void encode(float[] vector, int offset, byte[] codes, int codeOffset) {
+        for (int d = 0; d < dim; d++) {
+            int code = step[d] == 0f ? 0 : Math.round((vector[offset + d] - min[d]) / step[d]);
+            codes[codeOffset + d] = (byte) Math.max(0, Math.min(255, code));
+        }
+    }
+
+    /**
+     * Returns the decoded value of one dimension.
+     */
+    public float decode(byte code, int d) {
+        return min[d] + (code & 0xff) * step[d];
+    }
+
+    /**
+     * Returns the squared Euclidean distance between a float query and an encoded vector.
+     */
+    public float l2(float[] query, int offset, byte[] codes, int codeOffset) {
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            float diff = query[offset + d] - (min[d] + (codes[codeOffset + d] & 0xff) * step[d]);
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the inner product of a float query and an encoded vector.
+     */
+    public float ip(float[] query, int offset, byte[] codes, int codeOffset) {
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            sum += query[offset + d] * (min[d] + (codes[codeOffset + d] & 0xff) * step[d]);
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two encoded vectors.
+     */
+    public float l2(byte[] a, int aOffset, byte[] b, int bOffset) {
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            float diff = ((a[aOffset + d] & 0xff) - (b[bOffset + d] & 0xff)) * step[d];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+
+    /**
+     * Returns the inner product of two encoded vectors.
+     */
+    public float ip(byte[] a, int aOffset, byte[] b, int bOffset) {
+        float sum = 0f;
+        for (int d = 0; d < dim; d++) {
+            sum += decode(a[aOffset + d], d) * decode(b[bOffset + d], d);
+        }
+        return sum;
+    }
+
+    public long memoryBytes() {
+        return 8L * dim;
+    }
+}
@@ -0,0 +1,96 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+import io.milvus.common.RowBitmap;
+
+/**
+ * Holds the IDs and distances returned by a {@link VectorIndex} search, sorted from the most to the least similar.
+ */
+public final class SearchResult {
+    private static final SearchResult EMPTY = new SearchResult(new int[0], new float[0]);
+
+    private final int[] ids;
+    private final float[] distances;
+
+    public SearchResult(int[] ids, float[] distances) {
+        if (ids.length != distances.length) {
+            throw new IllegalArgumentException("ids and distances must have the same length");
+        }
+        this.ids = ids;
+        this.distances = distances;
+    }
+
+    public static SearchResult empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Searches for more and more results until <code>topK</code> of them are not excluded, for indexes that cannot
+     * skip IDs while they search. The number of results asked for doubles from <code>2 * topK</code> and never
+     * exceeds <code>topK</code> plus the number of excluded IDs, which is enough for an exact index.
+     *
+     * @param search Runs the search for a number of results.
+     * @param topK The number of results to return.
+     * @param size The number of vectors in the index.
+     * @param excluded The IDs to leave out.
+     * @return {@link SearchResult}
+     */
+    static SearchResult excluding(IntFunction<SearchResult> search, int topK, int size, RowBitmap excluded) {
+        int limit = (int) Math.min(size, (long) topK + excluded.cardinality());
+        int k = (int) Math.min(limit, 2L * topK);
+        while (true) {
+            SearchResult result = search.apply(Math.max(k, 1));
+            int[] ids = new int[Math.min(topK, result.size())];
+            float[] distances = new float[ids.length];
+            int n = 0;
+            for (int i = 0; i < result.size() && n < ids.length; i++) {
+                if (!excluded.contains(result.ids[i])) {
+                    ids[n] = result.ids[i];
+                    distances[n++] = result.distances[i];
+                }
+            }
+            if (n == ids.length || k >= limit || result.size() < k) {
+                return new SearchResult(Arrays.copyOf(ids, n), Arrays.copyOf(distances, n));
+            }
+            k = (int) Math.min(limit, 2L * k);
+        }
+    }
+
+    /**
+     * Returns the IDs of the results.
+     *
+     * @return <code>int[]</code>
+     */
+    public int[] getIds() {
+        return ids;
+    }
+
+    /**
+     * Returns the distances of the results. For <code>IP</code> the values are inner products, so a larger value
+     * means a closer match; for other metrics a smaller value means a closer match.
+     *
+     * @return <code>float[]</code>
+     */
+    public float[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Returns the number of results.
+     *
+     * @return <code>int</code>
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{" +
+                "ids=" + Arrays.toString(ids) +
+                ", distances=" + Arrays.toString(distances) +
+                '}';
+    }
+}
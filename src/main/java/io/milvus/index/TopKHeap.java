@@ -0,0 +1,141 @@
+package io.milvus.index;
+
+import io.milvus.common.enums.MetricType;
+
+/**
+ * A bounded max-heap over primitive (distance, id) pairs that keeps the <code>k</code> smallest distances.
+ * Instances are reusable through {@link #clear()} so hot search loops do not allocate.
+ */
+public final class TopKHeap {
+    private final int capacity;
+    private final float[] distances;
+    private final int[] ids;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.distances = new float[capacity];
+        this.ids = new int[capacity];
+    }
+
+    /**
+     * Offers a candidate to the heap.
+     *
+     * @param id The candidate ID.
+     * @param distance The candidate distance, smaller is better.
+     * @return <code>true</code> if the candidate was kept.
+     */
+    public boolean offer(int id, float distance) {
+        if (size < capacity) {
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distance) {
+                    break;
+                }
+                distances[i] = distances[parent];
+                ids[i] = ids[parent];
+                i = parent;
+            }
+            distances[i] = distance;
+            ids[i] = id;
+            return true;
+        }
+        if (distance >= distances[0]) {
+            return false;
+        }
+        siftDown(id, distance);
+        return true;
+    }
+
+    /**
+     * Removes the entry with the largest distance.
+     *
+     * @return The ID of the removed entry.
+     */
+    public int poll() {
+        if (size == 0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        int top = ids[0];
+        size--;
+        if (size > 0) {
+            siftDown(ids[size], distances[size]);
+        }
+        return top;
+    }
+
+    private void siftDown(int id, float distance) {
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && distances[right] > distances[child]) {
+                child = right;
+            }
+            if (distance >= distances[child]) {
+                break;
+            }
+            distances[i] = distances[child];
+            ids[i] = ids[child];
+            i = child;
+        }
+        distances[i] = distance;
+        ids[i] = id;
+    }
+
+    /**
+     * Returns the largest kept distance, or positive infinity while the heap is not full.
+     *
+     * @return <code>float</code>
+     */
+    public float threshold() {
+        return size < capacity ? Float.POSITIVE_INFINITY : distances[0];
+    }
+
+    public float peekDistance() {
+        return distances[0];
+    }
+
+    public int peekId() {
+        return ids[0];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Drains the heap into a {@link SearchResult} sorted by ascending distance, converting internal distances
+     * back to the scores reported for the given metric.
+     *
+     * @param metricType The metric the distances were computed with.
+     * @return {@link SearchResult}
+     */
+    public SearchResult toResult(MetricType metricType) {
+        int n = size;
+        int[] outIds = new int[n];
+        float[] outDistances = new float[n];
+        for (int i = n - 1; i >= 0; i--) {
+            outDistances[i] = Distances.toScore(metricType, distances[0]);
+            outIds[i] = poll();
+        }
+        return new SearchResult(outIds, outDistances);
+    }
+}
@@ -0,0 +1,45 @@
+package io.milvus.index;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * An abstract interface that represents an in-process vector index.
+ */
+public interface VectorIndex {
+
+    /**
+     * Returns the type of this index.
+     *
+     * @return {@link IndexType}
+     */
+    IndexType getIndexType();
+
+    /**
+     * Returns the metric used to compare vectors in this index.
+     *
+     * @return {@link MetricType}
+     */
+    MetricType getMetricType();
+
+    /**
+     * Returns the number of dimensions of the indexed vectors.
+     *
+     * @return <code>int</code>
+     */
+    int getDimension();
+
+    /**
+     * Returns the number of vectors in this index.
+     *
+     * @return <code>int</code>
+     */
+    int size();
+
+    /**
+     * Returns an estimate of the heap memory held by this index, in bytes.
+     *
+     * @return <code>long</code>
+     */
+    long memoryBytes();
+}
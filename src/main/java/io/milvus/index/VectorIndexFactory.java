@@ -0,0 +1,92 @@
+package io.milvus.index;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.param.index.CreateIndexParam;
+
+/**
+ * Creates in-process vector indexes from index types and build parameters.
+ */
+public final class VectorIndexFactory {
+
+    private VectorIndexFactory() {}
+
+    /**
+     * Creates an empty index described by a {@link CreateIndexParam}.
+     *
+     * @param param The index type, metric type and extra parameters of the index.
+     * @param dim The number of dimensions of the indexed field.
+     * @return {@link FloatVectorIndex}
+     */
+    public static FloatVectorIndex create(CreateIndexParam param, int dim) {
+        return create(param.getIndexType(), param.getMetricType(), dim, IndexParams.of(param.getExtraParam()));
+    }
+
+    /**
+     * Creates an empty float vector index.
+     *
+     * @throws IllegalArgumentException if the index type is not supported for float vectors.
+     */
+    public static FloatVectorIndex create(IndexType indexType, MetricType metricType, int dim, IndexParams params) {
+        if (dim <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive, got: " + dim);
+        }
+        switch (indexType) {
+            case FLAT:
+                return new FlatIndex(dim, metricType);
+            case IVF_FLAT:
+                return new IvfFlatIndex(dim, metricType, params);
+            case IVF_SQ8:
+                return new IvfSq8Index(dim, metricType, params);
+            case IVF_PQ:
+                return new IvfPqIndex(dim, metricType, params);
+            case HNSW:
+                return new HnswIndex(dim, metricType, params);
+            case RHNSW_FLAT:
+            case RHNSW_SQ:
+            case RHNSW_PQ:
+                return new RhnswIndex(indexType, dim, metricType, params);
+            case ANNOY:
+                return new AnnoyIndex(dim, metricType, params);
+            case DISKANN:
+                return new DiskAnnIndex(dim, metricType, params);
+            case AUTOINDEX:
+                return new AutoIndex.FloatIndex(dim, metricType, params);
+            default:
+                throw new IllegalArgumentException("Index type " + indexType + " is not supported for float vectors");
+        }
+    }
+
+    /**
+     * Creates an empty binary vector index described by a {@link CreateIndexParam}.
+     *
+     * @param param The index type, metric type and extra parameters of the index.
+     * @param dim The number of bits of the indexed field.
+     * @return {@link BinaryVectorIndex}
+     */
+    public static BinaryVectorIndex createBinary(CreateIndexParam param, int dim) {
+        return createBinary(param.getIndexType(), param.getMetricType(), dim, IndexParams.of(param.getExtraParam()));
+    }
+
+    /**
+     * Creates an empty binary vector index.
+     *
+     * @throws IllegalArgumentException if the index type is not supported for binary vectors.
+     */
+    public static BinaryVectorIndex createBinary(IndexType indexType, MetricType metricType, int dim,
+                                                 IndexParams params) {
+        if (dim <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive, got: " + dim);
+        }
+        switch (indexType) {
+            case BIN_FLAT:
+                return new BinFlatIndex(dim, metricType);
+            case BIN_IVF_FLAT:
+                return new BinIvfFlatIndex(dim, metricType, params);
+            case AUTOINDEX:
+                return new AutoIndex.BinaryIndex(dim, metricType, params);
+            default:
+                throw new IllegalArgumentException("Index type " + indexType + " is not supported for binary vectors");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+
+/**
+ * A reusable bitset of visited node IDs. Only the words touched since the last {@link #clear()} are reset, so
+ * clearing costs time proportional to the nodes visited rather than to the size of the graph.
+ */
+final class VisitedSet {
+    private long[] words;
+    private int[] dirty;
+    private int dirtyCount;
+
+    VisitedSet(int capacity) {
+        this.words = new long[Math.max(1, (capacity + 63) >>> 6)];
+        this.dirty = new int[16];
+    }
+
+    /**
+     * Marks an ID as visited.
+     *
+     * @return <code>true</code> if the ID was not visited before.
+     */
+    boolean add(int id) {
+        int w = id >>> 6;
+        if (w >= words.length) {
+            words = Arrays.copyOf(words, Math.max(w + 1, words.length * 2));
+        }
+        long bit = 1L << id;
+        long word = words[w];
+        if ((word & bit) != 0) {
+            return false;
+        }
+        if (word == 0) {
+            if (dirtyCount == dirty.length) {
+                dirty = Arrays.copyOf(dirty, dirtyCount * 2);
+            }
+            dirty[dirtyCount++] = w;
+        }
+        words[w] = word | bit;
+        return true;
+    }
+
+    boolean contains(int id) {
+        int w = id >>> 6;
+        return w < words.length && (words[w] & (1L << id)) != 0;
+    }
+
+    void clear() {
+        for (int i = 0; i < dirtyCount; i++) {
+            words[dirty[i]] = 0L;
+        }
+        dirtyCount = 0;
+    }
+}
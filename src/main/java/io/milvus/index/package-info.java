@@ -0,0 +1,7 @@
+/**
+ * Provides in-process implementations of the vector and scalar indexes listed in
+ * {@link io.milvus.common.enums.IndexType}.
+ * 
+ * @since 2.3.0
+ */
+package io.milvus.index;
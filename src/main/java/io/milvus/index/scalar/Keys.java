@@ -0,0 +1,134 @@
+package io.milvus.index.scalar;
+
+/**
+ * The sorted distinct values of a {@link ScalarIndex}, found by binary search.
+ */
+abstract class Keys {
+
+    abstract int size();
+
+    abstract long memoryBytes();
+
+    /**
+     * Returns the rank of the first value at least <code>key</code>, or greater than it if <code>after</code>.
+     */
+    int from(long key, boolean after) {
+        throw new IllegalArgumentException("Index of a VARCHAR field cannot look up a number");
+    }
+
+    /**
+     * Returns the rank of the first value at least <code>key</code>, or greater than it if <code>after</code>.
+     */
+    int from(byte[] key, boolean after) {
+        throw new IllegalArgumentException("Index of a numeric field cannot look up a string");
+    }
+
+    /**
+     * Compares UTF-8 strings byte by byte as unsigned values, which orders them by code point.
+     */
+    static int compare(byte[] a, byte[] b) {
+        int n = Math.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = (a[i] & 0xFF) - (b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return a.length - b.length;
+    }
+
+    static final class Longs extends Keys {
+        private final long[] values;
+
+        Longs(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        int size() {
+            return values.length;
+        }
+
+        @Override
+        long memoryBytes() {
+            return 8L * values.length;
+        }
+
+        @Override
+        int from(long key, boolean after) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (values[middle] < key || after && values[middle] == key) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * UTF-8 values back to back in one array, with the end offset of each.
+     */
+    static final class Utf8 extends Keys {
+        private final byte[] bytes;
+        private final int[] ends;
+
+        Utf8(byte[][] values) {
+            int total = 0;
+            for (byte[] value : values) {
+                total += value.length;
+            }
+            bytes = new byte[total];
+            ends = new int[values.length];
+            int position = 0;
+            for (int i = 0; i < values.length; i++) {
+                System.arraycopy(values[i], 0, bytes, position, values[i].length);
+                position += values[i].length;
+                ends[i] = position;
+            }
+        }
+
+        @Override
+        int size() {
+            return ends.length;
+        }
+
+        @Override
+        long memoryBytes() {
+            return bytes.length + 4L * ends.length;
+        }
+
+        @Override
+        int from(byte[] key, boolean after) {
+            int low = 0;
+            int high = ends.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                int c = compareAt(middle, key);
+                if (c < 0 || after && c == 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int compareAt(int rank, byte[] key) {
+            int start = rank == 0 ? 0 : ends[rank - 1];
+            int length = ends[rank] - start;
+            int n = Math.min(length, key.length);
+            for (int i = 0; i < n; i++) {
+                int c = (bytes[start + i] & 0xFF) - (key[i] & 0xFF);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return length - key.length;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package io.milvus.index.scalar;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import io.milvus.common.enums.IndexType;
+
+/**
+ * An index over a scalar column of a sealed segment that finds the rows holding a range of values without reading
+ * the column. The distinct values are kept sorted, so a range is two binary searches away from the rows it holds,
+ * and {@link #count(long, long)} gives the exact number of those rows before any of them is visited: the
+ * selectivity a filter planner weighs the lookup against a scan with.
+ * <p>
+ * Values are keyed as <code>long</code>s for integer fields, as {@link #doubleKey(double)} for <code>FLOAT</code>
+ * and <code>DOUBLE</code> fields, which leaves NaN out, and as UTF-8 bytes in unsigned order, the order of code
+ * points, for <code>VARCHAR</code> fields. Two layouts share that lookup:
+ * <ul>
+ *     <li>{@link SortedIndex} (<code>STL_SORT</code>): all row offsets in one <code>int[]</code> sorted by value,
+ *     so a range is one contiguous slice. It suits fields with many distinct values, such as timestamps.</li>
+ *     <li>{@link InvertedIndex} (<code>INVERTED</code>): one compressed {@link io.milvus.common.RowBitmap} per
+ *     distinct value. It suits fields with few distinct values, whose rows it stores in far less memory.</li>
+ *     <li>{@link TrieIndex} (<code>TRIE</code>, <code>VARCHAR</code> only): the rows of a sorted index, with the
+ *     distinct values in a trie. It suits values with long shared prefixes.</li>
+ * </ul>
+ * <code>AUTOINDEX</code> builds an inverted index if the segment has at most one distinct value per
+ * {@value #AUTO_ROWS_PER_VALUE} rows, and a sorted index otherwise.
+ */
+public abstract class ScalarIndex {
+    static final int AUTO_ROWS_PER_VALUE = 64;
+
+    final Keys keys;
+    final int rowCount;
+
+    ScalarIndex(Keys keys, int rowCount) {
+        this.keys = keys;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Builds an index of the values of an integer field, one per row.
+     *
+     * @param indexType <code>STL_SORT</code>, <code>INVERTED</code> or <code>AUTOINDEX</code>.
+     * @return {@link ScalarIndex}
+     */
+    public static ScalarIndex build(IndexType indexType, long[] values) {
+        return build(indexType, values, null, values.length);
+    }
+
+    /**
+     * Builds an index of the values of a <code>FLOAT</code> or <code>DOUBLE</code> field, one per row. NaN values
+     * are not indexed: no range holds them.
+     *
+     * @param indexType <code>STL_SORT</code>, <code>INVERTED</code> or <code>AUTOINDEX</code>.
+     * @return {@link ScalarIndex}
+     */
+    public static ScalarIndex build(IndexType indexType, double[] values) {
+        long[] keys = new long[values.length];
+        int[] rows = new int[values.length];
+        int n = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (!Double.isNaN(values[row])) {
+                keys[n] = doubleKey(values[row]);
+                rows[n++] = row;
+            }
+        }
+        if (n == values.length) {
+            return build(indexType, keys, null, values.length);
+        }
+        return build(indexType, Arrays.copyOf(keys, n), Arrays.copyOf(rows, n), values.length);
+    }
+
+    /**
+     * Builds an index of the values of a <code>VARCHAR</code> field, one per row.
+     *
+     * @param indexType <code>STL_SORT</code>, <code>INVERTED</code>, <code>TRIE</code> or <code>AUTOINDEX</code>.
+     * @return {@link ScalarIndex}
+     */
+    public static ScalarIndex build(IndexType indexType, List<String> values) {
+        return build(indexType, values.size(), row -> values.get(row).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Builds an index of the values of a <code>VARCHAR</code> field from their UTF-8 bytes, which are asked for once
+     * per row, in row order, and never decoded.
+     *
+     * @param indexType <code>STL_SORT</code>, <code>INVERTED</code>, <code>TRIE</code> or <code>AUTOINDEX</code>.
+     * @param utf8 The UTF-8 bytes of a row; the index keeps the arrays of distinct values.
+     * @return {@link ScalarIndex}
+     */
+    public static ScalarIndex build(IndexType indexType, int rowCount, IntFunction<byte[]> utf8) {
+        // ByteBuffer hashes and compares by content
+        Map<ByteBuffer, RowList> groups = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            groups.computeIfAbsent(ByteBuffer.wrap(utf8.apply(row)), v -> new RowList()).add(row);
+        }
+        byte[][] distinct = new byte[groups.size()][];
+        RowList[] lists = new RowList[distinct.length];
+        int d = 0;
+        for (Map.Entry<ByteBuffer, RowList> entry : groups.entrySet()) {
+            distinct[d] = entry.getKey().array();
+            lists[d++] = entry.getValue();
+        }
+        Integer[] order = new Integer[distinct.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Keys.compare(distinct[a], distinct[b]));
+        byte[][] sortedKeys = new byte[distinct.length][];
+        int[] starts = new int[distinct.length + 1];
+        int[] rows = new int[rowCount];
+        for (int k = 0; k < order.length; k++) {
+            RowList list = lists[order[k]];
+            sortedKeys[k] = distinct[order[k]];
+            System.arraycopy(list.rows, 0, rows, starts[k], list.size);
+            starts[k + 1] = starts[k] + list.size;
+        }
+        if (indexType == IndexType.TRIE) {
+            return new TrieIndex(sortedKeys, starts, rows, rowCount);
+        }
+        return create(indexType, new Keys.Utf8(sortedKeys), starts, rows, rowCount);
+    }
+
+    /**
+     * Groups the rows by key with a counting sort over the sorted distinct keys, keeping the rows of a key in
+     * ascending order.
+     *
+     * @param rowIds The row of each key, or <code>null</code> if key <code>i</code> belongs to row <code>i</code>.
+     */
+    private static ScalarIndex build(IndexType indexType, long[] keys, int[] rowIds, int rowCount) {
+        long[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        long[] values = Arrays.copyOf(sorted, distinct);
+        int[] ranks = new int[keys.length];
+        int[] starts = new int[distinct + 1];
+        for (int i = 0; i < keys.length; i++) {
+            ranks[i] = Arrays.binarySearch(values, keys[i]);
+            starts[ranks[i] + 1]++;
+        }
+        for (int k = 0; k < distinct; k++) {
+            starts[k + 1] += starts[k];
+        }
+        int[] next = Arrays.copyOf(starts, distinct);
+        int[] rows = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            rows[next[ranks[i]]++] = rowIds == null ? i : rowIds[i];
+        }
+        return create(indexType, new Keys.Longs(values), starts, rows, rowCount);
+    }
+
+    private static ScalarIndex create(IndexType indexType, Keys keys, int[] starts, int[] rows, int rowCount) {
+        if (indexType == IndexType.AUTOINDEX) {
+            indexType = (long) keys.size() * AUTO_ROWS_PER_VALUE <= rows.length ? IndexType.INVERTED
+                    : IndexType.STL_SORT;
+        }
+        switch (indexType) {
+            case STL_SORT:
+                return new SortedIndex(keys, starts, rows, rowCount);
+            case INVERTED:
+                return new InvertedIndex(keys, starts, rows, rowCount);
+            case TRIE:
+                throw new IllegalArgumentException("Index type TRIE only applies to VARCHAR fields");
+            default:
+                throw new IllegalArgumentException("Index type " + indexType + " does not apply to scalar fields");
+        }
+    }
+
+    /**
+     * Returns the key of a <code>double</code>: its bits, with the magnitude bits of negative values flipped so
+     * that keys compare as signed <code>long</code>s in the order of the values. <code>-0.0</code> has the key of
+     * <code>0.0</code>.
+     *
+     * @return <code>long</code>
+     */
+    public static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value + 0d);
+        return bits ^ (bits >> 63 & Long.MAX_VALUE);
+    }
+
+    public abstract IndexType getIndexType();
+
+    /**
+     * Returns the number of rows of the indexed segment.
+     *
+     * @return <code>int</code>
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of distinct indexed values.
+     *
+     * @return <code>int</code>
+     */
+    public int getValueCount() {
+        return keys.size();
+    }
+
+    public abstract long memoryBytes();
+
+    /**
+     * Returns the number of rows whose key is in <code>[lower, upper]</code>.
+     *
+     * @return <code>int</code>
+     */
+    public int count(long lower, long upper) {
+        return lower > upper ? 0 : count(keys.from(lower, false), keys.from(upper, true));
+    }
+
+    /**
+     * Sets the bits of the rows whose key is in <code>[lower, upper]</code> in words of 64 rows.
+     */
+    public void select(long lower, long upper, long[] words) {
+        if (lower <= upper) {
+            select(keys.from(lower, false), keys.from(upper, true), words);
+        }
+    }
+
+    /**
+     * Returns the number of rows whose UTF-8 value lies between two bounds.
+     *
+     * @param lower The lower bound, or <code>null</code> for none.
+     * @param upper The upper bound, or <code>null</code> for none.
+     * @return <code>int</code>
+     */
+    public int count(byte[] lower, boolean lowerInclusive, byte[] upper, boolean upperInclusive) {
+        int from = lower == null ? 0 : keys.from(lower, !lowerInclusive);
+        int to = upper == null ? keys.size() : keys.from(upper, upperInclusive);
+        return from < to ? count(from, to) : 0;
+    }
+
+    /**
+     * Sets the bits of the rows whose UTF-8 value lies between two bounds in words of 64 rows.
+     *
+     * @param lower The lower bound, or <code>null</code> for none.
+     * @param upper The upper bound, or <code>null</code> for none.
+     */
+    public void select(byte[] lower, boolean lowerInclusive, byte[] upper, boolean upperInclusive, long[] words) {
+        int from = lower == null ? 0 : keys.from(lower, !lowerInclusive);
+        int to = upper == null ? keys.size() : keys.from(upper, upperInclusive);
+        if (from < to) {
+            select(from, to, words);
+        }
+    }
+
+    /**
+     * Returns the number of rows of the distinct values of ranks <code>[from, to)</code>.
+     */
+    abstract int count(int from, int to);
+
+    /**
+     * Sets the bits of the rows of the distinct values of ranks <code>[from, to)</code>.
+     */
+    abstract void select(int from, int to, long[] words);
+
+    private static final class RowList {
+        int[] rows = new int[2];
+        int size;
+
+        void add(int row) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+            }
+            rows[size++] = row;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package io.milvus.index.scalar;
+
+import io.milvus.common.enums.IndexType;
+
+/**
+ * An <code>STL_SORT</code> index: the row offsets of a segment sorted by value, ascending within a value, with the
+ * start of each distinct value. The rows of a range of values are one contiguous slice, so a lookup costs two
+ * binary searches plus one step per matching row, and the index takes 4 bytes per row plus 12 per distinct value.
+ */
+public final class SortedIndex extends ScalarIndex {
+    private final int[] starts;
+    private final int[] rows;
+
+    SortedIndex(Keys keys, int[] starts, int[] rows, int rowCount) {
+        super(keys, rowCount);
+        this.starts = starts;
+        this.rows = rows;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.STL_SORT;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return keys.memoryBytes() + 4L * (starts.length + rows.length);
+    }
+
+    @Override
+    int count(int from, int to) {
+        return starts[to] - starts[from];
+    }
+
+    @Override
+    void select(int from, int to, long[] words) {
+        int[] rows = this.rows;
+        for (int i = starts[from], end = starts[to]; i < end; i++) {
+            int row = rows[i];
+            words[row >>> 6] |= 1L << row;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package io.milvus.index.scalar;
+
+import java.util.Arrays;
+
+import io.milvus.common.enums.IndexType;
+
+/**
+ * A <code>TRIE</code> index over a <code>VARCHAR</code> column: the distinct values in a byte-wise trie instead of
+ * a packed sorted array, with the row offsets of the segment sorted by value as in {@link SortedIndex}.
+ * <p>
+ * The trie is array-encoded in breadth-first order over the UTF-8 bytes of the values: node <code>i</code> has the
+ * edge label <code>labels[i]</code> and its children occupy the contiguous node range
+ * <code>[childStart[i], childStart[i + 1])</code>, sorted by unsigned label so that a child is found by binary
+ * search. Since the values under a node share its prefix, they are a contiguous range of ranks, and every node
+ * keeps the first rank of its range; a node is terminal when its own value takes that rank. A prefix, an equality
+ * or a range therefore resolves to one contiguous slice of row offsets, like the keys of the other indexes.
+ * <p>
+ * A node costs 9 bytes, and there is one node per byte of every value past the prefix it shares with the values
+ * sorted before it. Values with long shared prefixes, such as paths or tags with a namespace, take less memory
+ * than the packed values of <code>STL_SORT</code>; long values that differ early take more.
+ */
+public final class TrieIndex extends ScalarIndex {
+    private final int[] starts;
+    private final int[] rows;
+
+    TrieIndex(byte[][] values, int[] starts, int[] rows, int rowCount) {
+        super(new Trie(values), rowCount);
+        this.starts = starts;
+        this.rows = rows;
+    }
+
+    @Override
+    public IndexType getIndexType() {
+        return IndexType.TRIE;
+    }
+
+    /**
+     * Returns the number of nodes of the trie, the root included.
+     *
+     * @return <code>int</code>
+     */
+    public int getNodeCount() {
+        return ((Trie) keys).labels.length;
+    }
+
+    @Override
+    public long memoryBytes() {
+        return keys.memoryBytes() + 4L * (starts.length + rows.length);
+    }
+
+    @Override
+    int count(int from, int to) {
+        return starts[to] - starts[from];
+    }
+
+    @Override
+    void select(int from, int to, long[] words) {
+        int[] rows = this.rows;
+        for (int i = starts[from], end = starts[to]; i < end; i++) {
+            int row = rows[i];
+            words[row >>> 6] |= 1L << row;
+        }
+    }
+
+    /**
+     * The sorted distinct values, found by walking the trie instead of a binary search over the values.
+     */
+    private static final class Trie extends Keys {
+        private final byte[] labels;
+        private final int[] childStart;
+        private final int[] first;
+        private final int size;
+
+        /**
+         * Lays out the trie of values sorted in unsigned byte order. Every queued node covers the contiguous range
+         * of values sharing its prefix, and its children are the runs of that range with the same next byte.
+         */
+        Trie(byte[][] values) {
+            ByteList labels = new ByteList();
+            IntList childStart = new IntList();
+            IntList first = new IntList();
+            IntList rangeTo = new IntList();
+            IntList depth = new IntList();
+
+            labels.add((byte) 0);
+            first.add(0);
+            rangeTo.add(values.length);
+            depth.add(0);
+            for (int node = 0; node < labels.size; node++) {
+                int from = first.get(node);
+                int to = rangeTo.get(node);
+                int d = depth.get(node);
+                childStart.add(labels.size);
+                if (from < to && values[from].length == d) {
+                    // the shortest value sorts first and ends at this node
+                    from++;
+                }
+                while (from < to) {
+                    byte b = values[from][d];
+                    int end = from + 1;
+                    while (end < to && values[end][d] == b) {
+                        end++;
+                    }
+                    labels.add(b);
+                    first.add(from);
+                    rangeTo.add(end);
+                    depth.add(d + 1);
+                    from = end;
+                }
+            }
+            childStart.add(labels.size);
+            this.labels = labels.toArray();
+            this.childStart = childStart.toArray();
+            this.first = first.toArray();
+            this.size = values.length;
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        long memoryBytes() {
+            return labels.length + 4L * (childStart.length + first.length);
+        }
+
+        @Override
+        int from(byte[] key, boolean after) {
+            if (size == 0) {
+                return 0;
+            }
+            int node = 0;
+            for (int i = 0; i < key.length; i++) {
+                // the value of this node, if any, is a proper prefix of the key and sorts before it
+                int c = key[i] & 0xFF;
+                int lo = childStart[node];
+                int hi = childStart[node + 1];
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if ((labels[mid] & 0xFF) < c) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                if (lo == childStart[node + 1]) {
+                    return end(node);
+                }
+                if ((labels[lo] & 0xFF) != c) {
+                    return first[lo];
+                }
+                node = lo;
+            }
+            return after && isTerminal(node) ? first[node] + 1 : first[node];
+        }
+
+        private boolean isTerminal(int node) {
+            int child = childStart[node];
+            return child == childStart[node + 1] || first[child] > first[node];
+        }
+
+        /**
+         * Returns the rank after the last value under a node: that of its last leaf, plus one.
+         */
+        private int end(int node) {
+            while (childStart[node + 1] > childStart[node]) {
+                node = childStart[node + 1] - 1;
+            }
+            return first[node] + 1;
+        }
+    }
+
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int i) {
+            return values[i];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    private static final class ByteList {
+        byte[] values = new byte[16];
+        int size;
+
+        void add(byte value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * Provides in-process indexes over scalar fields that accelerate filter expressions.
+ * 
+ * @since 2.3.0
+ */
+package io.milvus.index.scalar;
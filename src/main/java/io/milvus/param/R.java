@@ -1,6 +1,84 @@
 package io.milvus.param;
 
+/**
+ * Util class to wrap the response of a call. A status of {@link #SUCCESS} means the call succeeded and the data is
+ * set; any other status carries the exception that describes the failure.
+ *
+ * @param <T> The type of the returned data.
+ */
 public class R<T> {
+    public static final int SUCCESS = 0;
+    public static final int UNEXPECTED_ERROR = 1;
+    public static final int ILLEGAL_ARGUMENT = 5;
+
     private Integer status;
     private T data;
+    private Exception exception;
+
+    /**
+     * Wraps a successful result.
+     *
+     * @param data The returned data.
+     * @return {@link R}
+     */
+    public static <T> R<T> success(T data) {
+        R<T> r = new R<>();
+        r.status = SUCCESS;
+        r.data = data;
+        return r;
+    }
+
+    /**
+     * Wraps a failure. {@link IllegalArgumentException} maps to {@link #ILLEGAL_ARGUMENT}, any other exception to
+     * {@link #UNEXPECTED_ERROR}.
+     *
+     * @param exception The cause of the failure.
+     * @return {@link R}
+     */
+    public static <T> R<T> failed(Exception exception) {
+        return failed(exception instanceof IllegalArgumentException ? ILLEGAL_ARGUMENT : UNEXPECTED_ERROR, exception);
+    }
+
+    /**
+     * Wraps a failure with an explicit status.
+     *
+     * @param status A status other than {@link #SUCCESS}.
+     * @param exception The cause of the failure.
+     * @return {@link R}
+     */
+    public static <T> R<T> failed(int status, Exception exception) {
+        R<T> r = new R<>();
+        r.status = status;
+        r.exception = exception;
+        return r;
+    }
+
+    public Integer getStatus() {
+        return status;
+    }
+
+    public T getData() {
+        return data;
+    }
+
+    public Exception getException() {
+        return exception;
+    }
+
+    /**
+     * Returns the failure message, or "Success".
+     *
+     * @return <code>String</code>
+     */
+    public String getMessage() {
+        if (exception != null) {
+            return exception.getMessage();
+        }
+        return status != null && status == SUCCESS ? "Success" : "Unknown status: " + status;
+    }
+
+    @Override
+    public String toString() {
+        return "R{status=" + status + ", message=" + getMessage() + ", data=" + data + '}';
+    }
 }
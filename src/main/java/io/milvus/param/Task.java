@@ -1,5 +1,164 @@
 package io.milvus.param;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A handle on a server-side operation, such as an index build, that may still be running when the call returns.
+ * The task counts the rows it has processed out of a known total, so callers can poll {@link #getProgress()} or
+ * block in {@link #await(long, TimeUnit)} until it completes or fails.
+ * <p>
+ * The engine running the operation reports through {@link #advance(long)}, {@link #complete()} and
+ * {@link #fail(String)}; every method is thread-safe.
+ */
 public class Task {
-    
+    /**
+     * The lifecycle of a task.
+     */
+    public enum State {
+        IN_PROGRESS,
+        COMPLETED,
+        FAILED
+    }
+
+    private final long taskId;
+    private final long totalRows;
+    private final AtomicLong processedRows = new AtomicLong();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile State state = State.IN_PROGRESS;
+    private volatile String failedReason = "";
+
+    /**
+     * Creates a running task.
+     *
+     * @param taskId The identifier of the task.
+     * @param totalRows The number of rows the task will process.
+     */
+    public Task(long taskId, long totalRows) {
+        this.taskId = taskId;
+        this.totalRows = totalRows;
+    }
+
+    /**
+     * Creates a task that already processed all of its rows.
+     *
+     * @param taskId The identifier of the task.
+     * @param rows The number of processed rows.
+     * @return {@link Task}
+     */
+    public static Task completed(long taskId, long rows) {
+        Task task = new Task(taskId, rows);
+        task.advance(rows);
+        task.complete();
+        return task;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    /**
+     * Returns the reason of a failure, or an empty string.
+     *
+     * @return <code>String</code>
+     */
+    public String getFailedReason() {
+        return failedReason;
+    }
+
+    /**
+     * Returns the processed percentage, 100 only once the task has completed.
+     *
+     * @return <code>int</code>
+     */
+    public int getProgress() {
+        if (state == State.COMPLETED) {
+            return 100;
+        }
+        if (totalRows <= 0) {
+            return 0;
+        }
+        return (int) Math.min(99L, processedRows.get() * 100L / totalRows);
+    }
+
+    /**
+     * Returns whether the task has completed or failed.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isDone() {
+        return state != State.IN_PROGRESS;
+    }
+
+    /**
+     * Blocks until the task is done or the timeout elapses.
+     *
+     * @param timeout The maximum time to wait, 0 or less to wait without limit.
+     * @param unit The unit of the timeout.
+     * @return <code>true</code> if the task is done.
+     * @throws InterruptedException if the current thread is interrupted while waiting.
+     */
+    public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (timeout <= 0) {
+            done.await();
+            return true;
+        }
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * Reports newly processed rows.
+     *
+     * @param rows The number of rows processed since the last report.
+     */
+    public void advance(long rows) {
+        processedRows.addAndGet(rows);
+    }
+
+    /**
+     * Marks the task as completed and releases the waiting callers. Does nothing if the task already failed.
+     */
+    public synchronized void complete() {
+        if (state == State.IN_PROGRESS) {
+            state = State.COMPLETED;
+            done.countDown();
+        }
+    }
+
+    /**
+     * Marks the task as failed and releases the waiting callers. Does nothing if the task is already done.
+     *
+     * @param reason The reason of the failure.
+     */
+    public synchronized void fail(String reason) {
+        if (state == State.IN_PROGRESS) {
+            failedReason = reason == null ? "" : reason;
+            state = State.FAILED;
+            done.countDown();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Task{" +
+                "taskId=" + taskId +
+                ", state=" + state +
+                ", processedRows=" + processedRows.get() +
+                ", totalRows=" + totalRows +
+                (state == State.FAILED ? ", failedReason='" + failedReason + '\'' : "") +
+                '}';
+    }
 }
@@ -1,15 +1,115 @@
 package io.milvus.param.collection;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Class used to build the schema of a collection.
  */
 public class CollectionSchema {
+    private final List<FieldType> fieldTypes;
+    private final String description;
 
     /**
      * Constructor of class {@link CollectionSchema}.
      */
     public CollectionSchema() {
-        
+        this(Collections.<FieldType>emptyList(), "");
+    }
+
+    private CollectionSchema(List<FieldType> fieldTypes, String description) {
+        this.fieldTypes = Collections.unmodifiableList(new ArrayList<>(fieldTypes));
+        this.description = description;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the fields of the schema, in declaration order.
+     *
+     * @return <code>List</code>
+     */
+    public List<FieldType> getFieldTypes() {
+        return fieldTypes;
+    }
+
+    /**
+     * Returns the description of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the field with the given name, or <code>null</code>.
+     *
+     * @param name The name of a field.
+     * @return {@link FieldType}
+     */
+    public FieldType getFieldType(String name) {
+        for (FieldType fieldType : fieldTypes) {
+            if (fieldType.getName().equals(name)) {
+                return fieldType;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The builder class for the {@link CollectionSchema} object class.
+     */
+    public static final class Builder {
+        private final List<FieldType> fieldTypes = new ArrayList<>();
+        private String description = "";
+
+        private Builder() {}
+
+        /**
+         * Adds a field to the schema.
+         *
+         * @param fieldType A {@link FieldType} object.
+         * @return The builder object itself.
+         */
+        public Builder addFieldType(FieldType fieldType) {
+            this.fieldTypes.add(fieldType);
+            return this;
+        }
+
+        /**
+         * Sets the fields of the schema.
+         *
+         * @param fieldTypes A list of {@link FieldType} objects.
+         * @return The builder object itself.
+         */
+        public Builder withFieldTypes(List<FieldType> fieldTypes) {
+            this.fieldTypes.clear();
+            this.fieldTypes.addAll(fieldTypes);
+            return this;
+        }
+
+        /**
+         * Specifies the description of the collection.
+         *
+         * @param description A description of the collection.
+         * @return The builder object itself.
+         */
+        public Builder withDescription(String description) {
+            this.description = description;
+            return this;
+        }
+
+        /**
+         * Verifies the input parameters and creates a new {@link CollectionSchema} instance.
+         *
+         * @return {@link CollectionSchema}
+         */
+        public CollectionSchema build() {
+            return new CollectionSchema(fieldTypes, description);
+        }
     }
 }
@@ -26,6 +26,42 @@ public class CreateCollectionParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the schema of the collection.
+     *
+     * @return {@link CollectionSchema}
+     */
+    public CollectionSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return <code>int</code>
+     */
+    public int getNumShards() {
+        return numShards;
+    }
+
+    /**
+     * Returns the consistency level.
+     *
+     * @return {@link ConsistencyLevel}
+     */
+    public ConsistencyLevel getConsistencyLevel() {
+        return consistencyLevel;
+    }
+
     /**
      * The builder class for the {@link CreateCollectionParam} object class.
      */
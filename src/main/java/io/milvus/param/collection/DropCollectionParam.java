@@ -16,6 +16,15 @@ public class DropCollectionParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
     /**
      * The builder class for the {@link DropCollectionParam} object class.
      */
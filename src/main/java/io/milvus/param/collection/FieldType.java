@@ -1,5 +1,6 @@
 package io.milvus.param.collection;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import io.milvus.common.enums.DataType;
@@ -22,13 +23,87 @@ public class FieldType {
         this.description = builder.description;
         this.dataType = builder.dataType;
         this.autoID = builder.autoID;
-        this.typeParams = builder.typeParams;
+        this.typeParams = new HashMap<>(builder.typeParams);
     } 
     
     public static Builder newBuilder() {
         return new Builder();
     }
 
+    /**
+     * Returns the name of this field.
+     *
+     * @return <code>String</code>
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns whether this field is the primary key.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isPrimaryKey() {
+        return primaryKey;
+    }
+
+    /**
+     * Returns the description of this field.
+     *
+     * @return <code>String</code>
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * Returns the data type of this field.
+     *
+     * @return {@link DataType}
+     */
+    public DataType getDataType() {
+        return dataType;
+    }
+
+    /**
+     * Returns whether the primary key is generated on insertion.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isAutoID() {
+        return autoID;
+    }
+
+    /**
+     * Returns the type parameters, such as the dimension or the maximum length.
+     *
+     * @return <code>Map</code>
+     */
+    public Map<String, String> getTypeParams() {
+        return typeParams;
+    }
+
+    /**
+     * Returns the number of dimensions of a vector field, or 0 if it is not set.
+     *
+     * @return <code>int</code>
+     */
+    public int getDimension() {
+        String dim = typeParams.get(Constant.VECTOR_DIM);
+        return dim == null ? 0 : Integer.parseInt(dim);
+    }
+
+    /**
+     * Returns the maximum length of a <code>VARCHAR</code> field, or 0 if it is not set.
+     *
+     * @return <code>int</code>
+     */
+    public int getMaxLength() {
+        String maxLength = typeParams.get(Constant.VARCHAR_MAX_LENGTH);
+        return maxLength == null ? 0 : Integer.parseInt(maxLength);
+    }
+
     /**
      * The builder class for the {@link FieldType} object class.
      */
@@ -38,7 +113,7 @@ public class FieldType {
         private String description;
         private DataType dataType;
         private boolean autoID;
-        private Map<String, String> typeParams;
+        private final Map<String, String> typeParams = new HashMap<>();
 
         private Builder() {}
 
@@ -14,6 +14,15 @@ public class GetCollectionStatisticsParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
     /**
      * The builder class for the {@link GetCollectionStatisticsParam} object class.
      */
@@ -23,6 +23,42 @@ public class LoadCollectionParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns whether the call returns before the collection is loaded.
+     *
+     * @return <code>Boolean</code>
+     */
+    public Boolean getAsync() {
+        return async;
+    }
+
+    /**
+     * Returns the timeout of a synchronous load in seconds.
+     *
+     * @return <code>int</code>
+     */
+    public int getLoadWaitingTimeout() {
+        return loadWaitingTimeout;
+    }
+
+    /**
+     * Returns the number of replicas to load.
+     *
+     * @return <code>int</code>
+     */
+    public int getNumReplicas() {
+        return numReplicas;
+    }
+
     /**
      * The builder class for the {@link LoadCollectionParam} object class.
      */
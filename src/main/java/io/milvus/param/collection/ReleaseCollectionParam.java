@@ -16,6 +16,24 @@ public class ReleaseCollectionParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the timeout of the operation in seconds, 0 for no limit.
+     *
+     * @return <code>double</code>
+     */
+    public double getTimeout() {
+        return timeout;
+    }
+
     /**
      * The builder class for the {@link ReleaseCollectionParam} object class.
      */
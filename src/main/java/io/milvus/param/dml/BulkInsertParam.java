@@ -1,6 +1,8 @@
 package io.milvus.param.dml;
 
+import java.util.ArrayList;
 import java.util.List;
+
 /**
  * The object class used to prepare parameters for {@link io.milvus.client.MilvusClient#bulkInsert(BulkInsertParam) bulkInsert()}.
  */
@@ -12,20 +14,47 @@ public class BulkInsertParam {
     private BulkInsertParam(Builder builder) {
         this.collectionName = builder.collectionName;
         this.partitionName = builder.partitionName;
-        this.files = builder.files;
+        this.files = new ArrayList<>(builder.files);
     }
 
     public static Builder newBuilder() {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the target collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the target partition, or <code>null</code>.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * Returns the files to import.
+     *
+     * @return <code>List&lt;String&gt;</code>
+     */
+    public List<String> getFiles() {
+        return files;
+    }
+
     /**
      * The builder class for the {@link BulkInsertParam} object class.
      */
     public static final class Builder {
         private String collectionName;
         private String partitionName;
-        private List<String> files; 
+        private List<String> files = new ArrayList<>();
         
         private Builder () {}
 
@@ -60,7 +89,10 @@ public class BulkInsertParam {
          * Specifically, you need to organize your data in a dictionary with rows as the key and all the data records 
          * in a list as the value. In the list, each record corresponds to a dictionary. The key of each dictionary 
          * member is a field name, the values are those of these fields. Note that the file size should be no greater 
-         * than 1 GB.
+         * than 1 GB. {@link io.milvus.engine.LocalMilvusClient} reads local paths and <code>file:</code> URLs instead,
+         * either row-based JSON files, one NumPy <code>.npy</code> file per field named after the field, such as
+         * <code>title_vector.npy</code>, or Arrow IPC files (<code>.arrow</code>, <code>.feather</code> or
+         * <code>.arrows</code> for the streaming format) with a column named after each field.
          * <br><br>
          * For your reference, the following is an example row-based JSON structure containing two entities.
          * <pre>
@@ -93,7 +125,7 @@ public class BulkInsertParam {
          * @return The builder object itself.
          */
         public Builder withFiles(List<String> files) {
-            this.files = files;
+            this.files = new ArrayList<>(files);
             return this;
         }
 
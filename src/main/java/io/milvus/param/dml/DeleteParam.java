@@ -22,6 +22,42 @@ public class DeleteParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the target collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the target partition, or <code>null</code>.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * Returns the expression matching the entities to delete, or <code>null</code>.
+     *
+     * @return <code>String</code>
+     */
+    public String getExpr() {
+        return expr;
+    }
+
+    /**
+     * Returns the primary keys of the entities to delete, or <code>null</code>.
+     *
+     * @return <code>List</code>
+     */
+    public List<Integer> getPrimaryKeys() {
+        return primaryKeys;
+    }
+
     /**
      * The builder class for the {@link DeleteParam} object class.
      */
@@ -60,7 +96,8 @@ public class DeleteParam {
         /**
          * Specifies a boolean expression to match desired entities.
          * 
-         * @param expr A valid boolean expression should comprise only the <code>in</code> operator with two operands.
+         * @param expr A boolean expression over scalar fields, such as <code>id in [1, 2]</code> or
+         * <code>age &gt; 30 and city like "Ber%"</code>.
          * @return The builder object itself.
          */
         public Builder withExpr(String expr) {
@@ -84,8 +121,22 @@ public class DeleteParam {
          * 
          * @return {@link DeleteParam}
          */
-        public DeleteParam builder() {
+        public DeleteParam build() {
+            boolean hasKeys = primaryKeys != null && !primaryKeys.isEmpty();
+            if (hasKeys == (expr != null && !expr.trim().isEmpty())) {
+                throw new IllegalArgumentException("Specify either primary keys or an expression");
+            }
             return new DeleteParam(this); 
         }
+
+        /**
+         * @deprecated Use {@link #build()} like every other builder.
+         * 
+         * @return {@link DeleteParam}
+         */
+        @Deprecated
+        public DeleteParam builder() {
+            return build();
+        }
     }
 }
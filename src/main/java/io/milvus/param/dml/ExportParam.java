@@ -0,0 +1,105 @@
+package io.milvus.param.dml;
+
+/**
+ * The object class used to prepare parameters for
+ * {@link io.milvus.engine.LocalMilvusClient#export(ExportParam) export()}.
+ */
+public class ExportParam {
+    private final String collectionName;
+    private final String partitionName;
+    private final String file;
+
+    private ExportParam(Builder builder) {
+        this.collectionName = builder.collectionName;
+        this.partitionName = builder.partitionName;
+        this.file = builder.file;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the name of the collection to export.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the partition to export, or <code>null</code> for the whole collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * Returns the file to write.
+     *
+     * @return <code>String</code>
+     */
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * The builder class for the {@link ExportParam} object class.
+     */
+    public static final class Builder {
+        private String collectionName;
+        private String partitionName;
+        private String file;
+
+        private Builder() {}
+
+        /**
+         * Specifies the name of the collection to export.
+         *
+         * @param collectionName The name of an existing collection.
+         * @return The builder object itself.
+         */
+        public Builder withCollectionName(String collectionName) {
+            this.collectionName = collectionName;
+            return this;
+        }
+
+        /**
+         * Specifies the name of the partition to export. If omitted, the whole collection is exported.
+         *
+         * @param partitionName The name of an existing partition.
+         * @return The builder object itself.
+         */
+        public Builder withPartitionName(String partitionName) {
+            this.partitionName = partitionName;
+            return this;
+        }
+
+        /**
+         * Specifies the file to write, a local path or <code>file:</code> URL. An existing file is replaced.
+         *
+         * @param file A path ending in <code>.arrow</code> or <code>.feather</code>, which
+         * {@link io.milvus.engine.LocalMilvusClient} writes as an Arrow IPC file.
+         * @return The builder object itself.
+         */
+        public Builder withFile(String file) {
+            this.file = file;
+            return this;
+        }
+
+        /**
+         * Verifies the input parameters and creates a {@link ExportParam} object.
+         *
+         * @return {@link ExportParam}
+         */
+        public ExportParam build() {
+            if (file == null || file.isEmpty()) {
+                throw new IllegalArgumentException("Export file cannot be empty");
+            }
+            return new ExportParam(this);
+        }
+    }
+}
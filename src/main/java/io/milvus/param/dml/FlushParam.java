@@ -16,6 +16,24 @@ public class FlushParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the target collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns whether this is an asynchronous operation.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isAsyncFlush() {
+        return asyncFlush;
+    }
+
     /**
      * The builder class for the {@link FlushParam} object class.
      */
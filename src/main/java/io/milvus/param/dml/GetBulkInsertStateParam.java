@@ -14,6 +14,15 @@ public class GetBulkInsertStateParam {
         return new Builder();
     }
 
+    /**
+     * Returns the ID of the task.
+     *
+     * @return <code>int</code>
+     */
+    public int getTaskId() {
+        return taskId;
+    }
+
     /**
      * The builder class for the {@link GetBulkInsertStateParam} object class.
      */
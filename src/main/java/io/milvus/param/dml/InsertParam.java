@@ -20,6 +20,33 @@ public class InsertParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the target collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the target partition, or <code>null</code>.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * Returns the fields to be inserted.
+     *
+     * @return <code>List</code>
+     */
+    public List<InsertParam.Field> getFields() {
+        return fields;
+    }
+
     /**
      * The builder class for the {@link InsertParam} object class.
      */
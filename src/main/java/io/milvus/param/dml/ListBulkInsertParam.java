@@ -1,7 +1,5 @@
 package io.milvus.param.dml;
 
-import java.net.http.HttpClient.Builder;
-
 /**
  * The object class used to prepare parameters for {@link io.milvus.client.MilvusClient#listBulkInsertTasks(ListBulkInsertParam) listBulkInsertTasks()}.
  */
@@ -18,13 +16,34 @@ public class ListBulkInsertParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection whose tasks are listed, or <code>null</code> for the tasks of every
+     * collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the maximum number of tasks to list, 0 for every task.
+     *
+     * @return <code>int</code>
+     */
+    public int getLimit() {
+        return limit;
+    }
+
     /**
      * The builder class for the {@link ListBulkInsertParam} object class.
      */
     public static final class Builder {
         private String collectionName;
-        private int limit;   
-        
+        private int limit;
+
+        private Builder() {}
+
         /**
          * Specifies the name of a collection so that only the tasks related to the collection are listed.
          * 
@@ -41,7 +60,7 @@ public class ListBulkInsertParam {
          * Specifies the maximum number of tasks to be listed.
          * 
          * @param limit A positive integer that is greater than the actual number of ongoing bulk-insert tasks results 
-         * in listing only these tasks.
+         * in listing only these tasks. The most recent tasks are listed; 0, the default, lists every task.
          * @return The builder object itself.
          */
         public Builder withLimit(int limit) {
@@ -55,6 +74,9 @@ public class ListBulkInsertParam {
          * @return {@linkplain ListBulkInsertParam}
          */
         public ListBulkInsertParam build() {
+            if (limit < 0) {
+                throw new IllegalArgumentException("Limit must not be negative, got: " + limit);
+            }
             return new ListBulkInsertParam(this);
         }
     }
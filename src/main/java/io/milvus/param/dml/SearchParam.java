@@ -0,0 +1,205 @@
+package io.milvus.param.dml;
+
+import java.util.Dictionary;
+import java.util.List;
+
+import io.milvus.common.enums.MetricType;
+
+/**
+ * The object class used to prepare parameters for {@link io.milvus.client.MilvusClient#search(SearchParam) search()}.
+ */
+public class SearchParam {
+    private final String collectionName;
+    private final String vectorFieldName;
+    private final MetricType metricType;
+    private final int topK;
+    private final List<?> vectors;
+    private final Dictionary<String, ?> params;
+    private final String expr;
+
+    private SearchParam(Builder builder) {
+        this.collectionName = builder.collectionName;
+        this.vectorFieldName = builder.vectorFieldName;
+        this.metricType = builder.metricType;
+        this.topK = builder.topK;
+        this.vectors = builder.vectors;
+        this.params = builder.params;
+        this.expr = builder.expr;
+    }
+
+    public static Builder newBuilder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the name of the collection to search.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the vector field to search.
+     *
+     * @return <code>String</code>
+     */
+    public String getVectorFieldName() {
+        return vectorFieldName;
+    }
+
+    /**
+     * Returns the metric used to compare vectors.
+     *
+     * @return {@link MetricType}
+     */
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    /**
+     * Returns the number of results per query vector.
+     *
+     * @return <code>int</code>
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Returns the query vectors.
+     *
+     * @return <code>List</code>
+     */
+    public List<?> getVectors() {
+        return vectors;
+    }
+
+    /**
+     * Returns the index-specific search parameters.
+     *
+     * @return <code>Dictionary</code>
+     */
+    public Dictionary<String, ?> getParams() {
+        return params;
+    }
+
+    /**
+     * Returns the boolean expression the results must match, or <code>null</code>.
+     *
+     * @return <code>String</code>
+     */
+    public String getExpr() {
+        return expr;
+    }
+
+    /**
+     * The builder class for the {@link SearchParam} object class.
+     */
+    public static final class Builder {
+        private String collectionName;
+        private String vectorFieldName;
+        private MetricType metricType;
+        private int topK;
+        private List<?> vectors;
+        private Dictionary<String, ?> params;
+        private String expr;
+
+        private Builder() {}
+
+        /**
+         * Specifies the name of the collection to search.
+         *
+         * @param collectionName A collection name should be a string of 1 to 255 characters, starting with a
+         * letter or an underscore (_) and containing only numbers, letters, and underscores (_).
+         * @return The builder object itself.
+         */
+        public Builder withCollectionName(String collectionName) {
+            this.collectionName = collectionName;
+            return this;
+        }
+
+        /**
+         * Specifies the vector field to search.
+         *
+         * @param vectorFieldName The name of a <code>FLOAT_VECTOR</code> or <code>BINARY_VECTOR</code> field.
+         * @return The builder object itself.
+         */
+        public Builder withVectorFieldName(String vectorFieldName) {
+            this.vectorFieldName = vectorFieldName;
+            return this;
+        }
+
+        /**
+         * Specifies the metric used to compare vectors. It must match the metric of the field's index, if any.
+         *
+         * @param metricType A valid metric type.
+         * @return The builder object itself.
+         */
+        public Builder withMetricType(MetricType metricType) {
+            this.metricType = metricType;
+            return this;
+        }
+
+        /**
+         * Specifies the number of results per query vector.
+         *
+         * @param topK A positive number.
+         * @return The builder object itself.
+         */
+        public Builder withTopK(int topK) {
+            this.topK = topK;
+            return this;
+        }
+
+        /**
+         * Specifies the query vectors.
+         *
+         * @param vectors <code>List&lt;Float&gt;</code> or <code>float[]</code> vectors for float vector fields,
+         * <code>ByteBuffer</code> or <code>byte[]</code> vectors for binary vector fields.
+         * @return The builder object itself.
+         */
+        public Builder withVectors(List<?> vectors) {
+            this.vectors = vectors;
+            return this;
+        }
+
+        /**
+         * (Optional) Specifies index-specific search parameters.
+         *
+         * @param params Parameters such as <code>nprobe</code> or <code>ef</code>.
+         * @return The builder object itself.
+         */
+        public Builder withParams(Dictionary<String, ?> params) {
+            this.params = params;
+            return this;
+        }
+
+        /**
+         * (Optional) Specifies a boolean expression over scalar fields that the results must match.
+         *
+         * @param expr An expression such as <code>age &gt; 30 and city in ["Berlin", "Paris"]</code>.
+         * @return The builder object itself.
+         */
+        public Builder withExpr(String expr) {
+            this.expr = expr;
+            return this;
+        }
+
+        /**
+         * Verifies the input parameters and creates a new {@link SearchParam} instance.
+         *
+         * @return {@link SearchParam}
+         */
+        public SearchParam build() {
+            if (topK <= 0) {
+                throw new IllegalArgumentException("topK must be positive, got: " + topK);
+            }
+            if (vectors == null || vectors.isEmpty()) {
+                throw new IllegalArgumentException("At least one query vector is required");
+            }
+            return new SearchParam(this);
+        }
+    }
+}
@@ -36,6 +36,87 @@ public class CreateIndexParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the target collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the field to be indexed.
+     *
+     * @return <code>String</code>
+     */
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Returns the name of the index.
+     *
+     * @return <code>String</code>
+     */
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * Returns the index type.
+     *
+     * @return {@link IndexType}
+     */
+    public IndexType getIndexType() {
+        return indexType;
+    }
+
+    /**
+     * Returns the metric type.
+     *
+     * @return {@link MetricType}
+     */
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    /**
+     * Returns the index-building parameters.
+     *
+     * @return <code>Dictionary</code>
+     */
+    public Dictionary<?, ?> getExtraParam() {
+        return extraParam;
+    }
+
+    /**
+     * Returns whether this operation is synchronous.
+     *
+     * @return <code>Boolean</code>
+     */
+    public Boolean getSyncMode() {
+        return syncMode;
+    }
+
+    /**
+     * Returns the interval at which the index-creating process is checked.
+     *
+     * @return <code>int</code>
+     */
+    public int getSyncWaitingInterval() {
+        return syncWaitingInterval;
+    }
+
+    /**
+     * Returns the timeout after which the client stops checking the index-creating process.
+     *
+     * @return <code>int</code>
+     */
+    public int getSyncWaitingTimeout() {
+        return syncWaitingTimeout;
+    }
+
     /**
      * The builder class for the {@link CreateIndexParam} object class.
      */
@@ -102,7 +183,8 @@ public class CreateIndexParam {
         }
 
         /**
-         * Specifies a valid type of metrics used to measure vector similarities. 
+         * Specifies a valid type of metrics used to measure vector similarities. Not needed for the index of a
+         * scalar field.
          * 
          * @param metricType A valid metric type from the reference documents below.
          * @see <a href="https://milvus.io/docs/metric.md">Similarity Metrics</a>
@@ -9,13 +9,31 @@ public class GetPartitionStatisticsParam {
 
     private GetPartitionStatisticsParam(Builder builder) {
         this.collectionName = builder.collectionName;
-        this.partitionName = builder.collectionName;
+        this.partitionName = builder.partitionName;
     }
 
     public static Builder newBuilder() {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the partition.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
     /**
      * The builder class for the {@link GetPartitionStatisticsParam} object class.
      */
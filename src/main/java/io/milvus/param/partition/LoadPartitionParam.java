@@ -25,6 +25,51 @@ public class LoadPartitionParam {
         return new Builder();
     }
 
+    /**
+     * Returns the name of the collection.
+     *
+     * @return <code>String</code>
+     */
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    /**
+     * Returns the name of the partition.
+     *
+     * @return <code>String</code>
+     */
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    /**
+     * Returns whether the call returns before the partition is loaded.
+     *
+     * @return <code>Boolean</code>
+     */
+    public Boolean getAsync() {
+        return async;
+    }
+
+    /**
+     * Returns the timeout of a synchronous load in seconds.
+     *
+     * @return <code>int</code>
+     */
+    public int getLoadWaitingTimeout() {
+        return loadWaitingTimeout;
+    }
+
+    /**
+     * Returns the number of replicas to load.
+     *
+     * @return <code>int</code>
+     */
+    public int getNumReplicas() {
+        return numReplicas;
+    }
+
     /**
      * The builder class for the {@link LoadPartitionParam} object class.
      */
@@ -1,5 +1,100 @@
 package io.milvus.param.response;
 
+import java.util.Collections;
+import java.util.Map;
+
+import io.milvus.param.Constant;
+
+/**
+ * The statistics of a collection: its rows that are not deleted, its deleted rows not yet purged by compaction, the
+ * bytes the values of every field take, the rows covered by the index of every indexed field and the index builds
+ * that failed.
+ */
 public class GetCollectionStatisticsResponse {
-    
+    private final long rowCount;
+    private final long deletedRowCount;
+    private final Map<String, Long> fieldBytes;
+    private final Map<String, Long> indexedRows;
+    private final Map<String, String> indexFailures;
+
+    public GetCollectionStatisticsResponse(long rowCount, long deletedRowCount, Map<String, Long> fieldBytes,
+                                           Map<String, Long> indexedRows) {
+        this(rowCount, deletedRowCount, fieldBytes, indexedRows, Collections.emptyMap());
+    }
+
+    public GetCollectionStatisticsResponse(long rowCount, long deletedRowCount, Map<String, Long> fieldBytes,
+                                           Map<String, Long> indexedRows, Map<String, String> indexFailures) {
+        this.rowCount = rowCount;
+        this.deletedRowCount = deletedRowCount;
+        this.fieldBytes = Collections.unmodifiableMap(fieldBytes);
+        this.indexedRows = Collections.unmodifiableMap(indexedRows);
+        this.indexFailures = Collections.unmodifiableMap(indexFailures);
+    }
+
+    /**
+     * Returns the statistics as key-value pairs, with the row count under {@link Constant#ROW_COUNT}.
+     *
+     * @return <code>Map&lt;String, String&gt;</code>
+     */
+    public Map<String, String> getStatistics() {
+        return Collections.singletonMap(Constant.ROW_COUNT, String.valueOf(rowCount));
+    }
+
+    /**
+     * Returns the number of rows that are not deleted.
+     *
+     * @return <code>long</code>
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of deleted rows still stored.
+     *
+     * @return <code>long</code>
+     */
+    public long getDeletedRowCount() {
+        return deletedRowCount;
+    }
+
+    /**
+     * Returns the bytes the values of every field take, deleted rows included, by field name.
+     *
+     * @return <code>Map&lt;String, Long&gt;</code>
+     */
+    public Map<String, Long> getFieldBytes() {
+        return fieldBytes;
+    }
+
+    /**
+     * Returns the number of rows covered by the index of every indexed field, deleted rows included, by field
+     * name. Rows not yet sealed or whose index is still being built are not covered.
+     *
+     * @return <code>Map&lt;String, Long&gt;</code>
+     */
+    public Map<String, Long> getIndexedRows() {
+        return indexedRows;
+    }
+
+    /**
+     * Returns why the last failed index build of a field failed, by field name, for the indexed fields whose last
+     * build failed. The segment of a failed build is searched and filtered without the index.
+     *
+     * @return <code>Map&lt;String, String&gt;</code>
+     */
+    public Map<String, String> getIndexFailures() {
+        return indexFailures;
+    }
+
+    @Override
+    public String toString() {
+        return "GetCollectionStatisticsResponse{" +
+                "rowCount=" + rowCount +
+                ", deletedRowCount=" + deletedRowCount +
+                ", fieldBytes=" + fieldBytes +
+                ", indexedRows=" + indexedRows +
+                ", indexFailures=" + indexFailures +
+                '}';
+    }
 }
@@ -1,5 +1,178 @@
 package io.milvus.param.response;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.milvus.param.Constant;
+import io.milvus.param.Task;
+
+/**
+ * The state of a bulk-insert task: where it imports to, how far it got and how fast it goes.
+ */
 public class GetImportStateResponse {
-    
+    private final long taskId;
+    private final Task.State state;
+    private final String collectionName;
+    private final String partitionName;
+    private final List<String> files;
+    private final long rowCount;
+    private final long processedBytes;
+    private final long totalBytes;
+    private final long createTimestamp;
+    private final long elapsedMillis;
+    private final String failedReason;
+
+    public GetImportStateResponse(long taskId, Task.State state, String collectionName, String partitionName,
+                                  List<String> files, long rowCount, long processedBytes, long totalBytes,
+                                  long createTimestamp, long elapsedMillis, String failedReason) {
+        this.taskId = taskId;
+        this.state = state;
+        this.collectionName = collectionName;
+        this.partitionName = partitionName;
+        this.files = Collections.unmodifiableList(files);
+        this.rowCount = rowCount;
+        this.processedBytes = processedBytes;
+        this.totalBytes = totalBytes;
+        this.createTimestamp = createTimestamp;
+        this.elapsedMillis = elapsedMillis;
+        this.failedReason = failedReason;
+    }
+
+    public long getTaskId() {
+        return taskId;
+    }
+
+    public Task.State getState() {
+        return state;
+    }
+
+    public String getCollectionName() {
+        return collectionName;
+    }
+
+    public String getPartitionName() {
+        return partitionName;
+    }
+
+    public List<String> getFiles() {
+        return files;
+    }
+
+    /**
+     * Returns the number of rows imported so far.
+     *
+     * @return <code>long</code>
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of bytes of the files parsed so far.
+     *
+     * @return <code>long</code>
+     */
+    public long getProcessedBytes() {
+        return processedBytes;
+    }
+
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns when the task was created, in milliseconds since the epoch.
+     *
+     * @return <code>long</code>
+     */
+    public long getCreateTimestamp() {
+        return createTimestamp;
+    }
+
+    /**
+     * Returns the time the task has been running, or ran until it was done, in milliseconds.
+     *
+     * @return <code>long</code>
+     */
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the imported rows per second of running time.
+     *
+     * @return <code>double</code>
+     */
+    public double getRowsPerSecond() {
+        return elapsedMillis == 0L ? 0d : rowCount * 1000d / elapsedMillis;
+    }
+
+    /**
+     * Returns the file bytes parsed per second of running time.
+     *
+     * @return <code>double</code>
+     */
+    public double getBytesPerSecond() {
+        return elapsedMillis == 0L ? 0d : processedBytes * 1000d / elapsedMillis;
+    }
+
+    /**
+     * Returns the percentage of the file bytes parsed, 100 only once the task has completed.
+     *
+     * @return <code>int</code>
+     */
+    public int getProgress() {
+        if (state == Task.State.COMPLETED) {
+            return 100;
+        }
+        if (totalBytes <= 0L) {
+            return 0;
+        }
+        return (int) Math.min(99L, processedBytes * 100L / totalBytes);
+    }
+
+    /**
+     * Returns the reason of a failure, or an empty string.
+     *
+     * @return <code>String</code>
+     */
+    public String getFailedReason() {
+        return failedReason;
+    }
+
+    /**
+     * Returns the details of the task the way a Milvus server reports them, keyed by
+     * {@link Constant#FAILED_REASON}, {@link Constant#IMPORT_FILES}, {@link Constant#IMPORT_COLLECTION} and
+     * {@link Constant#IMPORT_PARTITION}.
+     *
+     * @return <code>Map&lt;String, String&gt;</code>
+     */
+    public Map<String, String> getInfos() {
+        Map<String, String> infos = new LinkedHashMap<>();
+        infos.put(Constant.FAILED_REASON, failedReason);
+        infos.put(Constant.IMPORT_FILES, String.join(",", files));
+        infos.put(Constant.IMPORT_COLLECTION, collectionName);
+        if (partitionName != null) {
+            infos.put(Constant.IMPORT_PARTITION, partitionName);
+        }
+        return infos;
+    }
+
+    @Override
+    public String toString() {
+        return "GetImportStateResponse{" +
+                "taskId=" + taskId +
+                ", state=" + state +
+                ", collectionName='" + collectionName + '\'' +
+                ", files=" + files +
+                ", rowCount=" + rowCount +
+                ", processedBytes=" + processedBytes +
+                ", totalBytes=" + totalBytes +
+                ", elapsedMillis=" + elapsedMillis +
+                ", rowsPerSecond=" + String.format("%.1f", getRowsPerSecond()) +
+                (state == Task.State.FAILED ? ", failedReason='" + failedReason + '\'' : "") +
+                '}';
+    }
 }
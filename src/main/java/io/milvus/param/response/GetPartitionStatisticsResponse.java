@@ -1,5 +1,81 @@
 package io.milvus.param.response;
 
+import java.util.Collections;
+import java.util.Map;
+
+import io.milvus.param.Constant;
+
+/**
+ * The statistics of a partition: its rows that are not deleted, its deleted rows not yet purged by compaction, the
+ * bytes the values of every field take and the rows covered by the index of every indexed field.
+ */
 public class GetPartitionStatisticsResponse {
-    
+    private final long rowCount;
+    private final long deletedRowCount;
+    private final Map<String, Long> fieldBytes;
+    private final Map<String, Long> indexedRows;
+
+    public GetPartitionStatisticsResponse(long rowCount, long deletedRowCount, Map<String, Long> fieldBytes,
+                                          Map<String, Long> indexedRows) {
+        this.rowCount = rowCount;
+        this.deletedRowCount = deletedRowCount;
+        this.fieldBytes = Collections.unmodifiableMap(fieldBytes);
+        this.indexedRows = Collections.unmodifiableMap(indexedRows);
+    }
+
+    /**
+     * Returns the statistics as key-value pairs, with the row count under {@link Constant#ROW_COUNT}.
+     *
+     * @return <code>Map&lt;String, String&gt;</code>
+     */
+    public Map<String, String> getStatistics() {
+        return Collections.singletonMap(Constant.ROW_COUNT, String.valueOf(rowCount));
+    }
+
+    /**
+     * Returns the number of rows that are not deleted.
+     *
+     * @return <code>long</code>
+     */
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Returns the number of deleted rows still stored.
+     *
+     * @return <code>long</code>
+     */
+    public long getDeletedRowCount() {
+        return deletedRowCount;
+    }
+
+    /**
+     * Returns the bytes the values of every field take, deleted rows included, by field name.
+     *
+     * @return <code>Map&lt;String, Long&gt;</code>
+     */
+    public Map<String, Long> getFieldBytes() {
+        return fieldBytes;
+    }
+
+    /**
+     * Returns the number of rows covered by the index of every indexed field, deleted rows included, by field
+     * name. Rows not yet sealed or whose index is still being built are not covered.
+     *
+     * @return <code>Map&lt;String, Long&gt;</code>
+     */
+    public Map<String, Long> getIndexedRows() {
+        return indexedRows;
+    }
+
+    @Override
+    public String toString() {
+        return "GetPartitionStatisticsResponse{" +
+                "rowCount=" + rowCount +
+                ", deletedRowCount=" + deletedRowCount +
+                ", fieldBytes=" + fieldBytes +
+                ", indexedRows=" + indexedRows +
+                '}';
+    }
 }
@@ -1,5 +1,18 @@
 package io.milvus.param.response;
 
 public class HasCollectionResponse {
-    
+    private final boolean hasCollection;
+
+    public HasCollectionResponse(boolean hasCollection) {
+        this.hasCollection = hasCollection;
+    }
+
+    public boolean hasCollection() {
+        return hasCollection;
+    }
+
+    @Override
+    public String toString() {
+        return "HasCollectionResponse{hasCollection=" + hasCollection + '}';
+    }
 }
@@ -1,5 +1,33 @@
 package io.milvus.param.response;
 
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The bulk-insert tasks listed by
+ * {@link io.milvus.client.MilvusClient#listBulkInsertTasks(io.milvus.param.dml.ListBulkInsertParam)
+ * listBulkInsertTasks()}, in the order they were created.
+ */
 public class ListImportTaskResponse {
-    
+    private final List<GetImportStateResponse> tasks;
+
+    public ListImportTaskResponse(List<GetImportStateResponse> tasks) {
+        this.tasks = Collections.unmodifiableList(tasks);
+    }
+
+    /**
+     * Returns the state of every listed task, oldest first.
+     *
+     * @return <code>List&lt;GetImportStateResponse&gt;</code>
+     */
+    public List<GetImportStateResponse> getTasks() {
+        return tasks;
+    }
+
+    @Override
+    public String toString() {
+        return "ListImportTaskResponse{" +
+                "tasks=" + tasks +
+                '}';
+    }
 }
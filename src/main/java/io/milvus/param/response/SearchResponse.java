@@ -0,0 +1,61 @@
+package io.milvus.param.response;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The results of a search: for every query vector, the primary keys of the nearest entities and their scores,
+ * from the most to the least similar.
+ */
+public class SearchResponse {
+    private final List<List<?>> ids;
+    private final List<float[]> scores;
+
+    public SearchResponse(List<List<?>> ids, List<float[]> scores) {
+        if (ids.size() != scores.size()) {
+            throw new IllegalArgumentException("ids and scores must have the same length");
+        }
+        this.ids = ids;
+        this.scores = scores;
+    }
+
+    /**
+     * Returns the number of query vectors.
+     *
+     * @return <code>int</code>
+     */
+    public int getNumQueries() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the primary keys of the results of a query vector.
+     *
+     * @param query The position of the query vector in the request.
+     * @return <code>List</code>
+     */
+    public List<?> getIds(int query) {
+        return ids.get(query);
+    }
+
+    /**
+     * Returns the scores of the results of a query vector. For <code>IP</code> a larger score means a closer
+     * match; for other metrics a smaller score does.
+     *
+     * @param query The position of the query vector in the request.
+     * @return <code>float[]</code>
+     */
+    public float[] getScores(int query) {
+        return scores.get(query);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("SearchResponse{");
+        for (int q = 0; q < ids.size(); q++) {
+            builder.append(q == 0 ? "" : ", ").append("ids=").append(ids.get(q))
+                    .append(" scores=").append(Arrays.toString(scores.get(q)));
+        }
+        return builder.append('}').toString();
+    }
+}
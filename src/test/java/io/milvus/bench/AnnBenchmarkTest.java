@@ -0,0 +1,95 @@
+package io.milvus.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnnBenchmarkTest {
+    private static final String HEADER = "dataset,metric,index,build_params,search_params,build_ms,memory_bytes,"
+            + "recall,qps_1,qps_n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void paretoKeepsTheRowsNoOtherRowBeatsOnBoth() {
+        List<String[]> rows = Arrays.asList(row("a", 0.90, 500), row("b", 0.99, 100), row("c", 0.95, 80),
+                row("d", 0.95, 300), row("e", 0.80, 400), row("f", 0.70, 900), row("g", 0.99, 50));
+
+        List<String> frontier = new ArrayList<>();
+        for (String[] row : AnnBenchmark.pareto(rows)) {
+            frontier.add(row[2]);
+        }
+        // g and c have the recall of a faster row, e has less recall and QPS than a
+        assertEquals(Arrays.asList("b", "d", "a", "f"), frontier);
+        assertTrue(AnnBenchmark.pareto(new ArrayList<>()).isEmpty());
+    }
+
+    @Test(timeout = 120_000)
+    public void everyConfigurationIsWrittenWithItsFrontier() throws Exception {
+        File out = new File(folder.getRoot(), "bench.csv");
+        AnnBenchmark.main(new String[] {"base=synthetic", "count=1000", "dim=16", "queries=20", "k=5",
+                "threads=2", "types=FLAT,IVF_FLAT,BIN_FLAT", "metrics=L2,HAMMING", "out=" + out});
+
+        List<String[]> rows = read(out);
+        // FLAT and the 8 nprobe values of IVF_FLAT for L2, BIN_FLAT for HAMMING; the other types do not apply
+        assertEquals(10, rows.size());
+        List<String> configurations = new ArrayList<>();
+        for (String[] row : rows) {
+            assertEquals("synthetic-1000x16", row[0]);
+            configurations.add(row[1] + " " + row[2]);
+        }
+        assertEquals("L2 FLAT", configurations.get(0));
+        assertEquals("L2 IVF_FLAT", configurations.get(1));
+        assertEquals("HAMMING BIN_FLAT", configurations.get(9));
+        assertEquals("1.0000", rows.get(0)[7]);
+        assertEquals("1.0000", rows.get(9)[7]);
+        // 126 lists, so that probing 128 of them is exact
+        assertEquals("1.0000", rows.get(8)[7]);
+        for (int i = 2; i <= 8; i++) {
+            assertTrue(Double.parseDouble(rows.get(i - 1)[7]) <= Double.parseDouble(rows.get(i)[7]));
+        }
+
+        List<String[]> frontier = read(new File(out + ".pareto.csv"));
+        assertTrue(frontier.size() >= 2);
+        assertEquals("L2", frontier.get(0)[1]);
+        assertEquals("1.0000", frontier.get(0)[7]);
+        assertEquals(Arrays.asList(rows.get(9)), Arrays.asList(frontier.get(frontier.size() - 1)));
+        for (String[] row : frontier) {
+            boolean found = false;
+            for (String[] r : rows) {
+                found |= Arrays.equals(r, row);
+            }
+            assertTrue(String.join(",", row), found);
+        }
+    }
+
+    private static String[] row(String name, double recall, double qps) {
+        return new String[] {"d", "L2", name, "", "", "0", "0", String.format("%.4f", recall), "0",
+                String.format("%.1f", qps)};
+    }
+
+    /**
+     * Reads the data lines of a CSV file; parameter columns are quoted maps whose commas must not split them.
+     */
+    private static List<String[]> read(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(HEADER, lines.get(0));
+        List<String[]> rows = new ArrayList<>();
+        for (String line : lines.subList(1, lines.size())) {
+            rows.add(line.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)"));
+        }
+        return rows;
+    }
+}
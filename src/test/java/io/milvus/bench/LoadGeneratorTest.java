@@ -0,0 +1,157 @@
+package io.milvus.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.engine.LocalMilvusClient;
+import io.milvus.param.R;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.LoadCollectionParam;
+
+public class LoadGeneratorTest {
+    private static final int DIM = 8;
+
+    private LocalMilvusClient client;
+
+    @After
+    public void close() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void mixedLoadRunsAgainstAClient() throws Exception {
+        client = LocalMilvusClient.newBuilder().build();
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).withAutoID(true).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(DIM).build())
+                .build();
+        check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName("items")
+                .withSchema(schema).build()));
+        check(LoadGenerator.insertAction("items", "v", DIM, 1000).execute(client, 0L));
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+
+        LoadGenerator.Report report = LoadGenerator.newBuilder().withClient(client)
+                .withOperation("search", 6d, LoadGenerator.searchAction("items", "v", MetricType.L2, DIM, 10, null))
+                .withOperation("filtered", 2d,
+                        LoadGenerator.searchAction("items", "v", MetricType.L2, DIM, 10, "id >= 0"))
+                .withOperation("insert", 1d, LoadGenerator.insertAction("items", "v", DIM, 10))
+                .withOperation("delete", 1d, LoadGenerator.deleteAction("items", 1000, 5))
+                .withOperation("flush", 0.1d, LoadGenerator.flushAction("items"))
+                .withClosedLoop(2, 0L)
+                .withDuration(500, TimeUnit.MILLISECONDS)
+                .build().run();
+
+        assertEquals(5, report.getOperations().size());
+        for (LoadGenerator.OperationReport op : report.getOperations()) {
+            if (!"flush".equals(op.getName())) {
+                assertTrue(op.getName(), op.getCompleted() > 0);
+            }
+            assertEquals(op.getName(), 0L, op.getErrors());
+            assertEquals(op.getName(), op.getCompleted(), op.getHistogram().getCount());
+        }
+        assertTrue(report.getOperations().get(0).getCompleted() > report.getOperations().get(2).getCompleted());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        report.print(new PrintStream(bytes, true, "UTF-8"));
+        String printed = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+        assertTrue(printed, printed.startsWith("Closed loop"));
+        assertTrue(printed, printed.contains("second,search,filtered,insert,delete,flush"));
+    }
+
+    @Test(timeout = 60_000)
+    public void openLoopStartsRequestsAtTheConfiguredRate() throws Exception {
+        ConcurrentSkipListSet<Long> sequences = new ConcurrentSkipListSet<>();
+        client = LocalMilvusClient.newBuilder().build();
+        LoadGenerator.Report report = LoadGenerator.newBuilder().withClient(client)
+                .withOperation("noop", 1d, (c, sequence) -> sequences.add(sequence))
+                .withOpenLoop(200d, false, 4)
+                .withDuration(1, TimeUnit.SECONDS)
+                .build().run();
+
+        // slots are handed out in order and the one past the end is not sent
+        long completed = report.getOperations().get(0).getCompleted();
+        assertEquals(200L, completed);
+        assertEquals(completed, sequences.size());
+        assertEquals(Long.valueOf(0L), sequences.first());
+        assertEquals(Long.valueOf(completed - 1), sequences.last());
+    }
+
+    @Test(timeout = 60_000)
+    public void failuresAndStallsAreRecorded() throws Exception {
+        client = LocalMilvusClient.newBuilder().build();
+        LoadGenerator.Report report = LoadGenerator.newBuilder().withClient(client)
+                .withOperation("failed", 1d, (c, sequence) -> R.failed(new IllegalStateException("down")))
+                .withOperation("thrown", 1d, (c, sequence) -> {
+                    throw new IllegalStateException("down");
+                })
+                .withOperation("slow", 1d, (c, sequence) -> {
+                    Thread.sleep(20L);
+                    return R.success(sequence);
+                })
+                .withClosedLoop(1, 5_000L)
+                .withDuration(300, TimeUnit.MILLISECONDS)
+                .build().run();
+
+        for (LoadGenerator.OperationReport op : report.getOperations()) {
+            boolean slow = "slow".equals(op.getName());
+            assertEquals(op.getName(), slow ? 0L : op.getCompleted(), op.getErrors());
+        }
+        // every 20 ms request stands for the 3 requests a client sending every 5 ms would have added
+        LoadGenerator.OperationReport slow = report.getOperations().get(2);
+        assertTrue(slow.getCompleted() > 0);
+        assertEquals(4 * slow.getCompleted(), slow.getHistogram().getCount());
+    }
+
+    @Test
+    public void invalidSettingsAreRejected() {
+        LoadGenerator.Action noop = (c, sequence) -> null;
+        expectRejected(LoadGenerator.newBuilder().withOperation("noop", 1d, noop), "client");
+        client = LocalMilvusClient.newBuilder().build();
+        expectRejected(LoadGenerator.newBuilder().withClient(client), "operation");
+        expectRejected(LoadGenerator.newBuilder().withClient(client).withOperation("noop", 1d, noop)
+                .withClosedLoop(0, 0L), "Concurrency");
+        expectRejected(LoadGenerator.newBuilder().withClient(client).withOperation("noop", 1d, noop)
+                .withOpenLoop(-1d, false, 1), "Rate");
+        expectRejected(LoadGenerator.newBuilder().withClient(client).withOperation("noop", 1d, noop)
+                .withDuration(0L, TimeUnit.SECONDS), "Duration");
+        try {
+            LoadGenerator.newBuilder().withOperation("noop", 0d, noop);
+            fail("A zero weight must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Weight"));
+        }
+    }
+
+    private static void expectRejected(LoadGenerator.Builder builder, String message) {
+        try {
+            builder.build();
+            fail("Expected " + message + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private static void check(Object response) {
+        assertNull(String.valueOf(((R<?>) response).getException()), ((R<?>) response).getException());
+    }
+}
@@ -0,0 +1,142 @@
+package io.milvus.bench;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.index.FlatIndex;
+import io.milvus.index.HnswIndex;
+import io.milvus.index.IndexParams;
+import io.milvus.param.index.CreateIndexParam;
+
+public class SearchParamTunerTest {
+    private static final int DIM = 32;
+    private static final int ROWS = 5000;
+    private static final int QUERIES = 100;
+
+    private final float[] vectors;
+    private final float[] queries;
+
+    public SearchParamTunerTest() {
+        float[] all = Datasets.clustered(ROWS + QUERIES, DIM, 50, 34L);
+        vectors = Arrays.copyOf(all, ROWS * DIM);
+        queries = Arrays.copyOfRange(all, ROWS * DIM, all.length);
+    }
+
+    @Test(timeout = 60_000)
+    public void hnswGetsTheSmallestEfThatMeetsTheTarget() {
+        HnswIndex index = new HnswIndex(DIM, MetricType.L2, IndexParams.empty().with(IndexParams.HNSW_M, 8)
+                .with(IndexParams.EF_CONSTRUCTION, 64));
+        index.build(vectors, ROWS);
+        SearchParamTuner.Result result = tuner().withIndex(index, IndexParams.empty()).withTargetRecall(0.99d)
+                .build().tune();
+
+        assertEquals(IndexParams.EF, result.getParamName());
+        assertTrue(result.isTargetMet());
+        assertTrue(result.getBest().getRecall() >= 0.99d);
+        assertEquals(result.getValue(), result.getBest().getValue());
+        assertEquals(result.getValue(), result.getSearchParams().getInt(IndexParams.EF, 0));
+        List<SearchParamTuner.Trial> trials = result.getTrials();
+        boolean previousMeasured = result.getValue() == 10;
+        for (int i = 0; i < trials.size(); i++) {
+            SearchParamTuner.Trial trial = trials.get(i);
+            if (i > 0) {
+                assertTrue(trials.get(i - 1).getValue() < trial.getValue());
+            }
+            if (trial.getValue() < result.getValue()) {
+                assertTrue(trial.toString(), trial.getRecall() < 0.99d);
+            }
+            previousMeasured |= trial.getValue() == result.getValue() - 1;
+        }
+        // the search stops on the passing value right after a failing one
+        assertTrue(result.toString(), previousMeasured);
+    }
+
+    @Test(timeout = 60_000)
+    public void ivfProbesAtMostEveryList() {
+        SearchParamTuner.Result result = tuner().withCreateIndexParam(createIndexParam(IndexType.IVF_FLAT))
+                .withTargetRecall(1d).build().tune();
+
+        assertEquals(IndexParams.NPROBE, result.getParamName());
+        assertTrue(result.isTargetMet());
+        assertTrue(result.toString(), result.getValue() <= 16);
+        assertEquals(1d, result.getBest().getRecall(), 0d);
+        assertEquals(1, result.getTrials().get(0).getValue());
+    }
+
+    @Test(timeout = 60_000)
+    public void unreachableTargetsReturnTheLargestValue() {
+        Hashtable<String, String> extraParam = new Hashtable<>();
+        extraParam.put(IndexParams.NLIST, "16");
+        extraParam.put(IndexParams.PQ_M, "4");
+        SearchParamTuner.Result result = tuner().withCreateIndexParam(createIndexParam(IndexType.IVF_PQ, extraParam))
+                .withTargetRecall(1d).build().tune();
+
+        // 4 bytes per vector cannot tell the exact neighbors apart
+        assertFalse(result.isTargetMet());
+        assertEquals(16, result.getValue());
+        assertTrue(result.getBest().getRecall() < 1d);
+    }
+
+    @Test
+    public void exactIndexesHaveNothingToTune() {
+        FlatIndex index = new FlatIndex(DIM, MetricType.IP);
+        index.build(vectors, ROWS);
+        SearchParamTuner.Result result = tuner().withIndex(index, IndexParams.empty()).build().tune();
+
+        assertNull(result.getParamName());
+        assertTrue(result.isTargetMet());
+        assertEquals(1, result.getTrials().size());
+        assertEquals(1d, result.getBest().getRecall(), 1e-9);
+    }
+
+    @Test
+    public void invalidInputsAreRejected() {
+        FlatIndex index = new FlatIndex(DIM, MetricType.L2);
+        index.build(vectors, ROWS);
+        expectRejected(SearchParamTuner.newBuilder().withIndex(index, IndexParams.empty())
+                .withQueries(queries, QUERIES), "Vectors");
+        expectRejected(SearchParamTuner.newBuilder().withIndex(index, IndexParams.empty())
+                .withVectors(vectors, ROWS, DIM), "Queries");
+        expectRejected(tuner().withIndex(index, IndexParams.empty()).withTopK(0), "topK");
+        expectRejected(tuner().withIndex(index, IndexParams.empty()).withTargetRecall(1.5d), "Target recall");
+        expectRejected(tuner(), "CreateIndexParam");
+        FlatIndex other = new FlatIndex(DIM / 2, MetricType.L2);
+        other.build(vectors, ROWS);
+        expectRejected(tuner().withIndex(other, IndexParams.empty()), "dimension");
+    }
+
+    private SearchParamTuner.Builder tuner() {
+        return SearchParamTuner.newBuilder().withVectors(vectors, ROWS, DIM).withQueries(queries, QUERIES);
+    }
+
+    private static CreateIndexParam createIndexParam(IndexType indexType) {
+        Hashtable<String, String> extraParam = new Hashtable<>();
+        extraParam.put(IndexParams.NLIST, "16");
+        return createIndexParam(indexType, extraParam);
+    }
+
+    private static CreateIndexParam createIndexParam(IndexType indexType, Hashtable<String, String> extraParam) {
+        return CreateIndexParam.newBuilder().withCollectionName("c").withFieldName("v").withIndexType(indexType)
+                .withMetricType(MetricType.L2).withExtraParam(extraParam).build();
+    }
+
+    private static void expectRejected(SearchParamTuner.Builder builder, String message) {
+        try {
+            builder.build();
+            fail("Expected " + message + " to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+}
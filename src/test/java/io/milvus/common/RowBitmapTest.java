@@ -0,0 +1,154 @@
+package io.milvus.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RowBitmapTest {
+
+    @Test
+    public void matchesBitSetForEveryContainer() throws IOException {
+        Random random = new Random(42);
+        for (int round = 0; round < 40; round++) {
+            BitSet expected = new BitSet();
+            RowBitmap bitmap = new RowBitmap();
+            addRandomRows(random, expected, bitmap);
+            assertSameRows(expected, bitmap);
+
+            RowBitmap copy = bitmap.copy();
+            bitmap.runOptimize();
+            assertSameRows(expected, bitmap);
+            assertSameRows(expected, copy);
+            assertSameRows(expected, roundTrip(bitmap));
+            assertSameRows(expected, roundTrip(copy));
+
+            // adding to an optimized set converts its containers back as needed
+            for (int i = 0; i < 2000; i++) {
+                int row = random.nextInt(3 << 16);
+                assertEquals(!expected.get(row), bitmap.add(row));
+                expected.set(row);
+            }
+            assertSameRows(expected, bitmap);
+        }
+    }
+
+    @Test
+    public void fromWordsMatchesAddingRows() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            BitSet expected = new BitSet();
+            addRandomRows(random, expected, new RowBitmap());
+            assertSameRows(expected, RowBitmap.fromWords(expected.toLongArray()));
+        }
+        assertTrue(RowBitmap.fromWords(new long[3000]).isEmpty());
+    }
+
+    @Test
+    public void orIntoSetsTheRowsOfEveryContainer() {
+        Random random = new Random(50);
+        for (int round = 0; round < 20; round++) {
+            BitSet expected = new BitSet();
+            RowBitmap bitmap = new RowBitmap();
+            addRandomRows(random, expected, bitmap);
+            if (random.nextBoolean()) {
+                bitmap.runOptimize();
+            }
+            long[] words = new long[8 << 10];
+            words[0] = 1L;
+            expected.set(0);
+            bitmap.orInto(words);
+            assertSameRows(expected, RowBitmap.fromWords(words));
+        }
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        RowBitmap bitmap = new RowBitmap();
+        bitmap.add(5);
+        RowBitmap copy = bitmap.copy();
+        copy.add(6);
+        bitmap.add(70000);
+        assertFalse(bitmap.contains(6));
+        assertFalse(copy.contains(70000));
+        assertEquals(2, copy.cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeRowsAreRejected() {
+        new RowBitmap().add(-1);
+    }
+
+    @Test
+    public void nextFromAnywhere() {
+        RowBitmap bitmap = new RowBitmap();
+        assertEquals(-1, bitmap.next(0));
+        bitmap.add(3);
+        bitmap.add(200000);
+        assertEquals(3, bitmap.next(-5));
+        assertEquals(200000, bitmap.next(4));
+        assertEquals(-1, bitmap.next(200001));
+        assertEquals(-1, bitmap.next(Integer.MAX_VALUE));
+        assertFalse(bitmap.contains(-3));
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptInputIsRejected() throws IOException {
+        RowBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[]{0, 0, 0, 1, 0, 0, 9})));
+    }
+
+    /**
+     * Adds sparse rows, a dense chunk and long runs, so that every container encoding shows up.
+     */
+    private static void addRandomRows(Random random, BitSet expected, RowBitmap bitmap) {
+        int chunks = 1 + random.nextInt(4);
+        for (int c = 0; c < chunks; c++) {
+            int base = random.nextInt(8) << 16;
+            int kind = random.nextInt(3);
+            int count = kind == 0 ? random.nextInt(5000) : kind == 1 ? 4000 + random.nextInt(30000) : 0;
+            for (int i = 0; i < count; i++) {
+                int row = base + random.nextInt(1 << 16);
+                bitmap.add(row);
+                expected.set(row);
+            }
+            if (kind == 2) {
+                for (int run = random.nextInt(20); run >= 0; run--) {
+                    int from = base + random.nextInt(1 << 16);
+                    int to = Math.min(base + (1 << 16), from + random.nextInt(5000));
+                    for (int row = from; row < to; row++) {
+                        bitmap.add(row);
+                        expected.set(row);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertSameRows(BitSet expected, RowBitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        assertEquals(expected.isEmpty(), bitmap.isEmpty());
+        int row = bitmap.next(0);
+        for (int e = expected.nextSetBit(0); e >= 0; e = expected.nextSetBit(e + 1)) {
+            assertEquals(e, row);
+            assertTrue(bitmap.contains(e));
+            assertEquals(expected.get(e + 1), bitmap.contains(e + 1));
+            row = bitmap.next(row + 1);
+        }
+        assertEquals(-1, row);
+    }
+
+    private static RowBitmap roundTrip(RowBitmap bitmap) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bitmap.writeTo(new DataOutputStream(bytes));
+        return RowBitmap.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,325 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.Task;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.dml.BulkInsertParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.ExportParam;
+import io.milvus.param.dml.GetBulkInsertStateParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.ListBulkInsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.response.GetImportStateResponse;
+import io.milvus.param.response.SearchResponse;
+
+public class BulkImportTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalMilvusClient client;
+
+    @Before
+    public void createClient() {
+        client = LocalMilvusClient.newBuilder().withSegmentMaxRows(100).build();
+        createCollection("items");
+    }
+
+    @After
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @Test(timeout = 30_000)
+    public void jsonFilesImportUpToTheFirstThatFails() throws Exception {
+        StringBuilder rows = new StringBuilder("{\"rows\": [");
+        for (int id = 0; id < 250; id++) {
+            rows.append(id == 0 ? "\n" : ",\n").append(jsonRow(id, "n-" + id));
+        }
+        Path valid = write("valid.json", rows.append("\n]}").toString());
+        Path invalid = write("invalid.json", "{\"rows\": [\n" + jsonRow(1000, "ok") + ",\n"
+                + jsonRow(1001, "bad").replace("\"age\": 1001", "\"age\": \"x\"") + "\n]}");
+
+        GetImportStateResponse state = await(bulkInsert(valid.toString(), invalid.toUri().toString()));
+        assertEquals(Task.State.FAILED, state.getState());
+        assertTrue(state.getFailedReason(), state.getFailedReason().contains("invalid.json line 3"));
+        assertEquals(250L, rowCount("items"));
+
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+        assertEquals(new TreeSet<>(Collections.singletonList(42L)), search("items", "name == \"n-42\""));
+        assertEquals(new TreeSet<>(), search("items", "id >= 1000"));
+    }
+
+    @Test(timeout = 30_000)
+    public void npyArraysImportWithConversions() throws Exception {
+        for (boolean persisted : new boolean[]{false, true}) {
+            client.close();
+            LocalMilvusClient.Builder builder = LocalMilvusClient.newBuilder().withSegmentMaxRows(100);
+            client = (persisted ? builder.withDataDirectory(folder.newFolder().toPath()) : builder).build();
+            createCollection("items");
+            int rows = 250;
+            File directory = folder.newFolder();
+            ByteBuffer ids = ByteBuffer.allocate(8 * rows).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer ages = ByteBuffer.allocate(2 * rows).order(ByteOrder.BIG_ENDIAN);
+            ByteBuffer names = ByteBuffer.allocate(4 * 3 * rows).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer vectors = ByteBuffer.allocate(8 * 2 * rows).order(ByteOrder.LITTLE_ENDIAN);
+            for (int row = 0; row < rows; row++) {
+                ids.putLong(row * 3L);
+                ages.putShort((short) (row % 7 - 3));
+                String name = "é" + row % 10;
+                for (int i = 0; i < 3; i++) {
+                    names.putInt(i < name.length() ? name.charAt(i) : 0);
+                }
+                vectors.putDouble(row).putDouble(0.5);
+            }
+            // ages are big-endian and narrower, vectors double precision: both are converted
+            String[] files = {writeNpy(directory, "id", "<i8", rows + ",", ids),
+                    writeNpy(directory, "age", ">i2", rows + ",", ages),
+                    writeNpy(directory, "name", "<U3", rows + ",", names),
+                    writeNpy(directory, "v", "<f8", rows + ", 2", vectors)};
+            GetImportStateResponse state = await(bulkInsert(files));
+            assertEquals(state.toString(), Task.State.COMPLETED, state.getState());
+            assertEquals(250L, state.getRowCount());
+            assertEquals(250L, rowCount("items"));
+
+            if (persisted) {
+                // written segment by segment, but only added once all are
+                ByteBuffer large = ByteBuffer.allocate(8 * rows).order(ByteOrder.LITTLE_ENDIAN);
+                for (int row = 0; row < rows; row++) {
+                    large.putLong(row == 200 ? 1L << 40 : row);
+                }
+                files[1] = writeNpy(folder.newFolder(), "age", "<i8", rows + ",", large);
+                state = await(bulkInsert(files));
+                assertEquals(Task.State.FAILED, state.getState());
+                assertTrue(state.getFailedReason(), state.getFailedReason().contains("at row 200 is out of range"));
+                assertEquals(250L, rowCount("items"));
+            }
+
+            check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+            Set<Long> expected = new TreeSet<>();
+            for (long row = 0; row < rows; row += 7) {
+                expected.add(row * 3);
+            }
+            assertEquals(expected, search("items", "age == -3"));
+            assertEquals(new TreeSet<>(Arrays.asList(15L, 45L, 75L, 105L, 135L, 165L, 195L, 225L, 255L, 285L,
+                    315L, 345L, 375L, 405L, 435L, 465L, 495L, 525L, 555L, 585L, 615L, 645L, 675L, 705L, 735L)),
+                    search("items", "name == \"é5\""));
+            SearchResponse nearest = check(client.search(SearchParam.newBuilder().withCollectionName("items")
+                    .withVectorFieldName("v").withMetricType(MetricType.L2).withTopK(1)
+                    .withVectors(Collections.singletonList(Arrays.asList(10f, 0.5f))).build()));
+            assertEquals(Collections.singletonList(30L), nearest.getIds(0));
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void exportedArrowFilesImportBack() throws Exception {
+        for (boolean persisted : new boolean[]{false, true}) {
+            client.close();
+            LocalMilvusClient.Builder builder = LocalMilvusClient.newBuilder().withSegmentMaxRows(100);
+            client = (persisted ? builder.withDataDirectory(folder.newFolder().toPath()) : builder).build();
+            CollectionSchema schema = CollectionSchema.newBuilder()
+                    .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                            .withPrimaryKey(true).build())
+                    .addFieldType(FieldType.newBuilder().withName("flag").withDataType(DataType.BOOL).build())
+                    .addFieldType(FieldType.newBuilder().withName("small").withDataType(DataType.INT8).build())
+                    .addFieldType(FieldType.newBuilder().withName("price").withDataType(DataType.DOUBLE).build())
+                    .addFieldType(FieldType.newBuilder().withName("name").withDataType(DataType.VARCHAR)
+                            .withMaxLength(8).build())
+                    .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                            .withDimension(2).build())
+                    .build();
+            for (String name : new String[]{"source", "copy"}) {
+                check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName(name)
+                        .withSchema(schema).build()));
+            }
+            List<Long> ids = new ArrayList<>();
+            List<Boolean> flags = new ArrayList<>();
+            List<Long> smalls = new ArrayList<>();
+            List<Double> prices = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            List<List<Float>> vectors = new ArrayList<>();
+            for (long id = 0; id < 250; id++) {
+                ids.add(id);
+                flags.add(id % 3 == 0);
+                smalls.add(id % 256 - 128);
+                prices.add(id / 4.0 - 10);
+                names.add(id % 2 == 0 ? "" : "日" + id % 10);
+                vectors.add(Arrays.asList((float) id, -0.5f));
+            }
+            check(client.insert(InsertParam.newBuilder().withCollectionName("source").withFields(Arrays.asList(
+                    new InsertParam.Field("id", ids), new InsertParam.Field("flag", flags),
+                    new InsertParam.Field("small", smalls), new InsertParam.Field("price", prices),
+                    new InsertParam.Field("name", names), new InsertParam.Field("v", vectors))).build()));
+            check(client.delete(DeleteParam.newBuilder().withCollectionName("source").withExpr("id in [5, 150, 249]")
+                    .build()));
+
+            Path file = new File(folder.getRoot(), "source" + persisted + ".arrow").toPath();
+            assertEquals(Long.valueOf(247L), check(client.export(ExportParam.newBuilder()
+                    .withCollectionName("source").withFile(file.toString()).build())));
+            GetImportStateResponse state = await(check(client.bulkInsert(BulkInsertParam.newBuilder()
+                    .withCollectionName("copy").withFiles(Collections.singletonList(file.toString())).build())));
+            assertEquals(state.toString(), Task.State.COMPLETED, state.getState());
+            assertEquals(247L, rowCount("copy"));
+
+            for (String name : new String[]{"source", "copy"}) {
+                check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName(name).build()));
+            }
+            String[] expressions = {"id >= 0", "flag", "small < -100", "price > 40.5", "name == \"\"",
+                    "name like \"日3%\"", "not flag and small >= 0"};
+            for (String expr : expressions) {
+                assertEquals(expr, search("source", expr), search("copy", expr));
+            }
+            assertEquals(new TreeSet<>(Arrays.asList(3L, 13L, 23L)), search("copy", "name == \"日3\" and id < 30"));
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void onlyTheLatestDoneTasksAreRetained() throws Exception {
+        client.close();
+        client = LocalMilvusClient.newBuilder().withImportTaskRetention(3).build();
+        createCollection("items");
+        createCollection("others");
+        List<Long> taskIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            String collection = i % 2 == 0 ? "items" : "others";
+            Path file = write("rows" + i + ".json", "{\"rows\": [" + jsonRow(i, "n-" + i) + "]}");
+            Task task = check(client.bulkInsert(BulkInsertParam.newBuilder().withCollectionName(collection)
+                    .withFiles(Collections.singletonList(file.toString())).build()));
+            assertEquals(Task.State.COMPLETED, await(task).getState());
+            taskIds.add(task.getTaskId());
+        }
+
+        for (int i = 0; i < 2; i++) {
+            R<GetImportStateResponse> state = client.getBulkInsertState(GetBulkInsertStateParam.newBuilder()
+                    .withTaskId(taskIds.get(i).intValue()).build());
+            assertTrue(String.valueOf(state.getException()), state.getException() != null
+                    && state.getException().getMessage().contains("is no longer retained"));
+        }
+        assertEquals(taskIds.subList(2, 5), listTasks(null, 0));
+        assertEquals(taskIds.subList(3, 5), listTasks(null, 2));
+        assertEquals(Arrays.asList(taskIds.get(2), taskIds.get(4)), listTasks("items", 0));
+        assertEquals(Collections.singletonList(taskIds.get(4)), listTasks("items", 1));
+        assertEquals(Collections.singletonList(taskIds.get(3)), listTasks("others", 5));
+        assertEquals(5L, rowCount("items") + rowCount("others"));
+    }
+
+    private List<Long> listTasks(String collection, int limit) {
+        ListBulkInsertParam.Builder builder = ListBulkInsertParam.newBuilder().withLimit(limit);
+        List<Long> taskIds = new ArrayList<>();
+        for (GetImportStateResponse state : check(client.listBulkInsertTasks(
+                (collection == null ? builder : builder.withCollectionName(collection)).build())).getTasks()) {
+            taskIds.add(state.getTaskId());
+        }
+        return taskIds;
+    }
+
+    private void createCollection(String name) {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("age").withDataType(DataType.INT32).build())
+                .addFieldType(FieldType.newBuilder().withName("name").withDataType(DataType.VARCHAR)
+                        .withMaxLength(16).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(2).build())
+                .build();
+        check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName(name)
+                .withSchema(schema).build()));
+    }
+
+    private static String jsonRow(long id, String name) {
+        return "{\"id\": " + id + ", \"age\": " + id + ", \"name\": \"" + name + "\", \"v\": [" + id + ", 0.5]}";
+    }
+
+    private Path write(String name, String content) throws IOException {
+        Path file = new File(folder.getRoot(), name).toPath();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Writes a version 1.0 <code>.npy</code> file named after a field.
+     */
+    private static String writeNpy(File directory, String field, String descr, String shape, ByteBuffer payload)
+            throws IOException {
+        StringBuilder header = new StringBuilder("{'descr': '" + descr + "', 'fortran_order': False, 'shape': ("
+                + shape + "), }");
+        while ((10 + header.length() + 1) % 64 != 0) {
+            header.append(' ');
+        }
+        header.append('\n');
+        ByteBuffer prefix = ByteBuffer.allocate(10).order(ByteOrder.LITTLE_ENDIAN);
+        prefix.put(new byte[]{(byte) 0x93, 'N', 'U', 'M', 'P', 'Y', 1, 0}).putShort((short) header.length());
+        Path file = new File(directory, field + ".npy").toPath();
+        try (OutputStream out = Files.newOutputStream(file)) {
+            out.write(prefix.array());
+            out.write(header.toString().getBytes(StandardCharsets.ISO_8859_1));
+            out.write(payload.array());
+        }
+        return file.toString();
+    }
+
+    private Task bulkInsert(String... files) {
+        return check(client.bulkInsert(BulkInsertParam.newBuilder().withCollectionName("items")
+                .withFiles(Arrays.asList(files)).build()));
+    }
+
+    private GetImportStateResponse await(Task task) throws InterruptedException {
+        assertTrue(task.await(20, TimeUnit.SECONDS));
+        return check(client.getBulkInsertState(GetBulkInsertStateParam.newBuilder()
+                .withTaskId((int) task.getTaskId()).build()));
+    }
+
+    private long rowCount(String collection) {
+        return check(client.getCollectionStatistics(GetCollectionStatisticsParam.newBuilder()
+                .withCollectionName(collection).build())).getRowCount();
+    }
+
+    private Set<Long> search(String collection, String expr) {
+        SearchResponse response = check(client.search(SearchParam.newBuilder().withCollectionName(collection)
+                .withVectorFieldName("v").withMetricType(MetricType.L2).withTopK(1000)
+                .withVectors(Collections.singletonList(Arrays.asList(0f, 0f))).withExpr(expr).build()));
+        Set<Long> ids = new TreeSet<>();
+        for (Object id : response.getIds(0)) {
+            ids.add((Long) id);
+        }
+        return ids;
+    }
+
+    private static <T> T check(R<T> response) {
+        assertNull(String.valueOf(response.getException()), response.getException());
+        return response.getData();
+    }
+}
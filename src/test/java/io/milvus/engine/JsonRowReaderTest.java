@@ -0,0 +1,148 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+public class JsonRowReaderTest {
+    private static final List<FieldType> FIELDS = Arrays.asList(
+            FieldType.newBuilder().withName("id").withDataType(DataType.INT64).withPrimaryKey(true).build(),
+            FieldType.newBuilder().withName("flag").withDataType(DataType.BOOL).build(),
+            FieldType.newBuilder().withName("count").withDataType(DataType.INT32).build(),
+            FieldType.newBuilder().withName("score").withDataType(DataType.DOUBLE).build(),
+            FieldType.newBuilder().withName("name").withDataType(DataType.VARCHAR).withMaxLength(64).build(),
+            FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR).withDimension(3).build());
+    private static final String[] DOUBLES = {"0", "-0.0", "12", "-7.25", "1e-5", "1E+2", "-0.5e3", "3.141592653589793",
+            "123456789012345678901234567890", "4.9e-324", "1.7976931348623157e308", "0.1"};
+    private static final String[] STRINGS = {"", "plain", "with \"quotes\"", "back\\slash", "new\nline", "é",
+            "日本語", "😀", "{\"rows\": [", "}]", "a,b"};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void chunksParseToTheValuesOfTheFile() throws IOException {
+        Random random = new Random(45);
+        int rows = 500;
+        List<String> doubles = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        StringBuilder json = new StringBuilder("{ \"rows\" :\n[");
+        for (int row = 0; row < rows; row++) {
+            doubles.add(DOUBLES[random.nextInt(DOUBLES.length)]);
+            names.add(STRINGS[random.nextInt(STRINGS.length)] + STRINGS[random.nextInt(STRINGS.length)]);
+            List<String> members = new ArrayList<>(Arrays.asList(
+                    "\"id\": " + (row - 250L) * 1_000_000_007L,
+                    "\"flag\":" + (row % 3 == 0),
+                    "\"count\" : " + (row % 2 == 0 ? Integer.MIN_VALUE + row : Integer.MAX_VALUE - row),
+                    "\"score\": " + doubles.get(row),
+                    "\"name\": " + quote(names.get(row), random),
+                    "\"v\": [" + row + ", -0.5,\n 1e-3]"));
+            Collections.shuffle(members, random);
+            json.append(row == 0 ? "" : ",").append(random.nextBoolean() ? "\n" : " ").append('{')
+                    .append(String.join(random.nextBoolean() ? ",\n  " : ",", members)).append('}');
+        }
+        json.append("\n]\n}\n");
+        Path file = write(json.toString());
+
+        for (long chunkBytes : new long[]{1L, 97L, 4096L, 1L << 20}) {
+            JsonRowReader reader = new JsonRowReader(file, FIELDS);
+            List<JsonRowReader.Chunk> chunks = new ArrayList<>();
+            reader.split(chunkBytes, chunks::add);
+            assertTrue(chunkBytes > 1L || chunks.size() == rows);
+            int row = 0;
+            for (JsonRowReader.Chunk chunk : chunks) {
+                ColumnBuffer[] columns = reader.parse(chunk, () -> false);
+                for (int i = 0; i < columns[0].size(); i++, row++) {
+                    assertEquals((row - 250L) * 1_000_000_007L, columns[0].get(i));
+                    assertEquals(row % 3 == 0, columns[1].get(i));
+                    assertEquals(row % 2 == 0 ? Integer.MIN_VALUE + row : Integer.MAX_VALUE - row,
+                            ((Long) columns[2].get(i)).longValue());
+                    assertEquals(Double.parseDouble(doubles.get(row)), (Double) columns[3].get(i), 0d);
+                    assertEquals(names.get(row), columns[4].get(i));
+                    assertArrayEquals(new float[]{row, -0.5f, 1e-3f}, (float[]) columns[5].get(i), 0f);
+                }
+            }
+            assertEquals(rows, row);
+        }
+    }
+
+    @Test
+    public void emptyRowsArrayHasNoChunks() throws IOException {
+        List<JsonRowReader.Chunk> chunks = new ArrayList<>();
+        new JsonRowReader(write("{\"rows\": [ ]}"), FIELDS).split(1L, chunks::add);
+        assertEquals(0, chunks.size());
+    }
+
+    @Test
+    public void mismatchesReportTheirLine() throws IOException {
+        String valid = "{\"id\": 1, \"flag\": true, \"count\": 2, \"score\": 0.5, \"name\": \"a\", \"v\": [1, 2, 3]}";
+        assertFails("{\"rows\": [\n" + valid + ",\n" + valid.replace("\"count\": 2", "\"count\": 2147483648")
+                + "\n]}", "line 3");
+        assertFails("{\"rows\": [\n" + valid.replace("[1, 2, 3]", "[1, 2]") + "]}", "dimension 2");
+        assertFails("{\"rows\": [\n\n" + valid.replace("\"name\": \"a\"", "\"name\": 7") + "]}", "line 3");
+        assertFails("{\"rows\": [" + valid.replace(", \"flag\": true", "") + "]}", "Missing field flag");
+        assertFails("{\"rows\": [" + valid.replace("\"flag\": true", "\"flag\": null") + "]}", "null");
+        assertFails("{\"rows\": [" + valid.replace("\"flag\"", "\"other\"") + "]}", "Unknown field other");
+        assertFails("{\"data\": []}", "rows");
+        assertFails("{\"rows\": [1, 2]}", "objects");
+        assertFails("{\"rows\": [" + valid, "not closed");
+    }
+
+    private void assertFails(String json, String message) throws IOException {
+        JsonRowReader reader = new JsonRowReader(write(json), FIELDS);
+        try {
+            List<JsonRowReader.Chunk> chunks = new ArrayList<>();
+            reader.split(1L, chunks::add);
+            for (JsonRowReader.Chunk chunk : chunks) {
+                reader.parse(chunk, () -> false);
+            }
+            fail("Parsed " + json);
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(message));
+        }
+    }
+
+    private Path write(String json) throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Encodes a JSON string, with its non-ASCII characters as unicode escapes half the time.
+     */
+    private static String quote(String value, Random random) {
+        boolean escape = random.nextBoolean();
+        StringBuilder builder = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                builder.append('\\').append(c);
+            } else if (c == '\n') {
+                builder.append("\\n");
+            } else if (c > 127 && escape) {
+                builder.append(String.format("\\u%04x", (int) c));
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.append('"').toString();
+    }
+}
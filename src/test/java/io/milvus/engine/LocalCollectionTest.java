@@ -0,0 +1,332 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.Lock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.Task;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.response.GetCollectionStatisticsResponse;
+import io.milvus.param.response.GetPartitionStatisticsResponse;
+import io.milvus.param.response.SearchResponse;
+
+public class LocalCollectionTest {
+    private LocalMilvusClient client;
+
+    @Before
+    public void createCollection() {
+        client = LocalMilvusClient.newBuilder().build();
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("i8").withDataType(DataType.INT8).build())
+                .addFieldType(FieldType.newBuilder().withName("i16").withDataType(DataType.INT16).build())
+                .addFieldType(FieldType.newBuilder().withName("i32").withDataType(DataType.INT32).build())
+                .build();
+        assertNull(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName("c")
+                .withSchema(schema).build()).getException());
+    }
+
+    @After
+    public void close() throws IOException {
+        client.close();
+    }
+
+    @Test
+    public void integersAtTheLimitsAreAccepted() {
+        R<?> inserted = insert(Arrays.asList(1L, 2L), Arrays.asList(-128L, 127L), Arrays.asList(-32768L, 32767L),
+                Arrays.asList((long) Integer.MIN_VALUE, (long) Integer.MAX_VALUE));
+        assertNull(inserted.getException());
+        assertEquals(2L, rowCount());
+    }
+
+    @Test
+    public void integersOutOfRangeAreRejected() {
+        assertRejected(insert(list(1L), list(200L), list(0L), list(0L)), "200 of field i8");
+        assertRejected(insert(list(1L), list(-129L), list(0L), list(0L)), "-129 of field i8");
+        assertRejected(insert(list(1L), list(0L), list(40000L), list(0L)), "40000 of field i16");
+        assertRejected(insert(list(1L), list(0L), list(0L), list(1L << 31)), "2147483648 of field i32");
+        assertEquals(0L, rowCount());
+    }
+
+    @Test
+    public void indexIsNotDeclaredIfLoggingItFails() throws IOException {
+        LocalCollection collection = vectorCollection();
+        try {
+            collection.createIndex(ivfFlat(4), 1L, param -> {
+                throw new IOException("disk full");
+            });
+            fail("The declaration should fail");
+        } catch (IOException expected) {
+            assertFalse(collection.hasIndex("v"));
+        }
+        List<CreateIndexParam> logged = new ArrayList<>();
+        Task task = collection.createIndex(ivfFlat(4), 2L, logged::add);
+        assertEquals(Task.State.COMPLETED, task.getState());
+        assertEquals(1, logged.size());
+        assertTrue(collection.hasIndex("v"));
+    }
+
+    @Test
+    public void failedBuildOnSealIsReported() throws IOException {
+        LocalCollection collection = vectorCollection();
+        Hashtable<String, String> extraParam = new Hashtable<>();
+        extraParam.put("nlist", "4");
+        extraParam.put("m", "2");
+        collection.createIndex(CreateIndexParam.newBuilder().withCollectionName("c").withFieldName("v")
+                .withIndexType(IndexType.IVF_PQ).withMetricType(MetricType.L2).withExtraParam(extraParam).build(),
+                1L, null);
+        // too few vectors to train the product quantizer
+        insertVectors(collection, 10);
+        collection.flush();
+        String failure = collection.statistics().getIndexFailures().get("v");
+        assertTrue(failure, failure != null && failure.contains("training vectors"));
+
+        insertVectors(collection, 300);
+        collection.flush();
+        assertTrue(collection.statistics().toString(), collection.statistics().getIndexFailures().isEmpty());
+        assertEquals(Long.valueOf(300L), collection.statistics().getIndexedRows().get("v"));
+    }
+
+    @Test(timeout = 60_000)
+    public void deletesDuringCompactionAreCarriedOver() throws Exception {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(2).build())
+                .build();
+        LocalCollection collection = new LocalCollection("c", schema, 1000, Runnable::run, null);
+        List<Long> ids = new ArrayList<>();
+        List<List<Float>> vectors = new ArrayList<>();
+        for (long id = 0; id < 4000; id++) {
+            ids.add(id);
+            vectors.add(Arrays.asList((float) id, 0f));
+        }
+        collection.insert(collection.prepare(InsertParam.newBuilder().withCollectionName("c").withFields(
+                Arrays.asList(new InsertParam.Field("id", ids), new InsertParam.Field("v", vectors))).build()));
+        collection.flush();
+
+        Set<Long> deleted = new TreeSet<>();
+        for (long id = 0; id < 4000; id += 4) {
+            deleted.add(id);
+        }
+        delete(collection, deleted);
+        // about 10 KB per merge at 20 KB/s: deletes keep landing while the sources are copied
+        CompactionBudget slow = new CompactionBudget(20_000L, 1d);
+        ExecutorService compactor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> merges = compactor.submit(() -> collection.compact(0.2d, slow));
+            for (long id = 1; id < 4000; id += 40) {
+                Set<Long> batch = new TreeSet<>();
+                for (long key = id; key < id + 40 && key < 4000; key += 4) {
+                    batch.add(key);
+                }
+                delete(collection, batch);
+                deleted.addAll(batch);
+                Thread.sleep(5);
+            }
+            assertTrue(merges.get() > 0);
+        } finally {
+            compactor.shutdownNow();
+        }
+
+        assertEquals(4000L - deleted.size(), collection.statistics().getRowCount());
+        collection.load(1L, false, 1, 1);
+        try {
+            SearchResponse response = collection.search(SearchParam.newBuilder().withCollectionName("c")
+                    .withVectorFieldName("v").withMetricType(MetricType.L2).withTopK(4000)
+                    .withVectors(Collections.singletonList(Arrays.asList(0f, 0f))).withExpr("id >= 0").build());
+            Set<Long> live = new TreeSet<>();
+            for (Object id : response.getIds(0)) {
+                live.add((Long) id);
+                assertFalse(String.valueOf(id), deleted.contains(id));
+            }
+            assertEquals(4000 - deleted.size(), live.size());
+        } finally {
+            collection.release();
+        }
+        assertTrue(collection.compactionMetrics().getCompactions() > 0);
+    }
+
+    @Test(timeout = 60_000)
+    public void statisticsFollowInsertsDeletesSealsAndCompaction() throws Exception {
+        LocalCollection collection = keyedCollection();
+        collection.createIndex(ivfFlat(4), 1L, null);
+        insertKeys(collection, 0, 2500);
+        // two full segments are sealed and indexed, the growing one is not indexed yet
+        assertStatistics(collection, 2500L, 0L, 2000L);
+
+        Set<Long> everyFourth = keys(0, 2500, 4);
+        delete(collection, everyFourth);
+        assertStatistics(collection, 1875L, 625L, 2000L);
+        // deleting a key again, or one that does not exist, changes nothing
+        delete(collection, everyFourth);
+        delete(collection, Collections.singleton(10_000L));
+        assertStatistics(collection, 1875L, 625L, 2000L);
+
+        collection.load(2L, false, 1, 1);
+        try {
+            for (int q = 0; q < 10; q++) {
+                collection.search(SearchParam.newBuilder().withCollectionName("c").withVectorFieldName("v")
+                        .withMetricType(MetricType.L2).withTopK(10)
+                        .withVectors(Collections.singletonList(Arrays.asList((float) q, 0f))).build());
+            }
+        } finally {
+            collection.release();
+        }
+        assertStatistics(collection, 1875L, 625L, 2000L);
+
+        collection.flush();
+        assertStatistics(collection, 1875L, 625L, 2500L);
+
+        // every segment has a quarter of its rows deleted: the merges purge them, which must not be subtracted
+        // from the row count a second time
+        assertTrue(collection.compact(0.2d, CompactionBudget.UNLIMITED) > 0);
+        assertEquals(625L, collection.compactionMetrics().getRowsPurged());
+        assertStatistics(collection, 1875L, 0L, 1875L);
+
+        delete(collection, keys(1, 2500, 4));
+        assertStatistics(collection, 1250L, 625L, 1875L);
+        insertKeys(collection, 2500, 2600);
+        assertStatistics(collection, 1350L, 625L, 1875L);
+    }
+
+    /**
+     * Checks the totals against the bytes of the stored rows: 8 for the key and 8 for the vector of every row,
+     * deleted or not.
+     */
+    private static void assertStatistics(LocalCollection collection, long live, long deleted, long indexed) {
+        GetCollectionStatisticsResponse statistics = collection.statistics();
+        assertEquals(live, statistics.getRowCount());
+        assertEquals(deleted, statistics.getDeletedRowCount());
+        assertEquals(Long.valueOf(8L * (live + deleted)), statistics.getFieldBytes().get("id"));
+        assertEquals(Long.valueOf(8L * (live + deleted)), statistics.getFieldBytes().get("v"));
+        assertEquals(Long.valueOf(indexed), statistics.getIndexedRows().get("v"));
+        GetPartitionStatisticsResponse partition = collection.partitionStatistics("_default");
+        assertEquals(live, partition.getRowCount());
+        assertEquals(deleted, partition.getDeletedRowCount());
+    }
+
+    private static LocalCollection keyedCollection() {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(2).build())
+                .build();
+        return new LocalCollection("c", schema, 1000, Runnable::run, null);
+    }
+
+    private static void insertKeys(LocalCollection collection, long from, long to) {
+        List<Long> ids = new ArrayList<>();
+        List<List<Float>> vectors = new ArrayList<>();
+        for (long id = from; id < to; id++) {
+            ids.add(id);
+            vectors.add(Arrays.asList((float) id, 0f));
+        }
+        collection.insert(collection.prepare(InsertParam.newBuilder().withCollectionName("c").withFields(
+                Arrays.asList(new InsertParam.Field("id", ids), new InsertParam.Field("v", vectors))).build()));
+    }
+
+    private static Set<Long> keys(long from, long to, long step) {
+        Set<Long> keys = new TreeSet<>();
+        for (long key = from; key < to; key += step) {
+            keys.add(key);
+        }
+        return keys;
+    }
+
+    private static void delete(LocalCollection collection, Set<Long> keys) {
+        // as the client does: the write lock keeps the swap of a merge out
+        Lock lock = collection.checkpointLock().writeLock();
+        lock.lock();
+        try {
+            collection.delete(keys);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A collection that builds its indexes in the calling thread.
+     */
+    private static LocalCollection vectorCollection() {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).withAutoID(true).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(4).build())
+                .build();
+        return new LocalCollection("c", schema, 1000, Runnable::run, null);
+    }
+
+    private static CreateIndexParam ivfFlat(int nlist) {
+        Hashtable<String, String> extraParam = new Hashtable<>();
+        extraParam.put("nlist", String.valueOf(nlist));
+        return CreateIndexParam.newBuilder().withCollectionName("c").withFieldName("v")
+                .withIndexType(IndexType.IVF_FLAT).withMetricType(MetricType.L2).withExtraParam(extraParam).build();
+    }
+
+    private static void insertVectors(LocalCollection collection, int rows) {
+        Random random = new Random(rows);
+        List<List<Float>> vectors = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            vectors.add(Arrays.asList(random.nextFloat(), random.nextFloat(), random.nextFloat(),
+                    random.nextFloat()));
+        }
+        collection.insert(collection.prepare(InsertParam.newBuilder().withCollectionName("c")
+                .withFields(Collections.singletonList(new InsertParam.Field("v", vectors))).build()));
+    }
+
+    private R<?> insert(List<Long> ids, List<Long> i8, List<Long> i16, List<Long> i32) {
+        return client.insert(InsertParam.newBuilder().withCollectionName("c").withFields(Arrays.asList(
+                new InsertParam.Field("id", ids), new InsertParam.Field("i8", i8),
+                new InsertParam.Field("i16", i16), new InsertParam.Field("i32", i32))).build());
+    }
+
+    private long rowCount() {
+        R<GetCollectionStatisticsResponse> statistics = client.getCollectionStatistics(
+                GetCollectionStatisticsParam.newBuilder().withCollectionName("c").build());
+        return statistics.getData().getRowCount();
+    }
+
+    private static void assertRejected(R<?> response, String message) {
+        assertTrue(response.getException() instanceof IllegalArgumentException);
+        assertTrue(response.getException().getMessage(), response.getException().getMessage().contains(message));
+    }
+
+    private static List<Long> list(long value) {
+        return Collections.singletonList(value);
+    }
+}
@@ -0,0 +1,320 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongPredicate;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+import io.milvus.param.R;
+import io.milvus.param.collection.CollectionSchema;
+import io.milvus.param.collection.CreateCollectionParam;
+import io.milvus.param.collection.FieldType;
+import io.milvus.param.collection.GetCollectionStatisticsParam;
+import io.milvus.param.collection.LoadCollectionParam;
+import io.milvus.param.collection.ReleaseCollectionParam;
+import io.milvus.param.dml.DeleteParam;
+import io.milvus.param.dml.FlushParam;
+import io.milvus.param.dml.InsertParam;
+import io.milvus.param.dml.SearchParam;
+import io.milvus.param.index.CreateIndexParam;
+import io.milvus.param.partition.LoadPartitionParam;
+import io.milvus.param.partition.ReleasePartitionParam;
+import io.milvus.param.response.GetCollectionStatisticsResponse;
+import io.milvus.param.response.SearchResponse;
+
+public class LocalMilvusClientTest {
+    private static final int ROWS = 3000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalMilvusClient client;
+
+    @After
+    public void close() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Test
+    public void scalarIndexesReturnTheRowsOfAScan() {
+        client = LocalMilvusClient.newBuilder().withSegmentMaxRows(1000).build();
+        String[] expressions = {"age == 7", "age in [1, 2, 3]", "tag == \"t-5\"", "tag like \"t-1%\"",
+                "age < 3 and tag in [\"t-2\", \"t-40\"]", "not (age >= 2)", "age > 40 or tag == \"t-0\"",
+                "5 <= age < 8 and tag >= \"t-9\""};
+        List<LongPredicate> predicates = Arrays.asList(
+                id -> age(id) == 7,
+                id -> age(id) >= 1 && age(id) <= 3,
+                id -> tag(id).equals("t-5"),
+                id -> tag(id).startsWith("t-1"),
+                id -> age(id) < 3 && (tag(id).equals("t-2") || tag(id).equals("t-40")),
+                id -> age(id) < 2,
+                id -> age(id) > 40 || tag(id).equals("t-0"),
+                id -> age(id) >= 5 && age(id) < 8 && tag(id).compareTo("t-9") >= 0);
+        Set<Long> deleted = new TreeSet<>(Arrays.asList(7L, 107L, 207L));
+
+        IndexType[][] indexTypes = {{}, {IndexType.STL_SORT, IndexType.INVERTED},
+                {IndexType.INVERTED, IndexType.TRIE}, {IndexType.AUTOINDEX, IndexType.AUTOINDEX}};
+        for (int i = 0; i < indexTypes.length; i++) {
+            IndexType[] types = indexTypes[i];
+            String collection = "items" + i;
+            createItems(collection);
+            insertItems(collection, 0, ROWS);
+            check(client.delete(DeleteParam.newBuilder().withCollectionName(collection)
+                    .withExpr("id in [7, 107, 207]").build()));
+            check(client.flush(FlushParam.newBuilder().withCollectionName(collection).build()));
+            if (types.length > 0) {
+                createIndex(collection, "age", types[0]);
+                createIndex(collection, "tag", types[1]);
+                Map<String, Long> indexedRows = statistics(collection).getIndexedRows();
+                assertEquals(Long.valueOf(ROWS), indexedRows.get("age"));
+                assertEquals(Long.valueOf(ROWS), indexedRows.get("tag"));
+            }
+            check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName(collection).build()));
+            for (int e = 0; e < expressions.length; e++) {
+                Set<Long> expected = new TreeSet<>();
+                for (long id = 0; id < ROWS; id++) {
+                    if (!deleted.contains(id) && predicates.get(e).test(id)) {
+                        expected.add(id);
+                    }
+                }
+                assertEquals(expressions[e] + " with " + Arrays.toString(types), expected,
+                        search(collection, expressions[e]));
+            }
+        }
+    }
+
+    @Test
+    public void reopenRestoresSegmentsDeletesAndIndexes() throws IOException {
+        File directory = folder.newFolder();
+        client = LocalMilvusClient.newBuilder().withDataDirectory(directory.toPath()).withSegmentMaxRows(1000)
+                .build();
+        createItems("items");
+        insertItems("items", 0, 2500);
+        check(client.delete(DeleteParam.newBuilder().withCollectionName("items").withExpr("id in [3, 1003, 2003]")
+                .build()));
+        check(client.flush(FlushParam.newBuilder().withCollectionName("items").build()));
+        createIndex("items", "age", IndexType.STL_SORT);
+        // logged but not flushed: replayed from the write-ahead log
+        insertItems("items", 2500, 2600);
+        check(client.delete(DeleteParam.newBuilder().withCollectionName("items").withExpr("id in [4, 2504]")
+                .build()));
+        GetCollectionStatisticsResponse before = statistics("items");
+        assertEquals(2595L, before.getRowCount());
+        assertEquals(5L, before.getDeletedRowCount());
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+        Set<Long> ages = search("items", "age == 7");
+        Set<Long> tags = search("items", "tag like \"t-1%\"");
+        client.close();
+
+        client = LocalMilvusClient.newBuilder().withDataDirectory(directory.toPath()).withSegmentMaxRows(1000)
+                .build();
+        GetCollectionStatisticsResponse after = statistics("items");
+        assertEquals(before.getRowCount(), after.getRowCount());
+        assertEquals(before.getDeletedRowCount(), after.getDeletedRowCount());
+        assertEquals(Long.valueOf(2500L), before.getIndexedRows().get("age"));
+        assertEquals(before.getIndexedRows(), after.getIndexedRows());
+        for (int round = 0; round < 2; round++) {
+            check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+            assertEquals(ages, search("items", "age == 7"));
+            assertEquals(tags, search("items", "tag like \"t-1%\""));
+            assertEquals(new TreeSet<>(Arrays.asList(2L, 2505L)), search("items", "id in [2, 3, 4, 2504, 2505]"));
+            check(client.releaseCollection(ReleaseCollectionParam.newBuilder().withCollectionName("items").build()));
+        }
+    }
+
+    @Test
+    public void partitionsLoadAndReleaseTheWholeCollection() throws IOException {
+        client = LocalMilvusClient.newBuilder().withDataDirectory(folder.newFolder().toPath())
+                .withSegmentMaxRows(1000).build();
+        createItems("items");
+        insertItems("items", 0, 2500);
+        check(client.flush(FlushParam.newBuilder().withCollectionName("items").build()));
+        assertTrue(client.search(searchParam("items")).getException() instanceof IllegalStateException);
+
+        for (int round = 0; round < 2; round++) {
+            check(client.loadPartition(LoadPartitionParam.newBuilder().withCollectionName("items")
+                    .withPartitionName("_default").build()));
+            assertEquals(10, check(client.search(searchParam("items"))).getIds(0).size());
+            check(client.releasePartition(ReleasePartitionParam.newBuilder().withCollectionName("items")
+                    .withPartitionName("_default").build()));
+            assertTrue(client.search(searchParam("items")).getException() instanceof IllegalStateException);
+        }
+
+        R<?> load = client.loadPartition(LoadPartitionParam.newBuilder().withCollectionName("items")
+                .withPartitionName("p1").build());
+        assertTrue(load.getException() instanceof IllegalArgumentException);
+        assertTrue(client.search(searchParam("items")).getException() instanceof IllegalStateException);
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+        R<?> release = client.releasePartition(ReleasePartitionParam.newBuilder().withCollectionName("items")
+                .withPartitionName("p1").build());
+        assertTrue(release.getException() instanceof IllegalArgumentException);
+        check(client.search(searchParam("items")));
+    }
+
+    @Test(timeout = 60_000)
+    public void reloadingChangesTheReplicasWithoutFailingSearches() throws Exception {
+        client = LocalMilvusClient.newBuilder().withSegmentMaxRows(1000).withSearchThreads(4).build();
+        createItems("items");
+        insertItems("items", 0, ROWS);
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService searchers = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Integer>> searches = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                searches.add(searchers.submit(() -> {
+                    int count = 0;
+                    while (!done.get()) {
+                        assertEquals(10, check(client.search(searchParam("items"))).getIds(0).size());
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            for (int replicas : new int[] {3, 1, 2, 2}) {
+                check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items")
+                        .withNumReplicas(replicas).build()));
+                // every replica is used once the searches have been routed round-robin
+                String last = "search-items-replica-" + (replicas - 1) + "-";
+                while (Thread.getAllStackTraces().keySet().stream().noneMatch(th -> th.getName().startsWith(last))) {
+                    Thread.sleep(1L);
+                }
+            }
+            done.set(true);
+            for (Future<Integer> search : searches) {
+                assertTrue(search.get() > 0);
+            }
+        } finally {
+            done.set(true);
+            searchers.shutdownNow();
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void failedBackgroundCompactionsAreCountedAndRetried() throws InterruptedException {
+        client = LocalMilvusClient.newBuilder().withSegmentMaxRows(1000).withCompactionInterval(10)
+                .withCompactionDeleteRatio(0.5d).build();
+        createItems("items");
+        Hashtable<String, String> extraParam = new Hashtable<>();
+        extraParam.put("nlist", "4");
+        extraParam.put("m", "2");
+        check(client.createIndex(CreateIndexParam.newBuilder().withCollectionName("items").withFieldName("v")
+                .withIndexType(IndexType.IVF_PQ).withMetricType(MetricType.L2).withExtraParam(extraParam)
+                .withSyncMode(true).build()));
+        // both segments train their quantizer on 400 rows, but a merge keeps too few rows for the 256 centroids
+        for (int from = 0; from < 800; from += 400) {
+            insertItems("items", from, from + 400);
+            check(client.delete(DeleteParam.newBuilder().withCollectionName("items")
+                    .withExpr("id >= " + from + " and id < " + (from + 360)).build()));
+            check(client.flush(FlushParam.newBuilder().withCollectionName("items").build()));
+        }
+
+        // every pass fails again, so the scheduler survives the failures
+        while (check(client.getCompactionMetrics("items")).getFailures() < 3) {
+            Thread.sleep(10L);
+        }
+        CompactionMetrics metrics = check(client.getCompactionMetrics("items"));
+        assertEquals(0L, metrics.getCompactions());
+        assertEquals(2, metrics.getSealedSegments());
+        assertEquals(80L, statistics("items").getRowCount());
+        check(client.loadCollection(LoadCollectionParam.newBuilder().withCollectionName("items").build()));
+        assertEquals(80, search("items", "id >= 0").size());
+    }
+
+    private GetCollectionStatisticsResponse statistics(String collection) {
+        return check(client.getCollectionStatistics(GetCollectionStatisticsParam.newBuilder()
+                .withCollectionName(collection).build()));
+    }
+
+    private void createItems(String collection) {
+        CollectionSchema schema = CollectionSchema.newBuilder()
+                .addFieldType(FieldType.newBuilder().withName("id").withDataType(DataType.INT64)
+                        .withPrimaryKey(true).build())
+                .addFieldType(FieldType.newBuilder().withName("age").withDataType(DataType.INT64).build())
+                .addFieldType(FieldType.newBuilder().withName("tag").withDataType(DataType.VARCHAR)
+                        .withMaxLength(8).build())
+                .addFieldType(FieldType.newBuilder().withName("v").withDataType(DataType.FLOAT_VECTOR)
+                        .withDimension(2).build())
+                .build();
+        check(client.createCollection(CreateCollectionParam.newBuilder().withCollectionName(collection)
+                .withSchema(schema).build()));
+    }
+
+    private void insertItems(String collection, int from, int to) {
+        Random random = new Random(from);
+        List<Long> ids = new ArrayList<>();
+        List<Long> ages = new ArrayList<>();
+        List<String> tags = new ArrayList<>();
+        List<List<Float>> vectors = new ArrayList<>();
+        for (long id = from; id < to; id++) {
+            ids.add(id);
+            ages.add(age(id));
+            tags.add(tag(id));
+            vectors.add(Arrays.asList(random.nextFloat(), random.nextFloat()));
+        }
+        check(client.insert(InsertParam.newBuilder().withCollectionName(collection).withFields(Arrays.asList(
+                new InsertParam.Field("id", ids), new InsertParam.Field("age", ages),
+                new InsertParam.Field("tag", tags), new InsertParam.Field("v", vectors))).build()));
+    }
+
+    private static long age(long id) {
+        return id * 7 % 50;
+    }
+
+    private static String tag(long id) {
+        return "t-" + id * 13 % 100;
+    }
+
+    private Set<Long> search(String collection, String expr) {
+        SearchResponse response = check(client.search(SearchParam.newBuilder().withCollectionName(collection)
+                .withVectorFieldName("v").withMetricType(MetricType.L2).withTopK(ROWS)
+                .withVectors(Collections.singletonList(Arrays.asList(0.5f, 0.5f))).withExpr(expr).build()));
+        Set<Long> ids = new TreeSet<>();
+        for (Object id : response.getIds(0)) {
+            ids.add((Long) id);
+        }
+        return ids;
+    }
+
+    private static SearchParam searchParam(String collection) {
+        return SearchParam.newBuilder().withCollectionName(collection).withVectorFieldName("v")
+                .withMetricType(MetricType.L2).withTopK(10)
+                .withVectors(Collections.singletonList(Arrays.asList(0.5f, 0.5f))).build();
+    }
+
+    private void createIndex(String collection, String field, IndexType indexType) {
+        check(client.createIndex(CreateIndexParam.newBuilder().withCollectionName(collection).withFieldName(field)
+                .withIndexType(indexType).withSyncMode(true).build()));
+    }
+
+    private static <T> T check(R<T> response) {
+        assertNull(String.valueOf(response.getException()), response.getException());
+        return response.getData();
+    }
+}
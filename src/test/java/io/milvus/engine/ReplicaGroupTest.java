@@ -0,0 +1,160 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class ReplicaGroupTest {
+
+    @Test(timeout = 30_000)
+    public void idleReplicasTakeTurns() throws InterruptedException {
+        ReplicaGroup group = new ReplicaGroup("c", 3, 3);
+        try {
+            List<String> replicas = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                replicas.add(replica(group.call(ReplicaGroupTest::threadName)));
+            }
+            assertEquals(Arrays.asList("0", "1", "2", "0", "1", "2"), replicas);
+        } finally {
+            group.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void searchesAvoidTheBusyReplica() throws Exception {
+        ReplicaGroup group = new ReplicaGroup("c", 2, 2);
+        ExecutorService callers = Executors.newSingleThreadExecutor();
+        AtomicReference<String> busy = new AtomicReference<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Future<String> slow = callers.submit(() -> group.call(() -> {
+                busy.set(replica(threadName()));
+                started.countDown();
+                release.await();
+                return threadName();
+            }));
+            started.await();
+            // without the slow search the calls would alternate between both replicas
+            for (int i = 0; i < 10; i++) {
+                String replica = replica(group.call(ReplicaGroupTest::threadName));
+                assertNotEquals("replica " + busy.get() + " is busy", busy.get(), replica);
+            }
+            release.countDown();
+            assertEquals(busy.get(), replica(slow.get()));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            group.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void searchThreadsAreSplitAmongReplicas() throws Exception {
+        ReplicaGroup group = new ReplicaGroup("c", 2, 5);
+        ExecutorService callers = Executors.newFixedThreadPool(5);
+        // the five searches only complete if they all run at once
+        CyclicBarrier barrier = new CyclicBarrier(5);
+        Semaphore running = new Semaphore(0);
+        try {
+            List<Future<String>> searches = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                searches.add(callers.submit(() -> group.call(() -> {
+                    running.release();
+                    barrier.await(10, TimeUnit.SECONDS);
+                    return threadName();
+                })));
+                // submit one by one so that each search is routed knowing where the previous ones run
+                running.acquire();
+            }
+            Map<String, Integer> threads = new TreeMap<>();
+            for (Future<String> search : searches) {
+                threads.merge(replica(search.get()), 1, Integer::sum);
+            }
+            Map<String, Integer> expected = new TreeMap<>();
+            expected.put("0", 3);
+            expected.put("1", 2);
+            assertEquals(expected, threads);
+        } finally {
+            callers.shutdownNow();
+            group.shutdown();
+        }
+        // more replicas than threads still gives every replica one
+        ReplicaGroup wide = new ReplicaGroup("c", 4, 2);
+        try {
+            for (int i = 0; i < 4; i++) {
+                wide.call(ReplicaGroupTest::threadName);
+            }
+        } finally {
+            wide.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void replicasRunNoMoreSearchesThanTheirShare() throws Exception {
+        ReplicaGroup group = new ReplicaGroup("c", 2, 2);
+        ExecutorService callers = Executors.newFixedThreadPool(3);
+        CountDownLatch release = new CountDownLatch(1);
+        Semaphore running = new Semaphore(0);
+        try {
+            List<Future<String>> searches = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                searches.add(callers.submit(() -> group.call(() -> {
+                    running.release();
+                    release.await();
+                    return threadName();
+                })));
+                // the third search queues behind the first, on a replica with a single thread
+                assertEquals(i < 2, running.tryAcquire(i < 2 ? 10_000 : 200, TimeUnit.MILLISECONDS));
+            }
+            release.countDown();
+            assertTrue(running.tryAcquire(10, TimeUnit.SECONDS));
+            assertEquals(replica(searches.get(0).get()), replica(searches.get(2).get()));
+        } finally {
+            release.countDown();
+            callers.shutdownNow();
+            group.shutdown();
+        }
+    }
+
+    @Test(timeout = 30_000)
+    public void shutDownGroupsRejectSearches() throws InterruptedException {
+        ReplicaGroup group = new ReplicaGroup("c", 2, 2);
+        group.shutdown();
+        try {
+            group.call(ReplicaGroupTest::threadName);
+            fail("A shut down group must reject searches");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("released"));
+        }
+    }
+
+    private static String threadName() {
+        return Thread.currentThread().getName();
+    }
+
+    /**
+     * Returns the replica number in a thread name such as <code>search-c-replica-1-2</code>.
+     */
+    private static String replica(String threadName) {
+        String[] parts = threadName.split("-");
+        return parts[parts.length - 2];
+    }
+}
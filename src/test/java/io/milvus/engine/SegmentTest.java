@@ -0,0 +1,54 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.param.collection.FieldType;
+
+public class SegmentTest {
+    private static final List<FieldType> FIELDS = Arrays.asList(
+            FieldType.newBuilder().withName("id").withDataType(DataType.INT64).withPrimaryKey(true).build(),
+            FieldType.newBuilder().withName("tag").withDataType(DataType.VARCHAR).withMaxLength(16).build());
+
+    @Test(timeout = 10_000)
+    public void failedAppendIsPublishedAsDeletedRows() throws Exception {
+        Segment segment = new Segment(1L, FIELDS, 100);
+        List<List<?>> good = Arrays.asList(Arrays.asList(1L, 2L), Arrays.asList("a", "b"));
+        // a value the varchar column cannot write
+        List<List<?>> bad = Arrays.asList(Arrays.asList(3L, 4L, 5L), Arrays.asList("c", 42, "e"));
+        assertEquals(2, segment.append(good, 0, 2));
+        try {
+            segment.append(bad, 0, 3);
+            fail("The append should fail");
+        } catch (ClassCastException expected) {
+            // the rows stay reserved
+        }
+        // later appends and the seal do not wait on the failed range
+        Thread appender = new Thread(() -> segment.append(good, 0, 2));
+        appender.start();
+        appender.join();
+        segment.seal();
+        assertEquals(7, segment.getRowCount());
+        assertEquals(3, segment.getDeletedCount());
+        for (int row = 2; row < 5; row++) {
+            assertTrue(segment.getDeleted().contains(row));
+        }
+        assertEquals(Arrays.asList(1, 6), asList(segment.findRows(0, Collections.singleton(2L))));
+    }
+
+    private static List<Integer> asList(int[] rows) {
+        Integer[] boxed = new Integer[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            boxed[i] = rows[i];
+        }
+        return Arrays.asList(boxed);
+    }
+}
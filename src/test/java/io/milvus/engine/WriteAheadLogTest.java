@@ -0,0 +1,180 @@
+package io.milvus.engine;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteAheadLogTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysRecordsInOrder() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        for (Durability durability : Durability.values()) {
+            Path log = directory.resolve(durability.name());
+            try (WriteAheadLog wal = open(log, durability, 1 << 20, 0L, new ArrayList<>())) {
+                for (int i = 1; i <= 100; i++) {
+                    assertEquals(i, wal.append((byte) (i % 7), payload(i)));
+                }
+            }
+            List<Record> records = new ArrayList<>();
+            open(log, durability, 1 << 20, 0L, records).close();
+            assertEquals(100, records.size());
+            for (int i = 1; i <= 100; i++) {
+                Record record = records.get(i - 1);
+                assertEquals(i, record.lsn);
+                assertEquals((byte) (i % 7), record.type);
+                assertArrayEquals(payload(i), record.payload);
+            }
+        }
+    }
+
+    @Test
+    public void tornTailIsTruncated() throws IOException {
+        Path log = folder.getRoot().toPath();
+        try (WriteAheadLog wal = open(log, Durability.SYNC, 1 << 20, 0L, new ArrayList<>())) {
+            wal.append((byte) 1, payload(1));
+            wal.append((byte) 1, payload(2));
+        }
+        Path last = files(log).get(files(log).size() - 1);
+        long size = Files.size(last);
+        // half a frame, as left by a crash in the middle of a write
+        Files.write(last, new byte[]{12, 0, 0, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        List<Record> records = new ArrayList<>();
+        try (WriteAheadLog wal = open(log, Durability.SYNC, 1 << 20, 0L, records)) {
+            assertEquals(2, records.size());
+            assertEquals(size, Files.size(last));
+            assertEquals(3L, wal.append((byte) 1, payload(3)));
+        }
+        records.clear();
+        open(log, Durability.SYNC, 1 << 20, 0L, records).close();
+        assertEquals(3, records.size());
+    }
+
+    @Test
+    public void corruptRecordBeforeTheLastFileFails() throws IOException {
+        Path log = folder.getRoot().toPath();
+        try (WriteAheadLog wal = open(log, Durability.SYNC, 64, 0L, new ArrayList<>())) {
+            for (int i = 1; i <= 20; i++) {
+                wal.append((byte) 1, payload(i));
+            }
+        }
+        List<Path> files = files(log);
+        assertTrue(files.size() > 2);
+        byte[] bytes = Files.readAllBytes(files.get(0));
+        // flip a payload byte of the first record: its CRC no longer matches
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(files.get(0), bytes);
+        try {
+            open(log, Durability.SYNC, 64, 0L, new ArrayList<>());
+            fail("A corrupt record followed by more files should fail the replay");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("Corrupt write-ahead log"));
+        }
+    }
+
+    @Test
+    public void truncateKeepsRecordsAfterTheCheckpoint() throws IOException {
+        Path log = folder.getRoot().toPath();
+        try (WriteAheadLog wal = open(log, Durability.SYNC, 64, 0L, new ArrayList<>())) {
+            for (int i = 1; i <= 50; i++) {
+                wal.append((byte) 1, payload(i));
+            }
+            wal.truncate(30L);
+        }
+        List<Record> records = new ArrayList<>();
+        open(log, Durability.SYNC, 64, 30L, records).close();
+        assertTrue(records.get(0).lsn <= 31L);
+        assertEquals(50L, records.get(records.size() - 1).lsn);
+
+        // with every file truncated, LSNs continue after the checkpoint
+        try (WriteAheadLog wal = open(log, Durability.SYNC, 64, 50L, new ArrayList<>())) {
+            wal.truncate(Long.MAX_VALUE);
+            assertEquals(51L, wal.append((byte) 1, payload(51)));
+        }
+    }
+
+    @Test
+    public void concurrentTruncationsDoNotFail() throws Exception {
+        Path log = folder.getRoot().toPath();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (WriteAheadLog wal = open(log, Durability.GROUP, 64, 0L, new ArrayList<>())) {
+            for (int round = 0; round < 20; round++) {
+                for (int i = 0; i < 20; i++) {
+                    wal.append((byte) 1, payload(i));
+                }
+                long lsn = wal.append((byte) 1, payload(0));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> truncations = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    truncations.add(pool.submit(() -> {
+                        start.await();
+                        wal.truncate(lsn);
+                        return null;
+                    }));
+                }
+                start.countDown();
+                for (Future<?> truncation : truncations) {
+                    truncation.get();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static WriteAheadLog open(Path directory, Durability durability, long segmentBytes, long checkpoint,
+                                      List<Record> records) throws IOException {
+        return WriteAheadLog.open(directory, durability, 1, TimeUnit.MILLISECONDS, segmentBytes, checkpoint,
+                (lsn, type, payload) -> records.add(new Record(lsn, type, payload)));
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private static byte[] payload(int i) {
+        return ("record " + i).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class Record {
+        final long lsn;
+        final byte type;
+        final byte[] payload;
+
+        Record(long lsn, byte type, byte[] payload) {
+            this.lsn = lsn;
+            this.type = type;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package io.milvus.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.index.scalar.ScalarIndex;
+import io.milvus.param.collection.FieldType;
+
+public class FilterPlanTest {
+    private static final List<FieldType> FIELDS = Arrays.asList(
+            FieldType.newBuilder().withName("id").withDataType(DataType.INT64).withPrimaryKey(true).build(),
+            FieldType.newBuilder().withName("age").withDataType(DataType.INT32).build(),
+            FieldType.newBuilder().withName("price").withDataType(DataType.DOUBLE).build(),
+            FieldType.newBuilder().withName("score").withDataType(DataType.FLOAT).build(),
+            FieldType.newBuilder().withName("flag").withDataType(DataType.BOOL).build(),
+            FieldType.newBuilder().withName("name").withDataType(DataType.VARCHAR).withMaxLength(16).build());
+    private static final String[] STRINGS = {"", "a", "ab", "abc", "b", "é", "日本", "😀", "a😀", "Z"};
+    private static final double[] DOUBLES = {0.0, -0.0, 0.5, -1.5, 3.0, 1e300, Double.NaN,
+            Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.MIN_VALUE};
+    private static final long[] LONGS = {0L, 1L, -1L, 7L, 42L, Integer.MAX_VALUE, Integer.MIN_VALUE,
+            Long.MAX_VALUE, Long.MIN_VALUE};
+    private static final String[] NUMBER_LITERALS = {"0", "1", "-1", "7", "42", "0.5", "-1.5", "2.5", "3.0",
+            "2147483647", "2147483648", "-2147483649", "9223372036854775807", "-9223372036854775808",
+            "9223372036854775808", "1e300", "1e999", "-1e999", "4.9e-324", "-0.0"};
+
+    @Test
+    public void matchesInterpreterForRandomExpressions() {
+        Random random = new Random(49);
+        for (int round = 0; round < 20; round++) {
+            Columns columns = new Columns(random, 1 + random.nextInt(5000));
+            for (int i = 0; i < 50; i++) {
+                String text = expression(random, 3);
+                FilterPlan plan = FilterPlan.compile(text, FIELDS);
+                RowBitmap deleted = random.nextBoolean() ? null : columns.randomRows(random);
+                assertArrayEquals(text, rows(columns.expected(text, deleted)),
+                        rows(plan.select(columns, columns.rows, deleted)));
+            }
+        }
+    }
+
+    @Test
+    public void indexedFieldsMatchScannedFields() {
+        Random random = new Random(50);
+        IndexType[] indexTypes = {IndexType.STL_SORT, IndexType.INVERTED, IndexType.TRIE, IndexType.AUTOINDEX};
+        for (int round = 0; round < 10; round++) {
+            Columns columns = new Columns(random, 1 + random.nextInt(5000));
+            ColumnBlocks[] indexed = new ColumnBlocks[indexTypes.length];
+            for (int t = 0; t < indexTypes.length; t++) {
+                indexed[t] = columns.indexedBy(indexTypes[t]);
+            }
+            for (int i = 0; i < 50; i++) {
+                String text = expression(random, 2);
+                FilterPlan plan = FilterPlan.compile(text, FIELDS);
+                RowBitmap deleted = random.nextBoolean() ? null : columns.randomRows(random);
+                int[] expected = rows(plan.select(columns, columns.rows, deleted));
+                assertArrayEquals(text, rows(columns.expected(text, deleted)), expected);
+                for (int t = 0; t < indexTypes.length; t++) {
+                    assertArrayEquals(text + " with " + indexTypes[t], expected,
+                            rows(plan.select(indexed[t], columns.rows, deleted)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexIsIgnoredWhenItCoversOtherRows() {
+        Random random = new Random(3);
+        Columns columns = new Columns(random, 1000);
+        Columns shorter = new Columns(random, 999);
+        ColumnBlocks stale = new Columns(columns) {
+            @Override
+            public ScalarIndex index(int field) {
+                return field == 0 ? ScalarIndex.build(IndexType.STL_SORT, shorter.ids) : null;
+            }
+        };
+        FilterPlan plan = FilterPlan.compile("id == 42", FIELDS);
+        assertArrayEquals(rows(plan.select(columns, columns.rows, null)), rows(plan.select(stale, columns.rows, null)));
+    }
+
+    @Test
+    public void rejectIsTheComplementOfSelect() {
+        Random random = new Random(7);
+        Columns columns = new Columns(random, 3000);
+        RowBitmap deleted = columns.randomRows(random);
+        for (int i = 0; i < 100; i++) {
+            String text = expression(random, 3);
+            FilterPlan plan = FilterPlan.compile(text, FIELDS);
+            RowBitmap selected = plan.select(columns, columns.rows, deleted);
+            RowBitmap rejected = plan.reject(columns, columns.rows, deleted);
+            for (int row = 0; row < columns.rows; row++) {
+                assertEquals(text + " at row " + row, !selected.contains(row), rejected.contains(row));
+            }
+            assertEquals(-1, rejected.next(columns.rows));
+        }
+    }
+
+    @Test
+    public void keysOfEqualityAndInLists() {
+        assertEquals(new HashSet<Object>(Arrays.asList(1L, 5L)),
+                FilterPlan.compile("id in [1, 5]", FIELDS).getKeys(0));
+        assertEquals(new HashSet<Object>(Arrays.asList("ab")),
+                FilterPlan.compile("name == \"ab\"", FIELDS).getKeys(5));
+        assertNull(FilterPlan.compile("id in [1, 5] and age > 3", FIELDS).getKeys(0));
+        assertNull(FilterPlan.compile("id > 1", FIELDS).getKeys(0));
+    }
+
+    @Test
+    public void invalidExpressionsAreRejected() {
+        String[] invalid = {"", "id", "missing > 1", "name > 1", "id like \"a%\"", "name like \"a%b\"",
+                "flag < true", "age == \"1\"", "1 < id > 5", "(id > 1", "id in [1, 2"};
+        for (String text : invalid) {
+            try {
+                FilterPlan.compile(text, FIELDS);
+                throw new AssertionError("Compiled " + text);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void cacheCompilesEachExpressionOnce() {
+        FilterCache cache = new FilterCache(FIELDS, 2);
+        FilterPlan plan = cache.get("id > 1");
+        assertSame(plan, cache.get("id > 1"));
+        cache.get("id > 2");
+        cache.get("id > 3");
+        assertEquals(3, cache.getMisses());
+        assertEquals(1, cache.getHits());
+        cache.get("id > 1");
+        assertEquals(4, cache.getMisses());
+    }
+
+    static int[] rows(RowBitmap bitmap) {
+        int[] rows = new int[bitmap.cardinality()];
+        int i = 0;
+        for (int row = bitmap.next(0); row >= 0; row = bitmap.next(row + 1)) {
+            rows[i++] = row;
+        }
+        return rows;
+    }
+
+    /**
+     * Returns a random well-typed expression of at most the given depth.
+     */
+    static String expression(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 6 : 3);
+        switch (kind) {
+            case 0:
+            case 1:
+            case 2:
+                return predicate(random);
+            case 3:
+                return "not (" + expression(random, depth - 1) + ")";
+            default:
+                StringBuilder builder = new StringBuilder("(");
+                String separator = random.nextBoolean() ? (random.nextBoolean() ? " and " : " && ")
+                        : (random.nextBoolean() ? " or " : " || ");
+                int operands = 2 + random.nextInt(3);
+                for (int i = 0; i < operands; i++) {
+                    builder.append(i == 0 ? "" : separator).append(expression(random, depth - 1));
+                }
+                return builder.append(')').toString();
+        }
+    }
+
+    private static String predicate(Random random) {
+        String[] ops = {"==", "!=", "<", "<=", ">", ">="};
+        int field = random.nextInt(FIELDS.size());
+        String name = FIELDS.get(field).getName();
+        switch (FIELDS.get(field).getDataType()) {
+            case BOOL:
+                switch (random.nextInt(3)) {
+                    case 0:
+                        return name;
+                    case 1:
+                        return name + (random.nextBoolean() ? " == " : " != ") + random.nextBoolean();
+                    default:
+                        return random.nextBoolean() + " == " + name;
+                }
+            case VARCHAR:
+                switch (random.nextInt(5)) {
+                    case 0:
+                        return name + " like " + quote(randomString(random) + "%");
+                    case 1:
+                        return name + " like " + quote(randomString(random));
+                    case 2:
+                        return name + (random.nextBoolean() ? " in " : " not in ") + list(random, true);
+                    case 3:
+                        return quote(randomString(random)) + " <= " + name + " < " + quote(randomString(random));
+                    default:
+                        return name + " " + ops[random.nextInt(ops.length)] + " " + quote(randomString(random));
+                }
+            default:
+                switch (random.nextInt(4)) {
+                    case 0:
+                        return name + (random.nextBoolean() ? " in " : " not in ") + list(random, false);
+                    case 1:
+                        return number(random) + (random.nextBoolean() ? " < " : " <= ") + name
+                                + (random.nextBoolean() ? " < " : " <= ") + number(random);
+                    case 2:
+                        return number(random) + " " + ops[random.nextInt(ops.length)] + " " + name;
+                    default:
+                        return name + " " + ops[random.nextInt(ops.length)] + " " + number(random);
+                }
+        }
+    }
+
+    private static String list(Random random, boolean strings) {
+        StringBuilder builder = new StringBuilder("[");
+        int size = random.nextInt(4);
+        for (int i = 0; i < size; i++) {
+            builder.append(i == 0 ? "" : ", ").append(strings ? quote(randomString(random)) : number(random));
+        }
+        return builder.append(']').toString();
+    }
+
+    private static String number(Random random) {
+        return NUMBER_LITERALS[random.nextInt(NUMBER_LITERALS.length)];
+    }
+
+    private static String quote(String value) {
+        return '"' + value + '"';
+    }
+
+    static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int parts = random.nextInt(3);
+        for (int i = 0; i < parts; i++) {
+            builder.append(STRINGS[random.nextInt(STRINGS.length)]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Random columns of the test schema held in arrays, with boxed rows for the interpreter.
+     */
+    static class Columns implements ColumnBlocks {
+        final int rows;
+        final long[] ids;
+        final long[] ages;
+        final double[] prices;
+        final double[] scores;
+        final long[] flags;
+        final String[] names;
+
+        Columns(Random random, int rows) {
+            this.rows = rows;
+            ids = new long[rows];
+            ages = new long[rows];
+            prices = new double[rows];
+            scores = new double[rows];
+            flags = new long[rows];
+            names = new String[rows];
+            for (int row = 0; row < rows; row++) {
+                ids[row] = random.nextInt(4) == 0 ? LONGS[random.nextInt(LONGS.length)] : random.nextInt(100);
+                ages[row] = random.nextInt(4) == 0 ? (int) LONGS[random.nextInt(LONGS.length)]
+                        : random.nextInt(50) - 5;
+                prices[row] = random.nextInt(4) == 0 ? DOUBLES[random.nextInt(DOUBLES.length)]
+                        : random.nextInt(20) / 2.0 - 2;
+                scores[row] = (float) (random.nextInt(4) == 0 ? DOUBLES[random.nextInt(DOUBLES.length)]
+                        : random.nextGaussian() * 4);
+                flags[row] = random.nextInt(2);
+                names[row] = randomString(random);
+            }
+        }
+
+        Columns(Columns columns) {
+            rows = columns.rows;
+            ids = columns.ids;
+            ages = columns.ages;
+            prices = columns.prices;
+            scores = columns.scores;
+            flags = columns.flags;
+            names = columns.names;
+        }
+
+        /**
+         * Returns the columns with an index of every field the index type applies to.
+         */
+        ColumnBlocks indexedBy(IndexType indexType) {
+            ScalarIndex[] indexes = new ScalarIndex[FIELDS.size()];
+            if (indexType != IndexType.TRIE) {
+                indexes[0] = ScalarIndex.build(indexType, ids);
+                indexes[1] = ScalarIndex.build(indexType, ages);
+                indexes[2] = ScalarIndex.build(indexType, prices);
+                indexes[3] = ScalarIndex.build(indexType, scores);
+            }
+            indexes[5] = ScalarIndex.build(indexType, Arrays.asList(names));
+            return new Columns(this) {
+                @Override
+                public ScalarIndex index(int field) {
+                    return indexes[field];
+                }
+            };
+        }
+
+        RowBitmap randomRows(Random random) {
+            RowBitmap bitmap = new RowBitmap();
+            for (int row = 0; row < rows; row++) {
+                if (random.nextInt(10) == 0) {
+                    bitmap.add(row);
+                }
+            }
+            return bitmap;
+        }
+
+        /**
+         * Returns the live rows the interpreter matches.
+         */
+        RowBitmap expected(String text, RowBitmap deleted) {
+            FilterExpr expr = FilterExpr.parse(text);
+            RowBitmap expected = new RowBitmap();
+            Map<String, Object> values = new HashMap<>();
+            for (int row = 0; row < rows; row++) {
+                values.put("id", ids[row]);
+                values.put("age", ages[row]);
+                values.put("price", prices[row]);
+                values.put("score", scores[row]);
+                values.put("flag", flags[row] == 1);
+                values.put("name", names[row]);
+                if ((deleted == null || !deleted.contains(row)) && expr.test(values::get)) {
+                    expected.add(row);
+                }
+            }
+            return expected;
+        }
+
+        @Override
+        public void readLongs(int field, int from, int count, long[] into) {
+            System.arraycopy(field == 0 ? ids : field == 1 ? ages : flags, from, into, 0, count);
+        }
+
+        @Override
+        public void readDoubles(int field, int from, int count, double[] into) {
+            System.arraycopy(field == 2 ? prices : scores, from, into, 0, count);
+        }
+
+        @Override
+        public void readStrings(int field, int from, int count, Utf8Block into) {
+            for (int i = 0; i < count; i++) {
+                into.add(names[from + i].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.enums.MetricType;
+
+public class AnnoyIndexTest {
+    private static final IndexRecall DATA = new IndexRecall(10000, 28L);
+    private static final IndexParams BUILD = IndexParams.empty().with(IndexParams.N_TREES, 16);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recallGrowsWithSearchK() {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            AnnoyIndex index = new AnnoyIndex(IndexRecall.DIM, metricType, BUILD);
+            index.build(DATA.data, DATA.rows);
+            // topK * n_trees leaves by default: about 0.8 on L2 and 0.6 on IP, then 0.9 or more and 1
+            double byDefault = DATA.of(index, 10, IndexParams.empty());
+            double wider = DATA.of(index, 10, IndexParams.empty().with(IndexParams.SEARCH_K, 500));
+            double widest = DATA.of(index, 10, IndexParams.empty().with(IndexParams.SEARCH_K, 4000));
+            String message = metricType + ": " + byDefault + ", " + wider + ", " + widest;
+            assertTrue(message, byDefault > 0.5 && wider > byDefault && widest >= wider);
+            assertTrue(message, wider > 0.85 && widest > 0.99);
+        }
+    }
+
+    @Test
+    public void savedIndexOpensToTheSameResults() throws IOException {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            AnnoyIndex index = new AnnoyIndex(IndexRecall.DIM, metricType, BUILD);
+            index.build(DATA.data, DATA.rows);
+            Path file = folder.newFile().toPath();
+            index.save(file);
+            AnnoyIndex opened = AnnoyIndex.open(file);
+            assertEquals(metricType, opened.getMetricType());
+            assertEquals(IndexRecall.DIM, opened.getDimension());
+            assertEquals(DATA.rows, opened.size());
+            assertEquals(index.memoryBytes(), opened.memoryBytes());
+            for (int q = 0; q < IndexRecall.QUERIES; q++) {
+                for (int searchK : new int[]{-1, 500}) {
+                    IndexParams search = IndexParams.empty().with(IndexParams.SEARCH_K, searchK);
+                    SearchResult expected = index.search(DATA.query(q), 10, search);
+                    SearchResult actual = opened.search(DATA.query(q), 10, search);
+                    assertArrayEquals(expected.getIds(), actual.getIds());
+                    assertArrayEquals(expected.getDistances(), actual.getDistances(), 0f);
+                }
+            }
+            // saving over an existing file replaces it
+            AnnoyIndex small = new AnnoyIndex(IndexRecall.DIM, metricType, BUILD);
+            small.build(DATA.data, 100);
+            small.save(file);
+            assertEquals(100, AnnoyIndex.open(file).size());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[4096]);
+        AnnoyIndex.open(file);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unbuiltIndexCannotBeSaved() throws IOException {
+        new AnnoyIndex(IndexRecall.DIM, MetricType.L2, BUILD).save(folder.newFile().toPath());
+    }
+}
@@ -0,0 +1,107 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import io.milvus.common.enums.DataType;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+public class AutoIndexTest {
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    @Test
+    public void floatVectorsGetTheFirstIndexThatFits() {
+        assertEquals(IndexType.FLAT, select(500, 32, UNLIMITED).getIndexType());
+        AutoIndex.Choice ivf = select(10_000, 32, UNLIMITED);
+        assertEquals(IndexType.IVF_FLAT, ivf.getIndexType());
+        assertEquals(400, ivf.getBuildParams().getInt(IndexParams.NLIST, 0));
+        assertEquals(25, ivf.getSearchParams().getInt(IndexParams.NPROBE, 0));
+        // small lists are still probed 16 at a time
+        assertEquals(16, select(2_000, 32, UNLIMITED).getSearchParams().getInt(IndexParams.NPROBE, 0));
+
+        AutoIndex.Choice hnsw = select(1_000_000, 128, UNLIMITED);
+        assertEquals(IndexType.HNSW, hnsw.getIndexType());
+        assertEquals(16, hnsw.getBuildParams().getInt(IndexParams.HNSW_M, 0));
+        assertEquals(AutoIndex.HNSW_EF, hnsw.getSearchParams().getInt(IndexParams.EF, 0));
+        assertEquals(32, select(1_000_000, 512, UNLIMITED).getBuildParams().getInt(IndexParams.HNSW_M, 0));
+
+        // 10k vectors of 32 floats: 1.37 MB as IVF_FLAT, 411 KB as IVF_SQ8 and 284 KB as IVF_PQ with m=16
+        assertEquals(IndexType.IVF_SQ8, select(10_000, 32, 1_000_000).getIndexType());
+        AutoIndex.Choice pq = select(10_000, 32, 300_000);
+        assertEquals(IndexType.IVF_PQ, pq.getIndexType());
+        assertEquals(16, pq.getBuildParams().getInt(IndexParams.PQ_M, 0));
+        assertTrue(pq.getEstimatedBytes() <= 300_000);
+        assertEquals(4, select(10_000, 32, 200_000).getBuildParams().getInt(IndexParams.PQ_M, 0));
+        try {
+            select(10_000, 32, 100_000);
+            fail("Nothing fits 100 KB");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("memory budget"));
+        }
+    }
+
+    @Test
+    public void binaryVectorsGetAnIvfIndexOnceLargeEnough() {
+        AutoIndex.Choice small = AutoIndex.select(10_000, 128, DataType.BINARY_VECTOR, MetricType.HAMMING, UNLIMITED);
+        assertEquals(IndexType.BIN_FLAT, small.getIndexType());
+        AutoIndex.Choice large = AutoIndex.select(100_000, 128, DataType.BINARY_VECTOR, MetricType.JACCARD,
+                UNLIMITED);
+        assertEquals(IndexType.BIN_IVF_FLAT, large.getIndexType());
+        // the lists cost 400 KB of IDs on top of the 1.6 MB of vectors
+        assertEquals(IndexType.BIN_FLAT, AutoIndex.select(100_000, 128, DataType.BINARY_VECTOR,
+                MetricType.TANIMOTO, 1_700_000).getIndexType());
+    }
+
+    @Test
+    public void invalidFieldsAreRejected() {
+        assertRejected(DataType.INT64, MetricType.L2);
+        assertRejected(DataType.FLOAT_VECTOR, MetricType.HAMMING);
+        assertRejected(DataType.BINARY_VECTOR, MetricType.IP);
+    }
+
+    @Test
+    public void builtIndexSearchesWithTheChosenParameters() {
+        IndexRecall data = new IndexRecall(10_000, 33L);
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            FloatVectorIndex index = VectorIndexFactory.create(IndexType.AUTOINDEX, metricType, IndexRecall.DIM,
+                    IndexParams.empty());
+            assertEquals(IndexType.AUTOINDEX, index.getIndexType());
+            index.build(data.data, data.rows);
+            assertEquals(IndexType.IVF_FLAT, index.getIndexType());
+            // nprobe 25 of 400 lists, about 0.95
+            double chosen = data.of(index, 10, IndexParams.empty());
+            double narrow = data.of(index, 10, IndexParams.empty().with(IndexParams.NPROBE, 1));
+            assertTrue(metricType + ": " + chosen + " vs " + narrow, chosen > 0.9 && narrow < chosen);
+
+            FloatVectorIndex flat = VectorIndexFactory.create(IndexType.AUTOINDEX, metricType, IndexRecall.DIM,
+                    IndexParams.empty());
+            flat.build(data.data, 500);
+            assertEquals(IndexType.FLAT, flat.getIndexType());
+        }
+
+        // a memory budget only IVF_PQ fits
+        FloatVectorIndex compressed = VectorIndexFactory.create(IndexType.AUTOINDEX, MetricType.L2,
+                IndexRecall.DIM, IndexParams.empty().with(IndexParams.MEMORY_BUDGET, 300_000));
+        compressed.build(data.data, data.rows);
+        assertEquals(IndexType.IVF_PQ, compressed.getIndexType());
+        assertTrue(compressed.memoryBytes() <= 300_000);
+        assertTrue(data.of(compressed, 10, IndexParams.empty()) > 0.5);
+    }
+
+    private static AutoIndex.Choice select(long rows, int dim, long budget) {
+        return AutoIndex.select(rows, dim, DataType.FLOAT_VECTOR, MetricType.L2, budget);
+    }
+
+    private static void assertRejected(DataType dataType, MetricType metricType) {
+        try {
+            AutoIndex.select(1_000, 32, dataType, metricType, UNLIMITED);
+            fail(dataType + " with " + metricType);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
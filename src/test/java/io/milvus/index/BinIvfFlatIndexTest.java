@@ -0,0 +1,131 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import io.milvus.bench.Datasets;
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.MetricType;
+
+public class BinIvfFlatIndexTest {
+    // not a multiple of 64, so the last word of every vector is partly used
+    private static final int DIM = 100;
+    private static final int WORDS = BinaryDistances.words(DIM);
+    private static final int ROWS = 10000;
+    private static final int QUERIES = 100;
+    private static final MetricType[] METRICS = {MetricType.HAMMING, MetricType.JACCARD, MetricType.TANIMOTO};
+    private static final long[] DATA;
+    private static final long[] QUERY_DATA;
+
+    static {
+        float[] vectors = Datasets.clustered(ROWS + QUERIES, DIM, 500, 30L);
+        long[] packed = Datasets.binarize(vectors, ROWS + QUERIES, DIM, Datasets.means(vectors, ROWS, DIM));
+        DATA = Arrays.copyOf(packed, ROWS * WORDS);
+        QUERY_DATA = Arrays.copyOfRange(packed, ROWS * WORDS, packed.length);
+    }
+
+    @Test
+    public void distancesOfKnownVectors() {
+        long[] a = {0b1011L, 1L << 35};
+        long[] b = {0b0110L, 1L << 35};
+        // 3 bits differ, 2 are shared and 5 are set in either
+        assertEquals(3f, BinaryDistances.distance(MetricType.HAMMING, a, 0, b, 0, 2), 0f);
+        assertEquals(1f - 2f / 5f, BinaryDistances.distance(MetricType.JACCARD, a, 0, b, 0, 2), 1e-6f);
+        assertEquals((float) (-Math.log(2d / 5d) / Math.log(2d)),
+                BinaryDistances.distance(MetricType.TANIMOTO, a, 0, b, 0, 2), 1e-6f);
+        assertEquals(0f, BinaryDistances.distance(MetricType.JACCARD, a, 0, a, 0, 2), 0f);
+        assertEquals(Float.MAX_VALUE, BinaryDistances.distance(MetricType.TANIMOTO, new long[]{1L}, 0,
+                new long[]{2L}, 0, 1), 0f);
+    }
+
+    @Test
+    public void flatIndexRanksEveryVector() {
+        for (MetricType metricType : METRICS) {
+            BinFlatIndex flat = new BinFlatIndex(DIM, metricType);
+            flat.build(DATA, ROWS);
+            for (int q = 0; q < 10; q++) {
+                long[] query = query(q);
+                float[] expected = new float[ROWS];
+                for (int i = 0; i < ROWS; i++) {
+                    expected[i] = BinaryDistances.distance(metricType, query, 0, DATA, i * WORDS, WORDS);
+                }
+                Arrays.sort(expected);
+                SearchResult result = flat.search(query, 20, IndexParams.empty());
+                assertArrayEquals(Arrays.copyOf(expected, 20), result.getDistances(), 0f);
+                for (int i = 0; i < result.size(); i++) {
+                    assertEquals(result.getDistances()[i], BinaryDistances.distance(metricType, query, 0, DATA,
+                            result.getIds()[i] * WORDS, WORDS), 0f);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void ivfRecallGrowsWithNprobe() {
+        for (MetricType metricType : METRICS) {
+            BinFlatIndex flat = new BinFlatIndex(DIM, metricType);
+            flat.build(DATA, ROWS);
+            BinIvfFlatIndex index = new BinIvfFlatIndex(DIM, metricType,
+                    IndexParams.empty().with(IndexParams.NLIST, 128));
+            index.build(DATA, ROWS);
+            // about 0.84, 0.93 and, with every list probed, exact
+            int[] nprobes = {1, 4, 128};
+            double[] minimums = {0.75, 0.88, 1d};
+            double previous = 0d;
+            for (int i = 0; i < nprobes.length; i++) {
+                double recall = recall(flat, index, IndexParams.empty().with(IndexParams.NPROBE, nprobes[i]));
+                String message = metricType + " nprobe=" + nprobes[i] + ": " + recall;
+                assertTrue(message, recall >= minimums[i] && recall >= previous);
+                previous = recall;
+            }
+        }
+    }
+
+    @Test
+    public void excludedRowsAreSkipped() {
+        BinIvfFlatIndex index = new BinIvfFlatIndex(DIM, MetricType.HAMMING,
+                IndexParams.empty().with(IndexParams.NLIST, 16));
+        index.build(DATA, ROWS);
+        IndexParams search = IndexParams.empty().with(IndexParams.NPROBE, 16);
+        long[] query = Arrays.copyOfRange(DATA, 42 * WORDS, 43 * WORDS);
+        assertEquals(42, index.search(query, 1, search).getIds()[0]);
+        RowBitmap excluded = new RowBitmap();
+        excluded.add(42);
+        SearchResult result = index.search(query, 10, search, excluded);
+        assertEquals(10, result.size());
+        for (int id : result.getIds()) {
+            assertTrue(id != 42);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void floatMetricsAreRejected() {
+        new BinIvfFlatIndex(DIM, MetricType.L2, IndexParams.empty());
+    }
+
+    private static long[] query(int q) {
+        return Arrays.copyOfRange(QUERY_DATA, q * WORDS, (q + 1) * WORDS);
+    }
+
+    /**
+     * Returns the mean fraction of results at most as far as the exact 10th result, which counts any of the
+     * vectors tied at that distance as a hit.
+     */
+    private static double recall(BinFlatIndex flat, BinIvfFlatIndex index, IndexParams searchParams) {
+        double sum = 0d;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] exact = flat.search(query(q), 10, IndexParams.empty()).getDistances();
+            int hits = 0;
+            for (float distance : index.search(query(q), 10, searchParams).getDistances()) {
+                hits += distance <= exact[exact.length - 1] ? 1 : 0;
+            }
+            sum += hits / 10d;
+        }
+        return sum / QUERIES;
+    }
+}
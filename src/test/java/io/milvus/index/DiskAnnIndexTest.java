@@ -0,0 +1,82 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.enums.MetricType;
+
+public class DiskAnnIndexTest {
+    private static final IndexRecall DATA = new IndexRecall(5000, 29L);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recallGrowsWithTheSearchList() throws IOException {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            DiskAnnIndex index = new DiskAnnIndex(IndexRecall.DIM, metricType, IndexParams.empty(),
+                    folder.newFile().toPath());
+            index.build(DATA.data, DATA.rows);
+            // about 0.4 with a list of 10, 0.97 by default and exact with 400
+            double narrow = DATA.of(index, 10, IndexParams.empty().with(IndexParams.SEARCH_LIST, 10));
+            double byDefault = DATA.of(index, 10, IndexParams.empty());
+            double wide = DATA.of(index, 10, IndexParams.empty().with(IndexParams.SEARCH_LIST, 400));
+            String message = metricType + ": " + narrow + ", " + byDefault + ", " + wide;
+            assertTrue(message, narrow < byDefault && byDefault > 0.9 && wide > 0.99);
+        }
+    }
+
+    @Test
+    public void partitionedBuildReopensToTheSameResults() throws IOException {
+        Path file = folder.newFile().toPath();
+        // 5000 points, each in two partitions of about 3000: four partition graphs merged into one
+        DiskAnnIndex index = new DiskAnnIndex(IndexRecall.DIM, MetricType.L2,
+                IndexParams.empty().with(IndexParams.BUILD_PARTITION_SIZE, 3000), file);
+        index.build(DATA.data, DATA.rows);
+        assertTrue(DATA.of(index, 10, IndexParams.empty()) > 0.9);
+
+        DiskAnnIndex opened = DiskAnnIndex.open(file);
+        assertEquals(MetricType.L2, opened.getMetricType());
+        assertEquals(DATA.rows, opened.size());
+        assertEquals(index.memoryBytes(), opened.memoryBytes());
+        for (int q = 0; q < IndexRecall.QUERIES; q++) {
+            for (int searchList : new int[]{10, 100}) {
+                IndexParams search = IndexParams.empty().with(IndexParams.SEARCH_LIST, searchList);
+                SearchResult expected = index.search(DATA.query(q), 10, search);
+                SearchResult actual = opened.search(DATA.query(q), 10, search);
+                assertArrayEquals(expected.getIds(), actual.getIds());
+                assertArrayEquals(expected.getDistances(), actual.getDistances(), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void smallIndexFindsEveryVector() {
+        // fewer vectors than PQ centroids
+        DiskAnnIndex index = new DiskAnnIndex(IndexRecall.DIM, MetricType.L2, IndexParams.empty());
+        index.build(DATA.data, 50);
+        for (int i = 0; i < 50; i++) {
+            float[] vector = Arrays.copyOfRange(DATA.data, i * IndexRecall.DIM, (i + 1) * IndexRecall.DIM);
+            SearchResult result = index.search(vector, 100, IndexParams.empty());
+            assertEquals(50, result.size());
+            assertEquals(i, result.getIds()[0]);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, new byte[4096]);
+        DiskAnnIndex.open(file);
+    }
+}
@@ -0,0 +1,46 @@
+package io.milvus.index;
+
+import java.util.Arrays;
+
+import io.milvus.bench.Datasets;
+import io.milvus.bench.Recall;
+import io.milvus.common.enums.MetricType;
+
+/**
+ * Clustered vectors and held-out queries drawn from the same clusters, to measure the recall of vector indexes
+ * against an exact scan.
+ */
+final class IndexRecall {
+    static final int DIM = 32;
+    static final int QUERIES = 100;
+    static final MetricType[] FLOAT_METRICS = {MetricType.L2, MetricType.IP};
+
+    final int rows;
+    final float[] data;
+    private final float[] queries;
+
+    IndexRecall(int rows, long seed) {
+        float[] vectors = Datasets.clustered(rows + QUERIES, DIM, 50, seed);
+        this.rows = rows;
+        this.data = Arrays.copyOf(vectors, rows * DIM);
+        this.queries = Arrays.copyOfRange(vectors, rows * DIM, vectors.length);
+    }
+
+    float[] query(int q) {
+        return Datasets.row(queries, DIM, q);
+    }
+
+    /**
+     * Returns the mean recall@k of an index built over {@link #data}.
+     */
+    double of(FloatVectorIndex index, int k, IndexParams searchParams) {
+        FlatIndex flat = new FlatIndex(DIM, index.getMetricType());
+        flat.build(data, rows);
+        double sum = 0d;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = query(q);
+            sum += Recall.at(k, flat.search(query, k, IndexParams.empty()), index.search(query, k, searchParams));
+        }
+        return sum / QUERIES;
+    }
+}
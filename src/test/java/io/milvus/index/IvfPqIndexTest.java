@@ -0,0 +1,76 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import io.milvus.common.enums.MetricType;
+
+public class IvfPqIndexTest {
+    private static final IndexRecall DATA = new IndexRecall(5000, 26L);
+    private static final IndexParams SEARCH = IndexParams.empty().with(IndexParams.NPROBE, 16);
+
+    @Test
+    public void recallGrowsWithTheNumberOfSubQuantizers() {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            // recall@10 of plain ADC is bounded by the quantization error: about 0.6 and 0.85 at nbits=8
+            double m8 = recall(metricType, 8, 8);
+            double m16 = recall(metricType, 16, 8);
+            assertTrue(metricType + " m=8: " + m8, m8 > 0.5);
+            assertTrue(metricType + " m=16: " + m16, m16 > 0.75 && m16 > m8);
+        }
+    }
+
+    @Test
+    public void fastScanRecall() {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            // 16 centroids per sub-quantizer: about 0.3, 0.55 and 0.8 at m=8, 16 and 32
+            double m8 = recall(metricType, 8, 4);
+            double m16 = recall(metricType, 16, 4);
+            double m32 = recall(metricType, 32, 4);
+            assertTrue(metricType + " m=8: " + m8, m8 > 0.2);
+            assertTrue(metricType + " m=16: " + m16, m16 > 0.45 && m16 > m8);
+            assertTrue(metricType + " m=32: " + m32, m32 > 0.7 && m32 > m16);
+        }
+    }
+
+    @Test
+    public void fastScanReturnsTheResultsOfPlainAdc() {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            for (int m : new int[]{4, 8, 16, 32}) {
+                IndexParams params = IndexParams.empty().with(IndexParams.NLIST, 32).with(IndexParams.PQ_M, m)
+                        .with(IndexParams.PQ_NBITS, 4);
+                // both indexes train on the same seed, so they hold the same codes in different layouts
+                IvfPqIndex fast = new IvfPqIndex(IndexRecall.DIM, metricType, params);
+                IvfPqIndex plain = new IvfPqIndex(IndexRecall.DIM, metricType, params, false);
+                fast.build(DATA.data, DATA.rows);
+                plain.build(DATA.data, DATA.rows);
+                assertEquals((m + 1) / 2 + 4, fast.bytesPerVector());
+                assertEquals(m + 4, plain.bytesPerVector());
+                for (int q = 0; q < IndexRecall.QUERIES; q++) {
+                    float[] query = DATA.query(q);
+                    for (int topK : new int[]{1, 10, 100}) {
+                        SearchResult expected = plain.search(query, topK, SEARCH);
+                        SearchResult actual = fast.search(query, topK, SEARCH);
+                        String message = metricType + " m=" + m + " topK=" + topK + " query " + q;
+                        assertArrayEquals(message, expected.getDistances(), actual.getDistances(), 1e-4f);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subQuantizersMustDivideTheDimension() {
+        new IvfPqIndex(IndexRecall.DIM, MetricType.L2, IndexParams.empty().with(IndexParams.PQ_M, 5));
+    }
+
+    private static double recall(MetricType metricType, int m, int nbits) {
+        IvfPqIndex index = new IvfPqIndex(IndexRecall.DIM, metricType, IndexParams.empty()
+                .with(IndexParams.NLIST, 32).with(IndexParams.PQ_M, m).with(IndexParams.PQ_NBITS, nbits));
+        index.build(DATA.data, DATA.rows);
+        return DATA.of(index, 10, SEARCH);
+    }
+}
@@ -0,0 +1,91 @@
+package io.milvus.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import io.milvus.common.RowBitmap;
+import io.milvus.common.enums.IndexType;
+import io.milvus.common.enums.MetricType;
+
+public class RhnswIndexTest {
+    private static final IndexRecall DATA = new IndexRecall(5000, 32L);
+    private static final IndexParams BUILD = IndexParams.empty().with(IndexParams.HNSW_M, 8)
+            .with(IndexParams.EF_CONSTRUCTION, 64);
+    private static final IndexParams SEARCH = IndexParams.empty().with(IndexParams.EF, 128);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void refinementRecoversTheRecallOfCompressedGraphs() {
+        for (MetricType metricType : IndexRecall.FLOAT_METRICS) {
+            RhnswIndex flat = build(IndexType.RHNSW_FLAT, metricType, null);
+            RhnswIndex sq = build(IndexType.RHNSW_SQ, metricType, null);
+            RhnswIndex pq = build(IndexType.RHNSW_PQ, metricType, null);
+            assertTrue(metricType + " FLAT", DATA.of(flat, 10, SEARCH) > 0.97);
+            assertTrue(metricType + " SQ", DATA.of(sq, 10, SEARCH) > 0.97);
+
+            // PQ codes rank poorly on their own, about 0.4 when only the top 10 are re-scored: recall grows with
+            // the refine factor up to about 0.95 when all ef candidates are
+            double[] recalls = {DATA.of(pq, 10, SEARCH.with(IndexParams.REFINE_FACTOR, 1)),
+                    DATA.of(pq, 10, SEARCH.with(IndexParams.REFINE_FACTOR, 4)), DATA.of(pq, 10, SEARCH)};
+            String message = metricType + " PQ: " + recalls[0] + ", " + recalls[1] + ", " + recalls[2];
+            assertTrue(message, recalls[0] < recalls[1] && recalls[1] < recalls[2]);
+            assertTrue(message, recalls[1] > 0.7 && recalls[2] > 0.9);
+        }
+    }
+
+    @Test
+    public void refinedDistancesAreExact() throws IOException {
+        for (IndexType indexType : new IndexType[]{IndexType.RHNSW_SQ, IndexType.RHNSW_PQ}) {
+            Path file = folder.newFile().toPath();
+            RhnswIndex index = build(indexType, MetricType.L2, file);
+            // the raw vectors are mapped from the file, not held on the heap
+            assertEquals(4L * IndexRecall.DIM * DATA.rows, index.mappedBytes());
+            assertEquals(index.mappedBytes(), Files.size(file));
+            for (int q = 0; q < 10; q++) {
+                float[] query = DATA.query(q);
+                SearchResult result = index.search(query, 10, SEARCH);
+                assertEquals(10, result.size());
+                for (int i = 0; i < result.size(); i++) {
+                    int id = result.getIds()[i];
+                    assertEquals(Distances.distance(MetricType.L2, query, 0, DATA.data, id * IndexRecall.DIM,
+                            IndexRecall.DIM), result.getDistances()[i], 1e-4f);
+                }
+            }
+        }
+        assertEquals(0L, build(IndexType.RHNSW_FLAT, MetricType.L2, null).mappedBytes());
+    }
+
+    @Test
+    public void excludedRowsAreNotRefined() {
+        RhnswIndex index = build(IndexType.RHNSW_SQ, MetricType.L2, null);
+        float[] vector = Arrays.copyOfRange(DATA.data, 7 * IndexRecall.DIM, 8 * IndexRecall.DIM);
+        assertEquals(7, index.search(vector, 1, SEARCH).getIds()[0]);
+        RowBitmap excluded = new RowBitmap();
+        excluded.add(7);
+        for (int id : index.search(vector, 10, SEARCH, excluded).getIds()) {
+            assertTrue(id != 7);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void subQuantizersMustDivideTheDimension() {
+        new RhnswIndex(IndexType.RHNSW_PQ, IndexRecall.DIM, MetricType.L2, BUILD.with(IndexParams.PQ_M, 5));
+    }
+
+    private static RhnswIndex build(IndexType indexType, MetricType metricType, Path file) {
+        RhnswIndex index = new RhnswIndex(indexType, IndexRecall.DIM, metricType, BUILD, file);
+        index.build(DATA.data, DATA.rows);
+        return index;
+    }
+}
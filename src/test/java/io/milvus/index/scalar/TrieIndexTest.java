@@ -0,0 +1,137 @@
+package io.milvus.index.scalar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import io.milvus.common.enums.IndexType;
+
+public class TrieIndexTest {
+    private static final String[] ALPHABET = {"a", "b", "ab", "é", "日", "😀", "", "", "z"};
+
+    @Test
+    public void emptySegmentFindsNothing() {
+        ScalarIndex index = ScalarIndex.build(IndexType.TRIE, new ArrayList<>());
+        assertEquals(IndexType.TRIE, index.getIndexType());
+        assertEquals(0, index.getValueCount());
+        long[] words = new long[1];
+        // like "%" and like "a%"
+        assertEquals(0, index.count(utf8(""), true, null, false));
+        assertEquals(0, index.count(utf8("a"), true, utf8("b"), false));
+        index.select(utf8(""), true, null, false, words);
+        index.select(utf8("a"), true, utf8("a"), true, words);
+        assertEquals(0L, words[0]);
+    }
+
+    @Test
+    public void emptyStringIsAValue() {
+        ScalarIndex index = ScalarIndex.build(IndexType.TRIE, list("", "a", "", "ab"));
+        assertEquals(2, index.count(utf8(""), true, utf8(""), true));
+        assertEquals(4, index.count(utf8(""), true, null, false));
+        assertEquals(2, index.count(utf8("a"), true, utf8("b"), false));
+        assertEquals(2, index.count(null, false, utf8("a"), false));
+    }
+
+    @Test
+    public void matchesScanForRandomValues() {
+        Random random = new Random(31);
+        for (int round = 0; round < 50; round++) {
+            List<String> values = new ArrayList<>();
+            int rows = 1 + random.nextInt(300);
+            for (int row = 0; row < rows; row++) {
+                values.add(randomString(random));
+            }
+            ScalarIndex trie = ScalarIndex.build(IndexType.TRIE, values);
+            ScalarIndex sorted = ScalarIndex.build(IndexType.STL_SORT, values);
+            assertEquals(sorted.getValueCount(), trie.getValueCount());
+            for (int query = 0; query < 40; query++) {
+                byte[] lower = random.nextInt(5) == 0 ? null : utf8(randomString(random));
+                byte[] upper = random.nextInt(5) == 0 ? null : utf8(randomString(random));
+                boolean lowerInclusive = random.nextBoolean();
+                boolean upperInclusive = random.nextBoolean();
+                long[] expected = new long[(rows + 63) / 64];
+                for (int row = 0; row < rows; row++) {
+                    byte[] value = utf8(values.get(row));
+                    if (inRange(value, lower, lowerInclusive, upper, upperInclusive)) {
+                        expected[row >>> 6] |= 1L << row;
+                    }
+                }
+                long[] fromTrie = new long[expected.length];
+                long[] fromSorted = new long[expected.length];
+                trie.select(lower, lowerInclusive, upper, upperInclusive, fromTrie);
+                sorted.select(lower, lowerInclusive, upper, upperInclusive, fromSorted);
+                assertArrayEquals(expected, fromTrie);
+                assertArrayEquals(expected, fromSorted);
+                assertEquals(bitCount(expected), trie.count(lower, lowerInclusive, upper, upperInclusive));
+            }
+        }
+    }
+
+    @Test
+    public void sharedPrefixesTakeLessMemoryThanSortedIndex() {
+        Random random = new Random(7);
+        List<String> values = new ArrayList<>();
+        for (int row = 0; row < 20_000; row++) {
+            values.add(String.format("/warehouse/region-%d/aisle-%02d/shelf-%04d", random.nextInt(4),
+                    random.nextInt(20), random.nextInt(1000)));
+        }
+        ScalarIndex trie = ScalarIndex.build(IndexType.TRIE, values);
+        ScalarIndex sorted = ScalarIndex.build(IndexType.STL_SORT, values);
+        assertTrue(trie.memoryBytes() + " vs " + sorted.memoryBytes(), trie.memoryBytes() < sorted.memoryBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void numericValuesAreRejected() {
+        ScalarIndex.build(IndexType.TRIE, new long[]{1L, 2L});
+    }
+
+    private static boolean inRange(byte[] value, byte[] lower, boolean lowerInclusive, byte[] upper,
+                                   boolean upperInclusive) {
+        if (lower != null) {
+            int c = Keys.compare(value, lower);
+            if (c < 0 || c == 0 && !lowerInclusive) {
+                return false;
+            }
+        }
+        if (upper != null) {
+            int c = Keys.compare(value, upper);
+            return c < 0 || c == 0 && upperInclusive;
+        }
+        return true;
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder builder = new StringBuilder();
+        int length = random.nextInt(4);
+        for (int i = 0; i < length; i++) {
+            builder.append(ALPHABET[random.nextInt(ALPHABET.length)]);
+        }
+        return builder.toString();
+    }
+
+    private static int bitCount(long[] words) {
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static List<String> list(String... values) {
+        List<String> list = new ArrayList<>();
+        Collections.addAll(list, values);
+        return list;
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}